@@ -0,0 +1,291 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The group/versions a cluster serves, read from the API server root paths
+ * with a single request and then kept in memory and in a file for the TTL,
+ * so helpers can pick an API version without a discovery round trip per
+ * call and without trying versions until one stops failing. The file is
+ * keyed by the server URL; an unreadable or foreign file is ignored and
+ * rewritten.
+ *
+ * @author cwoodward
+ */
+public class ApiDiscoveryCache {
+
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiDiscoveryCache.class);
+    private static final String CACHE_DIRECTORY = ".kube/cache/k8s-client-helpers";
+    private static final String CORE_PATH_PREFIX = "/api/";
+    private static final String GROUP_PATH_PREFIX = "/apis/";
+    private static final String SERVER_FIELD = "server";
+    private static final String FETCHED_FIELD = "fetchedMillis";
+    private static final String GROUP_VERSIONS_FIELD = "groupVersions";
+
+    private final KubernetesClient client;
+    private final Path cacheFile;
+    private final long ttlMillis;
+    private final AtomicLong discoveryCount = new AtomicLong();
+    private volatile Set<String> groupVersions;
+    private volatile long fetchedMillis;
+
+    /**
+     *
+     * @param client
+     * @param cacheFile where discovery results are kept between processes, or
+     * null to keep them in memory only
+     * @param ttlMillis how long a discovery result is trusted
+     */
+    public ApiDiscoveryCache(KubernetesClient client, Path cacheFile, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive");
+        }
+        this.client = client;
+        this.cacheFile = cacheFile;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * A cache in the user's kube cache directory with the default TTL.
+     *
+     * @param client
+     * @return
+     */
+    public static ApiDiscoveryCache forClient(KubernetesClient client) {
+        return new ApiDiscoveryCache(client, defaultCacheFile(client.getMasterUrl().toString()), DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     *
+     * @param serverUrl
+     * @return
+     */
+    public static Path defaultCacheFile(String serverUrl) {
+        String name = serverUrl.replaceFirst("^[a-zA-Z]+://", "").replaceAll("[^a-zA-Z0-9.-]", "_");
+        return Paths.get(System.getProperty("user.home"), CACHE_DIRECTORY, name + ".json");
+    }
+
+    /**
+     *
+     * @param groupVersion a group/version such as batch/v1, or v1 for the
+     * core group
+     * @return
+     */
+    public boolean isServed(String groupVersion) {
+        return getGroupVersions().contains(groupVersion);
+    }
+
+    /**
+     *
+     * @param group
+     * @param versions candidate versions, most preferred first
+     * @return the first group/version the cluster serves, or null if it
+     * serves none of them
+     */
+    public String selectVersion(String group, String... versions) {
+        Set<String> served = getGroupVersions();
+        for (String version : versions) {
+            String groupVersion = group.isEmpty() ? version : group + "/" + version;
+            if (served.contains(groupVersion)) {
+                return groupVersion;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @return the served group/versions, discovering them if the cached
+     * result is missing or older than the TTL
+     */
+    public Set<String> getGroupVersions() {
+        Set<String> current = groupVersions;
+        if (current != null && isFresh(fetchedMillis)) {
+            return current;
+        }
+        return load();
+    }
+
+    /**
+     * Discards the cached result, in memory and on disk, and discovers again.
+     *
+     * @return
+     */
+    public synchronized Set<String> refresh() {
+        return discover();
+    }
+
+    /**
+     *
+     * @return when the current result was discovered, or 0 if none is loaded
+     */
+    public long getFetchedMillis() {
+        return fetchedMillis;
+    }
+
+    /**
+     *
+     * @return requests made to the API server
+     */
+    public long getDiscoveryCount() {
+        return discoveryCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    private synchronized Set<String> load() {
+        if (groupVersions != null && isFresh(fetchedMillis)) {
+            return groupVersions;
+        }
+        if (readCacheFile()) {
+            return groupVersions;
+        }
+        return discover();
+    }
+
+    private Set<String> discover() {
+        discoveryCount.incrementAndGet();
+        List<String> paths = client.rootPaths().getPaths();
+        Set<String> discovered = new TreeSet<>();
+        if (paths != null) {
+            for (String path : paths) {
+                String groupVersion = groupVersion(path);
+                if (groupVersion != null) {
+                    discovered.add(groupVersion);
+                }
+            }
+        }
+        groupVersions = Collections.unmodifiableSet(discovered);
+        fetchedMillis = System.currentTimeMillis();
+        writeCacheFile();
+        return groupVersions;
+    }
+
+    /**
+     *
+     * @param path a root path such as /apis/batch/v1
+     * @return the group/version, or null for paths that are not one
+     */
+    static String groupVersion(String path) {
+        if (path.startsWith(CORE_PATH_PREFIX)) {
+            String version = path.substring(CORE_PATH_PREFIX.length());
+            return version.isEmpty() || version.contains("/") ? null : version;
+        }
+        if (path.startsWith(GROUP_PATH_PREFIX)) {
+            String groupVersion = path.substring(GROUP_PATH_PREFIX.length());
+            int slash = groupVersion.indexOf('/');
+            return slash <= 0 || slash == groupVersion.length() - 1 || groupVersion.indexOf('/', slash + 1) >= 0 ? null : groupVersion;
+        }
+        return null;
+    }
+
+    private boolean isFresh(long millis) {
+        return System.currentTimeMillis() - millis < ttlMillis;
+    }
+
+    private boolean readCacheFile() {
+        if (cacheFile == null) {
+            return false;
+        }
+        try {
+            Map<String, Object> cached = Serialization.jsonMapper().readValue(Files.readAllBytes(cacheFile),
+                    new TypeReference<Map<String, Object>>() {
+            });
+            long cachedMillis = ((Number) cached.get(FETCHED_FIELD)).longValue();
+            if (!client.getMasterUrl().toString().equals(cached.get(SERVER_FIELD)) || !isFresh(cachedMillis)) {
+                return false;
+            }
+            Set<String> cachedVersions = new TreeSet<>();
+            for (Object groupVersion : (List<?>) cached.get(GROUP_VERSIONS_FIELD)) {
+                cachedVersions.add((String) groupVersion);
+            }
+            groupVersions = Collections.unmodifiableSet(cachedVersions);
+            fetchedMillis = cachedMillis;
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("ignoring unreadable discovery cache {}", cacheFile, e);
+            return false;
+        }
+    }
+
+    // written to a temporary file and moved into place so readers never see half a file
+    private void writeCacheFile() {
+        if (cacheFile == null) {
+            return;
+        }
+        Map<String, Object> cached = new LinkedHashMap<>();
+        cached.put(SERVER_FIELD, client.getMasterUrl().toString());
+        cached.put(FETCHED_FIELD, fetchedMillis);
+        cached.put(GROUP_VERSIONS_FIELD, groupVersions);
+        Path temporary = null;
+        try {
+            Path directory = cacheFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+            Files.write(temporary, Serialization.jsonMapper().writeValueAsBytes(cached));
+            try {
+                Files.move(temporary, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // the in-memory result is still good; the next process discovers again
+            logger.debug("could not write discovery cache {}", cacheFile, e);
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // nothing more to clean up
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "ApiDiscoveryCache: groupVersions=" + (groupVersions == null ? 0 : groupVersions.size())
+                + ", fetchedMillis=" + fetchedMillis
+                + ", discoveries=" + discoveryCount.get()
+                + ", file=" + cacheFile;
+    }
+}
@@ -0,0 +1,129 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of applying a batch of objects: which were created, which were
+ * patched, which already matched the cluster and were left alone and which
+ * failed.
+ *
+ * @param <T> the resource type
+ * @author cwoodward
+ */
+public class ApplyReport<T> {
+
+    /**
+     * What apply did with one object.
+     */
+    public enum Outcome {
+        CREATED,
+        PATCHED,
+        SKIPPED,
+        FAILED;
+
+        public String toString() {
+            return "Outcome: " + name();
+        }
+    }
+
+    private final List<T> objects = new ArrayList<>();
+    private final List<Outcome> outcomes = new ArrayList<>();
+    private final List<RuntimeException> errors = new ArrayList<>();
+    private final int[] counts = new int[Outcome.values().length];
+
+    /**
+     *
+     * @param outcome
+     * @param object the object as returned by the server, or the live object
+     * when skipped
+     */
+    void record(Outcome outcome, T object) {
+        record(outcome, object, null);
+    }
+
+    /**
+     *
+     * @param object the desired object that could not be applied
+     * @param error
+     */
+    void recordFailure(T object, RuntimeException error) {
+        record(Outcome.FAILED, object, error);
+    }
+
+    private void record(Outcome outcome, T object, RuntimeException error) {
+        objects.add(object);
+        outcomes.add(outcome);
+        errors.add(error);
+        counts[outcome.ordinal()]++;
+    }
+
+    /**
+     *
+     * @return the resulting objects in submission order
+     */
+    public List<T> getObjects() {
+        return Collections.unmodifiableList(objects);
+    }
+
+    /**
+     *
+     * @return the outcome of each object in submission order
+     */
+    public List<Outcome> getOutcomes() {
+        return Collections.unmodifiableList(outcomes);
+    }
+
+    /**
+     *
+     * @return the error of each object in submission order, null for
+     * objects that did not fail
+     */
+    public List<RuntimeException> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getCreatedCount() {
+        return counts[Outcome.CREATED.ordinal()];
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getPatchedCount() {
+        return counts[Outcome.PATCHED.ordinal()];
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getSkippedCount() {
+        return counts[Outcome.SKIPPED.ordinal()];
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getFailedCount() {
+        return counts[Outcome.FAILED.ordinal()];
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "ApplyReport: created=" + getCreatedCount()
+                + ", patched=" + getPatchedCount()
+                + ", skipped=" + getSkippedCount()
+                + ", failed=" + getFailedCount();
+    }
+}
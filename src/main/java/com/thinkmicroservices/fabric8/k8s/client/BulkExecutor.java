@@ -0,0 +1,122 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Runs one API call per item in parallel with a fixed concurrency limit and
+ * an optional request rate limit. A failing item is recorded in the result
+ * and does not stop the others.
+ *
+ * @author cwoodward
+ */
+public class BulkExecutor {
+
+    private final int concurrency;
+    private final long permitIntervalNanos;
+    // the earliest time the next request may start; reserved with a CAS so callers never queue on a lock
+    private final AtomicLong nextPermitNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     *
+     * @param concurrency maximum number of requests in flight
+     * @param requestsPerSecond maximum request rate, or 0 for no limit
+     */
+    public BulkExecutor(int concurrency, double requestsPerSecond) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        if (requestsPerSecond < 0) {
+            throw new IllegalArgumentException("requestsPerSecond must not be negative");
+        }
+        this.concurrency = concurrency;
+        this.permitIntervalNanos = requestsPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+    }
+
+    /**
+     * Applies the operation to every item and waits for all of them.
+     *
+     * @param <I>
+     * @param <R>
+     * @param items
+     * @param operation
+     * @return
+     * @throws InterruptedException
+     */
+    public <I, R> BulkResult<R> execute(Collection<I> items, Function<I, R> operation) throws InterruptedException {
+        List<I> inputs = new ArrayList<>(items);
+        List<BulkResult.Item<R>> results = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            results.add(null);
+        }
+        if (inputs.isEmpty()) {
+            return new BulkResult<>(results, 0);
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(concurrency, inputs.size()), runnable -> {
+            Thread thread = new Thread(runnable, "bulk-executor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CountDownLatch done = new CountDownLatch(inputs.size());
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                int index = i;
+                workers.execute(() -> {
+                    try {
+                        acquirePermit();
+                        long itemStart = System.nanoTime();
+                        BulkResult.Item<R> item;
+                        try {
+                            item = new BulkResult.Item<>(index, operation.apply(inputs.get(index)), null, System.nanoTime() - itemStart);
+                        } catch (Throwable e) {
+                            // an Error is recorded like any other failure so every slot gets an item
+                            item = new BulkResult.Item<>(index, null, e, System.nanoTime() - itemStart);
+                        }
+                        synchronized (results) {
+                            results.set(index, item);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            workers.shutdownNow();
+        }
+        synchronized (results) {
+            return new BulkResult<>(results, System.nanoTime() - start);
+        }
+    }
+
+    private void acquirePermit() {
+        if (permitIntervalNanos == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long permit = nextPermitNanos.getAndAccumulate(now, (next, current) -> Math.max(next, current) + permitIntervalNanos);
+        long wait = Math.max(permit, now) - now;
+        while (wait > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(wait);
+            wait = Math.max(permit, now) - System.nanoTime();
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "BulkExecutor: concurrency=" + concurrency
+                + ", permitInterval=" + TimeUnit.NANOSECONDS.toMicros(permitIntervalNanos) + "us";
+    }
+}
@@ -0,0 +1,239 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-item outcome and timing statistics of a {@link BulkExecutor} run.
+ * Items are reported in the order they were submitted.
+ *
+ * @author cwoodward
+ * @param <R>
+ */
+public class BulkResult<R> {
+
+    private final List<Item<R>> items;
+    private final long elapsedNanos;
+    private final long[] sortedLatencies;
+    private final int failureCount;
+
+    /**
+     *
+     * @param items
+     * @param elapsedNanos
+     */
+    BulkResult(List<Item<R>> items, long elapsedNanos) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.elapsedNanos = elapsedNanos;
+        this.sortedLatencies = new long[items.size()];
+        int failures = 0;
+        for (int i = 0; i < items.size(); i++) {
+            sortedLatencies[i] = items.get(i).getLatencyNanos();
+            if (!items.get(i).isSuccess()) {
+                failures++;
+            }
+        }
+        Arrays.sort(sortedLatencies);
+        this.failureCount = failures;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<Item<R>> getItems() {
+        return items;
+    }
+
+    /**
+     *
+     * @return the results of the items that succeeded
+     */
+    public List<R> getResults() {
+        List<R> results = new ArrayList<>(items.size() - failureCount);
+        for (Item<R> item : items) {
+            if (item.isSuccess()) {
+                results.add(item.getResult());
+            }
+        }
+        return results;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<Item<R>> getFailures() {
+        List<Item<R>> failures = new ArrayList<>(failureCount);
+        for (Item<R> item : items) {
+            if (!item.isSuccess()) {
+                failures.add(item);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getSuccessCount() {
+        return items.size() - failureCount;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     *
+     * @return wall-clock time for the whole run
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     *
+     * @return completed items per second
+     */
+    public double getThroughputPerSecond() {
+        return elapsedNanos == 0 ? 0 : items.size() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     *
+     * @param percentile between 0 and 100
+     * @return the item latency at the percentile, in milliseconds
+     */
+    public double getLatencyPercentileMillis(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+        return toMillis(sortedLatencies[Math.max(0, index)]);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getMeanLatencyMillis() {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (long latency : sortedLatencies) {
+            total += latency;
+        }
+        return toMillis(total / sortedLatencies.length);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getMaxLatencyMillis() {
+        return sortedLatencies.length == 0 ? 0 : toMillis(sortedLatencies[sortedLatencies.length - 1]);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return String.format("BulkResult: items=%d, failures=%d, elapsed=%dms, throughput=%.1f/s, mean=%.1fms, p50=%.1fms, p95=%.1fms, max=%.1fms",
+                items.size(), failureCount, getElapsedMillis(), getThroughputPerSecond(), getMeanLatencyMillis(),
+                getLatencyPercentileMillis(50), getLatencyPercentileMillis(95), getMaxLatencyMillis());
+    }
+
+    /**
+     * The outcome of one submitted item.
+     *
+     * @param <R>
+     */
+    public static class Item<R> {
+
+        private final int index;
+        private final R result;
+        private final Throwable error;
+        private final long latencyNanos;
+
+        /**
+         *
+         * @param index
+         * @param result
+         * @param error
+         * @param latencyNanos
+         */
+        Item(int index, R result, Throwable error, long latencyNanos) {
+            this.index = index;
+            this.result = result;
+            this.error = error;
+            this.latencyNanos = latencyNanos;
+        }
+
+        /**
+         *
+         * @return the position of the item in the submitted collection
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public R getResult() {
+            return result;
+        }
+
+        /**
+         *
+         * @return the failure, or null if the item succeeded
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String toString() {
+            return "Item: index=" + index + ", success=" + isSuccess()
+                    + (error == null ? "" : ", error=" + error.getMessage());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.Objects;
+
+/**
+ * HTTP connection settings applied to clients handed out by the
+ * {@link ClientUtils} registry.
+ *
+ * @author cwoodward
+ */
+public class ClientPoolSettings {
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 5 * 60 * 1000L;
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+    private boolean http2Enabled = true;
+
+    /**
+     *
+     * @return
+     */
+    public static ClientPoolSettings defaults() {
+        return new ClientPoolSettings();
+    }
+
+    /**
+     *
+     * @param maxIdleConnections
+     * @return
+     */
+    public ClientPoolSettings withMaxIdleConnections(int maxIdleConnections) {
+        if (maxIdleConnections < 0) {
+            throw new IllegalArgumentException("maxIdleConnections must not be negative");
+        }
+        this.maxIdleConnections = maxIdleConnections;
+        return this;
+    }
+
+    /**
+     *
+     * @param keepAliveMillis
+     * @return
+     */
+    public ClientPoolSettings withKeepAliveMillis(long keepAliveMillis) {
+        if (keepAliveMillis <= 0) {
+            throw new IllegalArgumentException("keepAliveMillis must be positive");
+        }
+        this.keepAliveMillis = keepAliveMillis;
+        return this;
+    }
+
+    /**
+     *
+     * @param maxRequests
+     * @return
+     */
+    public ClientPoolSettings withMaxRequests(int maxRequests) {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("maxRequests must be at least 1");
+        }
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    /**
+     *
+     * @param maxRequestsPerHost
+     * @return
+     */
+    public ClientPoolSettings withMaxRequestsPerHost(int maxRequestsPerHost) {
+        if (maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("maxRequestsPerHost must be at least 1");
+        }
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    /**
+     * HTTP/2 lets every request to the API server share one multiplexed
+     * connection instead of one connection per in-flight request.
+     *
+     * @param http2Enabled
+     * @return
+     */
+    public ClientPoolSettings withHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+        return this;
+    }
+
+    /**
+     *
+     * @return a copy that later withX calls on this instance do not change
+     */
+    public ClientPoolSettings copy() {
+        return new ClientPoolSettings()
+                .withMaxIdleConnections(maxIdleConnections)
+                .withKeepAliveMillis(keepAliveMillis)
+                .withMaxRequests(maxRequests)
+                .withMaxRequestsPerHost(maxRequestsPerHost)
+                .withHttp2Enabled(http2Enabled);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ClientPoolSettings)) {
+            return false;
+        }
+        ClientPoolSettings that = (ClientPoolSettings) other;
+        return maxIdleConnections == that.maxIdleConnections
+                && keepAliveMillis == that.keepAliveMillis
+                && maxRequests == that.maxRequests
+                && maxRequestsPerHost == that.maxRequestsPerHost
+                && http2Enabled == that.http2Enabled;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxIdleConnections, keepAliveMillis, maxRequests, maxRequestsPerHost, http2Enabled);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "ClientPoolSettings: maxIdleConnections=" + maxIdleConnections
+                + ", keepAliveMillis=" + keepAliveMillis
+                + ", maxRequests=" + maxRequests
+                + ", maxRequestsPerHost=" + maxRequestsPerHost
+                + ", http2Enabled=" + http2Enabled;
+    }
+}
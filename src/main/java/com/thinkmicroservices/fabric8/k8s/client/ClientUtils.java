@@ -1,14 +1,34 @@
-
 package com.thinkmicroservices.fabric8.k8s.client;
 
 
 import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.ConfigBuilder;
 
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
-import java.io.File;
+import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
+import io.fabric8.kubernetes.client.internal.KubeConfigUtils;
+import io.fabric8.kubernetes.client.utils.HttpClientUtils;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,14 +41,379 @@ public class ClientUtils {
     private static final Logger logger = LoggerFactory.getLogger(ClientUtils.class);
     private static final String CONFIG_FILENAME = "./client-config";
 
+    // guarded by SHARED_CLIENTS
+    private static final Map<String, SharedClientEntry> SHARED_CLIENTS = new HashMap<>();
+
+    // parsed kubeconfigs keyed by path and context, guarded by CONFIG_CACHE
+    private static final Map<String, CachedConfig> CONFIG_CACHE = new HashMap<>();
+    private static final AtomicLong CONFIG_PARSE_COUNT = new AtomicLong();
+    private static KubeconfigWatcher kubeconfigWatcher;
+
+    /**
+     * Returns a shared client for ./client-config. Closing the returned
+     * client releases this caller's reference; the underlying connection
+     * pool is shut down once the last reference is released.
+     *
+     * @return
+     * @throws IOException
+     * @throws InterruptedException
+     */
     public static KubernetesClient getConfiguredInstanceFromFile() throws IOException, InterruptedException {
-        File file = new File(CONFIG_FILENAME);
-        String kubeconfigContents = Files.readString(file.toPath());
-        Config config = Config.fromKubeconfig(kubeconfigContents);
+        return getSharedInstance(CONFIG_FILENAME, null, ClientPoolSettings.defaults());
+    }
+
+    /**
+     * Returns a reference to the single client registered for the
+     * kubeconfig file, context and pool settings, creating it on first use.
+     *
+     * @param kubeconfigFilename
+     * @param context the kubeconfig context, or null for the current context
+     * @param settings
+     * @return
+     * @throws IOException
+     */
+    public static KubernetesClient getSharedInstance(String kubeconfigFilename, String context, ClientPoolSettings settings) throws IOException {
+        // the caller may keep changing its settings; the key and the pool must come from the same values
+        ClientPoolSettings registered = settings.copy();
+        String configKey = configKey(kubeconfigPath(kubeconfigFilename), context);
+        String key = configKey + "|" + registered;
+        synchronized (SHARED_CLIENTS) {
+            SharedClientEntry entry = SHARED_CLIENTS.get(key);
+            if (entry == null) {
+                Config config = loadConfig(kubeconfigFilename, context);
+                entry = new SharedClientEntry(key, configKey, createHttpClient(config, registered), config);
+                SHARED_CLIENTS.put(key, entry);
+                logger.debug("created shared client {}", key);
+            }
+            entry.referenceCount++;
+            return new SharedKubernetesClient(entry);
+        }
+    }
+
+    /**
+     * Creates a client with its own connection pool that is not tracked by
+     * the registry. The caller owns it and must close it.
+     *
+     * @param kubeconfigFilename
+     * @param context the kubeconfig context, or null for the current context
+     * @param settings
+     * @return
+     * @throws IOException
+     */
+    public static KubernetesClient createDedicatedInstance(String kubeconfigFilename, String context, ClientPoolSettings settings) throws IOException {
+        Config config = loadConfig(kubeconfigFilename, context);
+        return new DefaultKubernetesClient(createHttpClient(config, settings.copy()), config);
+    }
+
+    /**
+     *
+     * @return the number of shared clients currently held by the registry
+     */
+    public static int getSharedClientCount() {
+        synchronized (SHARED_CLIENTS) {
+            return SHARED_CLIENTS.size();
+        }
+    }
+
+    /**
+     *
+     * @param client
+     * @return the number of open references to the shared client behind
+     * this handle, or 0 if the client was not obtained from the registry
+     */
+    public static int getReferenceCount(KubernetesClient client) {
+        if (!(client instanceof SharedKubernetesClient)) {
+            return 0;
+        }
+        synchronized (SHARED_CLIENTS) {
+            return ((SharedKubernetesClient) client).entry.referenceCount;
+        }
+    }
+
+    /**
+     * Re-reads a kubeconfig file and, if its contents changed, swaps the new
+     * credentials into the live shared clients built from it. This normally
+     * happens automatically when the file watcher sees the file change.
+     *
+     * @param kubeconfigFilename
+     * @throws IOException
+     */
+    public static void reloadConfig(String kubeconfigFilename) throws IOException {
+        reloadConfigs(kubeconfigPath(kubeconfigFilename));
+    }
+
+    /**
+     * Drops every cached kubeconfig so the next client build parses the file
+     * again.
+     */
+    public static void invalidateConfigCache() {
+        synchronized (CONFIG_CACHE) {
+            CONFIG_CACHE.clear();
+        }
+    }
+
+    static long getConfigParseCount() {
+        return CONFIG_PARSE_COUNT.get();
+    }
+
+    /**
+     * Returns a private copy of the cached Config for the file and context,
+     * parsing the file only when it is not cached yet.
+     */
+    static Config loadConfig(String kubeconfigFilename, String context) throws IOException {
+        Path path = kubeconfigPath(kubeconfigFilename);
+        String key = configKey(path, context);
+        synchronized (CONFIG_CACHE) {
+            CachedConfig cached = CONFIG_CACHE.get(key);
+            if (cached == null) {
+                cached = parseConfig(path, context, Files.readAllBytes(path));
+                CONFIG_CACHE.put(key, cached);
+                watchKubeconfig(path);
+            }
+            return new ConfigBuilder(cached.config).build();
+        }
+    }
+
+    private static CachedConfig parseConfig(Path path, String context, byte[] contents) {
+        String kubeconfigContents = new String(contents, StandardCharsets.UTF_8);
+        Config config = Config.fromKubeconfig(context, kubeconfigContents, path.toString());
+        CONFIG_PARSE_COUNT.incrementAndGet();
+        return new CachedConfig(path, context, contentHash(contents), config);
+    }
+
+    // called with CONFIG_CACHE held
+    private static void watchKubeconfig(Path path) {
+        try {
+            if (kubeconfigWatcher == null) {
+                kubeconfigWatcher = new KubeconfigWatcher(ClientUtils::reloadDirectory);
+            }
+            kubeconfigWatcher.watch(path);
+        } catch (IOException e) {
+            logger.warn("unable to watch kubeconfig {}, credential changes need reloadConfig()", path, e);
+        }
+    }
+
+    private static void reloadDirectory(Path directory) {
+        List<Path> paths = new ArrayList<>();
+        synchronized (CONFIG_CACHE) {
+            for (CachedConfig cached : CONFIG_CACHE.values()) {
+                if (cached.path.getParent().equals(directory) && !paths.contains(cached.path)) {
+                    paths.add(cached.path);
+                }
+            }
+        }
+        for (Path path : paths) {
+            try {
+                reloadConfigs(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void reloadConfigs(Path path) throws IOException {
+        byte[] contents;
+        try {
+            contents = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            // mid-rotation; the create event for the new file triggers another reload
+            return;
+        }
+        String hash = contentHash(contents);
+        if (!isCompleteKubeconfig(contents)) {
+            // a writer that does not replace the file atomically; its next event brings the rest
+            logger.debug("ignoring incomplete kubeconfig {}", path);
+            return;
+        }
+        Map<String, CachedConfig[]> changed = new HashMap<>();
+        synchronized (CONFIG_CACHE) {
+            for (CachedConfig cached : new ArrayList<>(CONFIG_CACHE.values())) {
+                if (!cached.path.equals(path) || cached.contentHash.equals(hash)) {
+                    continue;
+                }
+                CachedConfig reloaded = parseConfig(path, cached.context, contents);
+                String key = configKey(path, cached.context);
+                CONFIG_CACHE.put(key, reloaded);
+                changed.put(key, new CachedConfig[]{cached, reloaded});
+            }
+        }
+        for (Map.Entry<String, CachedConfig[]> change : changed.entrySet()) {
+            logger.info("kubeconfig {} changed, updating shared clients", path);
+            swapCredentials(change.getKey(), change.getValue()[0].config, change.getValue()[1].config);
+        }
+    }
+
+    private static boolean isCompleteKubeconfig(byte[] contents) {
+        io.fabric8.kubernetes.api.model.Config kubeconfig;
+        try {
+            kubeconfig = KubeConfigUtils.parseConfigFromString(new String(contents, StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+        return kubeconfig != null
+                && kubeconfig.getClusters() != null && !kubeconfig.getClusters().isEmpty()
+                && kubeconfig.getContexts() != null && !kubeconfig.getContexts().isEmpty()
+                && kubeconfig.getUsers() != null && !kubeconfig.getUsers().isEmpty();
+    }
+
+    /**
+     * Tokens and basic auth credentials are read from the Config on every
+     * request, so they are updated in place. TLS material and the server URL
+     * are baked into the HTTP client; entries whose TLS settings changed are
+     * retired so the next caller gets a freshly built client, while existing
+     * handles keep working until they are closed.
+     */
+    private static void swapCredentials(String configKey, Config previous, Config reloaded) {
+        boolean rebuildRequired = !Objects.equals(previous.getMasterUrl(), reloaded.getMasterUrl())
+                || !Objects.equals(previous.getCaCertData(), reloaded.getCaCertData())
+                || !Objects.equals(previous.getCaCertFile(), reloaded.getCaCertFile())
+                || !Objects.equals(previous.getClientCertData(), reloaded.getClientCertData())
+                || !Objects.equals(previous.getClientCertFile(), reloaded.getClientCertFile())
+                || !Objects.equals(previous.getClientKeyData(), reloaded.getClientKeyData())
+                || !Objects.equals(previous.getClientKeyFile(), reloaded.getClientKeyFile())
+                || previous.isTrustCerts() != reloaded.isTrustCerts();
+        synchronized (SHARED_CLIENTS) {
+            for (SharedClientEntry entry : new ArrayList<>(SHARED_CLIENTS.values())) {
+                if (!entry.configKey.equals(configKey)) {
+                    continue;
+                }
+                if (rebuildRequired) {
+                    logger.info("TLS settings changed for {}, retiring shared client", entry.key);
+                    SHARED_CLIENTS.remove(entry.key, entry);
+                } else {
+                    Config live = entry.owner.getConfiguration();
+                    live.setOauthToken(reloaded.getOauthToken());
+                    live.setUsername(reloaded.getUsername());
+                    live.setPassword(reloaded.getPassword());
+                }
+            }
+        }
+    }
+
+    private static Path kubeconfigPath(String kubeconfigFilename) {
+        return Paths.get(kubeconfigFilename).toAbsolutePath().normalize();
+    }
+
+    private static String configKey(Path path, String context) {
+        return path + "|" + (context == null ? "" : context);
+    }
+
+    private static String contentHash(byte[] contents) {
+        try {
+            return new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(contents)).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static OkHttpClient createHttpClient(Config config, ClientPoolSettings settings) {
+        config.setMaxConcurrentRequests(settings.getMaxRequests());
+        config.setMaxConcurrentRequestsPerHost(settings.getMaxRequestsPerHost());
+        config.setHttp2Disable(!settings.isHttp2Enabled());
+        return HttpClientUtils.createHttpClient(config).newBuilder()
+                .connectionPool(new ConnectionPool(settings.getMaxIdleConnections(), settings.getKeepAliveMillis(), TimeUnit.MILLISECONDS))
+                .build();
+    }
+
+    private static void release(SharedClientEntry entry) {
+        synchronized (SHARED_CLIENTS) {
+            entry.referenceCount--;
+            if (entry.referenceCount > 0) {
+                return;
+            }
+            SHARED_CLIENTS.remove(entry.key, entry);
+        }
+        logger.debug("closing shared client {}", entry.key);
+        entry.owner.close();
+    }
+
+    /**
+     * Registry entry holding the client that owns the connection pool.
+     */
+    private static final class SharedClientEntry {
+
+        private final String key;
+        private final String configKey;
+        private final DefaultKubernetesClient owner;
+        private int referenceCount;
+
+        SharedClientEntry(String key, String configKey, OkHttpClient httpClient, Config config) {
+            this.key = key;
+            this.configKey = configKey;
+            this.owner = new DefaultKubernetesClient(httpClient, config);
+        }
+    }
+
+    /**
+     * Parsed kubeconfig together with the hash of the file contents it was
+     * parsed from.
+     */
+    private static final class CachedConfig {
+
+        private final Path path;
+        private final String context;
+        private final String contentHash;
+        private final Config config;
+
+        CachedConfig(Path path, String context, String contentHash, Config config) {
+            this.path = path;
+            this.context = context;
+            this.contentHash = contentHash;
+            this.config = config;
+        }
+    }
+
+    /**
+     * Handle given to callers. It shares the owner's HTTP client and only
+     * releases its reference when closed. Clients derived from it through
+     * inNamespace(), inAnyNamespace() or adapt() to a client type it
+     * implements borrow the same reference: closing them does nothing, and
+     * they work until the last handle is closed. API group clients such as
+     * apps() are fabric8's own and must not be closed.
+     */
+    // DefaultKubernetesClient implements the generic leaderElector() and resource(T) with raw types; nothing here
+    // overrides them
+    @SuppressWarnings("unchecked")
+    static final class SharedKubernetesClient extends DefaultKubernetesClient {
+
+        private final SharedClientEntry entry;
+        private final boolean borrowed;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        SharedKubernetesClient(SharedClientEntry entry) {
+            this(entry, entry.owner.getConfiguration(), false);
+        }
+
+        private SharedKubernetesClient(SharedClientEntry entry, Config config, boolean borrowed) {
+            super(entry.owner.getHttpClient(), config);
+            this.entry = entry;
+            this.borrowed = borrowed;
+        }
+
+        @Override
+        public NamespacedKubernetesClient inNamespace(String name) {
+            return new SharedKubernetesClient(entry, new ConfigBuilder(getConfiguration()).withNamespace(name).build(), true);
+        }
+
+        @Override
+        public NamespacedKubernetesClient inAnyNamespace() {
+            return inNamespace(null);
+        }
 
-        final KubernetesClient client = new DefaultKubernetesClient(config);
-        return client;
+        @Override
+        public <C> C adapt(Class<C> type) {
+            if (type.isInstance(this)) {
+                return type.cast(new SharedKubernetesClient(entry, getConfiguration(), true));
+            }
+            return super.adapt(type);
+        }
 
+        @Override
+        public void close() {
+            if (!borrowed && closed.compareAndSet(false, true)) {
+                release(entry);
+            }
+        }
     }
 
 }
@@ -4,11 +4,15 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.internal.SerializationUtils;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  *
@@ -34,6 +38,15 @@ public class ConfigMapHelper {
         return client.configMaps().inAnyNamespace().list();
     }
 
+    /**
+     *
+     * @param pageSize
+     * @return
+     */
+    public Stream<ConfigMap> streamAllConfigMaps(int pageSize) {
+        return PagedList.stream(client.configMaps().inAnyNamespace(), pageSize);
+    }
+
     /**
      *
      * @param namespace
@@ -43,6 +56,16 @@ public class ConfigMapHelper {
         return client.configMaps().inNamespace(namespace).list();
     }
 
+    /**
+     *
+     * @param namespace
+     * @param pageSize
+     * @return
+     */
+    public Stream<ConfigMap> streamAllConfigMapsByNamespace(String namespace, int pageSize) {
+        return PagedList.stream(client.configMaps().inNamespace(namespace), pageSize);
+    }
+
     /**
      *
      * @param namespace
@@ -72,6 +95,41 @@ public class ConfigMapHelper {
         return client.configMaps().inNamespace(namespace).createOrReplace(updatedConfigMap);
     }
 
+    /**
+     * Applies config maps as described on {@link ResourceApplier}.
+     *
+     * @param namespace
+     * @param configMaps
+     * @return created, patched and skipped counts for the batch
+     */
+    public ApplyReport<ConfigMap> applyConfigMaps(String namespace, Collection<ConfigMap> configMaps) {
+        return ResourceApplier.apply(namespace, client.configMaps().inNamespace(namespace), configMaps, null);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param configMapName
+     * @param patch
+     * @return
+     */
+    public ConfigMap patchConfigMap(String namespace, String configMapName, ResourcePatch patch) {
+        return ResourcePatcher.patch(client.configMaps().inNamespace(namespace).withName(configMapName), patch);
+    }
+
+    /**
+     * Sets or removes individual data keys with one merge patch, leaving the
+     * other keys untouched.
+     *
+     * @param namespace
+     * @param configMapName
+     * @param data keys to set; a null value removes the key
+     * @return
+     */
+    public ConfigMap patchConfigMapData(String namespace, String configMapName, Map<String, String> data) {
+        return patchConfigMap(namespace, configMapName, ResourcePatch.jsonMerge(Collections.singletonMap("data", data)));
+    }
+
     /**
      *
      * @param namespace
@@ -109,6 +167,34 @@ public class ConfigMapHelper {
         return client.configMaps().inNamespace(namespace).withName(configMapName).delete();
     }
 
+    /**
+     * Deletes every object carrying the labels with a single deletecollection
+     * request.
+     *
+     * @param namespace
+     * @param labelMap
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteConfigMapsInNamespaceWithLabels(String namespace, Map<String, String> labelMap,
+            DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return CollectionDeleter.deleteCollection(client, client.configMaps().inNamespace(namespace), labelMap, propagationPolicy, gracePeriodSeconds);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteAllConfigMapsInNamespace(String namespace, DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return deleteConfigMapsInNamespaceWithLabels(namespace, Collections.emptyMap(), propagationPolicy, gracePeriodSeconds);
+    }
+
     /**
      *
      * @param filename
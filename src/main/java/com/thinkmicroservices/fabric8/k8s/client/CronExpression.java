@@ -0,0 +1,251 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+/**
+ * A compiled five-field cron schedule (minute, hour, day of month, month,
+ * day of week) as the CronJob controller reads it, including ranges, lists,
+ * steps, month and day names, ? and the lower case @hourly style macros.
+ * Each field is held as a bit mask, so finding the next run skips whole
+ * months, days and hours that cannot match instead of testing every
+ * minute.
+ * <p>
+ * As with the controller, when both day fields are restricted a day matches
+ * if either of them does.
+ *
+ * @author cwoodward
+ */
+public final class CronExpression {
+
+    private static final Map<String, String> MACROS = Map.of(
+            "@yearly", "0 0 1 1 *",
+            "@annually", "0 0 1 1 *",
+            "@monthly", "0 0 1 * *",
+            "@weekly", "0 0 * * 0",
+            "@daily", "0 0 * * *",
+            "@midnight", "0 0 * * *",
+            "@hourly", "0 * * * *");
+    private static final String[] MONTH_NAMES = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+    private static final String[] DAY_NAMES = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+    // a February 29 schedule can go eight years without a match around a century
+    private static final int MAX_SEARCH_YEARS = 8;
+
+    private final String expression;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean dayOfMonthStar;
+    private final boolean dayOfWeekStar;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        this.minutes = parseField(expression, fields[0], "minute", 0, 59, null);
+        this.hours = parseField(expression, fields[1], "hour", 0, 23, null);
+        this.daysOfMonth = parseField(expression, fields[2], "day of month", 1, 31, null);
+        this.months = parseField(expression, fields[3], "month", 1, 12, MONTH_NAMES);
+        long days = parseField(expression, fields[4], "day of week", 0, 7, DAY_NAMES);
+        // 7 is another name for Sunday
+        this.daysOfWeek = (days & ~(1L << 7)) | ((days >>> 7) & 1L);
+        this.dayOfMonthStar = isStar(fields[2]);
+        this.dayOfWeekStar = isStar(fields[4]);
+    }
+
+    /**
+     *
+     * @param expression
+     * @return
+     * @throws IllegalArgumentException if the expression is not a valid
+     * schedule
+     */
+    public static CronExpression parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("cron expression is required");
+        }
+        String trimmed = expression.trim();
+        String fields = trimmed.startsWith("@") ? MACROS.get(trimmed) : trimmed;
+        if (fields == null) {
+            throw new IllegalArgumentException("invalid cron expression \"" + expression + "\": unknown macro");
+        }
+        String[] split = fields.split("\\s+");
+        if (split.length != 5) {
+            throw new IllegalArgumentException("invalid cron expression \"" + expression + "\": expected 5 fields but found " + split.length);
+        }
+        return new CronExpression(trimmed, split);
+    }
+
+    /**
+     *
+     * @param expression
+     * @return
+     */
+    public static boolean isValid(String expression) {
+        try {
+            parse(expression);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     *
+     * @param after
+     * @return the first run strictly after the time, in its zone, or null if
+     * the schedule never fires
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = time.plusYears(MAX_SEARCH_YEARS);
+        ZoneId zone = time.getZone();
+        while (time.isBefore(limit)) {
+            if (!isSet(months, time.getMonthValue())) {
+                time = time.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay(zone);
+                continue;
+            }
+            if (!dayMatches(time)) {
+                time = time.toLocalDate().plusDays(1).atStartOfDay(zone);
+                continue;
+            }
+            int hour = nextSet(hours, time.getHour());
+            if (hour != time.getHour()) {
+                time = hour < 0
+                        ? time.toLocalDate().plusDays(1).atStartOfDay(zone)
+                        : time.truncatedTo(ChronoUnit.HOURS).plusHours(hour - time.getHour());
+                continue;
+            }
+            int minute = nextSet(minutes, time.getMinute());
+            if (minute < 0) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                continue;
+            }
+            return time.withMinute(minute);
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param afterMillis
+     * @param zone zone the schedule is read in
+     * @return the first run strictly after the time, or -1 if the schedule
+     * never fires
+     */
+    public long nextMillis(long afterMillis, ZoneId zone) {
+        ZonedDateTime next = next(Instant.ofEpochMilli(afterMillis).atZone(zone));
+        return next == null ? -1 : next.toInstant().toEpochMilli();
+    }
+
+    /**
+     *
+     * @param time
+     * @return true if the schedule fires in the minute of the time
+     */
+    public boolean matches(ZonedDateTime time) {
+        return isSet(months, time.getMonthValue())
+                && dayMatches(time)
+                && isSet(hours, time.getHour())
+                && isSet(minutes, time.getMinute());
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    private boolean dayMatches(ZonedDateTime time) {
+        boolean dayOfMonth = isSet(daysOfMonth, time.getDayOfMonth());
+        boolean dayOfWeek = isSet(daysOfWeek, time.getDayOfWeek().getValue() % 7);
+        return dayOfMonthStar || dayOfWeekStar ? dayOfMonth && dayOfWeek : dayOfMonth || dayOfWeek;
+    }
+
+    private static boolean isSet(long mask, int value) {
+        return (mask & (1L << value)) != 0;
+    }
+
+    // the lowest set value at or above from, or -1
+    private static int nextSet(long mask, int from) {
+        long remaining = mask & (-1L << from);
+        return remaining == 0 ? -1 : Long.numberOfTrailingZeros(remaining);
+    }
+
+    // a step above 1 restricts the field, so */2 is not a star
+    private static boolean isStar(String field) {
+        return field.equals("*") || field.equals("?") || field.equals("*/1") || field.equals("?/1");
+    }
+
+    private static long parseField(String expression, String field, String fieldName, int min, int max, String[] names) {
+        long mask = 0;
+        for (String part : field.split(",", -1)) {
+            int slash = part.indexOf('/');
+            String range = slash < 0 ? part : part.substring(0, slash);
+            int step = 1;
+            if (slash >= 0) {
+                step = parseValue(expression, part.substring(slash + 1), fieldName, 1, max - min + 1, null);
+            }
+            int low;
+            int high;
+            if (range.equals("*") || range.equals("?")) {
+                low = min;
+                high = max;
+            } else {
+                int dash = range.indexOf('-');
+                if (dash < 0) {
+                    low = parseValue(expression, range, fieldName, min, max, names);
+                    // a single value with a step runs to the end of the range
+                    high = slash < 0 ? low : max;
+                } else {
+                    low = parseValue(expression, range.substring(0, dash), fieldName, min, max, names);
+                    high = parseValue(expression, range.substring(dash + 1), fieldName, min, max, names);
+                }
+            }
+            if (low > high) {
+                throw invalid(expression, fieldName + " range " + range + " is backwards");
+            }
+            for (int value = low; value <= high; value += step) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    private static int parseValue(String expression, String value, String fieldName, int min, int max, String[] names) {
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equalsIgnoreCase(value)) {
+                    return i + min;
+                }
+            }
+        }
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw invalid(expression, fieldName + " value \"" + value + "\" is not a number");
+        }
+        if (parsed < min || parsed > max) {
+            throw invalid(expression, fieldName + " value " + parsed + " is outside " + min + "-" + max);
+        }
+        return parsed;
+    }
+
+    private static IllegalArgumentException invalid(String expression, String reason) {
+        return new IllegalArgumentException("invalid cron expression \"" + expression + "\": " + reason);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "CronExpression: " + expression;
+    }
+}
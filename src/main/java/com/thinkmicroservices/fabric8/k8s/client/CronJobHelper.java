@@ -1,30 +1,94 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
 import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJob;
 import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJobBuilder;
 import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJobList;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.dsl.base.CustomResourceDefinitionContext;
 import io.fabric8.kubernetes.client.internal.SerializationUtils;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * CronJobs are read and written through the batch/v1beta1 model, but sent
+ * to whichever batch version the cluster serves, preferring batch/v1. The
+ * version is picked on first use from an {@link ApiDiscoveryCache} and kept
+ * for the life of the helper.
  *
  * @author cwoodward
  */
 public class CronJobHelper {
 
+    static final String CRON_JOB_MODEL_VERSION = "batch/v1beta1";
+    private static final String CRON_JOB_PLURAL = "cronjobs";
+
+    private static final Logger logger = LoggerFactory.getLogger(CronJobHelper.class);
+    private static final String BATCH_GROUP = "batch";
+    // most preferred first
+    private static final String[] CRON_JOB_VERSIONS = {"v1", "v1beta1"};
+    private static final String CRON_JOB_KIND = "CronJob";
+    private static final String NAMESPACED_SCOPE = "Namespaced";
+    private static final String SUSPEND_PATH = "/spec/suspend";
+
     private KubernetesClient client;
-    private static final String API_BATCH_VERSION_V1 = "batch/v1";
+    private final ApiDiscoveryCache discovery;
+    private volatile CronScheduleIndex scheduleIndex;
+    private volatile OwnerReferenceIndex ownerIndex;
+    private volatile String cronJobApiVersion;
+    private volatile MixedOperation<CronJob, CronJobList, Resource<CronJob>> cronJobOperation;
 
     /**
+     * Uses the discovery cache in the user's kube cache directory.
      *
      * @param client
      */
     public CronJobHelper(KubernetesClient client) {
+        this(client, ApiDiscoveryCache.forClient(client));
+    }
+
+    /**
+     *
+     * @param client
+     * @param discovery
+     */
+    public CronJobHelper(KubernetesClient client, ApiDiscoveryCache discovery) {
         this.client = client;
+        this.discovery = discovery;
+    }
+
+    /**
+     *
+     * @return the batch group/version CronJobs are sent to
+     */
+    public String getCronJobApiVersion() {
+        cronJobs();
+        // still unset while discovery keeps failing and calls fall back
+        String apiVersion = cronJobApiVersion;
+        return apiVersion == null ? CRON_JOB_MODEL_VERSION : apiVersion;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public ApiDiscoveryCache getDiscovery() {
+        return discovery;
     }
 
     /**
@@ -32,7 +96,16 @@ public class CronJobHelper {
      * @return
      */
     public CronJobList getAllCronJobs() {
-        return client.batch().cronjobs().inAnyNamespace().list();
+        return cronJobs().inAnyNamespace().list();
+    }
+
+    /**
+     *
+     * @param pageSize
+     * @return
+     */
+    public Stream<CronJob> streamAllCronJobs(int pageSize) {
+        return PagedList.stream(cronJobs().inAnyNamespace(), pageSize);
     }
 
     /**
@@ -41,7 +114,7 @@ public class CronJobHelper {
      * @return
      */
     public CronJobList getCronJobsInNamespace(String namespace) {
-        return client.batch().cronjobs().inNamespace(namespace).list();
+        return cronJobs().inNamespace(namespace).list();
     }
 
     /**
@@ -51,7 +124,7 @@ public class CronJobHelper {
      * @return
      */
     public CronJobList getCronJobsInNamespaceWithLabels(String namespace, Map<String, String> labelMap) {
-        return client.batch().cronjobs().inNamespace(namespace).withLabels(labelMap).list();
+        return cronJobs().inNamespace(namespace).withLabels(labelMap).list();
     }
 
     /**
@@ -61,7 +134,7 @@ public class CronJobHelper {
      * @return
      */
     public CronJob getCronJob(String namespace, String cronjobName) {
-        return client.batch().cronjobs().inNamespace(namespace).withName(cronjobName).get();
+        return cronJobs().inNamespace(namespace).withName(cronjobName).get();
     }
 
     /**
@@ -75,12 +148,15 @@ public class CronJobHelper {
      * @param containerArgs
      * @param restartPolicy
      * @return
+     * @throws IllegalArgumentException if the schedule is not a valid cron
+     * expression
      */
     public CronJob createCronJob(String namespace, String cronJobName,
             Map<String, String> labelMap, String cronScheduleString,
             String containerName, String containerImage, String[] containerArgs, RestartPolicy restartPolicy) {
+        CronExpression.parse(cronScheduleString);
         CronJob cronJob1 = new CronJobBuilder()
-                .withApiVersion(API_BATCH_VERSION_V1)
+                .withApiVersion(getCronJobApiVersion())
                 .withNewMetadata()
                 .withName(cronJobName)
                 .withLabels(labelMap)
@@ -104,7 +180,7 @@ public class CronJobHelper {
                 .endSpec()
                 .build();
 
-        return client.batch().cronjobs().inNamespace(namespace).create(cronJob1);
+        return cronJobs().inNamespace(namespace).create(cronJob1);
     }
 
     /**
@@ -112,9 +188,178 @@ public class CronJobHelper {
      * @param namespace
      * @param updateCronJob
      * @return
+     * @throws IllegalArgumentException if the schedule is not a valid cron
+     * expression
      */
     public CronJob updateJob(String namespace, CronJob updateCronJob) {
-        return client.batch().cronjobs().inNamespace(namespace).createOrReplace(updateCronJob);
+        if (updateCronJob.getSpec() != null) {
+            CronExpression.parse(updateCronJob.getSpec().getSchedule());
+        }
+        return cronJobs().inNamespace(namespace).createOrReplace(withServedVersion(updateCronJob));
+    }
+
+    /**
+     * Applies cron jobs as described on {@link ResourceApplier}.
+     *
+     * @param namespace
+     * @param cronJobs
+     * @return created, patched and skipped counts for the batch
+     */
+    public ApplyReport<CronJob> applyCronJobs(String namespace, Collection<CronJob> cronJobs) {
+        List<CronJob> served = new ArrayList<>(cronJobs.size());
+        for (CronJob cronJob : cronJobs) {
+            served.add(withServedVersion(cronJob));
+        }
+        return ResourceApplier.apply(namespace, cronJobs().inNamespace(namespace), served, null);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param cronJobName
+     * @param patch
+     * @return
+     */
+    public CronJob patchCronJob(String namespace, String cronJobName, ResourcePatch patch) {
+        return ResourcePatcher.patch(cronJobs().inNamespace(namespace).withName(cronJobName), patch);
+    }
+
+    /**
+     * Suspends or resumes scheduling with one JSON patch; jobs already
+     * running are not affected.
+     *
+     * @param namespace
+     * @param cronJobName
+     * @param suspended
+     * @return
+     */
+    public CronJob setCronJobSuspended(String namespace, String cronJobName, boolean suspended) {
+        return patchCronJob(namespace, cronJobName, ResourcePatch.json().add(SUSPEND_PATH, suspended).build());
+    }
+
+    /**
+     * Starts an in-memory index of every CronJob's compiled schedule, kept
+     * current by an informer, for listing upcoming runs and finding minutes
+     * where many jobs start at once.
+     *
+     * @param zone zone the controller reads schedules in, normally UTC
+     * @param resyncPeriodMillis
+     * @return
+     */
+    public synchronized CronScheduleIndex enableScheduleIndex(ZoneId zone, long resyncPeriodMillis) {
+        if (scheduleIndex == null) {
+            scheduleIndex = CronScheduleIndex.start(client, getCronJobApiVersion(), zone, resyncPeriodMillis);
+        }
+        return scheduleIndex;
+    }
+
+    /**
+     *
+     */
+    public synchronized void disableScheduleIndex() {
+        if (scheduleIndex != null) {
+            scheduleIndex.close();
+            scheduleIndex = null;
+        }
+    }
+
+    /**
+     *
+     * @return the index, or null if it is not enabled
+     */
+    public CronScheduleIndex getScheduleIndex() {
+        return scheduleIndex;
+    }
+
+    /**
+     * Starts an index of Jobs and Pods by owner UID, kept current by
+     * informers, which getRunsForCronJob and getPodsForCronJob then answer
+     * from.
+     *
+     * @param resyncPeriodMillis
+     * @return
+     */
+    public synchronized OwnerReferenceIndex enableOwnerIndex(long resyncPeriodMillis) {
+        if (ownerIndex == null) {
+            ownerIndex = OwnerReferenceIndex.start(client, resyncPeriodMillis);
+        }
+        return ownerIndex;
+    }
+
+    /**
+     *
+     */
+    public synchronized void disableOwnerIndex() {
+        if (ownerIndex != null) {
+            ownerIndex.close();
+            ownerIndex = null;
+        }
+    }
+
+    /**
+     *
+     * @return the index, or null if it is not enabled
+     */
+    public OwnerReferenceIndex getOwnerIndex() {
+        return ownerIndex;
+    }
+
+    /**
+     * Reads the jobs a CronJob started from the owner index. The CronJob's
+     * UID comes from the schedule index when it is enabled and synced,
+     * otherwise from one GET.
+     *
+     * @param namespace
+     * @param cronJobName
+     * @return the runs that still exist, oldest first; empty if the CronJob
+     * does not exist
+     * @throws IllegalStateException if the owner index is not enabled or has
+     * not synced
+     */
+    public List<Job> getRunsForCronJob(String namespace, String cronJobName) {
+        OwnerReferenceIndex index = readyOwnerIndex();
+        String uid = cronJobUid(namespace, cronJobName);
+        return uid == null ? Collections.emptyList() : index.getRunsForCronJob(uid);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param cronJobName
+     * @return the pods of every run that still exists, oldest run first;
+     * empty if the CronJob does not exist
+     * @throws IllegalStateException if the owner index is not enabled or has
+     * not synced
+     */
+    public List<Pod> getPodsForCronJob(String namespace, String cronJobName) {
+        OwnerReferenceIndex index = readyOwnerIndex();
+        String uid = cronJobUid(namespace, cronJobName);
+        return uid == null ? Collections.emptyList() : index.getPodsForCronJob(uid);
+    }
+
+    private OwnerReferenceIndex readyOwnerIndex() {
+        OwnerReferenceIndex index = ownerIndex;
+        if (index == null) {
+            throw new IllegalStateException("the owner index is not enabled");
+        }
+        if (!index.hasSynced()) {
+            throw new IllegalStateException("the owner index has not synced");
+        }
+        return index;
+    }
+
+    private String cronJobUid(String namespace, String cronJobName) {
+        CronScheduleIndex index = scheduleIndex;
+        CronJob cronJob;
+        if (index != null && index.hasSynced()) {
+            cronJob = index.getCache().get(namespace, cronJobName);
+        } else {
+            if (index != null) {
+                index.getCache().recordMiss();
+            }
+            cronJob = getCronJob(namespace, cronJobName);
+        }
+        return cronJob == null ? null : cronJob.getMetadata().getUid();
     }
 
     /**
@@ -141,7 +386,35 @@ public class CronJobHelper {
      * @return
      */
     public boolean deleteCronJob(String namespace, String cronJobName) {
-        return client.batch().cronjobs().inNamespace(namespace).withName(cronJobName).delete();
+        return cronJobs().inNamespace(namespace).withName(cronJobName).delete();
+    }
+
+    /**
+     * Deletes every object carrying the labels with a single deletecollection
+     * request.
+     *
+     * @param namespace
+     * @param labelMap
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteCronJobsInNamespaceWithLabels(String namespace, Map<String, String> labelMap,
+            DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return CollectionDeleter.deleteCollection(client, cronJobs().inNamespace(namespace), labelMap, propagationPolicy, gracePeriodSeconds);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteAllCronJobsInNamespace(String namespace, DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return deleteCronJobsInNamespaceWithLabels(namespace, Collections.emptyMap(), propagationPolicy, gracePeriodSeconds);
     }
 
     /**
@@ -154,4 +427,66 @@ public class CronJobHelper {
         return client.batch().cronjobs().load(new FileInputStream(filename)).get();
 
     }
+
+    private MixedOperation<CronJob, CronJobList, Resource<CronJob>> cronJobs() {
+        MixedOperation<CronJob, CronJobList, Resource<CronJob>> operation = cronJobOperation;
+        if (operation == null) {
+            synchronized (this) {
+                operation = cronJobOperation;
+                if (operation == null) {
+                    operation = selectCronJobVersion();
+                }
+            }
+        }
+        return operation;
+    }
+
+    // a failed discovery falls back for this call only and is retried on the next one
+    private MixedOperation<CronJob, CronJobList, Resource<CronJob>> selectCronJobVersion() {
+        String selected;
+        try {
+            selected = discovery.selectVersion(BATCH_GROUP, CRON_JOB_VERSIONS);
+        } catch (KubernetesClientException e) {
+            logger.warn("API discovery failed, using {} for CronJobs", CRON_JOB_MODEL_VERSION, e);
+            return client.batch().cronjobs();
+        }
+        MixedOperation<CronJob, CronJobList, Resource<CronJob>> operation;
+        if (selected == null || selected.equals(CRON_JOB_MODEL_VERSION)) {
+            cronJobApiVersion = CRON_JOB_MODEL_VERSION;
+            operation = client.batch().cronjobs();
+        } else {
+            cronJobApiVersion = selected;
+            // the non-deprecated overloads require a CustomResource subtype, which the CronJob model is not
+            @SuppressWarnings("deprecation")
+            MixedOperation<CronJob, CronJobList, Resource<CronJob>> served
+                    = client.customResources(cronJobContext(selected), CronJob.class, CronJobList.class);
+            operation = served;
+        }
+        cronJobOperation = operation;
+        return operation;
+    }
+
+    /**
+     *
+     * @param apiVersion a batch group/version
+     * @return the CronJob kind served under apiVersion
+     */
+    static CustomResourceDefinitionContext cronJobContext(String apiVersion) {
+        return new CustomResourceDefinitionContext.Builder()
+                .withGroup(BATCH_GROUP)
+                .withVersion(apiVersion.substring(BATCH_GROUP.length() + 1))
+                .withPlural(CRON_JOB_PLURAL)
+                .withKind(CRON_JOB_KIND)
+                .withScope(NAMESPACED_SCOPE)
+                .build();
+    }
+
+    // the server rejects a body whose apiVersion differs from the endpoint's
+    private CronJob withServedVersion(CronJob cronJob) {
+        String apiVersion = getCronJobApiVersion();
+        if (apiVersion.equals(cronJob.getApiVersion())) {
+            return cronJob;
+        }
+        return new CronJobBuilder(cronJob).withApiVersion(apiVersion).build();
+    }
 }
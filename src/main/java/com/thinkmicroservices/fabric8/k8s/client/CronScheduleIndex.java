@@ -0,0 +1,348 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJob;
+import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJobList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the compiled schedule of every CronJob in the cluster, fed by a
+ * CronJob informer, so upcoming runs can be listed and start times counted
+ * per minute without listing the cluster. A schedule is only recompiled
+ * when its string changes, not on every status update. Suspended CronJobs
+ * are left out, and schedules that do not parse are kept aside with the
+ * reason.
+ *
+ * @author cwoodward
+ */
+public class CronScheduleIndex implements AutoCloseable {
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ResourceCache<CronJob> cache;
+    private final ZoneId zone;
+    private final Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+    private final Map<String, String> invalidSchedules = new ConcurrentHashMap<>();
+
+    private CronScheduleIndex(ResourceCache<CronJob> cache, ZoneId zone) {
+        this.cache = cache;
+        this.zone = zone;
+    }
+
+    /**
+     *
+     * @param client
+     * @param zone zone the controller reads schedules in, normally UTC
+     * @param resyncPeriodMillis
+     * @return an index whose informer is running; see {@link #waitForSync}
+     */
+    public static CronScheduleIndex start(KubernetesClient client, ZoneId zone, long resyncPeriodMillis) {
+        return start(client, CronJobHelper.CRON_JOB_MODEL_VERSION, zone, resyncPeriodMillis);
+    }
+
+    /**
+     *
+     * @param client
+     * @param apiVersion the batch group/version the cluster serves CronJobs
+     * from
+     * @param zone zone the controller reads schedules in, normally UTC
+     * @param resyncPeriodMillis
+     * @return an index whose informer is running; see {@link #waitForSync}
+     */
+    public static CronScheduleIndex start(KubernetesClient client, String apiVersion, ZoneId zone, long resyncPeriodMillis) {
+        ResourceCache<CronJob> cronJobs = CronJobHelper.CRON_JOB_MODEL_VERSION.equals(apiVersion)
+                ? ResourceCache.start(client, null, CronJob.class, resyncPeriodMillis)
+                : ResourceCache.start(client, CronJobHelper.cronJobContext(apiVersion), CronJob.class, CronJobList.class,
+                        resyncPeriodMillis, Collections.emptyMap());
+        CronScheduleIndex index = new CronScheduleIndex(cronJobs, zone);
+        cronJobs.addEventHandler(index.new CronJobHandler());
+        return index;
+    }
+
+    /**
+     *
+     * @param timeoutMillis
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean waitForSync(long timeoutMillis) throws InterruptedException {
+        return cache.waitForSync(timeoutMillis);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean hasSynced() {
+        return cache.hasSynced();
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param cronJobName
+     * @return the compiled schedule, or null if the CronJob is unknown,
+     * suspended or has an invalid schedule
+     */
+    public CronExpression getSchedule(String namespace, String cronJobName) {
+        Schedule schedule = schedules.get(key(namespace, cronJobName));
+        return schedule == null ? null : schedule.expression;
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param cronJobName
+     * @param afterMillis
+     * @return the CronJob's first run after the time, or -1 if it has none
+     */
+    public long getNextRunMillis(String namespace, String cronJobName, long afterMillis) {
+        CronExpression expression = getSchedule(namespace, cronJobName);
+        return expression == null ? -1 : expression.nextMillis(afterMillis, zone);
+    }
+
+    /**
+     *
+     * @param minutes
+     * @return runs in the next minutes, in time order
+     */
+    public List<ScheduledRun> getUpcomingRuns(int minutes) {
+        long now = System.currentTimeMillis();
+        return getRunsBetween(now, now + minutes * MINUTE_MILLIS);
+    }
+
+    /**
+     *
+     * @param fromMillis exclusive
+     * @param toMillis inclusive
+     * @return every run in the window, in time order
+     */
+    public List<ScheduledRun> getRunsBetween(long fromMillis, long toMillis) {
+        List<ScheduledRun> runs = new ArrayList<>();
+        for (Schedule schedule : schedules.values()) {
+            for (long run = schedule.expression.nextMillis(fromMillis, zone); run >= 0 && run <= toMillis;
+                    run = schedule.expression.nextMillis(run, zone)) {
+                runs.add(new ScheduledRun(schedule.namespace, schedule.name, schedule.expression.getExpression(), run));
+            }
+        }
+        runs.sort(Comparator.comparingLong(ScheduledRun::getTimeMillis)
+                .thenComparing(ScheduledRun::getNamespace)
+                .thenComparing(ScheduledRun::getName));
+        return runs;
+    }
+
+    /**
+     * Counts the jobs each minute would start, to find minutes where many
+     * schedules coincide.
+     *
+     * @param fromMillis start of the first minute; rounded down to the
+     * minute
+     * @param minutes
+     * @return job starts per minute
+     */
+    public int[] getStartsPerMinute(long fromMillis, int minutes) {
+        int[] starts = new int[minutes];
+        long first = fromMillis - Math.floorMod(fromMillis, MINUTE_MILLIS);
+        long end = first + minutes * MINUTE_MILLIS;
+        for (Schedule schedule : schedules.values()) {
+            for (long run = schedule.expression.nextMillis(first - 1, zone); run >= 0 && run < end;
+                    run = schedule.expression.nextMillis(run, zone)) {
+                starts[(int) ((run - first) / MINUTE_MILLIS)]++;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     *
+     * @return CronJobs whose schedule did not parse, keyed by namespace/name,
+     * with the reason
+     */
+    public Map<String, String> getInvalidSchedules() {
+        return Collections.unmodifiableMap(new HashMap<>(invalidSchedules));
+    }
+
+    /**
+     *
+     * @return CronJobs with an active, valid schedule
+     */
+    public int getScheduleCount() {
+        return schedules.size();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public ResourceCache<CronJob> getCache() {
+        return cache;
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "CronScheduleIndex: schedules=" + schedules.size()
+                + ", invalid=" + invalidSchedules.size()
+                + ", zone=" + zone;
+    }
+
+    private void index(CronJob cronJob) {
+        String namespace = cronJob.getMetadata().getNamespace();
+        String name = cronJob.getMetadata().getName();
+        String key = key(namespace, name);
+        String schedule = cronJob.getSpec() == null ? null : cronJob.getSpec().getSchedule();
+        if (cronJob.getSpec() != null && Boolean.TRUE.equals(cronJob.getSpec().getSuspend())) {
+            schedules.remove(key);
+            invalidSchedules.remove(key);
+            return;
+        }
+        Schedule known = schedules.get(key);
+        if (known != null && known.expression.getExpression().equals(schedule == null ? null : schedule.trim())) {
+            return;
+        }
+        try {
+            schedules.put(key, new Schedule(namespace, name, CronExpression.parse(schedule)));
+            invalidSchedules.remove(key);
+        } catch (IllegalArgumentException e) {
+            schedules.remove(key);
+            invalidSchedules.put(key, e.getMessage());
+        }
+    }
+
+    private void remove(CronJob cronJob) {
+        String key = key(cronJob.getMetadata().getNamespace(), cronJob.getMetadata().getName());
+        schedules.remove(key);
+        invalidSchedules.remove(key);
+    }
+
+    private static String key(String namespace, String name) {
+        return namespace + "/" + name;
+    }
+
+    /**
+     * One upcoming CronJob run.
+     */
+    public static class ScheduledRun {
+
+        private final String namespace;
+        private final String name;
+        private final String schedule;
+        private final long timeMillis;
+
+        /**
+         *
+         * @param namespace
+         * @param name
+         * @param schedule
+         * @param timeMillis
+         */
+        ScheduledRun(String namespace, String name, String schedule, long timeMillis) {
+            this.namespace = namespace;
+            this.name = name;
+            this.schedule = schedule;
+            this.timeMillis = timeMillis;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getNamespace() {
+            return namespace;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getSchedule() {
+            return schedule;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String toString() {
+            return namespace + "/" + name + " at " + Instant.ofEpochMilli(timeMillis) + " (" + schedule + ")";
+        }
+    }
+
+    /**
+     * A CronJob's compiled schedule.
+     */
+    private static final class Schedule {
+
+        private final String namespace;
+        private final String name;
+        private final CronExpression expression;
+
+        private Schedule(String namespace, String name, CronExpression expression) {
+            this.namespace = namespace;
+            this.name = name;
+            this.expression = expression;
+        }
+    }
+
+    /**
+     * Keeps the compiled schedules current.
+     */
+    private class CronJobHandler implements ResourceEventHandler<CronJob> {
+
+        @Override
+        public void onAdd(CronJob cronJob) {
+            index(cronJob);
+        }
+
+        @Override
+        public void onUpdate(CronJob oldCronJob, CronJob newCronJob) {
+            index(newCronJob);
+        }
+
+        @Override
+        public void onDelete(CronJob cronJob, boolean deletedFinalStateUnknown) {
+            remove(cronJob);
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
 import io.fabric8.kubernetes.api.model.apps.Deployment;
 import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
+import io.fabric8.kubernetes.api.model.apps.DeploymentStatus;
+import io.fabric8.kubernetes.api.model.autoscaling.v1.Scale;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import io.fabric8.kubernetes.api.model.apps.DeploymentList;
@@ -10,6 +16,9 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.internal.SerializationUtils;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  *
@@ -17,7 +26,14 @@ import java.io.FileNotFoundException;
  */
 public class DeploymentHelper {
 
+    private static final String SCALE_SUBRESOURCE = "scale";
+    private static final String REPLICAS_PATH = "/spec/replicas";
+    private static final String TEMPLATE_PATH = "/spec/template";
+
     private KubernetesClient client;
+    private WatchDispatcher<Deployment> deploymentWatches;
+    private RolloutTracker rolloutTracker;
+    private volatile DeploymentRevisionIndex revisionIndex;
 
     /**
      *
@@ -25,6 +41,8 @@ public class DeploymentHelper {
      */
     public DeploymentHelper(KubernetesClient client) {
         this.client = client;
+        this.deploymentWatches = new WatchDispatcher<>(namespace -> client.apps().deployments().inNamespace(namespace));
+        this.rolloutTracker = new RolloutTracker(deploymentWatches);
     }
 
     /**
@@ -35,6 +53,15 @@ public class DeploymentHelper {
         return client.apps().deployments().inAnyNamespace().list();
     }
 
+    /**
+     *
+     * @param pageSize
+     * @return
+     */
+    public Stream<Deployment> streamAllDeployments(int pageSize) {
+        return PagedList.stream(client.apps().deployments().inAnyNamespace(), pageSize);
+    }
+
     /**
      *
      * @param namespace
@@ -121,7 +148,148 @@ public class DeploymentHelper {
         return client.apps().deployments().inNamespace(namespace).withName(deploymentName).rolling().updateImage(containerToImageMap);
     }
 
+    /**
+     * Starts a rollout of new container images and returns at once. The
+     * images are set with one patch; the rollout is then followed through
+     * the shared deployment watch instead of blocking in fabric8's polling.
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param containerToImageMap
+     * @param progressListener called on the watch thread; may be null
+     * @param timeoutMillis
+     * @return completes with the rolled out deployment
+     */
+    public CompletableFuture<Deployment> updateDeploymentAsync(String namespace, String deploymentName,
+            Map<String, String> containerToImageMap, Consumer<RolloutProgress> progressListener, long timeoutMillis) {
+        Deployment updated = setDeploymentImages(namespace, deploymentName, containerToImageMap);
+        Long generation = updated.getMetadata().getGeneration();
+        return rolloutTracker.track(namespace, deploymentName, generation == null ? 0 : generation, progressListener, timeoutMillis);
+    }
+
+    /**
+     * Follows the current rollout of a deployment; see
+     * {@link RolloutTracker#track}.
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param progressListener called on the watch thread; may be null
+     * @param timeoutMillis
+     * @return
+     */
+    public CompletableFuture<Deployment> trackRollout(String namespace, String deploymentName,
+            Consumer<RolloutProgress> progressListener, long timeoutMillis) {
+        return rolloutTracker.track(namespace, deploymentName, 0, progressListener, timeoutMillis);
+    }
+
+    /**
+     * Rolls new images out to every deployment, in any namespace, that
+     * carries the labels, wave by wave. Deployments already running the
+     * images are skipped; the first failed, stalled or timed out rollout
+     * stops the remaining waves.
+     *
+     * @param labelMap
+     * @param containerToImageMap
+     * @param settings
+     * @return per wave results and timings
+     * @throws InterruptedException
+     */
+    public FleetRolloutResult rolloutFleet(Map<String, String> labelMap, Map<String, String> containerToImageMap,
+            FleetRolloutSettings settings) throws InterruptedException {
+        List<Deployment> deployments = client.apps().deployments().inAnyNamespace().withLabels(labelMap).list().getItems();
+        return new FleetRollout(this, rolloutTracker, settings).run(deployments, containerToImageMap);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public RolloutTracker getRolloutTracker() {
+        return rolloutTracker;
+    }
+
+    /**
+     * Starts an in-memory revision history for every deployment, built from
+     * their ReplicaSets and kept current by an informer, which
+     * rollbackDeployment then answers from.
+     *
+     * @param resyncPeriodMillis
+     * @return
+     */
+    public synchronized DeploymentRevisionIndex enableRevisionIndex(long resyncPeriodMillis) {
+        if (revisionIndex == null) {
+            revisionIndex = DeploymentRevisionIndex.start(client, resyncPeriodMillis);
+        }
+        return revisionIndex;
+    }
+
+    /**
+     *
+     */
+    public synchronized void disableRevisionIndex() {
+        if (revisionIndex != null) {
+            revisionIndex.close();
+            revisionIndex = null;
+        }
+    }
+
+    /**
+     *
+     * @return the index, or null if it is not enabled
+     */
+    public DeploymentRevisionIndex getRevisionIndex() {
+        return revisionIndex;
+    }
+
     /**
+     *
+     * @param namespace
+     * @param deploymentName
+     * @return the deployment's revisions, oldest first
+     */
+    public List<DeploymentRevision> getDeploymentRevisions(String namespace, String deploymentName) {
+        return readyRevisionIndex().getRevisions(namespace, deploymentName);
+    }
+
+    /**
+     * Restores the pod template of an earlier revision with one JSON patch.
+     * The template comes from the revision index, so nothing is listed or
+     * read first; the deployment controller then rolls the restored
+     * template out as a new revision.
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param revision the revision to restore, or 0 for the one before the
+     * newest
+     * @return
+     */
+    public Deployment rollbackDeployment(String namespace, String deploymentName, long revision) {
+        DeploymentRevisionIndex index = readyRevisionIndex();
+        DeploymentRevision target = revision == 0
+                ? index.getPreviousRevision(namespace, deploymentName)
+                : index.getRevision(namespace, deploymentName, revision);
+        if (target == null) {
+            throw new IllegalArgumentException("no revision " + (revision == 0 ? "before the current one" : revision)
+                    + " is known for " + namespace + "/" + deploymentName);
+        }
+        return patchDeployment(namespace, deploymentName, ResourcePatch.json().replace(TEMPLATE_PATH, target.getTemplate()).build());
+    }
+
+    private DeploymentRevisionIndex readyRevisionIndex() {
+        DeploymentRevisionIndex index = revisionIndex;
+        if (index == null) {
+            throw new IllegalStateException("the revision index is not enabled");
+        }
+        if (!index.hasSynced()) {
+            throw new IllegalStateException("the revision index has not synced");
+        }
+        return index;
+    }
+
+    /**
+     * Scales through the scale subresource, then reads the deployment back
+     * for the caller; there is no PUT and no conflict retry. Use
+     * {@link #setDeploymentScale} to skip the read.
      *
      * @param namespace
      * @param deploymentName
@@ -129,9 +297,103 @@ public class DeploymentHelper {
      * @return
      */
     public Deployment scaleDeployment(String namespace, String deploymentName, int replicaCount) {
-        return client.apps().deployments().inNamespace(namespace).withName(deploymentName).edit(
-                d -> new DeploymentBuilder(d).editSpec().withReplicas(replicaCount).endSpec().build()
-        );
+        setDeploymentScale(namespace, deploymentName, replicaCount);
+        return getDeploymentInNamespace(namespace, deploymentName);
+    }
+
+    /**
+     * Scales through the scale subresource, the smallest request and the one
+     * that only needs the deployments/scale permission. Prefer it when
+     * scaling many deployments and the updated object is not needed.
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param replicaCount
+     * @return
+     */
+    public Scale setDeploymentScale(String namespace, String deploymentName, int replicaCount) {
+        return ResourcePatcher.patchSubresource(client, client.apps().deployments().inNamespace(namespace).withName(deploymentName),
+                SCALE_SUBRESOURCE, ResourcePatch.json().replace(REPLICAS_PATH, replicaCount).build(), Scale.class);
+    }
+
+    /**
+     * Sets container images with one strategic merge patch, which matches
+     * containers by name, so no GET is needed to find their positions.
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param containerToImageMap
+     * @return
+     */
+    public Deployment setDeploymentImages(String namespace, String deploymentName, Map<String, String> containerToImageMap) {
+        List<Map<String, String>> containers = new ArrayList<>();
+        for (Map.Entry<String, String> entry : containerToImageMap.entrySet()) {
+            containers.add(Map.of("name", entry.getKey(), "image", entry.getValue()));
+        }
+        Map<String, Object> patch = Map.of("spec", Map.of("template", Map.of("spec", Map.of("containers", containers))));
+        return patchDeployment(namespace, deploymentName, ResourcePatch.strategicMerge(patch));
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param labels labels to set; a null value removes the label
+     * @return
+     */
+    public Deployment patchDeploymentLabels(String namespace, String deploymentName, Map<String, String> labels) {
+        return patchDeployment(namespace, deploymentName, ResourcePatch.labels(labels));
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param patch
+     * @return
+     */
+    public Deployment patchDeployment(String namespace, String deploymentName, ResourcePatch patch) {
+        return ResourcePatcher.patch(client.apps().deployments().inNamespace(namespace).withName(deploymentName), patch);
+    }
+
+    /**
+     * Completes once the deployment controller has observed the latest spec
+     * and every replica is updated and available, the same test kubectl
+     * rollout status applies.
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param timeoutMillis
+     * @return
+     */
+    public CompletableFuture<Deployment> waitForRolloutComplete(String namespace, String deploymentName, long timeoutMillis) {
+        return deploymentWatches.waitFor(namespace, deploymentName, DeploymentHelper::isRolloutComplete, timeoutMillis);
+    }
+
+    /**
+     *
+     * @param deployment
+     * @return
+     */
+    public static boolean isRolloutComplete(Deployment deployment) {
+        DeploymentStatus status = deployment.getStatus();
+        if (status == null || status.getObservedGeneration() == null
+                || status.getObservedGeneration() < deployment.getMetadata().getGeneration()) {
+            return false;
+        }
+        int desired = deployment.getSpec().getReplicas() == null ? 1 : deployment.getSpec().getReplicas();
+        int updated = status.getUpdatedReplicas() == null ? 0 : status.getUpdatedReplicas();
+        int total = status.getReplicas() == null ? 0 : status.getReplicas();
+        int available = status.getAvailableReplicas() == null ? 0 : status.getAvailableReplicas();
+        return updated >= desired && total == updated && available == updated;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public WatchDispatcher<Deployment> getDeploymentWatches() {
+        return deploymentWatches;
     }
 
     /**
@@ -144,6 +406,34 @@ public class DeploymentHelper {
         return client.apps().deployments().inNamespace(namespace).withName(deploymentName).delete();
     }
 
+    /**
+     * Deletes every object carrying the labels with a single deletecollection
+     * request.
+     *
+     * @param namespace
+     * @param labelMap
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteDeploymentsInNamespaceWithLabels(String namespace, Map<String, String> labelMap,
+            DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return CollectionDeleter.deleteCollection(client, client.apps().deployments().inNamespace(namespace), labelMap, propagationPolicy, gracePeriodSeconds);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteAllDeploymentsInNamespace(String namespace, DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return deleteDeploymentsInNamespaceWithLabels(namespace, Collections.emptyMap(), propagationPolicy, gracePeriodSeconds);
+    }
+
     /**
      *
      * @param namespace
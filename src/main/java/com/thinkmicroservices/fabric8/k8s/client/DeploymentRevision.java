@@ -0,0 +1,164 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.PodTemplateSpec;
+import io.fabric8.kubernetes.api.model.PodTemplateSpecBuilder;
+import io.fabric8.kubernetes.api.model.apps.ReplicaSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One revision of a deployment, taken from the ReplicaSet the deployment
+ * controller created for it. The pod template is a copy with the
+ * pod-template-hash label removed, ready to be written back to the
+ * deployment.
+ *
+ * @author cwoodward
+ */
+public final class DeploymentRevision {
+
+    public static final String REVISION_ANNOTATION = "deployment.kubernetes.io/revision";
+    public static final String CHANGE_CAUSE_ANNOTATION = "kubernetes.io/change-cause";
+    public static final String POD_TEMPLATE_HASH_LABEL = "pod-template-hash";
+
+    private final String namespace;
+    private final String deploymentName;
+    private final long revision;
+    private final String replicaSetName;
+    private final String changeCause;
+    private final String creationTimestamp;
+    private final PodTemplateSpec template;
+
+    private DeploymentRevision(String deploymentName, long revision, ReplicaSet replicaSet) {
+        this.namespace = replicaSet.getMetadata().getNamespace();
+        this.deploymentName = deploymentName;
+        this.revision = revision;
+        this.replicaSetName = replicaSet.getMetadata().getName();
+        Map<String, String> annotations = replicaSet.getMetadata().getAnnotations();
+        this.changeCause = annotations == null ? null : annotations.get(CHANGE_CAUSE_ANNOTATION);
+        this.creationTimestamp = replicaSet.getMetadata().getCreationTimestamp();
+        // copied, the informer's instance must not be modified
+        PodTemplateSpec copy = new PodTemplateSpecBuilder(replicaSet.getSpec().getTemplate()).build();
+        if (copy.getMetadata() != null && copy.getMetadata().getLabels() != null) {
+            Map<String, String> labels = new LinkedHashMap<>(copy.getMetadata().getLabels());
+            labels.remove(POD_TEMPLATE_HASH_LABEL);
+            copy.getMetadata().setLabels(labels);
+        }
+        this.template = copy;
+    }
+
+    /**
+     *
+     * @param deploymentName
+     * @param replicaSet
+     * @return the revision, or null if the ReplicaSet carries no valid
+     * revision annotation
+     */
+    static DeploymentRevision of(String deploymentName, ReplicaSet replicaSet) {
+        long revision = revisionOf(replicaSet);
+        if (revision <= 0 || replicaSet.getSpec() == null || replicaSet.getSpec().getTemplate() == null) {
+            return null;
+        }
+        return new DeploymentRevision(deploymentName, revision, replicaSet);
+    }
+
+    /**
+     *
+     * @param replicaSet
+     * @return the revision annotation, or 0 if it is missing or not a number
+     */
+    static long revisionOf(ReplicaSet replicaSet) {
+        Map<String, String> annotations = replicaSet.getMetadata().getAnnotations();
+        String value = annotations == null ? null : annotations.get(REVISION_ANNOTATION);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getDeploymentName() {
+        return deploymentName;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getReplicaSetName() {
+        return replicaSetName;
+    }
+
+    /**
+     *
+     * @return the kubernetes.io/change-cause annotation, if any
+     */
+    public String getChangeCause() {
+        return changeCause;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getCreationTimestamp() {
+        return creationTimestamp;
+    }
+
+    /**
+     *
+     * @return the pod template of the revision; callers must not modify it
+     */
+    public PodTemplateSpec getTemplate() {
+        return template;
+    }
+
+    /**
+     *
+     * @return container name to image
+     */
+    public Map<String, String> getImages() {
+        Map<String, String> images = new LinkedHashMap<>();
+        if (template.getSpec() != null && template.getSpec().getContainers() != null) {
+            for (Container container : template.getSpec().getContainers()) {
+                images.put(container.getName(), container.getImage());
+            }
+        }
+        return images;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "DeploymentRevision: " + namespace + "/" + deploymentName
+                + ", revision=" + revision
+                + ", replicaSet=" + replicaSetName
+                + ", images=" + getImages()
+                + ", changeCause=" + changeCause;
+    }
+}
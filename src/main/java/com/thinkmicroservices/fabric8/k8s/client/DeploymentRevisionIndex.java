@@ -0,0 +1,215 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.OwnerReference;
+import io.fabric8.kubernetes.api.model.apps.ReplicaSet;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the revision history of every deployment in memory, built from the
+ * ReplicaSets each deployment owns and kept current by a ReplicaSet
+ * informer. Every change rebuilds the owning deployment's sorted revision
+ * list, so a rollback finds its target with a map read instead of listing
+ * ReplicaSets.
+ *
+ * @author cwoodward
+ */
+public class DeploymentRevisionIndex implements AutoCloseable {
+
+    public static final String OWNER_INDEX = "deployment-owner";
+
+    private static final String DEPLOYMENT_KIND = "Deployment";
+
+    private final ResourceCache<ReplicaSet> cache;
+    private final Map<String, List<DeploymentRevision>> revisions = new ConcurrentHashMap<>();
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    private DeploymentRevisionIndex(ResourceCache<ReplicaSet> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     *
+     * @param client
+     * @param resyncPeriodMillis
+     * @return an index whose informer is running; see {@link #waitForSync}
+     */
+    public static DeploymentRevisionIndex start(KubernetesClient client, long resyncPeriodMillis) {
+        ResourceCache<ReplicaSet> replicaSets = ResourceCache.start(client, ReplicaSet.class, resyncPeriodMillis,
+                Collections.singletonMap(OWNER_INDEX, DeploymentRevisionIndex::ownerIndexKeys));
+        DeploymentRevisionIndex index = new DeploymentRevisionIndex(replicaSets);
+        replicaSets.addEventHandler(index.new ReplicaSetHandler());
+        return index;
+    }
+
+    /**
+     *
+     * @param timeoutMillis
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean waitForSync(long timeoutMillis) throws InterruptedException {
+        return cache.waitForSync(timeoutMillis);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean hasSynced() {
+        return cache.hasSynced();
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param deploymentName
+     * @return the deployment's revisions, oldest first; empty if none are
+     * known
+     */
+    public List<DeploymentRevision> getRevisions(String namespace, String deploymentName) {
+        List<DeploymentRevision> known = revisions.get(key(namespace, deploymentName));
+        return known == null ? Collections.emptyList() : known;
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param revision
+     * @return the revision, or null if it is not known
+     */
+    public DeploymentRevision getRevision(String namespace, String deploymentName, long revision) {
+        for (DeploymentRevision candidate : getRevisions(namespace, deploymentName)) {
+            if (candidate.getRevision() == revision) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param deploymentName
+     * @return the newest revision, the one the deployment currently runs, or
+     * null if none is known
+     */
+    public DeploymentRevision getLatestRevision(String namespace, String deploymentName) {
+        List<DeploymentRevision> known = getRevisions(namespace, deploymentName);
+        return known.isEmpty() ? null : known.get(known.size() - 1);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param deploymentName
+     * @return the revision before the newest, the target of kubectl rollout
+     * undo, or null if there is none
+     */
+    public DeploymentRevision getPreviousRevision(String namespace, String deploymentName) {
+        List<DeploymentRevision> known = getRevisions(namespace, deploymentName);
+        return known.size() < 2 ? null : known.get(known.size() - 2);
+    }
+
+    /**
+     *
+     * @return how many times a deployment's revision list has been rebuilt
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     *
+     * @return the ReplicaSet cache the index is built from
+     */
+    public ResourceCache<ReplicaSet> getCache() {
+        return cache;
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+        revisions.clear();
+    }
+
+    private void refresh(ReplicaSet replicaSet) {
+        for (String key : ownerIndexKeys(replicaSet)) {
+            String deploymentName = key.substring(key.indexOf('/') + 1);
+            List<DeploymentRevision> rebuilt = new ArrayList<>();
+            for (ReplicaSet owned : cache.byIndex(OWNER_INDEX, key)) {
+                DeploymentRevision revision = DeploymentRevision.of(deploymentName, owned);
+                if (revision != null) {
+                    rebuilt.add(revision);
+                }
+            }
+            if (rebuilt.isEmpty()) {
+                revisions.remove(key);
+            } else {
+                rebuilt.sort(Comparator.comparingLong(DeploymentRevision::getRevision));
+                revisions.put(key, Collections.unmodifiableList(rebuilt));
+            }
+            refreshCount.incrementAndGet();
+        }
+    }
+
+    private static String key(String namespace, String deploymentName) {
+        return namespace + "/" + deploymentName;
+    }
+
+    private static List<String> ownerIndexKeys(ReplicaSet replicaSet) {
+        List<OwnerReference> owners = replicaSet.getMetadata().getOwnerReferences();
+        if (owners == null) {
+            return Collections.emptyList();
+        }
+        for (OwnerReference owner : owners) {
+            if (DEPLOYMENT_KIND.equals(owner.getKind()) && Boolean.TRUE.equals(owner.getController())) {
+                return Collections.singletonList(key(replicaSet.getMetadata().getNamespace(), owner.getName()));
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "DeploymentRevisionIndex: synced=" + hasSynced()
+                + ", deployments=" + revisions.size()
+                + ", refreshes=" + refreshCount.get();
+    }
+
+    /**
+     * Rebuilds the revision list of the deployment owning a changed
+     * ReplicaSet.
+     */
+    private class ReplicaSetHandler implements ResourceEventHandler<ReplicaSet> {
+
+        @Override
+        public void onAdd(ReplicaSet replicaSet) {
+            refresh(replicaSet);
+        }
+
+        @Override
+        public void onUpdate(ReplicaSet oldReplicaSet, ReplicaSet newReplicaSet) {
+            if (!ownerIndexKeys(oldReplicaSet).equals(ownerIndexKeys(newReplicaSet))) {
+                refresh(oldReplicaSet);
+            }
+            refresh(newReplicaSet);
+        }
+
+        @Override
+        public void onDelete(ReplicaSet replicaSet, boolean deletedFinalStateUnknown) {
+            refresh(replicaSet);
+        }
+    }
+}
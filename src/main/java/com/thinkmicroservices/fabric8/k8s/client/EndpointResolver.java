@@ -0,0 +1,301 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.EndpointAddress;
+import io.fabric8.kubernetes.api.model.EndpointPort;
+import io.fabric8.kubernetes.api.model.EndpointSubset;
+import io.fabric8.kubernetes.api.model.Endpoints;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.discovery.v1.Endpoint;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSlice;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the endpoints of every Service in memory, fed by an informer on
+ * Endpoints or on discovery/v1 EndpointSlices. Each change replaces the
+ * service's {@link ServiceEndpoints} snapshot, so lookups are two map reads
+ * and return prebuilt lists without allocating.
+ *
+ * @author cwoodward
+ */
+public class EndpointResolver implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndpointResolver.class);
+
+    public static final String SERVICE_NAME_LABEL = "kubernetes.io/service-name";
+
+    /**
+     * The resource the endpoints are read from.
+     */
+    public enum Source {
+        ENDPOINTS,
+        ENDPOINT_SLICES;
+
+        public String toString() {
+            return "Source: " + name();
+        }
+    }
+
+    private final Source source;
+    private final ResourceCache<? extends HasMetadata> cache;
+    private final Map<String, Map<String, ServiceEndpoints>> services = new ConcurrentHashMap<>();
+    private final List<Consumer<ServiceEndpoints>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    private EndpointResolver(Source source, ResourceCache<? extends HasMetadata> cache) {
+        this.source = source;
+        this.cache = cache;
+    }
+
+    /**
+     *
+     * @param client
+     * @param source
+     * @param resyncPeriodMillis
+     * @return a resolver whose informer is running; see {@link #waitForSync}
+     */
+    public static EndpointResolver start(KubernetesClient client, Source source, long resyncPeriodMillis) {
+        if (source == Source.ENDPOINT_SLICES) {
+            ResourceCache<EndpointSlice> slices = ResourceCache.start(client, EndpointSlice.class, resyncPeriodMillis);
+            EndpointResolver resolver = new EndpointResolver(source, slices);
+            slices.addEventHandler(resolver.new SliceHandler(slices));
+            return resolver;
+        }
+        ResourceCache<Endpoints> endpoints = ResourceCache.start(client, Endpoints.class, resyncPeriodMillis);
+        EndpointResolver resolver = new EndpointResolver(source, endpoints);
+        endpoints.addEventHandler(resolver.new EndpointsHandler());
+        return resolver;
+    }
+
+    /**
+     *
+     * @param timeoutMillis
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean waitForSync(long timeoutMillis) throws InterruptedException {
+        return cache.waitForSync(timeoutMillis);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param serviceName
+     * @return the snapshot, or null if the service has no endpoints object
+     */
+    public ServiceEndpoints getEndpoints(String namespace, String serviceName) {
+        Map<String, ServiceEndpoints> inNamespace = services.get(namespace);
+        return inNamespace == null ? null : inNamespace.get(serviceName);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param serviceName
+     * @return the ready endpoints, empty if there are none
+     */
+    public List<ServiceEndpoint> getReadyEndpoints(String namespace, String serviceName) {
+        ServiceEndpoints endpoints = getEndpoints(namespace, serviceName);
+        return endpoints == null ? Collections.emptyList() : endpoints.getReadyEndpoints();
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param serviceName
+     * @return how many times the service's entry has been rebuilt
+     */
+    public long getRefreshCount(String namespace, String serviceName) {
+        ServiceEndpoints endpoints = getEndpoints(namespace, serviceName);
+        return endpoints == null ? 0 : endpoints.getRefreshCount();
+    }
+
+    /**
+     *
+     * @return refreshes across all services
+     */
+    public long getTotalRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Registers a callback run on the informer thread after a service's
+     * snapshot changes. A removed service is reported with no endpoints.
+     *
+     * @param listener
+     */
+    public void addListener(Consumer<ServiceEndpoints> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     *
+     * @param listener
+     */
+    public void removeListener(Consumer<ServiceEndpoints> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Source getSource() {
+        return source;
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+    }
+
+    private void publish(String namespace, String serviceName, List<ServiceEndpoint> endpoints, boolean removed) {
+        Map<String, ServiceEndpoints> inNamespace = services.computeIfAbsent(namespace, ns -> new ConcurrentHashMap<>());
+        ServiceEndpoints snapshot = inNamespace.compute(serviceName, (name, previous) -> new ServiceEndpoints(
+                namespace, name, endpoints, previous == null ? 1 : previous.getRefreshCount() + 1));
+        if (removed) {
+            inNamespace.remove(serviceName);
+        }
+        refreshCount.incrementAndGet();
+        for (Consumer<ServiceEndpoints> listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException e) {
+                logger.warn("endpoint listener failed for {}/{}", namespace, serviceName, e);
+            }
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        int count = 0;
+        for (Map<String, ServiceEndpoints> inNamespace : services.values()) {
+            count += inNamespace.size();
+        }
+        return "EndpointResolver: source=" + source.name()
+                + ", services=" + count
+                + ", refreshes=" + refreshCount.get();
+    }
+
+    static List<ServiceEndpoint> fromEndpoints(Endpoints endpoints) {
+        List<ServiceEndpoint> result = new ArrayList<>();
+        if (endpoints.getSubsets() == null) {
+            return result;
+        }
+        for (EndpointSubset subset : endpoints.getSubsets()) {
+            addAddresses(result, subset.getAddresses(), subset.getPorts(), true);
+            addAddresses(result, subset.getNotReadyAddresses(), subset.getPorts(), false);
+        }
+        return result;
+    }
+
+    private static void addAddresses(List<ServiceEndpoint> result, List<EndpointAddress> addresses, List<EndpointPort> ports, boolean ready) {
+        if (addresses == null || ports == null) {
+            return;
+        }
+        for (EndpointAddress address : addresses) {
+            String podName = address.getTargetRef() == null ? null : address.getTargetRef().getName();
+            for (EndpointPort port : ports) {
+                result.add(new ServiceEndpoint(address.getIp(), port.getPort(), port.getName(), port.getProtocol(),
+                        ready, address.getNodeName(), null, podName));
+            }
+        }
+    }
+
+    static List<ServiceEndpoint> fromSlices(List<EndpointSlice> slices) {
+        List<ServiceEndpoint> result = new ArrayList<>();
+        for (EndpointSlice slice : slices) {
+            if (slice.getEndpoints() == null || slice.getPorts() == null) {
+                continue;
+            }
+            for (Endpoint endpoint : slice.getEndpoints()) {
+                // an unset ready condition means ready
+                boolean ready = endpoint.getConditions() == null || !Boolean.FALSE.equals(endpoint.getConditions().getReady());
+                String podName = endpoint.getTargetRef() == null ? null : endpoint.getTargetRef().getName();
+                for (String ip : endpoint.getAddresses()) {
+                    for (io.fabric8.kubernetes.api.model.discovery.v1.EndpointPort port : slice.getPorts()) {
+                        if (port.getPort() == null) {
+                            continue;
+                        }
+                        result.add(new ServiceEndpoint(ip, port.getPort(), port.getName(), port.getProtocol(),
+                                ready, endpoint.getNodeName(), endpoint.getZone(), podName));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Endpoints carry every address of a service in one object.
+     */
+    private class EndpointsHandler implements ResourceEventHandler<Endpoints> {
+
+        @Override
+        public void onAdd(Endpoints obj) {
+            publish(obj.getMetadata().getNamespace(), obj.getMetadata().getName(), fromEndpoints(obj), false);
+        }
+
+        @Override
+        public void onUpdate(Endpoints oldObj, Endpoints newObj) {
+            onAdd(newObj);
+        }
+
+        @Override
+        public void onDelete(Endpoints obj, boolean deletedFinalStateUnknown) {
+            publish(obj.getMetadata().getNamespace(), obj.getMetadata().getName(), Collections.emptyList(), true);
+        }
+    }
+
+    /**
+     * A service may be split across several slices, so every change rebuilds
+     * the service from all of its slices in the cache.
+     */
+    private class SliceHandler implements ResourceEventHandler<EndpointSlice> {
+
+        private final ResourceCache<EndpointSlice> slices;
+
+        private SliceHandler(ResourceCache<EndpointSlice> slices) {
+            this.slices = slices;
+        }
+
+        private void rebuild(EndpointSlice changed) {
+            Map<String, String> labels = changed.getMetadata().getLabels();
+            String serviceName = labels == null ? null : labels.get(SERVICE_NAME_LABEL);
+            if (serviceName == null) {
+                return;
+            }
+            String namespace = changed.getMetadata().getNamespace();
+            List<EndpointSlice> current = slices.listWithLabels(namespace, Collections.singletonMap(SERVICE_NAME_LABEL, serviceName));
+            publish(namespace, serviceName, fromSlices(current), current.isEmpty());
+        }
+
+        @Override
+        public void onAdd(EndpointSlice obj) {
+            rebuild(obj);
+        }
+
+        @Override
+        public void onUpdate(EndpointSlice oldObj, EndpointSlice newObj) {
+            rebuild(newObj);
+        }
+
+        @Override
+        public void onDelete(EndpointSlice obj, boolean deletedFinalStateUnknown) {
+            rebuild(obj);
+        }
+    }
+}
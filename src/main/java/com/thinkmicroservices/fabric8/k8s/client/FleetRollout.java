@@ -0,0 +1,188 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolls new images out to many deployments in waves. Within a wave up to
+ * maxConcurrency rollouts are in flight, each followed by the shared
+ * {@link RolloutTracker} rather than a blocked thread; the next wave starts
+ * only once every deployment of the current one is available, and the first
+ * failure stops the rollout.
+ *
+ * @author cwoodward
+ */
+final class FleetRollout {
+
+    private final DeploymentHelper deploymentHelper;
+    private final RolloutTracker rolloutTracker;
+    private final FleetRolloutSettings settings;
+
+    /**
+     *
+     * @param deploymentHelper
+     * @param rolloutTracker
+     * @param settings
+     */
+    FleetRollout(DeploymentHelper deploymentHelper, RolloutTracker rolloutTracker, FleetRolloutSettings settings) {
+        this.deploymentHelper = deploymentHelper;
+        this.rolloutTracker = rolloutTracker;
+        this.settings = settings;
+    }
+
+    /**
+     *
+     * @param deployments
+     * @param containerToImageMap
+     * @return
+     * @throws InterruptedException
+     */
+    FleetRolloutResult run(List<Deployment> deployments, Map<String, String> containerToImageMap) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Deployment> sorted = new ArrayList<>(deployments);
+        sorted.sort(Comparator.comparing(FleetRollout::key));
+        List<Target> targets = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (Deployment deployment : sorted) {
+            Map<String, String> images = containerImages(deployment, containerToImageMap);
+            if (isCurrent(deployment, images)) {
+                skipped.add(key(deployment));
+            } else {
+                targets.add(new Target(deployment, images));
+            }
+        }
+
+        FleetRolloutResult result = new FleetRolloutResult(skipped);
+        int position = 0;
+        for (int wave = 0; position < targets.size(); wave++) {
+            List<Target> waveTargets = targets.subList(position, Math.min(targets.size(), position + settings.getWaveSize(wave)));
+            position += waveTargets.size();
+            FleetRolloutResult.WaveResult waveResult = runWave(wave, waveTargets, result);
+            result.addWave(waveResult);
+            if (!waveResult.isSucceeded()) {
+                result.addNotStarted(keys(targets.subList(position, targets.size())));
+                break;
+            }
+        }
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private FleetRolloutResult.WaveResult runWave(int index, List<Target> targets, FleetRolloutResult result)
+            throws InterruptedException {
+        FleetRolloutResult.WaveResult wave = new FleetRolloutResult.WaveResult(index, keys(targets));
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(settings.getMaxConcurrency());
+        List<CompletableFuture<Void>> finished = new ArrayList<>();
+        List<String> notStarted = new ArrayList<>();
+        for (Target target : targets) {
+            inFlight.acquire();
+            if (!wave.isSucceeded()) {
+                // halt inside the wave too: do not touch more deployments once one has failed
+                inFlight.release();
+                notStarted.add(target.key);
+                continue;
+            }
+            finished.add(start(target).handle((deployment, error) -> {
+                if (error == null) {
+                    wave.succeeded(target.key);
+                } else {
+                    wave.failed(target.key, error);
+                }
+                inFlight.release();
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(finished.toArray(new CompletableFuture<?>[0])).join();
+        wave.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        result.addNotStarted(notStarted);
+        return wave;
+    }
+
+    // the strategic merge matches containers by name, so the listed copy is enough and no fresh read is needed
+    private CompletableFuture<Deployment> start(Target target) {
+        try {
+            Deployment patched = deploymentHelper.setDeploymentImages(target.namespace, target.name, target.images);
+            Long generation = patched.getMetadata().getGeneration();
+            return rolloutTracker.track(target.namespace, target.name, generation == null ? 0 : generation,
+                    null, settings.getRolloutTimeoutMillis());
+        } catch (RuntimeException e) {
+            CompletableFuture<Deployment> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Keeps the images of the containers the deployment has; a strategic
+     * merge patch naming any other container would add it.
+     *
+     * @param deployment
+     * @param containerToImageMap
+     * @return
+     */
+    static Map<String, String> containerImages(Deployment deployment, Map<String, String> containerToImageMap) {
+        Map<String, String> images = new LinkedHashMap<>();
+        for (Container container : deployment.getSpec().getTemplate().getSpec().getContainers()) {
+            String image = containerToImageMap.get(container.getName());
+            if (image != null) {
+                images.put(container.getName(), image);
+            }
+        }
+        return images;
+    }
+
+    /**
+     *
+     * @param deployment
+     * @param images
+     * @return true if every named container already runs its image
+     */
+    static boolean isCurrent(Deployment deployment, Map<String, String> images) {
+        for (Container container : deployment.getSpec().getTemplate().getSpec().getContainers()) {
+            String image = images.get(container.getName());
+            if (image != null && !image.equals(container.getImage())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String key(Deployment deployment) {
+        return deployment.getMetadata().getNamespace() + "/" + deployment.getMetadata().getName();
+    }
+
+    private static List<String> keys(List<Target> targets) {
+        List<String> keys = new ArrayList<>(targets.size());
+        for (Target target : targets) {
+            keys.add(target.key);
+        }
+        return keys;
+    }
+
+    /**
+     * A deployment to update.
+     */
+    private static final class Target {
+
+        private final String namespace;
+        private final String name;
+        private final String key;
+        private final Map<String, String> images;
+
+        private Target(Deployment deployment, Map<String, String> images) {
+            this.namespace = deployment.getMetadata().getNamespace();
+            this.name = deployment.getMetadata().getName();
+            this.key = key(deployment);
+            this.images = images;
+        }
+    }
+}
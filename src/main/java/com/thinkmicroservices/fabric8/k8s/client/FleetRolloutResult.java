@@ -0,0 +1,189 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a fleet rollout, wave by wave. Deployments are identified as
+ * namespace/name.
+ *
+ * @author cwoodward
+ */
+public class FleetRolloutResult {
+
+    private final List<WaveResult> waves = new ArrayList<>();
+    private final List<String> skipped;
+    private final List<String> notStarted = new ArrayList<>();
+    private long elapsedMillis;
+
+    /**
+     *
+     * @param skipped deployments already running the requested images
+     */
+    FleetRolloutResult(List<String> skipped) {
+        this.skipped = Collections.unmodifiableList(new ArrayList<>(skipped));
+    }
+
+    void addWave(WaveResult wave) {
+        waves.add(wave);
+    }
+
+    void addNotStarted(List<String> deployments) {
+        notStarted.addAll(deployments);
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     *
+     * @return the waves that ran, in order
+     */
+    public List<WaveResult> getWaves() {
+        return Collections.unmodifiableList(waves);
+    }
+
+    /**
+     *
+     * @return deployments whose containers already had the requested images
+     */
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     *
+     * @return deployments left untouched because a wave failed
+     */
+    public List<String> getNotStarted() {
+        return Collections.unmodifiableList(notStarted);
+    }
+
+    /**
+     *
+     * @return true if a wave failed and the rollout stopped
+     */
+    public boolean isHalted() {
+        return !waves.isEmpty() && !waves.get(waves.size() - 1).isSucceeded();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "FleetRolloutResult: waves=" + waves.size()
+                + ", halted=" + isHalted()
+                + ", skipped=" + skipped.size()
+                + ", notStarted=" + notStarted.size()
+                + ", elapsed=" + elapsedMillis + "ms";
+    }
+
+    /**
+     * One wave of deployments rolled out together.
+     */
+    public static class WaveResult {
+
+        private final int index;
+        private final List<String> deployments;
+        private final List<String> succeeded = new ArrayList<>();
+        private final Map<String, Throwable> failures = new LinkedHashMap<>();
+        private long elapsedMillis;
+
+        /**
+         *
+         * @param index
+         * @param deployments
+         */
+        WaveResult(int index, List<String> deployments) {
+            this.index = index;
+            this.deployments = Collections.unmodifiableList(new ArrayList<>(deployments));
+        }
+
+        synchronized void succeeded(String deployment) {
+            succeeded.add(deployment);
+        }
+
+        synchronized void failed(String deployment, Throwable error) {
+            failures.put(deployment, error);
+        }
+
+        void setElapsedMillis(long elapsedMillis) {
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         *
+         * @return 0-based position of the wave
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public List<String> getDeployments() {
+            return deployments;
+        }
+
+        /**
+         *
+         * @return deployments that rolled out and became available
+         */
+        public synchronized List<String> getSucceeded() {
+            return new ArrayList<>(succeeded);
+        }
+
+        /**
+         *
+         * @return the error of each deployment that failed, stalled or timed
+         * out
+         */
+        public synchronized Map<String, Throwable> getFailures() {
+            return new LinkedHashMap<>(failures);
+        }
+
+        /**
+         *
+         * @return
+         */
+        public synchronized boolean isSucceeded() {
+            return failures.isEmpty();
+        }
+
+        /**
+         *
+         * @return wall-clock time from the first update to the last healthy
+         * deployment
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public synchronized String toString() {
+            return "WaveResult: index=" + index
+                    + ", deployments=" + deployments.size()
+                    + ", succeeded=" + succeeded.size()
+                    + ", failed=" + failures.size()
+                    + ", elapsed=" + elapsedMillis + "ms";
+        }
+    }
+}
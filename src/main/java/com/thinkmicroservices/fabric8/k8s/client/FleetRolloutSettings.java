@@ -0,0 +1,110 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.Arrays;
+
+/**
+ * Wave layout and limits for {@link DeploymentHelper#rolloutFleet}.
+ *
+ * @author cwoodward
+ */
+public class FleetRolloutSettings {
+
+    public static final int DEFAULT_WAVE_SIZE = 10;
+    public static final int DEFAULT_MAX_CONCURRENCY = 5;
+    public static final long DEFAULT_ROLLOUT_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+    private int[] waveSizes = {DEFAULT_WAVE_SIZE};
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private long rolloutTimeoutMillis = DEFAULT_ROLLOUT_TIMEOUT_MILLIS;
+
+    /**
+     *
+     * @return
+     */
+    public static FleetRolloutSettings defaults() {
+        return new FleetRolloutSettings();
+    }
+
+    /**
+     * Sets the number of deployments in each wave; the last size repeats
+     * until every deployment is covered, so (1, 5, 20) is a canary of one,
+     * a wave of five and then waves of twenty.
+     *
+     * @param waveSizes
+     * @return
+     */
+    public FleetRolloutSettings withWaveSizes(int... waveSizes) {
+        if (waveSizes.length == 0) {
+            throw new IllegalArgumentException("at least one wave size is required");
+        }
+        for (int waveSize : waveSizes) {
+            if (waveSize < 1) {
+                throw new IllegalArgumentException("wave sizes must be at least 1");
+            }
+        }
+        this.waveSizes = waveSizes.clone();
+        return this;
+    }
+
+    /**
+     *
+     * @param maxConcurrency rollouts in flight at once within a wave
+     * @return
+     */
+    public FleetRolloutSettings withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     *
+     * @param rolloutTimeoutMillis how long one deployment may take to become
+     * healthy
+     * @return
+     */
+    public FleetRolloutSettings withRolloutTimeoutMillis(long rolloutTimeoutMillis) {
+        if (rolloutTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("rolloutTimeoutMillis must be positive");
+        }
+        this.rolloutTimeoutMillis = rolloutTimeoutMillis;
+        return this;
+    }
+
+    /**
+     *
+     * @param wave 0-based wave index
+     * @return
+     */
+    public int getWaveSize(int wave) {
+        return waveSizes[Math.min(wave, waveSizes.length - 1)];
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getRolloutTimeoutMillis() {
+        return rolloutTimeoutMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "FleetRolloutSettings: waveSizes=" + Arrays.toString(waveSizes)
+                + ", maxConcurrency=" + maxConcurrency
+                + ", rolloutTimeoutMillis=" + rolloutTimeoutMillis;
+    }
+}
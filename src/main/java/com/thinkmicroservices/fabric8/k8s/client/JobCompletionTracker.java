@@ -0,0 +1,450 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.api.model.batch.v1.JobList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows the completion of any number of jobs over one watch per
+ * namespace. Jobs are registered by name, each getting a future, or by
+ * label selector, with a callback per finished job. An event is routed with
+ * one map lookup by job name, plus a label check per registered selector.
+ *
+ * Registering a batch of names costs one list call, not a GET per job. The
+ * watch resumes from the last resourceVersion it saw after a disconnect,
+ * and relists when that version has expired, so no completion is missed.
+ * It is closed once nothing is registered in the namespace.
+ *
+ * @author cwoodward
+ */
+public class JobCompletionTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobCompletionTracker.class);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "job-completion-tracker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final KubernetesClient client;
+    private final Map<String, NamespaceTracker> namespaces = new HashMap<>();
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong watchStartCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+
+    /**
+     *
+     * @param client
+     */
+    public JobCompletionTracker(KubernetesClient client) {
+        this.client = client;
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param jobName
+     * @param timeoutMillis
+     * @return completes with the job once it has a Complete or Failed
+     * condition
+     */
+    public CompletableFuture<Job> track(String namespace, String jobName, long timeoutMillis) {
+        return trackAll(namespace, List.of(jobName), timeoutMillis).get(jobName);
+    }
+
+    /**
+     * Registers every job name and reads their current state: with a single
+     * list of the namespace when this starts its watch, or by name when the
+     * watch already runs and delivers every later change.
+     *
+     * @param namespace
+     * @param jobNames
+     * @param timeoutMillis applies to each job
+     * @return a future per job name, completed once the job has a Complete
+     * or Failed condition; it fails with a TimeoutException on timeout and
+     * with a KubernetesClientException if the job is deleted
+     */
+    public Map<String, CompletableFuture<Job>> trackAll(String namespace, Collection<String> jobNames, long timeoutMillis) {
+        NamespaceTracker tracker = acquire(namespace);
+        Map<String, CompletableFuture<Job>> futures = new LinkedHashMap<>();
+        try {
+            for (String jobName : jobNames) {
+                // registered before the list so a change between the list and the watch is still delivered
+                futures.put(jobName, tracker.register(jobName));
+            }
+            tracker.syncNamed(futures.keySet());
+        } catch (RuntimeException e) {
+            for (CompletableFuture<Job> future : futures.values()) {
+                future.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            release(tracker);
+        }
+        for (Map.Entry<String, CompletableFuture<Job>> entry : futures.entrySet()) {
+            CompletableFuture<Job> future = entry.getValue();
+            if (!future.isDone()) {
+                String jobName = entry.getKey();
+                ScheduledFuture<?> timeout = SCHEDULER.schedule(() -> future.completeExceptionally(new TimeoutException(
+                        "timed out after " + timeoutMillis + "ms waiting for " + namespace + "/" + jobName)),
+                        timeoutMillis, TimeUnit.MILLISECONDS);
+                future.whenComplete((job, error) -> timeout.cancel(false));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Calls the listener once for every job carrying the labels when it
+     * finishes, including jobs created after registration. Jobs that have
+     * already finished are reported at once.
+     *
+     * @param namespace
+     * @param labelMap
+     * @param listener called on the watch thread; must return quickly
+     * @return closing it ends the registration
+     */
+    public AutoCloseable trackSelector(String namespace, Map<String, String> labelMap, Consumer<Job> listener) {
+        NamespaceTracker tracker = acquire(namespace);
+        Selector selector = new Selector(Map.copyOf(labelMap), listener);
+        tracker.selectors.add(selector);
+        try {
+            tracker.sync(false, List.of(selector));
+        } catch (RuntimeException e) {
+            tracker.selectors.remove(selector);
+            release(tracker);
+            throw e;
+        }
+        return () -> {
+            tracker.selectors.remove(selector);
+            release(tracker);
+        };
+    }
+
+    private NamespaceTracker acquire(String namespace) {
+        synchronized (namespaces) {
+            NamespaceTracker tracker = namespaces.computeIfAbsent(namespace, NamespaceTracker::new);
+            tracker.users++;
+            return tracker;
+        }
+    }
+
+    private void release(NamespaceTracker tracker) {
+        synchronized (namespaces) {
+            tracker.users--;
+            tracker.stopIfIdle();
+        }
+    }
+
+    /**
+     *
+     * @return the number of namespaces with an open watch
+     */
+    public int getActiveWatchCount() {
+        synchronized (namespaces) {
+            int active = 0;
+            for (NamespaceTracker tracker : namespaces.values()) {
+                if (tracker.isRunning()) {
+                    active++;
+                }
+            }
+            return active;
+        }
+    }
+
+    /**
+     *
+     * @return jobs registered by name that have not finished
+     */
+    public int getPendingCount() {
+        synchronized (namespaces) {
+            int pending = 0;
+            for (NamespaceTracker tracker : namespaces.values()) {
+                pending += tracker.pending.size();
+            }
+            return pending;
+        }
+    }
+
+    /**
+     *
+     * @return the number of watch events received
+     */
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    /**
+     *
+     * @return the number of watches opened, including restarts
+     */
+    public long getWatchStartCount() {
+        return watchStartCount.get();
+    }
+
+    /**
+     *
+     * @return finished jobs reported to futures and selectors
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "JobCompletionTracker: watches=" + getActiveWatchCount()
+                + ", pending=" + getPendingCount()
+                + ", events=" + eventCount.get()
+                + ", watchStarts=" + watchStartCount.get()
+                + ", completed=" + completedCount.get();
+    }
+
+    /**
+     * A label selector and the callback for its finished jobs.
+     */
+    private static final class Selector {
+
+        private final Map<String, String> labels;
+        private final Consumer<Job> listener;
+        // a job is reported once even if later events repeat its condition
+        private final Map<String, Boolean> reported = new ConcurrentHashMap<>();
+
+        private Selector(Map<String, String> labels, Consumer<Job> listener) {
+            this.labels = labels;
+            this.listener = listener;
+        }
+
+        private boolean matches(Job job) {
+            Map<String, String> jobLabels = job.getMetadata().getLabels();
+            return jobLabels != null && jobLabels.entrySet().containsAll(labels.entrySet());
+        }
+    }
+
+    /**
+     * The watch for one namespace and the jobs registered on it.
+     */
+    private class NamespaceTracker implements Watcher<Job> {
+
+        private final String namespace;
+        private final Map<String, List<CompletableFuture<Job>>> pending = new ConcurrentHashMap<>();
+        private final List<Selector> selectors = new CopyOnWriteArrayList<>();
+        // guarded by the tracker's namespaces lock
+        private int users;
+        private Watch watch;
+        private volatile String lastResourceVersion;
+        private volatile boolean stopped;
+
+        private NamespaceTracker(String namespace) {
+            this.namespace = namespace;
+        }
+
+        private CompletableFuture<Job> register(String jobName) {
+            CompletableFuture<Job> future = new CompletableFuture<>();
+            pending.computeIfAbsent(jobName, name -> new CopyOnWriteArrayList<>()).add(future);
+            future.whenComplete((job, error) -> unregister(jobName, future));
+            return future;
+        }
+
+        private void unregister(String jobName, CompletableFuture<Job> future) {
+            synchronized (namespaces) {
+                pending.computeIfPresent(jobName, (name, futures) -> {
+                    futures.remove(future);
+                    return futures.isEmpty() ? null : futures;
+                });
+                stopIfIdle();
+            }
+        }
+
+        private void stopIfIdle() {
+            if (users == 0 && pending.isEmpty() && selectors.isEmpty()) {
+                namespaces.remove(namespace, this);
+                stop();
+            }
+        }
+
+        /**
+         * Lists the namespace once to settle registrations against the
+         * current state, then makes sure the watch runs from that list.
+         *
+         * @param named report to the futures of named jobs
+         * @param targets selectors to report to
+         */
+        private void sync(boolean named, Collection<Selector> targets) {
+            JobList list = client.batch().jobs().inNamespace(namespace).list();
+            for (Job job : list.getItems()) {
+                if (named) {
+                    offerNamed(job);
+                }
+                for (Selector selector : targets) {
+                    offerSelector(selector, job);
+                }
+            }
+            synchronized (this) {
+                if (watch == null && !stopped) {
+                    start(list.getMetadata().getResourceVersion());
+                }
+            }
+        }
+
+        /**
+         * Reads each job by name if the watch already runs: it was opened
+         * before these reads, so it delivers any change they miss, and a
+         * list of the whole namespace would only repeat what it has sent.
+         *
+         * @param jobNames
+         */
+        private void syncNamed(Collection<String> jobNames) {
+            if (!isRunning()) {
+                sync(true, List.of());
+                return;
+            }
+            for (String jobName : jobNames) {
+                Job job = client.batch().jobs().inNamespace(namespace).withName(jobName).get();
+                if (job != null) {
+                    offerNamed(job);
+                }
+            }
+        }
+
+        private synchronized boolean isRunning() {
+            return watch != null;
+        }
+
+        private synchronized void start(String resourceVersion) {
+            watch = client.batch().jobs().inNamespace(namespace).watch(new ListOptionsBuilder()
+                    .withResourceVersion(resourceVersion == null || resourceVersion.isEmpty() ? null : resourceVersion)
+                    .build(), this);
+            watchStartCount.incrementAndGet();
+        }
+
+        private synchronized void stop() {
+            stopped = true;
+            if (watch != null) {
+                watch.close();
+                watch = null;
+            }
+        }
+
+        private void offerNamed(Job job) {
+            if (!JobHelper.isJobFinished(job)) {
+                return;
+            }
+            List<CompletableFuture<Job>> futures = pending.get(job.getMetadata().getName());
+            if (futures != null) {
+                for (CompletableFuture<Job> future : futures) {
+                    if (future.complete(job)) {
+                        completedCount.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        private void offerSelector(Selector selector, Job job) {
+            if (!JobHelper.isJobFinished(job) || !selector.matches(job)
+                    || selector.reported.putIfAbsent(job.getMetadata().getName(), Boolean.TRUE) != null) {
+                return;
+            }
+            completedCount.incrementAndGet();
+            try {
+                selector.listener.accept(job);
+            } catch (RuntimeException e) {
+                logger.warn("job completion listener failed for {}/{}", namespace, job.getMetadata().getName(), e);
+            }
+        }
+
+        @Override
+        public void eventReceived(Action action, Job job) {
+            eventCount.incrementAndGet();
+            lastResourceVersion = job.getMetadata().getResourceVersion();
+            if (action == Action.ERROR) {
+                return;
+            }
+            String name = job.getMetadata().getName();
+            if (action == Action.DELETED) {
+                List<CompletableFuture<Job>> futures = pending.get(name);
+                if (futures != null) {
+                    for (CompletableFuture<Job> future : futures) {
+                        future.completeExceptionally(new KubernetesClientException(
+                                namespace + "/" + name + " was deleted while waiting"));
+                    }
+                }
+                for (Selector selector : selectors) {
+                    selector.reported.remove(name);
+                }
+                return;
+            }
+            offerNamed(job);
+            for (Selector selector : selectors) {
+                offerSelector(selector, job);
+            }
+        }
+
+        @Override
+        public void onClose(WatcherException cause) {
+            synchronized (this) {
+                watch = null;
+                if (stopped || cause == null) {
+                    return;
+                }
+            }
+            boolean gone = cause.isHttpGone();
+            logger.debug("job watch for {} closed, restarting (gone={})", namespace, gone, cause);
+            SCHEDULER.execute(() -> restart(gone));
+        }
+
+        private void restart(boolean gone) {
+            try {
+                if (gone) {
+                    // our version has been compacted away: relist, which settles every registration, and watch from there
+                    sync(true, selectors);
+                    return;
+                }
+                synchronized (this) {
+                    if (!stopped && watch == null) {
+                        start(lastResourceVersion);
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("unable to restart job watch for {}", namespace, e);
+                failAll(e);
+            }
+        }
+
+        private void failAll(RuntimeException cause) {
+            List<CompletableFuture<Job>> all = new ArrayList<>();
+            for (List<CompletableFuture<Job>> futures : pending.values()) {
+                all.addAll(futures);
+            }
+            for (CompletableFuture<Job> future : all) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+}
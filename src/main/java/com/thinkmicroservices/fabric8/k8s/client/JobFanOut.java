@@ -0,0 +1,383 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.api.model.batch.v1.JobList;
+import io.fabric8.kubernetes.api.model.batch.v1.JobStatus;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handle on a batch of jobs created by one fan-out: a single Indexed Job or
+ * many jobs built from a template. Every job of the batch carries the
+ * {@link #FAN_OUT_LABEL}, and one watch on that label keeps the aggregate
+ * pod counts current, so following thousands of shards costs one
+ * connection instead of a poll per job.
+ *
+ * @author cwoodward
+ */
+public class JobFanOut implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobFanOut.class);
+
+    public static final String FAN_OUT_LABEL = "k8s-client-helpers/fan-out";
+
+    /**
+     * How the work was split into jobs.
+     */
+    public enum Mode {
+        INDEXED,
+        TEMPLATE;
+
+        public String toString() {
+            return "Mode: " + name();
+        }
+    }
+
+    private final KubernetesClient client;
+    private final String namespace;
+    private final String fanOutId;
+    private final Mode mode;
+    private final int shardCount;
+    private final CompletableFuture<JobFanOut> completion = new CompletableFuture<>();
+    // guarded by this
+    private final Map<String, JobStatus> statuses = new HashMap<>();
+    private final Set<String> finished = new HashSet<>();
+    private final Set<String> expected = new HashSet<>();
+    private boolean expectedKnown;
+    private int active;
+    private int succeeded;
+    private int failed;
+    private int failedJobs;
+    private long eventCount;
+    private Watch watch;
+    private volatile boolean closed;
+    private volatile BulkResult<Job> createResult;
+
+    /**
+     *
+     * @param client
+     * @param namespace
+     * @param fanOutId value of the fan-out label
+     * @param mode
+     * @param shardCount
+     */
+    JobFanOut(KubernetesClient client, String namespace, String fanOutId, Mode mode, int shardCount) {
+        this.client = client;
+        this.namespace = namespace;
+        this.fanOutId = fanOutId;
+        this.mode = mode;
+        this.shardCount = shardCount;
+        // nothing left to follow once every job has finished
+        completion.whenComplete((fanOut, error) -> close());
+    }
+
+    /**
+     * Opens the watch. Called before any job is created, from the
+     * collection's current resourceVersion, so no job event can be missed.
+     */
+    synchronized void startWatch() {
+        String resourceVersion = jobs().list(new ListOptionsBuilder().withLimit(1L).build()).getMetadata().getResourceVersion();
+        watch(resourceVersion);
+    }
+
+    /**
+     * Records which jobs were created; the fan-out completes when every one
+     * of them has finished.
+     *
+     * @param jobs the created jobs; null entries are ignored
+     * @param createResult the outcome of each create call, or null
+     */
+    void created(List<Job> jobs, BulkResult<Job> createResult) {
+        this.createResult = createResult;
+        synchronized (this) {
+            for (Job job : jobs) {
+                if (job != null) {
+                    expected.add(job.getMetadata().getName());
+                }
+            }
+            expectedKnown = true;
+            checkComplete();
+        }
+    }
+
+    private FilterWatchListDeletable<Job, JobList> jobs() {
+        return client.batch().jobs().inNamespace(namespace).withLabel(FAN_OUT_LABEL, fanOutId);
+    }
+
+    private void watch(String resourceVersion) {
+        watch = jobs().watch(new ListOptionsBuilder()
+                .withResourceVersion(resourceVersion == null || resourceVersion.isEmpty() ? null : resourceVersion)
+                .build(), new JobWatcher());
+    }
+
+    private synchronized void update(String name, JobStatus status, boolean deleted) {
+        eventCount++;
+        JobStatus previous = deleted ? statuses.remove(name) : statuses.put(name, status == null ? new JobStatus() : status);
+        if (previous != null) {
+            active -= valueOf(previous.getActive());
+            succeeded -= valueOf(previous.getSucceeded());
+            failed -= valueOf(previous.getFailed());
+        }
+        if (!deleted && status != null) {
+            active += valueOf(status.getActive());
+            succeeded += valueOf(status.getSucceeded());
+            failed += valueOf(status.getFailed());
+        }
+        if (deleted && !finished.contains(name) && (!expectedKnown || expected.contains(name))) {
+            // the job can never finish now, so the batch never would either
+            completion.completeExceptionally(new KubernetesClientException(
+                    namespace + "/" + name + " was deleted before it finished"));
+            return;
+        }
+        checkComplete();
+    }
+
+    private synchronized void finished(Job job) {
+        String name = job.getMetadata().getName();
+        if (finished.add(name) && !JobHelper.isJobSucceeded(job)) {
+            failedJobs++;
+        }
+        checkComplete();
+    }
+
+    private void checkComplete() {
+        if (expectedKnown && finished.containsAll(expected)) {
+            completion.complete(this);
+        }
+    }
+
+    private static int valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     *
+     * @return the value of the fan-out label on every job of the batch
+     */
+    public String getFanOutId() {
+        return fanOutId;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     *
+     * @return the number of shards the work was split into
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     *
+     * @return the outcome of each create call of a template fan-out, or
+     * null for an Indexed Job
+     */
+    public BulkResult<Job> getCreateResult() {
+        return createResult;
+    }
+
+    /**
+     *
+     * @return names of the jobs that were created
+     */
+    public synchronized List<String> getJobNames() {
+        List<String> names = new ArrayList<>(expected);
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     *
+     * @return pods running across the batch
+     */
+    public synchronized int getActive() {
+        return active;
+    }
+
+    /**
+     *
+     * @return pods that succeeded across the batch; for an Indexed Job, the
+     * completed indexes
+     */
+    public synchronized int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     *
+     * @return pods that failed across the batch
+     */
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    /**
+     *
+     * @return jobs with a Complete or Failed condition
+     */
+    public synchronized int getFinishedJobCount() {
+        return finished.size();
+    }
+
+    /**
+     *
+     * @return jobs that finished with a Failed condition
+     */
+    public synchronized int getFailedJobCount() {
+        return failedJobs;
+    }
+
+    /**
+     *
+     * @return watch events received
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Completes on the watch thread once every created job has finished,
+     * successfully or not, and then closes the watch. Close the fan-out to
+     * stop watching earlier.
+     *
+     * @return
+     */
+    public CompletableFuture<JobFanOut> getCompletion() {
+        return completion;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (watch != null) {
+            watch.close();
+            watch = null;
+        }
+    }
+
+    private void restart() {
+        try {
+            // relist so changes made while the watch was down are counted
+            JobList list = jobs().list();
+            Set<String> listed = new HashSet<>();
+            for (Job job : list.getItems()) {
+                listed.add(job.getMetadata().getName());
+                offer(job);
+            }
+            for (String name : missing(listed)) {
+                update(name, null, true);
+            }
+            synchronized (this) {
+                if (!closed && watch == null) {
+                    watch(list.getMetadata().getResourceVersion());
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("unable to restart the watch of fan-out {}/{}", namespace, fanOutId, e);
+            completion.completeExceptionally(e);
+        }
+    }
+
+    // expected jobs a relist no longer returns were deleted while the watch was down
+    private synchronized List<String> missing(Set<String> listed) {
+        List<String> missing = new ArrayList<>();
+        if (expectedKnown) {
+            for (String name : expected) {
+                if (!listed.contains(name)) {
+                    missing.add(name);
+                }
+            }
+        }
+        return missing;
+    }
+
+    private void offer(Job job) {
+        update(job.getMetadata().getName(), job.getStatus(), false);
+        if (JobHelper.isJobFinished(job)) {
+            finished(job);
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized String toString() {
+        return "JobFanOut: " + namespace + "/" + fanOutId
+                + ", mode=" + mode
+                + ", shards=" + shardCount
+                + ", jobs=" + expected.size()
+                + ", active=" + active
+                + ", succeeded=" + succeeded
+                + ", failed=" + failed
+                + ", finishedJobs=" + finished.size();
+    }
+
+    /**
+     * Folds job events into the aggregate counts.
+     */
+    private class JobWatcher implements Watcher<Job> {
+
+        @Override
+        public void eventReceived(Action action, Job job) {
+            if (action == Action.ERROR) {
+                return;
+            }
+            if (action == Action.DELETED) {
+                update(job.getMetadata().getName(), null, true);
+            } else {
+                offer(job);
+            }
+        }
+
+        @Override
+        public void onClose(WatcherException cause) {
+            synchronized (JobFanOut.this) {
+                watch = null;
+                if (closed || cause == null) {
+                    return;
+                }
+            }
+            logger.debug("watch of fan-out {}/{} closed, restarting", namespace, fanOutId, cause);
+            CompletableFuture.runAsync(JobFanOut.this::restart);
+        }
+    }
+}
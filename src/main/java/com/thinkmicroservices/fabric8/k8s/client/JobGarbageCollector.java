@@ -0,0 +1,355 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.api.model.batch.v1.JobCondition;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes finished jobs past their TTL or retention count. A job informer
+ * feeds an in-memory set of finished jobs as they finish, so a sweep only
+ * looks at that set and never lists the cluster. Each sweep deletes at most
+ * one batch, through a {@link BulkExecutor} that bounds the delete rate,
+ * with background propagation so the garbage collector removes the pods
+ * without holding up the request.
+ *
+ * @author cwoodward
+ */
+public class JobGarbageCollector implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobGarbageCollector.class);
+
+    private static final String JOB_CONDITION_FAILED = "Failed";
+
+    private final KubernetesClient client;
+    private final JobGcSettings settings;
+    private final ResourceCache<Job> cache;
+    private final Map<String, FinishedJob> finished = new ConcurrentHashMap<>();
+    private final Set<String> deleting = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong deletedCount = new AtomicLong();
+    private final AtomicLong deletedPodCount = new AtomicLong();
+    private final AtomicLong failedDeleteCount = new AtomicLong();
+    private final AtomicLong sweepCount = new AtomicLong();
+    private volatile long lastSweepMillis;
+
+    private JobGarbageCollector(KubernetesClient client, JobGcSettings settings, ResourceCache<Job> cache) {
+        this.client = client;
+        this.settings = settings;
+        this.cache = cache;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-garbage-collector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the job informer, which lists and watches only the settings'
+     * namespace when one is set, and schedules a sweep every sweep interval.
+     *
+     * @param client
+     * @param settings
+     * @return
+     */
+    public static JobGarbageCollector start(KubernetesClient client, JobGcSettings settings) {
+        ResourceCache<Job> jobs = ResourceCache.start(client, settings.getNamespace(), Job.class, 0);
+        JobGarbageCollector collector = new JobGarbageCollector(client, settings, jobs);
+        jobs.addEventHandler(collector.new JobHandler());
+        collector.scheduler.scheduleWithFixedDelay(collector::scheduledSweep,
+                settings.getSweepIntervalMillis(), settings.getSweepIntervalMillis(), TimeUnit.MILLISECONDS);
+        return collector;
+    }
+
+    /**
+     *
+     * @param timeoutMillis
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean waitForSync(long timeoutMillis) throws InterruptedException {
+        return cache.waitForSync(timeoutMillis);
+    }
+
+    private void scheduledSweep() {
+        try {
+            sweep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warn("job garbage collection sweep failed", e);
+        }
+    }
+
+    /**
+     * Runs one sweep now: picks the expired jobs, oldest first, and deletes
+     * up to one batch of them. Does nothing until the informer has synced,
+     * since retention counts need every finished job.
+     *
+     * @return the number of jobs deleted
+     * @throws InterruptedException
+     */
+    public synchronized int sweep() throws InterruptedException {
+        if (!cache.hasSynced()) {
+            return 0;
+        }
+        sweepCount.incrementAndGet();
+        lastSweepMillis = System.currentTimeMillis();
+        List<FinishedJob> expired = expired(lastSweepMillis);
+        if (expired.size() > settings.getBatchSize()) {
+            expired = expired.subList(0, settings.getBatchSize());
+        }
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        for (FinishedJob job : expired) {
+            deleting.add(job.key);
+        }
+        try {
+            BulkResult<Boolean> deleted = new BulkExecutor(settings.getConcurrency(), settings.getRequestsPerSecond())
+                    .execute(expired, this::delete);
+            int count = 0;
+            for (BulkResult.Item<Boolean> item : deleted.getItems()) {
+                FinishedJob job = expired.get(item.getIndex());
+                if (item.isSuccess()) {
+                    finished.remove(job.key);
+                    if (Boolean.TRUE.equals(item.getResult())) {
+                        count++;
+                        deletedPodCount.addAndGet(job.podCount);
+                    }
+                } else {
+                    failedDeleteCount.incrementAndGet();
+                    logger.debug("unable to delete job {}", job.key, item.getError());
+                }
+            }
+            deletedCount.addAndGet(count);
+            return count;
+        } finally {
+            for (FinishedJob job : expired) {
+                deleting.remove(job.key);
+            }
+        }
+    }
+
+    private Boolean delete(FinishedJob job) {
+        return client.batch().jobs().inNamespace(job.namespace).withName(job.name)
+                .withPropagationPolicy(DeletionPropagation.BACKGROUND).delete();
+    }
+
+    /**
+     *
+     * @param nowMillis
+     * @return jobs past their TTL or retention count, oldest first
+     */
+    private List<FinishedJob> expired(long nowMillis) {
+        Set<FinishedJob> expired = new LinkedHashSet<>();
+        Map<String, List<FinishedJob>> groups = new HashMap<>();
+        for (FinishedJob job : finished.values()) {
+            if (deleting.contains(job.key)) {
+                continue;
+            }
+            if (settings.getTtlMillis() > 0 && job.finishedMillis + settings.getTtlMillis() <= nowMillis) {
+                expired.add(job);
+            } else if (job.group != null) {
+                groups.computeIfAbsent(job.group, group -> new ArrayList<>()).add(job);
+            }
+        }
+        if (settings.getRetentionLabel() != null) {
+            for (List<FinishedJob> group : groups.values()) {
+                if (group.size() > settings.getRetentionCount()) {
+                    group.sort(Comparator.comparingLong((FinishedJob job) -> job.finishedMillis).reversed());
+                    expired.addAll(group.subList(settings.getRetentionCount(), group.size()));
+                }
+            }
+        }
+        List<FinishedJob> oldestFirst = new ArrayList<>(expired);
+        oldestFirst.sort(Comparator.comparingLong(job -> job.finishedMillis));
+        return oldestFirst;
+    }
+
+    private void track(Job job) {
+        String namespace = job.getMetadata().getNamespace();
+        String key = namespace + "/" + job.getMetadata().getName();
+        long finishedMillis = finishedMillis(job);
+        if (finishedMillis < 0) {
+            finished.remove(key);
+            return;
+        }
+        String group = null;
+        Map<String, String> labels = job.getMetadata().getLabels();
+        if (settings.getRetentionLabel() != null && labels != null && labels.containsKey(settings.getRetentionLabel())) {
+            group = namespace + "/" + labels.get(settings.getRetentionLabel());
+        }
+        finished.put(key, new FinishedJob(namespace, job.getMetadata().getName(), key, group, finishedMillis, podCount(job)));
+    }
+
+    /**
+     *
+     * @param job
+     * @return when the job finished, falling back to its creation time, or
+     * -1 if it has not finished
+     */
+    static long finishedMillis(Job job) {
+        if (!JobHelper.isJobFinished(job)) {
+            return -1;
+        }
+        String timestamp = job.getStatus().getCompletionTime();
+        if (timestamp == null) {
+            for (JobCondition condition : job.getStatus().getConditions()) {
+                if (JOB_CONDITION_FAILED.equals(condition.getType())) {
+                    timestamp = condition.getLastTransitionTime();
+                }
+            }
+        }
+        if (timestamp == null) {
+            timestamp = job.getMetadata().getCreationTimestamp();
+        }
+        try {
+            return timestamp == null ? System.currentTimeMillis() : Instant.parse(timestamp).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return System.currentTimeMillis();
+        }
+    }
+
+    private static int podCount(Job job) {
+        int active = job.getStatus().getActive() == null ? 0 : job.getStatus().getActive();
+        int succeeded = job.getStatus().getSucceeded() == null ? 0 : job.getStatus().getSucceeded();
+        int failed = job.getStatus().getFailed() == null ? 0 : job.getStatus().getFailed();
+        return active + succeeded + failed;
+    }
+
+    /**
+     *
+     * @return finished jobs known to the collector
+     */
+    public int getFinishedJobCount() {
+        return finished.size();
+    }
+
+    /**
+     *
+     * @return jobs deleted
+     */
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    /**
+     *
+     * @return pods of the deleted jobs, as counted in their status; the
+     * garbage collector removes them in the background
+     */
+    public long getDeletedPodCount() {
+        return deletedPodCount.get();
+    }
+
+    /**
+     *
+     * @return deletes that failed and will be retried by a later sweep
+     */
+    public long getFailedDeleteCount() {
+        return failedDeleteCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getSweepCount() {
+        return sweepCount.get();
+    }
+
+    /**
+     *
+     * @return the wall-clock time of the last sweep, or 0 if none
+     */
+    public long getLastSweepMillis() {
+        return lastSweepMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public JobGcSettings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        cache.close();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "JobGarbageCollector: finished=" + finished.size()
+                + ", deleted=" + deletedCount.get()
+                + ", deletedPods=" + deletedPodCount.get()
+                + ", failedDeletes=" + failedDeleteCount.get()
+                + ", sweeps=" + sweepCount.get();
+    }
+
+    /**
+     * A finished job and what the retention rules need to know about it.
+     */
+    private static final class FinishedJob {
+
+        private final String namespace;
+        private final String name;
+        private final String key;
+        private final String group;
+        private final long finishedMillis;
+        private final int podCount;
+
+        private FinishedJob(String namespace, String name, String key, String group, long finishedMillis, int podCount) {
+            this.namespace = namespace;
+            this.name = name;
+            this.key = key;
+            this.group = group;
+            this.finishedMillis = finishedMillis;
+            this.podCount = podCount;
+        }
+    }
+
+    /**
+     * Keeps the set of finished jobs current.
+     */
+    private class JobHandler implements ResourceEventHandler<Job> {
+
+        @Override
+        public void onAdd(Job job) {
+            track(job);
+        }
+
+        @Override
+        public void onUpdate(Job oldJob, Job newJob) {
+            track(newJob);
+        }
+
+        @Override
+        public void onDelete(Job job, boolean deletedFinalStateUnknown) {
+            finished.remove(job.getMetadata().getNamespace() + "/" + job.getMetadata().getName());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+/**
+ * Retention rules and limits for the {@link JobGarbageCollector}. A
+ * finished job is deleted once it is older than the TTL or once newer
+ * finished jobs with the same retention label value exceed the retention
+ * count, whichever comes first.
+ *
+ * @author cwoodward
+ */
+public class JobGcSettings {
+
+    public static final long DEFAULT_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 10;
+    public static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 60 * 1000L;
+
+    private long ttlMillis = DEFAULT_TTL_MILLIS;
+    private String retentionLabel;
+    private int retentionCount;
+    private String namespace;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private double requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+    private long sweepIntervalMillis = DEFAULT_SWEEP_INTERVAL_MILLIS;
+
+    /**
+     *
+     * @return
+     */
+    public static JobGcSettings defaults() {
+        return new JobGcSettings();
+    }
+
+    /**
+     *
+     * @param ttlMillis how long a job is kept after it finished, or 0 to
+     * keep jobs regardless of age
+     * @return
+     */
+    public JobGcSettings withTtlMillis(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must not be negative");
+        }
+        this.ttlMillis = ttlMillis;
+        return this;
+    }
+
+    /**
+     * Keeps only the newest finished jobs for each value of a label, e.g.
+     * the last 5 runs of every app. Jobs without the label are only subject
+     * to the TTL.
+     *
+     * @param labelKey
+     * @param count finished jobs kept per label value
+     * @return
+     */
+    public JobGcSettings withRetention(String labelKey, int count) {
+        if (labelKey == null || labelKey.isEmpty()) {
+            throw new IllegalArgumentException("labelKey is required");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        this.retentionLabel = labelKey;
+        this.retentionCount = count;
+        return this;
+    }
+
+    /**
+     *
+     * @param namespace the only namespace to collect in, or null for all
+     * @return
+     */
+    public JobGcSettings withNamespace(String namespace) {
+        this.namespace = namespace;
+        return this;
+    }
+
+    /**
+     *
+     * @param batchSize maximum number of jobs deleted by one sweep
+     * @return
+     */
+    public JobGcSettings withBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     *
+     * @param concurrency maximum number of deletes in flight
+     * @return
+     */
+    public JobGcSettings withConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     *
+     * @param requestsPerSecond maximum delete rate, or 0 for no limit
+     * @return
+     */
+    public JobGcSettings withRequestsPerSecond(double requestsPerSecond) {
+        if (requestsPerSecond < 0) {
+            throw new IllegalArgumentException("requestsPerSecond must not be negative");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        return this;
+    }
+
+    /**
+     *
+     * @param sweepIntervalMillis time between sweeps
+     * @return
+     */
+    public JobGcSettings withSweepIntervalMillis(long sweepIntervalMillis) {
+        if (sweepIntervalMillis <= 0) {
+            throw new IllegalArgumentException("sweepIntervalMillis must be positive");
+        }
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        return this;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     *
+     * @return the retention label key, or null if retention is by TTL only
+     */
+    public String getRetentionLabel() {
+        return retentionLabel;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getRetentionCount() {
+        return retentionCount;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getSweepIntervalMillis() {
+        return sweepIntervalMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "JobGcSettings: ttlMillis=" + ttlMillis
+                + ", retentionLabel=" + retentionLabel
+                + ", retentionCount=" + retentionCount
+                + ", namespace=" + namespace
+                + ", batchSize=" + batchSize
+                + ", concurrency=" + concurrency
+                + ", requestsPerSecond=" + requestsPerSecond
+                + ", sweepIntervalMillis=" + sweepIntervalMillis;
+    }
+}
@@ -1,14 +1,29 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
+import io.fabric8.kubernetes.api.model.EnvVarBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.api.model.batch.v1.JobCondition;
 import io.fabric8.kubernetes.api.model.batch.v1.JobList;
 import io.fabric8.kubernetes.api.model.batch.v1.JobBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.internal.SerializationUtils;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 /**
  *
@@ -17,8 +32,19 @@ import java.util.Map;
 public class JobHelper {
 
     private KubernetesClient client;
+    private WatchDispatcher<Job> jobWatches;
+    private JobCompletionTracker completionTracker;
+    private JobGarbageCollector garbageCollector;
+    private OwnerReferenceIndex ownerIndex;
 
     private static final String API_BATCH_VERSION_V1 = "batch/v1";
+    private static final String SUSPEND_PATH = "/spec/suspend";
+    private static final String JOB_CONDITION_COMPLETE = "Complete";
+    private static final String JOB_CONDITION_FAILED = "Failed";
+    private static final String CONDITION_STATUS_TRUE = "True";
+    private static final String COMPLETION_MODE_INDEXED = "Indexed";
+    private static final String COMPLETION_INDEX_ENV = "JOB_COMPLETION_INDEX";
+    private static final String JOB_NAME_LABEL = "job-name";
 
     /**
      *
@@ -26,6 +52,8 @@ public class JobHelper {
      */
     public JobHelper(KubernetesClient client) {
         this.client = client;
+        this.jobWatches = new WatchDispatcher<>(namespace -> client.batch().jobs().inNamespace(namespace));
+        this.completionTracker = new JobCompletionTracker(client);
     }
 
     /**
@@ -36,6 +64,15 @@ public class JobHelper {
         return client.batch().jobs().inAnyNamespace().list();
     }
 
+    /**
+     *
+     * @param pageSize
+     * @return
+     */
+    public Stream<Job> streamAllJobs(int pageSize) {
+        return PagedList.stream(client.batch().jobs().inAnyNamespace(), pageSize);
+    }
+
     /**
      *
      * @param namespace
@@ -118,6 +155,145 @@ public class JobHelper {
     public Job updateJob(String namespace, Job updateJob){
         return client.batch().jobs().inNamespace(namespace).createOrReplace(updateJob);
     }
+
+    /**
+     * Applies jobs as described on {@link ResourceApplier}.
+     *
+     * @param namespace
+     * @param jobs
+     * @return created, patched and skipped counts for the batch
+     */
+    public ApplyReport<Job> applyJobs(String namespace, Collection<Job> jobs) {
+        return ResourceApplier.apply(namespace, client.batch().jobs().inNamespace(namespace), jobs, null);
+    }
+
+    /**
+     * Fans work out as one Indexed Job: the job controller runs completions
+     * pods, each with its index in JOB_COMPLETION_INDEX, at most parallelism
+     * at a time. One create call, however many shards.
+     *
+     * @param namespace
+     * @param jobName
+     * @param template supplies the pod template, labels and annotations
+     * @param completions number of shards
+     * @param parallelism shards running at once
+     * @return a handle that follows the job through one watch
+     */
+    public JobFanOut fanOutIndexedJob(String namespace, String jobName, Job template, int completions, int parallelism) {
+        if (completions < 1) {
+            throw new IllegalArgumentException("completions must be at least 1");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        Job job = fanOutJob(template, jobName, jobName);
+        job.getSpec().setCompletionMode(COMPLETION_MODE_INDEXED);
+        job.getSpec().setCompletions(completions);
+        job.getSpec().setParallelism(parallelism);
+        JobFanOut fanOut = new JobFanOut(client, namespace, jobName, JobFanOut.Mode.INDEXED, completions);
+        fanOut.startWatch();
+        Job created;
+        try {
+            created = client.batch().jobs().inNamespace(namespace).create(job);
+        } catch (RuntimeException e) {
+            fanOut.close();
+            throw e;
+        }
+        fanOut.created(Collections.singletonList(created), null);
+        return fanOut;
+    }
+
+    /**
+     * Fans work out as one job per shard, named namePrefix-index and built
+     * from the template. Each container gets the shard index in
+     * JOB_COMPLETION_INDEX, as an Indexed Job would set it, so the same
+     * image runs in either mode; an entry the template already has is
+     * replaced. The jobs are created in parallel; a failed
+     * create is reported in {@link JobFanOut#getCreateResult()} and does
+     * not stop the others.
+     *
+     * @param namespace
+     * @param namePrefix
+     * @param template
+     * @param shardCount
+     * @param concurrency maximum number of create calls in flight
+     * @param requestsPerSecond maximum request rate, or 0 for no limit
+     * @return a handle that follows every job through one watch
+     * @throws InterruptedException
+     */
+    public JobFanOut fanOutJobs(String namespace, String namePrefix, Job template, int shardCount,
+            int concurrency, double requestsPerSecond) throws InterruptedException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+        BulkExecutor executor = new BulkExecutor(concurrency, requestsPerSecond);
+        List<Job> jobs = new ArrayList<>(shardCount);
+        for (int index = 0; index < shardCount; index++) {
+            Job job = fanOutJob(template, namePrefix + "-" + index, namePrefix);
+            for (Container container : job.getSpec().getTemplate().getSpec().getContainers()) {
+                // a template written for Indexed Jobs may already set it, e.g. from the completion index annotation
+                container.getEnv().removeIf(env -> COMPLETION_INDEX_ENV.equals(env.getName()));
+                container.getEnv().add(new EnvVarBuilder().withName(COMPLETION_INDEX_ENV).withValue(String.valueOf(index)).build());
+            }
+            jobs.add(job);
+        }
+        JobFanOut fanOut = new JobFanOut(client, namespace, namePrefix, JobFanOut.Mode.TEMPLATE, shardCount);
+        fanOut.startWatch();
+        try {
+            BulkResult<Job> created = executor.execute(jobs, job -> client.batch().jobs().inNamespace(namespace).create(job));
+            fanOut.created(created.getResults(), created);
+        } catch (InterruptedException e) {
+            fanOut.close();
+            throw e;
+        }
+        return fanOut;
+    }
+
+    private static Job fanOutJob(Job template, String jobName, String fanOutId) {
+        Job job = new JobBuilder(template)
+                .withApiVersion(API_BATCH_VERSION_V1)
+                .editOrNewMetadata()
+                .withName(jobName)
+                .withNamespace(null)
+                .withResourceVersion(null)
+                .withUid(null)
+                .addToLabels(JobFanOut.FAN_OUT_LABEL, fanOutId)
+                .endMetadata()
+                .editSpec()
+                .editTemplate()
+                .editOrNewMetadata()
+                .addToLabels(JobFanOut.FAN_OUT_LABEL, fanOutId)
+                .endMetadata()
+                .endTemplate()
+                .endSpec()
+                .withStatus(null)
+                .build();
+        return job;
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param jobName
+     * @param patch
+     * @return
+     */
+    public Job patchJob(String namespace, String jobName, ResourcePatch patch) {
+        return ResourcePatcher.patch(client.batch().jobs().inNamespace(namespace).withName(jobName), patch);
+    }
+
+    /**
+     * Suspends or resumes a job with one JSON patch. Suspending deletes the
+     * job's active pods; resuming recreates them.
+     *
+     * @param namespace
+     * @param jobName
+     * @param suspended
+     * @return
+     */
+    public Job setJobSuspended(String namespace, String jobName, boolean suspended) {
+        return patchJob(namespace, jobName, ResourcePatch.json().add(SUSPEND_PATH, suspended).build());
+    }
     
     /**
      * 
@@ -135,6 +311,242 @@ public class JobHelper {
           return SerializationUtils.dumpWithoutRuntimeStateAsYaml(foundJob);  
         }
     }
+    /**
+     * Completes once the job has a Complete or Failed condition; check
+     * {@link #isJobSucceeded(Job)} on the result to tell them apart.
+     *
+     * @param namespace
+     * @param jobName
+     * @param timeoutMillis
+     * @return
+     */
+    public CompletableFuture<Job> waitForJobCompletion(String namespace, String jobName, long timeoutMillis) {
+        return jobWatches.waitFor(namespace, jobName, JobHelper::isJobFinished, timeoutMillis);
+    }
+
+    /**
+     * Waits for many jobs at once: one list call reads their current state
+     * and one namespace watch reports the rest; see
+     * {@link JobCompletionTracker#trackAll}.
+     *
+     * @param namespace
+     * @param jobNames
+     * @param timeoutMillis applies to each job
+     * @return a future per job name
+     */
+    public Map<String, CompletableFuture<Job>> waitForJobsCompletion(String namespace, Collection<String> jobNames, long timeoutMillis) {
+        return completionTracker.trackAll(namespace, jobNames, timeoutMillis);
+    }
+
+    /**
+     * Streams the logs of every container of the job's pods, init containers
+     * included, into compressed files in the directory, up to concurrency logs at a time, without
+     * holding whole logs in memory; see {@link JobOutputArchiver}.
+     *
+     * @param namespace
+     * @param jobName
+     * @param directory created if missing
+     * @param format
+     * @param concurrency
+     * @return
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public JobOutputArchive archiveJobOutput(String namespace, String jobName, Path directory, JobOutputArchive.Format format,
+            int concurrency) throws IOException, InterruptedException {
+        Job job = getJob(namespace, jobName);
+        if (job == null) {
+            throw new IllegalArgumentException("job " + namespace + "/" + jobName + " not found");
+        }
+        return archiveJobOutput(job, directory, format, concurrency);
+    }
+
+    /**
+     * Archives the job's output as soon as the completion tracker reports it
+     * finished. The archive is written on a separate thread so the watch is
+     * not held up.
+     *
+     * @param namespace
+     * @param jobName
+     * @param directory
+     * @param format
+     * @param concurrency
+     * @param timeoutMillis how long to wait for the job to finish
+     * @return
+     */
+    public CompletableFuture<JobOutputArchive> archiveJobOutputOnCompletion(String namespace, String jobName, Path directory,
+            JobOutputArchive.Format format, int concurrency, long timeoutMillis) {
+        return completionTracker.track(namespace, jobName, timeoutMillis).thenApplyAsync(job -> {
+            try {
+                return archiveJobOutput(job, directory, format, concurrency);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, JobOutputArchiver.EXECUTOR);
+    }
+
+    private JobOutputArchive archiveJobOutput(Job job, Path directory, JobOutputArchive.Format format, int concurrency)
+            throws IOException, InterruptedException {
+        String namespace = job.getMetadata().getNamespace();
+        // the controller puts the job's uid in the selector; fall back to the job-name label it also sets
+        Map<String, String> selector = job.getSpec().getSelector() == null ? null : job.getSpec().getSelector().getMatchLabels();
+        if (selector == null || selector.isEmpty()) {
+            selector = Map.of(JOB_NAME_LABEL, job.getMetadata().getName());
+        }
+        List<Pod> pods = client.pods().inNamespace(namespace).withLabels(selector).list().getItems();
+        return new JobOutputArchiver(new PodHelper(client), namespace, job.getMetadata().getName(), directory, format)
+                .archive(pods, concurrency);
+    }
+
+    /**
+     * Creates a queue that admits jobs as earlier ones finish, using this
+     * helper's completion tracker; see {@link JobQueue}.
+     *
+     * @param settings
+     * @return
+     */
+    public JobQueue newJobQueue(JobQueueSettings settings) {
+        return new JobQueue(client, completionTracker, settings);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public JobCompletionTracker getCompletionTracker() {
+        return completionTracker;
+    }
+
+    /**
+     *
+     * @param job
+     * @return true if the job has a Complete or Failed condition
+     */
+    public static boolean isJobFinished(Job job) {
+        return hasCondition(job, JOB_CONDITION_COMPLETE) || hasCondition(job, JOB_CONDITION_FAILED);
+    }
+
+    /**
+     *
+     * @param job
+     * @return
+     */
+    public static boolean isJobSucceeded(Job job) {
+        return hasCondition(job, JOB_CONDITION_COMPLETE);
+    }
+
+    private static boolean hasCondition(Job job, String type) {
+        if (job.getStatus() == null || job.getStatus().getConditions() == null) {
+            return false;
+        }
+        for (JobCondition condition : job.getStatus().getConditions()) {
+            if (type.equals(condition.getType()) && CONDITION_STATUS_TRUE.equals(condition.getStatus())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public WatchDispatcher<Job> getJobWatches() {
+        return jobWatches;
+    }
+
+    /**
+     * Starts deleting finished jobs past the TTL or retention count in the
+     * settings; see {@link JobGarbageCollector}.
+     *
+     * @param settings
+     * @return
+     */
+    public synchronized JobGarbageCollector enableGarbageCollector(JobGcSettings settings) {
+        if (garbageCollector == null) {
+            garbageCollector = JobGarbageCollector.start(client, settings);
+        }
+        return garbageCollector;
+    }
+
+    /**
+     *
+     */
+    public synchronized void disableGarbageCollector() {
+        if (garbageCollector != null) {
+            garbageCollector.close();
+            garbageCollector = null;
+        }
+    }
+
+    /**
+     *
+     * @return the collector, or null if it is not enabled
+     */
+    public synchronized JobGarbageCollector getGarbageCollector() {
+        return garbageCollector;
+    }
+
+    /**
+     * Starts an index of Jobs and Pods by owner UID, kept current by
+     * informers, which getPodsForJob then answers from.
+     *
+     * @param resyncPeriodMillis
+     * @return
+     */
+    public synchronized OwnerReferenceIndex enableOwnerIndex(long resyncPeriodMillis) {
+        if (ownerIndex == null) {
+            ownerIndex = OwnerReferenceIndex.start(client, resyncPeriodMillis);
+        }
+        return ownerIndex;
+    }
+
+    /**
+     *
+     */
+    public synchronized void disableOwnerIndex() {
+        if (ownerIndex != null) {
+            ownerIndex.close();
+            ownerIndex = null;
+        }
+    }
+
+    /**
+     *
+     * @return the index, or null if it is not enabled
+     */
+    public synchronized OwnerReferenceIndex getOwnerIndex() {
+        return ownerIndex;
+    }
+
+    /**
+     * Reads the pods a job owns from the owner index instead of listing the
+     * namespace.
+     *
+     * @param namespace
+     * @param jobName
+     * @return the job's pods, oldest first; empty if the job is not known
+     * @throws IllegalStateException if the owner index is not enabled or has
+     * not synced
+     */
+    public List<Pod> getPodsForJob(String namespace, String jobName) {
+        return readyOwnerIndex().getPodsForJob(namespace, jobName);
+    }
+
+    private OwnerReferenceIndex readyOwnerIndex() {
+        OwnerReferenceIndex index = getOwnerIndex();
+        if (index == null) {
+            throw new IllegalStateException("the owner index is not enabled");
+        }
+        if (!index.hasSynced()) {
+            throw new IllegalStateException("the owner index has not synced");
+        }
+        return index;
+    }
+
     /**
      * 
      * @param namespace
@@ -144,6 +556,34 @@ public class JobHelper {
     public boolean deleteJob(String namespace, String jobName){
         return client.batch().jobs().inNamespace(namespace).withName(jobName).delete();
     }
+
+    /**
+     * Deletes every object carrying the labels with a single deletecollection
+     * request.
+     *
+     * @param namespace
+     * @param labelMap
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteJobsInNamespaceWithLabels(String namespace, Map<String, String> labelMap,
+            DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return CollectionDeleter.deleteCollection(client, client.batch().jobs().inNamespace(namespace), labelMap, propagationPolicy, gracePeriodSeconds);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteAllJobsInNamespace(String namespace, DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return deleteJobsInNamespaceWithLabels(namespace, Collections.emptyMap(), propagationPolicy, gracePeriodSeconds);
+    }
     
 
     /**
@@ -0,0 +1,153 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files written and transfer statistics of a job output archive.
+ *
+ * @author cwoodward
+ */
+public class JobOutputArchive {
+
+    /**
+     * How container logs are written.
+     */
+    public enum Format {
+        /**
+         * one gzip-compressed file per container log
+         */
+        GZIP,
+        /**
+         * a single gzip-compressed tar archive with an entry per container
+         * log
+         */
+        TAR_GZ
+    }
+
+    private final String jobName;
+    private final Format format;
+    private final List<Path> files;
+    private final int containersArchived;
+    private final int containerFailures;
+    private final long bytesRead;
+    private final long bytesWritten;
+    private final long elapsedNanos;
+
+    /**
+     *
+     * @param jobName
+     * @param format
+     * @param files
+     * @param containersArchived
+     * @param containerFailures
+     * @param bytesRead
+     * @param bytesWritten
+     * @param elapsedNanos
+     */
+    JobOutputArchive(String jobName, Format format, List<Path> files, int containersArchived, int containerFailures,
+            long bytesRead, long bytesWritten, long elapsedNanos) {
+        this.jobName = jobName;
+        this.format = format;
+        this.files = Collections.unmodifiableList(files);
+        this.containersArchived = containersArchived;
+        this.containerFailures = containerFailures;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getJobName() {
+        return jobName;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     *
+     * @return the compressed files, one per container log or the single
+     * tar archive
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getContainersArchived() {
+        return containersArchived;
+    }
+
+    /**
+     *
+     * @return containers whose log could not be read; they are left out of
+     * the archive
+     */
+    public int getContainerFailures() {
+        return containerFailures;
+    }
+
+    /**
+     *
+     * @return uncompressed log bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     *
+     * @return compressed bytes on disk
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     *
+     * @return uncompressed log bytes per second
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesRead * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     *
+     * @return uncompressed over compressed size, or 0 if nothing was written
+     */
+    public double getCompressionRatio() {
+        return bytesWritten == 0 ? 0 : (double) bytesRead / bytesWritten;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return String.format("JobOutputArchive: job=%s, format=%s, files=%d, containers=%d, failures=%d, read=%d, written=%d, elapsed=%dms, rate=%.0fB/s",
+                jobName, format, files.size(), containersArchived, containerFailures, bytesRead, bytesWritten,
+                getElapsedMillis(), getBytesPerSecond());
+    }
+}
@@ -0,0 +1,296 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.Pod;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the logs of every container of a job's pods, init containers
+ * first, to compressed files, reading up to concurrency logs at a time. A
+ * log goes from the API server stream through the compressor to a
+ * FileChannel one buffer at a time, so memory use does not grow with log
+ * size. Tar entries need their size up front, so for
+ * {@link JobOutputArchive.Format#TAR_GZ} each log is first spooled to a
+ * temporary file next to the archive and then appended with
+ * FileChannel.transferTo.
+ *
+ * @author cwoodward
+ */
+final class JobOutputArchiver {
+
+    // archives started from a completion watch run here instead of on the watch thread
+    static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "job-output-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int TAR_NAME_LENGTH = 100;
+    private static final int TAR_PREFIX_LENGTH = 155;
+    private static final String LOG_SUFFIX = ".log";
+    private static final String GZIP_SUFFIX = ".log.gz";
+    private static final String TAR_GZ_SUFFIX = ".tar.gz";
+
+    private final PodHelper podHelper;
+    private final String namespace;
+    private final String jobName;
+    private final Path directory;
+    private final JobOutputArchive.Format format;
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    /**
+     *
+     * @param podHelper
+     * @param namespace
+     * @param jobName
+     * @param directory
+     * @param format
+     */
+    JobOutputArchiver(PodHelper podHelper, String namespace, String jobName, Path directory, JobOutputArchive.Format format) {
+        this.podHelper = podHelper;
+        this.namespace = namespace;
+        this.jobName = jobName;
+        this.directory = directory;
+        this.format = format;
+    }
+
+    /**
+     *
+     * @param pods
+     * @param concurrency
+     * @return
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    JobOutputArchive archive(List<Pod> pods, int concurrency) throws IOException, InterruptedException {
+        List<String[]> targets = new ArrayList<>();
+        for (Pod pod : pods) {
+            List<Container> containers = new ArrayList<>();
+            if (pod.getSpec().getInitContainers() != null) {
+                containers.addAll(pod.getSpec().getInitContainers());
+            }
+            containers.addAll(pod.getSpec().getContainers());
+            for (Container container : containers) {
+                targets.add(new String[]{pod.getMetadata().getName(), container.getName()});
+            }
+        }
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+        List<Path> files = new ArrayList<>();
+        BulkResult<Path> copied;
+        if (format == JobOutputArchive.Format.GZIP) {
+            copied = new BulkExecutor(concurrency, 0).execute(targets, target -> compress(target[0], target[1]));
+            for (BulkResult.Item<Path> item : copied.getItems()) {
+                if (item.isSuccess()) {
+                    files.add(item.getResult());
+                }
+            }
+        } else {
+            copied = new BulkExecutor(concurrency, 0).execute(targets, target -> spool(target[0], target[1]));
+            try {
+                files.add(writeTar(targets, copied));
+            } finally {
+                for (BulkResult.Item<Path> item : copied.getItems()) {
+                    if (item.isSuccess()) {
+                        Files.deleteIfExists(item.getResult());
+                    }
+                }
+            }
+        }
+        long bytesWritten = 0;
+        for (Path file : files) {
+            bytesWritten += Files.size(file);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new JobOutputArchive(jobName, format, files, targets.size() - copied.getFailureCount(),
+                copied.getFailureCount(), bytesRead.get(), bytesWritten, elapsed);
+    }
+
+    private Path compress(String podName, String containerName) {
+        Path file = directory.resolve(podName + "_" + containerName + GZIP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                    GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                copy(podName, containerName, gzip);
+            }
+            return file;
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    private Path spool(String podName, String containerName) {
+        Path file = null;
+        try {
+            file = Files.createTempFile(directory, podName + "_" + containerName + "-", LOG_SUFFIX);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                copy(podName, containerName, Channels.newOutputStream(channel));
+            }
+            return file;
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    private void copy(String podName, String containerName, OutputStream output) throws IOException {
+        CountingChannel counting = new CountingChannel(Channels.newChannel(output));
+        try {
+            podHelper.copyPodLog(namespace, podName, PodLogRequest.all().withContainer(containerName), counting);
+        } finally {
+            bytesRead.addAndGet(counting.count);
+        }
+    }
+
+    /**
+     * Appends the spooled logs in pod and container order, each under a
+     * directory named after its pod.
+     */
+    private Path writeTar(List<String[]> targets, BulkResult<Path> spooled) throws IOException {
+        Path file = directory.resolve(jobName + TAR_GZ_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+            WritableByteChannel tar = Channels.newChannel(gzip);
+            long modified = System.currentTimeMillis() / 1000;
+            for (BulkResult.Item<Path> item : spooled.getItems()) {
+                if (!item.isSuccess()) {
+                    continue;
+                }
+                String[] target = targets.get(item.getIndex());
+                try (FileChannel log = FileChannel.open(item.getResult(), StandardOpenOption.READ)) {
+                    long size = log.size();
+                    tar.write(ByteBuffer.wrap(tarHeader(target[0], target[1] + LOG_SUFFIX, size, modified)));
+                    for (long position = 0; position < size; ) {
+                        position += log.transferTo(position, size - position, tar);
+                    }
+                    int padding = (int) ((TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE);
+                    tar.write(ByteBuffer.allocate(padding));
+                }
+            }
+            // end of archive
+            tar.write(ByteBuffer.allocate(2 * TAR_BLOCK_SIZE));
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     *
+     * @param prefix
+     * @param name
+     * @param size
+     * @param modifiedSeconds
+     * @return a ustar header block for a regular file
+     */
+    static byte[] tarHeader(String prefix, String name, long size, long modifiedSeconds) {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        putString(header, 0, TAR_NAME_LENGTH, name);
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        putOctal(header, 124, 12, size);
+        putOctal(header, 136, 12, modifiedSeconds);
+        header[156] = '0';
+        putString(header, 257, 6, "ustar");
+        putString(header, 263, 2, "00");
+        putString(header, 345, TAR_PREFIX_LENGTH, prefix);
+        // the checksum is taken with its own field set to spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        putOctal(header, 148, 7, checksum);
+        return header;
+    }
+
+    private static void putString(byte[] header, int offset, int length, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > length) {
+            throw new IllegalArgumentException("tar header field too long: " + value);
+        }
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    // zero-padded octal digits followed by a NUL
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        if (digits.length() > length - 1) {
+            throw new IllegalArgumentException("tar header value too large: " + value);
+        }
+        Arrays.fill(header, offset, offset + length - 1 - digits.length(), (byte) '0');
+        putString(header, offset + length - 1 - digits.length(), digits.length(), digits);
+        header[offset + length - 1] = 0;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // the original failure is the one worth reporting
+        }
+    }
+
+    /**
+     * Counts the bytes passed on to the compressor.
+     */
+    private static final class CountingChannel implements WritableByteChannel {
+
+        private final WritableByteChannel delegate;
+        private long count;
+
+        private CountingChannel(WritableByteChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int written = delegate.write(source);
+            count += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client-side queue that holds job submissions until their class has a free
+ * slot, so the API server and scheduler see a steady number of jobs instead
+ * of every submission at once. A slot frees when its job finishes, as
+ * reported by the shared {@link JobCompletionTracker} watch, and the next
+ * job of the class is admitted: highest priority first, then in submission
+ * order.
+ *
+ * @author cwoodward
+ */
+public class JobQueue implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobQueue.class);
+
+    private final KubernetesClient client;
+    private final JobCompletionTracker completionTracker;
+    private final JobQueueSettings settings;
+    // creates run here so neither submitters nor the watch thread wait on the API server
+    private final ExecutorService creator;
+    // guarded by this
+    private final Map<String, JobClass> classes = new HashMap<>();
+    private long sequence;
+    private long admittedCount;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+    private boolean closed;
+
+    /**
+     *
+     * @param client
+     * @param completionTracker
+     * @param settings
+     */
+    public JobQueue(KubernetesClient client, JobCompletionTracker completionTracker, JobQueueSettings settings) {
+        this.client = client;
+        this.completionTracker = completionTracker;
+        this.settings = settings;
+        this.creator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a job. It is created as soon as its class has a free slot,
+     * which may be at once.
+     *
+     * @param namespace
+     * @param job
+     * @param priority higher values are admitted first
+     * @return
+     */
+    public Ticket submit(String namespace, Job job, int priority) {
+        String classValue = null;
+        if (settings.getClassLabel() != null && job.getMetadata().getLabels() != null) {
+            classValue = job.getMetadata().getLabels().get(settings.getClassLabel());
+        }
+        Ticket ticket;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("the job queue is closed");
+            }
+            String value = classValue;
+            JobClass jobClass = classes.computeIfAbsent(classKey(namespace, value), key -> new JobClass(settings.getMaxActive(value)));
+            ticket = new Ticket(namespace, job, priority, sequence++, jobClass);
+            jobClass.queued.add(ticket);
+        }
+        ticket.admitted.whenComplete((created, error) -> {
+            if (ticket.admitted.isCancelled()) {
+                withdraw(ticket);
+            }
+        });
+        admit();
+        return ticket;
+    }
+
+    private synchronized void withdraw(Ticket ticket) {
+        ticket.jobClass.queued.remove(ticket);
+    }
+
+    private static String classKey(String namespace, String classValue) {
+        return classValue == null ? namespace : namespace + "/" + classValue;
+    }
+
+    /**
+     * Hands every ticket that now has a slot to the creator thread.
+     */
+    private void admit() {
+        List<Ticket> admitted = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            for (JobClass jobClass : classes.values()) {
+                while (jobClass.active < jobClass.maxActive && !jobClass.queued.isEmpty()) {
+                    Ticket ticket = jobClass.queued.poll();
+                    if (ticket.admitted.isCancelled()) {
+                        continue;
+                    }
+                    jobClass.active++;
+                    ticket.waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ticket.submittedNanos);
+                    admittedCount++;
+                    totalWaitMillis += ticket.waitMillis;
+                    maxWaitMillis = Math.max(maxWaitMillis, ticket.waitMillis);
+                    admitted.add(ticket);
+                }
+            }
+        }
+        for (Ticket ticket : admitted) {
+            creator.execute(() -> create(ticket));
+        }
+    }
+
+    private void create(Ticket ticket) {
+        if (ticket.admitted.isCancelled()) {
+            release(ticket);
+            return;
+        }
+        Job created;
+        try {
+            created = client.batch().jobs().inNamespace(ticket.namespace).create(ticket.job);
+        } catch (RuntimeException e) {
+            logger.debug("unable to create queued job {}/{}", ticket.namespace, ticket.job.getMetadata().getName(), e);
+            ticket.admitted.completeExceptionally(e);
+            ticket.finished.completeExceptionally(e);
+            release(ticket);
+            return;
+        }
+        CompletableFuture<Job> finished;
+        try {
+            finished = completionTracker.track(ticket.namespace, created.getMetadata().getName(), settings.getJobTimeoutMillis());
+        } catch (RuntimeException e) {
+            finished = new CompletableFuture<>();
+            finished.completeExceptionally(e);
+        }
+        // admitted only once the tracker watches the job, so a change made after admission is never missed
+        ticket.admitted.complete(created);
+        finished.whenComplete((job, error) -> {
+            release(ticket);
+            if (error == null) {
+                ticket.finished.complete(job);
+            } else {
+                ticket.finished.completeExceptionally(error);
+            }
+        });
+    }
+
+    private void release(Ticket ticket) {
+        synchronized (this) {
+            ticket.jobClass.active--;
+        }
+        admit();
+    }
+
+    /**
+     *
+     * @return jobs waiting for a slot
+     */
+    public synchronized int getDepth() {
+        int depth = 0;
+        for (JobClass jobClass : classes.values()) {
+            depth += jobClass.queued.size();
+        }
+        return depth;
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param classValue value of the class label, or null
+     * @return jobs of the class waiting for a slot
+     */
+    public synchronized int getDepth(String namespace, String classValue) {
+        JobClass jobClass = classes.get(classKey(namespace, classValue));
+        return jobClass == null ? 0 : jobClass.queued.size();
+    }
+
+    /**
+     *
+     * @return admitted jobs that have not finished
+     */
+    public synchronized int getActive() {
+        int active = 0;
+        for (JobClass jobClass : classes.values()) {
+            active += jobClass.active;
+        }
+        return active;
+    }
+
+    /**
+     *
+     * @return jobs admitted so far
+     */
+    public synchronized long getAdmittedCount() {
+        return admittedCount;
+    }
+
+    /**
+     *
+     * @return mean time from submission to admission
+     */
+    public synchronized double getMeanWaitMillis() {
+        return admittedCount == 0 ? 0 : (double) totalWaitMillis / admittedCount;
+    }
+
+    /**
+     *
+     * @return longest time from submission to admission
+     */
+    public synchronized long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public JobQueueSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Stops admitting jobs. Queued jobs are cancelled; jobs already created
+     * keep running.
+     */
+    @Override
+    public void close() {
+        List<Ticket> cancelled = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (JobClass jobClass : classes.values()) {
+                cancelled.addAll(jobClass.queued);
+                jobClass.queued.clear();
+            }
+        }
+        for (Ticket ticket : cancelled) {
+            ticket.admitted.cancel(false);
+            ticket.finished.cancel(false);
+        }
+        creator.shutdown();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized String toString() {
+        return "JobQueue: classes=" + classes.size()
+                + ", depth=" + getDepth()
+                + ", active=" + getActive()
+                + ", admitted=" + admittedCount
+                + ", meanWait=" + String.format("%.1f", getMeanWaitMillis()) + "ms"
+                + ", maxWait=" + maxWaitMillis + "ms";
+    }
+
+    /**
+     * A submitted job and its progress through the queue.
+     */
+    public static final class Ticket {
+
+        private final String namespace;
+        private final Job job;
+        private final int priority;
+        private final long sequence;
+        private final JobClass jobClass;
+        private final long submittedNanos = System.nanoTime();
+        private final CompletableFuture<Job> admitted = new CompletableFuture<>();
+        private final CompletableFuture<Job> finished = new CompletableFuture<>();
+        private volatile long waitMillis = -1;
+
+        private Ticket(String namespace, Job job, int priority, long sequence, JobClass jobClass) {
+            this.namespace = namespace;
+            this.job = job;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.jobClass = jobClass;
+        }
+
+        /**
+         *
+         * @return completes with the created job once it is admitted and its
+         * completion is tracked; fails if the create call fails and is
+         * cancelled if the queue is closed first
+         */
+        public CompletableFuture<Job> getAdmitted() {
+            return admitted;
+        }
+
+        /**
+         *
+         * @return completes with the job once it has a Complete or Failed
+         * condition
+         */
+        public CompletableFuture<Job> getFinished() {
+            return finished;
+        }
+
+        /**
+         * Withdraws the job if it has not been admitted yet.
+         *
+         * @return true if the job was withdrawn
+         */
+        public boolean cancel() {
+            return admitted.cancel(false) && finished.cancel(false);
+        }
+
+        /**
+         *
+         * @return
+         */
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         *
+         * @return time from submission to admission, or -1 while queued
+         */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String toString() {
+            return "Ticket: " + namespace + "/" + job.getMetadata().getName()
+                    + ", priority=" + priority
+                    + ", waitMillis=" + waitMillis
+                    + ", admitted=" + (admitted.isDone() && !admitted.isCompletedExceptionally());
+        }
+    }
+
+    /**
+     * The queue and active count of one class.
+     */
+    private static final class JobClass {
+
+        private final int maxActive;
+        private final PriorityQueue<Ticket> queued = new PriorityQueue<>(
+                Comparator.comparingInt((Ticket ticket) -> ticket.priority).reversed().thenComparingLong(ticket -> ticket.sequence));
+        private int active;
+
+        private JobClass(int maxActive) {
+            this.maxActive = maxActive;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admission limits for a {@link JobQueue}. Jobs are grouped into classes:
+ * by namespace, or by namespace and the value of a class label when one is
+ * set. Each class has at most maxActive jobs running unless it has a limit
+ * of its own.
+ *
+ * @author cwoodward
+ */
+public class JobQueueSettings {
+
+    public static final int DEFAULT_MAX_ACTIVE = 10;
+    public static final long DEFAULT_JOB_TIMEOUT_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private int maxActive = DEFAULT_MAX_ACTIVE;
+    private String classLabel;
+    private final Map<String, Integer> classLimits = new HashMap<>();
+    private long jobTimeoutMillis = DEFAULT_JOB_TIMEOUT_MILLIS;
+
+    /**
+     *
+     * @return
+     */
+    public static JobQueueSettings defaults() {
+        return new JobQueueSettings();
+    }
+
+    /**
+     *
+     * @param maxActive jobs running at once in each class
+     * @return
+     */
+    public JobQueueSettings withMaxActive(int maxActive) {
+        if (maxActive < 1) {
+            throw new IllegalArgumentException("maxActive must be at least 1");
+        }
+        this.maxActive = maxActive;
+        return this;
+    }
+
+    /**
+     *
+     * @param labelKey label whose value, with the namespace, names a job's
+     * class; null to group by namespace only
+     * @return
+     */
+    public JobQueueSettings withClassLabel(String labelKey) {
+        this.classLabel = labelKey;
+        return this;
+    }
+
+    /**
+     *
+     * @param classValue value of the class label
+     * @param maxActive jobs running at once in that class, in every
+     * namespace
+     * @return
+     */
+    public JobQueueSettings withClassLimit(String classValue, int maxActive) {
+        if (maxActive < 1) {
+            throw new IllegalArgumentException("maxActive must be at least 1");
+        }
+        classLimits.put(classValue, maxActive);
+        return this;
+    }
+
+    /**
+     *
+     * @param jobTimeoutMillis how long an admitted job may hold its slot
+     * before the queue stops waiting for it
+     * @return
+     */
+    public JobQueueSettings withJobTimeoutMillis(long jobTimeoutMillis) {
+        if (jobTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("jobTimeoutMillis must be positive");
+        }
+        this.jobTimeoutMillis = jobTimeoutMillis;
+        return this;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getClassLabel() {
+        return classLabel;
+    }
+
+    /**
+     *
+     * @param classValue value of the class label, or null
+     * @return the limit for the class
+     */
+    public int getMaxActive(String classValue) {
+        Integer limit = classValue == null ? null : classLimits.get(classValue);
+        return limit == null ? maxActive : limit;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getJobTimeoutMillis() {
+        return jobTimeoutMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "JobQueueSettings: maxActive=" + maxActive
+                + ", classLabel=" + classLabel
+                + ", classLimits=" + classLimits
+                + ", jobTimeoutMillis=" + jobTimeoutMillis;
+    }
+}
@@ -0,0 +1,102 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the directories holding kubeconfig files and reports the directory
+ * whenever anything in it changes. Directories rather than files are
+ * reported because mounted secrets are swapped through a symlinked
+ * ..data directory, so the kubeconfig itself never sees a modify event.
+ *
+ * @author cwoodward
+ */
+class KubeconfigWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(KubeconfigWatcher.class);
+    // lets a writer finish before the file is read; later events coalesce into the same key
+    private static final long SETTLE_MILLIS = 200;
+
+    private final WatchService watchService;
+    private final Consumer<Path> directoryChanged;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Thread thread;
+
+    /**
+     *
+     * @param directoryChanged
+     * @throws IOException
+     */
+    KubeconfigWatcher(Consumer<Path> directoryChanged) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.directoryChanged = directoryChanged;
+        this.thread = new Thread(this::run, "kubeconfig-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     *
+     * @param kubeconfigPath
+     * @throws IOException
+     */
+    synchronized void watch(Path kubeconfigPath) throws IOException {
+        Path directory = kubeconfigPath.getParent();
+        if (watchedDirectories.containsValue(directory)) {
+            return;
+        }
+        WatchKey key = directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirectories.put(key, directory);
+        logger.debug("watching kubeconfig directory {}", directory);
+    }
+
+    private void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+                Thread.sleep(SETTLE_MILLIS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory;
+            synchronized (this) {
+                directory = watchedDirectories.get(key);
+            }
+            // the events themselves are not needed, only that the directory changed
+            key.pollEvents();
+            if (directory != null) {
+                try {
+                    directoryChanged.accept(directory);
+                } catch (RuntimeException e) {
+                    logger.warn("kubeconfig reload failed for {}", directory, e);
+                }
+            }
+            if (!key.reset()) {
+                synchronized (this) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
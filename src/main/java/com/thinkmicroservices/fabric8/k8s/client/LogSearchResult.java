@@ -0,0 +1,169 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching lines and scan statistics of a log search across pods.
+ *
+ * @author cwoodward
+ */
+public class LogSearchResult {
+
+    private final List<LogMatch> matches;
+    private final boolean truncated;
+    private final int containersSearched;
+    private final int containerFailures;
+    private final long bytesScanned;
+    private final long elapsedNanos;
+
+    /**
+     *
+     * @param matches
+     * @param truncated
+     * @param containersSearched
+     * @param containerFailures
+     * @param bytesScanned
+     * @param elapsedNanos
+     */
+    LogSearchResult(List<LogMatch> matches, boolean truncated, int containersSearched, int containerFailures,
+            long bytesScanned, long elapsedNanos) {
+        this.matches = Collections.unmodifiableList(matches);
+        this.truncated = truncated;
+        this.containersSearched = containersSearched;
+        this.containerFailures = containerFailures;
+        this.bytesScanned = bytesScanned;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     *
+     * @return matches ordered by pod, container and line number
+     */
+    public List<LogMatch> getMatches() {
+        return matches;
+    }
+
+    /**
+     *
+     * @return true if the search stopped at the match limit
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getContainersSearched() {
+        return containersSearched;
+    }
+
+    /**
+     *
+     * @return containers whose log could not be read
+     */
+    public int getContainerFailures() {
+        return containerFailures;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesScanned * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return String.format("LogSearchResult: matches=%d, truncated=%b, containers=%d, failures=%d, bytes=%d, elapsed=%dms, rate=%.0fB/s",
+                matches.size(), truncated, containersSearched, containerFailures, bytesScanned, getElapsedMillis(), getBytesPerSecond());
+    }
+
+    /**
+     * One matching log line.
+     */
+    public static class LogMatch {
+
+        private final String podName;
+        private final String containerName;
+        private final long lineNumber;
+        private final String line;
+
+        /**
+         *
+         * @param podName
+         * @param containerName
+         * @param lineNumber
+         * @param line
+         */
+        LogMatch(String podName, String containerName, long lineNumber, String line) {
+            this.podName = podName;
+            this.containerName = containerName;
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getPodName() {
+            return podName;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getContainerName() {
+            return containerName;
+        }
+
+        /**
+         *
+         * @return the 1-based line number within the container log
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String toString() {
+            return podName + "/" + containerName + ":" + lineNumber + ": " + line;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
 import io.fabric8.kubernetes.api.model.Namespace;
 import io.fabric8.kubernetes.api.model.NamespaceBuilder;
 import io.fabric8.kubernetes.api.model.NamespaceList;
@@ -9,6 +10,7 @@ import io.fabric8.kubernetes.client.internal.SerializationUtils;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  *
@@ -43,6 +45,15 @@ public class NamespaceHelper {
         return client.namespaces().list();
     }
 
+    /**
+     *
+     * @param pageSize
+     * @return
+     */
+    public Stream<Namespace> streamAllNamespaces(int pageSize) {
+        return PagedList.stream(client.namespaces(), pageSize);
+    }
+
     /**
      *
      * @param key
@@ -96,6 +107,20 @@ public class NamespaceHelper {
 
     }
 
+    /**
+     * Namespaces do not support the deletecollection verb, so the API server
+     * answers 405 and the matching namespaces are deleted one at a time.
+     *
+     * @param labelMap
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of namespaces deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteNamespacesWithLabels(Map<String, String> labelMap, DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return CollectionDeleter.deleteCollection(client, client.namespaces(), labelMap, propagationPolicy, gracePeriodSeconds);
+    }
+
     /**
      *
      * @param namespace
@@ -0,0 +1,186 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.OwnerReference;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Maps owner UIDs to the Jobs and Pods they own, so the runs of a CronJob
+ * and the pods of a Job are read from an informer index instead of listing
+ * a namespace and filtering on ownerReferences. Both caches are indexed by
+ * the UID of every owner reference, so a lookup costs the number of
+ * children, not the number of objects in the cluster.
+ *
+ * @author cwoodward
+ */
+public class OwnerReferenceIndex implements AutoCloseable {
+
+    public static final String OWNER_UID_INDEX = "owner-uid";
+
+    private static final Comparator<HasMetadata> OLDEST_FIRST = Comparator
+            .comparingLong(OwnerReferenceIndex::creationMillis)
+            .thenComparing(object -> object.getMetadata().getName());
+
+    private final ResourceCache<Job> jobs;
+    private final ResourceCache<Pod> pods;
+
+    private OwnerReferenceIndex(ResourceCache<Job> jobs, ResourceCache<Pod> pods) {
+        this.jobs = jobs;
+        this.pods = pods;
+    }
+
+    /**
+     *
+     * @param client
+     * @param resyncPeriodMillis
+     * @return an index whose informers are running; see {@link #waitForSync}
+     */
+    public static OwnerReferenceIndex start(KubernetesClient client, long resyncPeriodMillis) {
+        ResourceCache<Job> jobs = ResourceCache.start(client, Job.class, resyncPeriodMillis,
+                Collections.singletonMap(OWNER_UID_INDEX, OwnerReferenceIndex::ownerUids));
+        ResourceCache<Pod> pods = ResourceCache.start(client, Pod.class, resyncPeriodMillis,
+                Collections.singletonMap(OWNER_UID_INDEX, OwnerReferenceIndex::ownerUids));
+        return new OwnerReferenceIndex(jobs, pods);
+    }
+
+    /**
+     *
+     * @param timeoutMillis
+     * @return true if both caches synced within the timeout
+     * @throws InterruptedException
+     */
+    public boolean waitForSync(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        return jobs.waitForSync(timeoutMillis) && pods.waitForSync(Math.max(0, deadline - System.currentTimeMillis()));
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean hasSynced() {
+        return jobs.hasSynced() && pods.hasSynced();
+    }
+
+    /**
+     *
+     * @param ownerUid
+     * @return Jobs with an owner reference to the UID, oldest first
+     */
+    public List<Job> getJobsOwnedBy(String ownerUid) {
+        return oldestFirst(jobs.byIndex(OWNER_UID_INDEX, ownerUid));
+    }
+
+    /**
+     *
+     * @param ownerUid
+     * @return Pods with an owner reference to the UID, oldest first
+     */
+    public List<Pod> getPodsOwnedBy(String ownerUid) {
+        return oldestFirst(pods.byIndex(OWNER_UID_INDEX, ownerUid));
+    }
+
+    /**
+     *
+     * @param cronJobUid
+     * @return the Jobs the CronJob started and that still exist, oldest
+     * first
+     */
+    public List<Job> getRunsForCronJob(String cronJobUid) {
+        return getJobsOwnedBy(cronJobUid);
+    }
+
+    /**
+     *
+     * @param cronJobUid
+     * @return the Pods of every run of the CronJob, oldest run first
+     */
+    public List<Pod> getPodsForCronJob(String cronJobUid) {
+        List<Pod> runPods = new ArrayList<>();
+        for (Job run : getJobsOwnedBy(cronJobUid)) {
+            runPods.addAll(getPodsOwnedBy(run.getMetadata().getUid()));
+        }
+        return runPods;
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param jobName
+     * @return the job's Pods, oldest first; empty if the job is not cached
+     */
+    public List<Pod> getPodsForJob(String namespace, String jobName) {
+        Job job = jobs.get(namespace, jobName);
+        return job == null ? Collections.emptyList() : getPodsOwnedBy(job.getMetadata().getUid());
+    }
+
+    /**
+     *
+     * @return
+     */
+    public ResourceCache<Job> getJobCache() {
+        return jobs;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public ResourceCache<Pod> getPodCache() {
+        return pods;
+    }
+
+    @Override
+    public void close() {
+        jobs.close();
+        pods.close();
+    }
+
+    private static <T extends HasMetadata> List<T> oldestFirst(List<T> owned) {
+        List<T> sorted = new ArrayList<>(owned);
+        sorted.sort(OLDEST_FIRST);
+        return sorted;
+    }
+
+    // unknown creation times sort last
+    private static long creationMillis(HasMetadata object) {
+        String timestamp = object.getMetadata().getCreationTimestamp();
+        try {
+            return timestamp == null ? Long.MAX_VALUE : Instant.parse(timestamp).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static List<String> ownerUids(HasMetadata object) {
+        List<OwnerReference> owners = object.getMetadata().getOwnerReferences();
+        if (owners == null || owners.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> uids = new ArrayList<>(owners.size());
+        for (OwnerReference owner : owners) {
+            if (owner.getUid() != null) {
+                uids.add(owner.getUid());
+            }
+        }
+        return uids;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "OwnerReferenceIndex: synced=" + hasSynced()
+                + ", jobs=" + jobs
+                + ", pods=" + pods;
+    }
+}
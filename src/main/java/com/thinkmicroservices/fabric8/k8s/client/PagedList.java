@@ -0,0 +1,110 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.ListOptions;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.client.dsl.Listable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily pages through a list call using limit/continue, holding at most one
+ * page in memory. A page is only requested once the previous one has been
+ * consumed, so the first item is available after the first page arrives.
+ *
+ * If the continue token expires before the list is exhausted the API server
+ * answers 410 Gone and the iteration fails with a KubernetesClientException.
+ *
+ * @author cwoodward
+ * @param <T>
+ */
+public final class PagedList<T extends HasMetadata> implements Iterator<T> {
+
+    private final Listable<? extends KubernetesResourceList<T>> listable;
+    private final int pageSize;
+    private Iterator<T> page = Collections.emptyIterator();
+    private String continueToken;
+    private boolean lastPage;
+    private long pageCount;
+
+    /**
+     *
+     * @param listable
+     * @param pageSize
+     */
+    PagedList(Listable<? extends KubernetesResourceList<T>> listable, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.listable = listable;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param listable
+     * @param pageSize
+     * @return
+     */
+    public static <T extends HasMetadata> PagedList<T> iterator(Listable<? extends KubernetesResourceList<T>> listable, int pageSize) {
+        return new PagedList<>(listable, pageSize);
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param listable
+     * @param pageSize
+     * @return
+     */
+    public static <T extends HasMetadata> Stream<T> stream(Listable<? extends KubernetesResourceList<T>> listable, int pageSize) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(listable, pageSize),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (lastPage) {
+                return false;
+            }
+            fetchPage();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /**
+     *
+     * @return the number of pages requested so far
+     */
+    public long getPageCount() {
+        return pageCount;
+    }
+
+    private void fetchPage() {
+        ListOptions options = new ListOptionsBuilder()
+                .withLimit((long) pageSize)
+                .withContinue(continueToken)
+                .build();
+        KubernetesResourceList<T> list = listable.list(options);
+        pageCount++;
+        page = list.getItems() == null ? Collections.emptyIterator() : list.getItems().iterator();
+        continueToken = list.getMetadata() == null ? null : list.getMetadata().getContinue();
+        lastPage = continueToken == null || continueToken.isEmpty();
+    }
+}
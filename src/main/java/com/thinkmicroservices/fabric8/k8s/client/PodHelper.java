@@ -1,16 +1,44 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.api.model.PodListBuilder;
+import io.fabric8.kubernetes.client.HttpClientAware;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.BytesLimitTerminateTimeTailPrettyLoggable;
 import io.fabric8.kubernetes.client.dsl.LogWatch;
+import io.fabric8.kubernetes.client.dsl.Loggable;
+import io.fabric8.kubernetes.client.dsl.PodResource;
+import io.fabric8.kubernetes.client.dsl.TailPrettyLoggable;
+import io.fabric8.kubernetes.client.dsl.TimeTailPrettyLoggable;
+import io.fabric8.kubernetes.client.dsl.TimestampBytesLimitTerminateTimeTailPrettyLoggable;
+import io.fabric8.kubernetes.client.dsl.base.OperationSupport;
 import io.fabric8.kubernetes.client.internal.SerializationUtils;
+import io.fabric8.kubernetes.client.internal.readiness.Readiness;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
  *
@@ -18,7 +46,11 @@ import java.util.Map;
  */
 public class PodHelper {
 
+    private static final int LOG_BUFFER_SIZE = 64 * 1024;
+
     private KubernetesClient client;
+    private volatile ResourceCache<Pod> podCache;
+    private WatchDispatcher<Pod> podWatches;
 
     /**
      *
@@ -26,6 +58,41 @@ public class PodHelper {
      */
     public PodHelper(KubernetesClient client) {
         this.client = client;
+        this.podWatches = new WatchDispatcher<>(namespace -> client.pods().inNamespace(namespace));
+    }
+
+    /**
+     * Switches getPod, getAllPodsInNamespace, getPodsWithLabelInNamespace and
+     * getPodsWithLabelsInNamespace to answer from an informer-fed local
+     * cache. Until the cache has synced these calls still go to the API
+     * server and are counted as misses.
+     *
+     * @param resyncPeriodMillis
+     * @return
+     */
+    public synchronized ResourceCache<Pod> enableCache(long resyncPeriodMillis) {
+        if (podCache == null) {
+            podCache = ResourceCache.start(client, Pod.class, resyncPeriodMillis);
+        }
+        return podCache;
+    }
+
+    /**
+     *
+     */
+    public synchronized void disableCache() {
+        if (podCache != null) {
+            podCache.close();
+            podCache = null;
+        }
+    }
+
+    /**
+     *
+     * @return the pod cache, or null if caching is not enabled
+     */
+    public ResourceCache<Pod> getPodCache() {
+        return podCache;
     }
 
     /**
@@ -35,7 +102,10 @@ public class PodHelper {
      * @return
      */
     public Pod getPod(String namespace, String podname) {
-
+        ResourceCache<Pod> cache = readyCache();
+        if (cache != null) {
+            return cache.get(namespace, podname);
+        }
         return client.pods().inNamespace(namespace).withName(podname).get();
     }
 
@@ -47,15 +117,38 @@ public class PodHelper {
         return client.pods().inAnyNamespace().list();
     }
 
+    /**
+     *
+     * @param pageSize
+     * @return
+     */
+    public Stream<Pod> streamAllPods(int pageSize) {
+        return PagedList.stream(client.pods().inAnyNamespace(), pageSize);
+    }
+
     /**
      *
      * @param namespace
      * @return
      */
     public PodList getAllPodsInNamespace(String namespace) {
+        ResourceCache<Pod> cache = readyCache();
+        if (cache != null) {
+            return toPodList(cache.listInNamespace(namespace), cache);
+        }
         return client.pods().inNamespace(namespace).list();
     }
 
+    /**
+     *
+     * @param namespace
+     * @param pageSize
+     * @return
+     */
+    public Stream<Pod> streamAllPodsInNamespace(String namespace, int pageSize) {
+        return PagedList.stream(client.pods().inNamespace(namespace), pageSize);
+    }
+
     /**
      *
      * @param namespace
@@ -64,6 +157,10 @@ public class PodHelper {
      * @return
      */
     public PodList getPodsWithLabelInNamespace(String namespace, String key, String value) {
+        ResourceCache<Pod> cache = readyCache();
+        if (cache != null) {
+            return toPodList(cache.listWithLabels(namespace, Collections.singletonMap(key, value)), cache);
+        }
         return client.pods().inNamespace(namespace).withLabel(key, value).list();
     }
 
@@ -74,10 +171,35 @@ public class PodHelper {
      * @return
      */
     public PodList getPodsWithLabelsInNamespace(String namespace, Map<String, String> labelmap) {
+        ResourceCache<Pod> cache = readyCache();
+        if (cache != null) {
+            return toPodList(cache.listWithLabels(namespace, labelmap), cache);
+        }
         return client.pods().inNamespace(namespace).withLabels(labelmap).list();
 
     }
 
+    private ResourceCache<Pod> readyCache() {
+        ResourceCache<Pod> cache = podCache;
+        if (cache == null) {
+            return null;
+        }
+        if (!cache.hasSynced()) {
+            cache.recordMiss();
+            return null;
+        }
+        return cache;
+    }
+
+    private static PodList toPodList(List<Pod> pods, ResourceCache<Pod> cache) {
+        return new PodListBuilder()
+                .withNewMetadata()
+                .withResourceVersion(cache.getLastResourceVersion())
+                .endMetadata()
+                .withItems(pods)
+                .build();
+    }
+
     /**
      *
      * @param namespace
@@ -103,7 +225,26 @@ public class PodHelper {
         return updatePod(namespace,pod);
     }
 
-  
+    /**
+     * Creates many pods in parallel. When createNew is true every pod is sent
+     * as a single POST; otherwise createOrReplace is used, which costs an
+     * extra GET per pod.
+     *
+     * @param namespace
+     * @param pods
+     * @param createNew
+     * @param concurrency
+     * @param requestsPerSecond maximum request rate, or 0 for no limit
+     * @return
+     * @throws InterruptedException
+     */
+    public BulkResult<Pod> createPods(String namespace, Collection<Pod> pods, boolean createNew,
+            int concurrency, double requestsPerSecond) throws InterruptedException {
+        return new BulkExecutor(concurrency, requestsPerSecond).execute(pods, pod -> createNew
+                ? client.pods().inNamespace(namespace).create(pod)
+                : client.pods().inNamespace(namespace).createOrReplace(pod));
+    }
+
     /**
      *
      * @param namespace
@@ -114,6 +255,116 @@ public class PodHelper {
         return client.pods().inNamespace(namespace).withName(podname).getLog();
     }
 
+    /**
+     * Streams the selected part of a container log instead of buffering it
+     * into a String. The caller must close the reader.
+     *
+     * @param namespace
+     * @param podname
+     * @param request
+     * @return
+     */
+    public Reader getPodLogReader(String namespace, String podname, PodLogRequest request) {
+        return podLog(namespace, podname, request).getLogReader();
+    }
+
+    /**
+     * Copies the selected part of a container log to a channel, such as a
+     * FileChannel, byte for byte and holding no more than one buffer of it
+     * in memory.
+     *
+     * @param namespace
+     * @param podname
+     * @param request
+     * @param channel
+     * @return the number of bytes copied
+     * @throws IOException
+     */
+    public long copyPodLog(String namespace, String podname, PodLogRequest request, WritableByteChannel channel) throws IOException {
+        Request logRequest = new Request.Builder().url(podLogUrl(namespace, podname, request)).get().build();
+        try (Response response = ((HttpClientAware) client).getHttpClient().newCall(logRequest).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful()) {
+                throw new KubernetesClientException("pod log request failed: " + logRequest.url() + " "
+                        + (body == null ? "" : body.string()), response.code(), null);
+            }
+            if (body == null) {
+                return 0;
+            }
+            ReadableByteChannel log = Channels.newChannel(body.byteStream());
+            ByteBuffer buffer = ByteBuffer.allocate(LOG_BUFFER_SIZE);
+            long copied = 0;
+            while (log.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    copied += channel.write(buffer);
+                }
+                buffer.clear();
+            }
+            return copied;
+        }
+    }
+
+    private HttpUrl podLogUrl(String namespace, String podname, PodLogRequest request) throws IOException {
+        HttpUrl.Builder url = HttpUrl.get(((OperationSupport) client.pods().inNamespace(namespace)).getNamespacedUrl()).newBuilder()
+                .addPathSegment(podname)
+                .addPathSegment("log");
+        if (request.getContainer() != null) {
+            url.addQueryParameter("container", request.getContainer());
+        }
+        if (request.isTimestamps()) {
+            url.addQueryParameter("timestamps", "true");
+        }
+        if (request.getLimitBytes() != null) {
+            url.addQueryParameter("limitBytes", request.getLimitBytes().toString());
+        }
+        if (request.getSinceSeconds() != null) {
+            url.addQueryParameter("sinceSeconds", request.getSinceSeconds().toString());
+        } else if (request.getSinceTime() != null) {
+            url.addQueryParameter("sinceTime", request.getSinceTime().toString());
+        }
+        if (request.getTailLines() != null) {
+            url.addQueryParameter("tailLines", request.getTailLines().toString());
+        }
+        return url.build();
+    }
+
+    /**
+     * Searches the logs of every container of every pod carrying the labels,
+     * reading up to concurrency logs at a time and stopping once maxMatches
+     * lines have matched.
+     *
+     * @param namespace
+     * @param labelmap
+     * @param pattern
+     * @param maxMatches
+     * @param concurrency
+     * @return
+     * @throws InterruptedException
+     */
+    public LogSearchResult searchPodLogs(String namespace, Map<String, String> labelmap, Pattern pattern,
+            int maxMatches, int concurrency) throws InterruptedException {
+        List<Pod> pods = client.pods().inNamespace(namespace).withLabels(labelmap).list().getItems();
+        return new PodLogSearch(this, namespace, pattern, maxMatches).search(pods, concurrency);
+    }
+
+    private Loggable<LogWatch> podLog(String namespace, String podname, PodLogRequest request) {
+        PodResource<Pod> pod = client.pods().inNamespace(namespace).withName(podname);
+        TimestampBytesLimitTerminateTimeTailPrettyLoggable<LogWatch> log = request.getContainer() == null
+                ? pod : pod.inContainer(request.getContainer());
+        BytesLimitTerminateTimeTailPrettyLoggable<LogWatch> timestamped = request.isTimestamps()
+                ? log.usingTimestamps() : log;
+        TimeTailPrettyLoggable<LogWatch> limited = request.getLimitBytes() == null
+                ? timestamped : timestamped.limitBytes(request.getLimitBytes());
+        TailPrettyLoggable<LogWatch> since = limited;
+        if (request.getSinceSeconds() != null) {
+            since = limited.sinceSeconds(request.getSinceSeconds());
+        } else if (request.getSinceTime() != null) {
+            since = limited.sinceTime(request.getSinceTime().toString());
+        }
+        return request.getTailLines() == null ? since : since.tailingLines(request.getTailLines());
+    }
+
     /**
      *
      * @param namespace
@@ -126,6 +377,22 @@ public class PodHelper {
         return client.pods().inNamespace(namespace).withName(podname).tailingLines(tailLineCount).watchLog(outputStream);
     }
 
+    /**
+     * Follows the logs of every pod carrying the labels, including pods
+     * created later, merged into one bounded buffer. The caller must close
+     * the aggregator.
+     *
+     * @param namespace
+     * @param labelmap
+     * @param tailLineCount
+     * @param bufferCapacity
+     * @return
+     */
+    public PodLogAggregator aggregatePodLogs(String namespace, Map<String, String> labelmap, int tailLineCount, int bufferCapacity) {
+        return new PodLogAggregator(client, namespace, labelmap, bufferCapacity, tailLineCount,
+                PodLogAggregator.OverflowPolicy.BLOCK).start();
+    }
+
     /**
      * 
      * @param namespace
@@ -135,6 +402,62 @@ public class PodHelper {
     public Pod updatePod(String namespace, Pod updatePod){
         return client.pods().inNamespace(namespace).createOrReplace(updatePod);
     }
+
+    /**
+     * Applies pods as described on {@link ResourceApplier}. The live pods
+     * are read from the pod cache when it is enabled and synced.
+     *
+     * @param namespace
+     * @param pods
+     * @return created, patched and skipped counts for the batch
+     */
+    public ApplyReport<Pod> applyPods(String namespace, Collection<Pod> pods) {
+        ResourceCache<Pod> cache = readyCache();
+        return ResourceApplier.apply(namespace, client.pods().inNamespace(namespace), pods, cache == null ? null : cache::get);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param podName
+     * @param patch
+     * @return
+     */
+    public Pod patchPod(String namespace, String podName, ResourcePatch patch) {
+        return ResourcePatcher.patch(client.pods().inNamespace(namespace).withName(podName), patch);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param podName
+     * @param labels labels to set; a null value removes the label
+     * @return
+     */
+    public Pod patchPodLabels(String namespace, String podName, Map<String, String> labels) {
+        return patchPod(namespace, podName, ResourcePatch.labels(labels));
+    }
+    /**
+     * Completes once the pod reports the Ready condition. Waits in the same
+     * namespace share one watch.
+     *
+     * @param namespace
+     * @param podname
+     * @param timeoutMillis
+     * @return
+     */
+    public CompletableFuture<Pod> waitForPodReady(String namespace, String podname, long timeoutMillis) {
+        return podWatches.waitFor(namespace, podname, Readiness::isPodReady, timeoutMillis);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public WatchDispatcher<Pod> getPodWatches() {
+        return podWatches;
+    }
+
     /**
      *
      * @param namespace
@@ -144,6 +467,34 @@ public class PodHelper {
     public boolean deletePod(String namespace, String podname) {
         return client.pods().inNamespace(namespace).withName(podname).delete();
     }
+
+    /**
+     * Deletes every object carrying the labels with a single deletecollection
+     * request.
+     *
+     * @param namespace
+     * @param labelMap
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deletePodsInNamespaceWithLabels(String namespace, Map<String, String> labelMap,
+            DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return CollectionDeleter.deleteCollection(client, client.pods().inNamespace(namespace), labelMap, propagationPolicy, gracePeriodSeconds);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteAllPodsInNamespace(String namespace, DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return deletePodsInNamespaceWithLabels(namespace, Collections.emptyMap(), propagationPolicy, gracePeriodSeconds);
+    }
     
     /**
      * 
@@ -0,0 +1,390 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.kubernetes.client.dsl.LogWatch;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows the logs of every container in every pod matching a label
+ * selector, including pods that start after the aggregator, and merges the
+ * lines into one bounded buffer.
+ *
+ * With {@link OverflowPolicy#BLOCK} a full buffer stops the reader threads,
+ * which stops reading from the API server connections, so a slow consumer
+ * throttles the producers instead of growing the heap. With
+ * {@link OverflowPolicy#DROP_OLDEST} the buffer behaves as a ring and the
+ * oldest lines are discarded and counted.
+ *
+ * @author cwoodward
+ */
+public class PodLogAggregator implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PodLogAggregator.class);
+
+    private static final String POD_PHASE_PENDING = "Pending";
+
+    /**
+     * What to do with a new line when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_OLDEST
+    }
+
+    private final KubernetesClient client;
+    private final String namespace;
+    private final Map<String, String> labelMap;
+    private final Integer tailLines;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<LogLine> buffer;
+    private final ExecutorService readers;
+    // open log streams keyed by pod uid, container name and restart count
+    private final Map<String, LogWatch> followed = new ConcurrentHashMap<>();
+    // streams that reached end of file; not reopened unless the container restarts
+    private final Map<String, Boolean> finished = new ConcurrentHashMap<>();
+    private final AtomicLong droppedLineCount = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private Watch watch;
+
+    /**
+     *
+     * @param client
+     * @param namespace
+     * @param labelMap
+     * @param capacity maximum number of buffered lines
+     * @param tailLines lines of history to read from containers that are
+     * already running, or null for their whole log
+     * @param overflowPolicy
+     */
+    public PodLogAggregator(KubernetesClient client, String namespace, Map<String, String> labelMap,
+            int capacity, Integer tailLines, OverflowPolicy overflowPolicy) {
+        this.client = client;
+        this.namespace = namespace;
+        this.labelMap = labelMap;
+        this.tailLines = tailLines;
+        this.overflowPolicy = overflowPolicy;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.readers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "pod-log-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Follows the pods that exist now and watches for new ones.
+     *
+     * @return
+     */
+    public synchronized PodLogAggregator start() {
+        if (watch != null) {
+            return this;
+        }
+        for (Pod pod : client.pods().inNamespace(namespace).withLabels(labelMap).list().getItems()) {
+            follow(pod, tailLines);
+        }
+        watch = client.pods().inNamespace(namespace).withLabels(labelMap).watch(new Watcher<Pod>() {
+            @Override
+            public void eventReceived(Action action, Pod pod) {
+                if (action == Action.DELETED) {
+                    unfollow(pod);
+                } else if (action == Action.ADDED || action == Action.MODIFIED) {
+                    follow(pod, null);
+                }
+            }
+
+            @Override
+            public void onClose(WatcherException cause) {
+                if (!closed.get()) {
+                    logger.warn("pod watch for log aggregation closed", cause);
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     *
+     * @return the next line, waiting if none is buffered
+     * @throws InterruptedException
+     */
+    public LogLine take() throws InterruptedException {
+        return buffer.take();
+    }
+
+    /**
+     *
+     * @param timeout
+     * @param unit
+     * @return the next line, or null if none arrived within the timeout
+     * @throws InterruptedException
+     */
+    public LogLine poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return buffer.poll(timeout, unit);
+    }
+
+    /**
+     *
+     * @param lines
+     * @param maxLines
+     * @return the number of lines moved into the collection
+     */
+    public int drainTo(Collection<? super LogLine> lines, int maxLines) {
+        return buffer.drainTo(lines, maxLines);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getBufferedLineCount() {
+        return buffer.size();
+    }
+
+    /**
+     *
+     * @return lines discarded by {@link OverflowPolicy#DROP_OLDEST}
+     */
+    public long getDroppedLineCount() {
+        return droppedLineCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getFollowedContainerCount() {
+        return followed.size();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            if (watch != null) {
+                watch.close();
+            }
+        }
+        for (LogWatch logWatch : followed.values()) {
+            logWatch.close();
+        }
+        followed.clear();
+        readers.shutdownNow();
+    }
+
+    private void follow(Pod pod, Integer tail) {
+        if (closed.get() || POD_PHASE_PENDING.equals(pod.getStatus() == null ? null : pod.getStatus().getPhase())) {
+            return;
+        }
+        for (String containerName : followableContainers(pod)) {
+            String key = streamKey(pod, containerName);
+            if (finished.containsKey(key) || followed.containsKey(key)) {
+                continue;
+            }
+            LogWatch logWatch;
+            try {
+                logWatch = tail == null
+                        ? client.pods().inNamespace(namespace).withName(pod.getMetadata().getName())
+                                .inContainer(containerName).usingTimestamps().watchLog()
+                        : client.pods().inNamespace(namespace).withName(pod.getMetadata().getName())
+                                .inContainer(containerName).usingTimestamps().tailingLines(tail).watchLog();
+            } catch (RuntimeException e) {
+                logger.debug("unable to follow {}/{}", pod.getMetadata().getName(), containerName, e);
+                continue;
+            }
+            if (followed.putIfAbsent(key, logWatch) != null) {
+                logWatch.close();
+                continue;
+            }
+            String podName = pod.getMetadata().getName();
+            readers.execute(() -> read(key, podName, containerName, logWatch));
+        }
+    }
+
+    private void unfollow(Pod pod) {
+        String prefix = pod.getMetadata().getUid() + "/";
+        followed.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(prefix)) {
+                entry.getValue().close();
+                return true;
+            }
+            return false;
+        });
+        finished.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private void read(String key, String podName, String containerName, LogWatch logWatch) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(logWatch.getOutput(), StandardCharsets.UTF_8))) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                publish(LogLine.parse(podName, containerName, text));
+            }
+            finished.put(key, Boolean.TRUE);
+        } catch (IOException e) {
+            if (!closed.get()) {
+                logger.debug("log stream for {}/{} failed", podName, containerName, e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followed.remove(key, logWatch);
+            logWatch.close();
+        }
+    }
+
+    private void publish(LogLine line) throws InterruptedException {
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            buffer.put(line);
+            return;
+        }
+        while (!buffer.offer(line)) {
+            if (buffer.poll() != null) {
+                droppedLineCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static List<String> followableContainers(Pod pod) {
+        List<String> names = new ArrayList<>();
+        List<ContainerStatus> statuses = pod.getStatus() == null ? null : pod.getStatus().getContainerStatuses();
+        if (statuses == null || statuses.isEmpty()) {
+            for (Container container : pod.getSpec().getContainers()) {
+                names.add(container.getName());
+            }
+            return names;
+        }
+        for (ContainerStatus status : statuses) {
+            if (status.getState() != null && (status.getState().getRunning() != null || status.getState().getTerminated() != null)) {
+                names.add(status.getName());
+            }
+        }
+        return names;
+    }
+
+    private static String streamKey(Pod pod, String containerName) {
+        int restartCount = 0;
+        if (pod.getStatus() != null && pod.getStatus().getContainerStatuses() != null) {
+            for (ContainerStatus status : pod.getStatus().getContainerStatuses()) {
+                if (containerName.equals(status.getName()) && status.getRestartCount() != null) {
+                    restartCount = status.getRestartCount();
+                }
+            }
+        }
+        return pod.getMetadata().getUid() + "/" + containerName + "/" + restartCount;
+    }
+
+    /**
+     * One log line tagged with the pod and container it came from.
+     */
+    public static class LogLine {
+
+        private final String podName;
+        private final String containerName;
+        private final Instant timestamp;
+        private final String text;
+
+        /**
+         *
+         * @param podName
+         * @param containerName
+         * @param timestamp
+         * @param text
+         */
+        public LogLine(String podName, String containerName, Instant timestamp, String text) {
+            this.podName = podName;
+            this.containerName = containerName;
+            this.timestamp = timestamp;
+            this.text = text;
+        }
+
+        /**
+         * Splits off the RFC 3339 timestamp the API server prepends when
+         * timestamps are requested, falling back to the time of receipt.
+         *
+         * @param podName
+         * @param containerName
+         * @param rawLine
+         * @return
+         */
+        static LogLine parse(String podName, String containerName, String rawLine) {
+            int space = rawLine.indexOf(' ');
+            if (space > 0) {
+                try {
+                    Instant timestamp = Instant.parse(rawLine.substring(0, space));
+                    return new LogLine(podName, containerName, timestamp, rawLine.substring(space + 1));
+                } catch (DateTimeParseException e) {
+                    // not timestamped
+                }
+            }
+            return new LogLine(podName, containerName, Instant.now(), rawLine);
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getPodName() {
+            return podName;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getContainerName() {
+            return containerName;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String toString() {
+            return timestamp + " [" + podName + "/" + containerName + "] " + text;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.time.Instant;
+
+/**
+ * Selects which part of a container log to read. Every limit is applied by
+ * the API server, so only the selected bytes cross the wire.
+ *
+ * @author cwoodward
+ */
+public class PodLogRequest {
+
+    private String container;
+    private Integer limitBytes;
+    private Integer sinceSeconds;
+    private Instant sinceTime;
+    private Integer tailLines;
+    private boolean timestamps;
+
+    /**
+     *
+     * @return
+     */
+    public static PodLogRequest all() {
+        return new PodLogRequest();
+    }
+
+    /**
+     *
+     * @param container the container to read, required for multi-container
+     * pods
+     * @return
+     */
+    public PodLogRequest withContainer(String container) {
+        this.container = container;
+        return this;
+    }
+
+    /**
+     *
+     * @param limitBytes
+     * @return
+     */
+    public PodLogRequest withLimitBytes(int limitBytes) {
+        if (limitBytes < 1) {
+            throw new IllegalArgumentException("limitBytes must be at least 1");
+        }
+        this.limitBytes = limitBytes;
+        return this;
+    }
+
+    /**
+     *
+     * @param sinceSeconds
+     * @return
+     */
+    public PodLogRequest withSinceSeconds(int sinceSeconds) {
+        if (sinceSeconds < 1) {
+            throw new IllegalArgumentException("sinceSeconds must be at least 1");
+        }
+        if (sinceTime != null) {
+            throw new IllegalArgumentException("sinceSeconds and sinceTime are mutually exclusive");
+        }
+        this.sinceSeconds = sinceSeconds;
+        return this;
+    }
+
+    /**
+     *
+     * @param sinceTime
+     * @return
+     */
+    public PodLogRequest withSinceTime(Instant sinceTime) {
+        if (sinceSeconds != null) {
+            throw new IllegalArgumentException("sinceSeconds and sinceTime are mutually exclusive");
+        }
+        this.sinceTime = sinceTime;
+        return this;
+    }
+
+    /**
+     *
+     * @param tailLines
+     * @return
+     */
+    public PodLogRequest withTailLines(int tailLines) {
+        if (tailLines < 0) {
+            throw new IllegalArgumentException("tailLines must not be negative");
+        }
+        this.tailLines = tailLines;
+        return this;
+    }
+
+    /**
+     *
+     * @param timestamps prefix every line with its RFC 3339 timestamp
+     * @return
+     */
+    public PodLogRequest withTimestamps(boolean timestamps) {
+        this.timestamps = timestamps;
+        return this;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getContainer() {
+        return container;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Integer getLimitBytes() {
+        return limitBytes;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Integer getSinceSeconds() {
+        return sinceSeconds;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Instant getSinceTime() {
+        return sinceTime;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Integer getTailLines() {
+        return tailLines;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "PodLogRequest: container=" + container
+                + ", limitBytes=" + limitBytes
+                + ", sinceSeconds=" + sinceSeconds
+                + ", sinceTime=" + sinceTime
+                + ", tailLines=" + tailLines
+                + ", timestamps=" + timestamps;
+    }
+}
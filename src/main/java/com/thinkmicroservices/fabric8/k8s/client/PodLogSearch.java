@@ -0,0 +1,131 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.Pod;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Greps the logs of many containers in parallel. Each log is read line by
+ * line from the API server stream, so memory use is one line per worker
+ * regardless of log size, and every stream is abandoned as soon as the match
+ * limit is reached.
+ *
+ * @author cwoodward
+ */
+final class PodLogSearch {
+
+    private static final Comparator<LogSearchResult.LogMatch> MATCH_ORDER = Comparator
+            .comparing(LogSearchResult.LogMatch::getPodName)
+            .thenComparing(LogSearchResult.LogMatch::getContainerName)
+            .thenComparingLong(LogSearchResult.LogMatch::getLineNumber);
+
+    private final PodHelper podHelper;
+    private final String namespace;
+    private final Pattern pattern;
+    private final int maxMatches;
+    private final ConcurrentLinkedQueue<LogSearchResult.LogMatch> matches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger matchCount = new AtomicInteger();
+    private final AtomicLong bytesScanned = new AtomicLong();
+
+    /**
+     *
+     * @param podHelper
+     * @param namespace
+     * @param pattern
+     * @param maxMatches
+     */
+    PodLogSearch(PodHelper podHelper, String namespace, Pattern pattern, int maxMatches) {
+        if (maxMatches < 1) {
+            throw new IllegalArgumentException("maxMatches must be at least 1");
+        }
+        this.podHelper = podHelper;
+        this.namespace = namespace;
+        this.pattern = pattern;
+        this.maxMatches = maxMatches;
+    }
+
+    /**
+     *
+     * @param pods
+     * @param concurrency
+     * @return
+     * @throws InterruptedException
+     */
+    LogSearchResult search(List<Pod> pods, int concurrency) throws InterruptedException {
+        List<String[]> targets = new ArrayList<>();
+        for (Pod pod : pods) {
+            for (Container container : pod.getSpec().getContainers()) {
+                targets.add(new String[]{pod.getMetadata().getName(), container.getName()});
+            }
+        }
+        long start = System.nanoTime();
+        BulkResult<Boolean> scanned = new BulkExecutor(concurrency, 0).execute(targets, target -> scan(target[0], target[1]));
+        long elapsed = System.nanoTime() - start;
+
+        List<LogSearchResult.LogMatch> sorted = new ArrayList<>(matches);
+        sorted.sort(MATCH_ORDER);
+        boolean truncated = matchCount.get() >= maxMatches;
+        if (sorted.size() > maxMatches) {
+            sorted = new ArrayList<>(sorted.subList(0, maxMatches));
+        }
+        return new LogSearchResult(sorted, truncated, targets.size(), scanned.getFailureCount(), bytesScanned.get(), elapsed);
+    }
+
+    private boolean scan(String podName, String containerName) {
+        if (limitReached()) {
+            return false;
+        }
+        Matcher matcher = pattern.matcher("");
+        long lineNumber = 0;
+        long bytes = 0;
+        PodLogRequest request = PodLogRequest.all().withContainer(containerName);
+        try (BufferedReader reader = new BufferedReader(podHelper.getPodLogReader(namespace, podName, request))) {
+            String line;
+            while (!limitReached() && (line = reader.readLine()) != null) {
+                lineNumber++;
+                bytes += utf8Length(line) + 1;
+                if (matcher.reset(line).find() && matchCount.getAndIncrement() < maxMatches) {
+                    matches.add(new LogSearchResult.LogMatch(podName, containerName, lineNumber, line));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            bytesScanned.addAndGet(bytes);
+        }
+        return true;
+    }
+
+    private boolean limitReached() {
+        return matchCount.get() >= maxMatches;
+    }
+
+    // the reader has already decoded the stream, so count what the line cost on the wire
+    private static int utf8Length(CharSequence line) {
+        int length = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,160 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Applies desired objects without rewriting the ones that already match.
+ * Missing objects are created. An object is unchanged, and skipped, when
+ * every label, annotation and spec/data field it sets has the same value
+ * on the live object; fields the desired object leaves out (status,
+ * defaults, server-populated metadata) are not compared. Changed objects
+ * are sent those fields as a JSON merge patch (RFC 7386). The patch does
+ * not depend on the live copy, so a cached copy that lags the server can
+ * at most cause an unneeded patch or skip, never overwrite a newer change
+ * to a field the desired object does not set. An object that fails is
+ * recorded in the report and does not stop the rest of the batch.
+ *
+ * @author cwoodward
+ */
+final class ResourceApplier {
+
+    // top level fields that are identity or owned by the server
+    private static final Set<String> IGNORED_FIELDS = Set.of("apiVersion", "kind", "metadata", "status");
+
+    private ResourceApplier() {
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param <L>
+     * @param <R>
+     * @param namespace
+     * @param operation a namespaced operation such as
+     * client.pods().inNamespace(namespace)
+     * @param desired
+     * @param cachedLookup returns the cached object for (namespace, name), or
+     * null to read it from the server; may itself be null
+     * @return
+     */
+    static <T extends HasMetadata, L extends KubernetesResourceList<T>, R extends Resource<T>> ApplyReport<T> apply(
+            String namespace, NonNamespaceOperation<T, L, R> operation, Collection<T> desired,
+            BiFunction<String, String, T> cachedLookup) {
+        ApplyReport<T> report = new ApplyReport<>();
+        for (T object : desired) {
+            try {
+                T cached = cachedLookup == null ? null : cachedLookup.apply(namespace, object.getMetadata().getName());
+                apply(operation, object, cached, report);
+            } catch (RuntimeException e) {
+                report.recordFailure(object, e);
+            }
+        }
+        return report;
+    }
+
+    private static <T extends HasMetadata, L extends KubernetesResourceList<T>, R extends Resource<T>> void apply(
+            NonNamespaceOperation<T, L, R> operation, T object, T cached, ApplyReport<T> report) {
+        String name = object.getMetadata().getName();
+        T live = cached == null ? operation.withName(name).get() : cached;
+        if (live == null) {
+            report.record(ApplyReport.Outcome.CREATED, operation.create(object));
+            return;
+        }
+        ObjectNode patch = mergePatch(object);
+        if (contains(Serialization.jsonMapper().valueToTree(live), patch)) {
+            report.record(ApplyReport.Outcome.SKIPPED, live);
+            return;
+        }
+        report.record(ApplyReport.Outcome.PATCHED, ResourcePatcher.patch(operation.withName(name), ResourcePatch.jsonMerge(patch)));
+    }
+
+    /**
+     * Builds the merge patch an object stands for: its labels, annotations
+     * and every top level field other than identity and status.
+     *
+     * @param object
+     * @return
+     */
+    static ObjectNode mergePatch(HasMetadata object) {
+        ObjectNode source = Serialization.jsonMapper().valueToTree(object);
+        ObjectNode patch = Serialization.jsonMapper().createObjectNode();
+        JsonNode metadata = source.path("metadata");
+        ObjectNode patchMetadata = patch.putObject("metadata");
+        if (metadata.has("labels")) {
+            patchMetadata.set("labels", metadata.get("labels"));
+        }
+        if (metadata.has("annotations")) {
+            patchMetadata.set("annotations", metadata.get("annotations"));
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = source.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!IGNORED_FIELDS.contains(field.getKey())) {
+                patch.set(field.getKey(), field.getValue());
+            }
+        }
+        return patch;
+    }
+
+    /**
+     * True when applying desired as a merge patch to live would change
+     * nothing. Objects are compared field by field; arrays are replaced by a
+     * merge patch, so they must have the same length, but their elements are
+     * compared the same way to tolerate server defaults inside them.
+     *
+     * @param live
+     * @param desired
+     * @return
+     */
+    static boolean contains(JsonNode live, JsonNode desired) {
+        if (desired == null || desired.isMissingNode()) {
+            return true;
+        }
+        if (desired.isNull()) {
+            return live == null || live.isMissingNode() || live.isNull();
+        }
+        if (live == null || live.isMissingNode() || live.isNull()) {
+            // an empty map or list sets nothing
+            return desired.isContainerNode() && desired.size() == 0;
+        }
+        if (desired.isObject()) {
+            if (!live.isObject()) {
+                return false;
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = desired.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!contains(live.get(field.getKey()), field.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (desired.isArray()) {
+            if (!live.isArray() || live.size() != desired.size()) {
+                return false;
+            }
+            for (int i = 0; i < desired.size(); i++) {
+                if (!contains(live.get(i), desired.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (desired.isNumber() && live.isNumber()) {
+            return desired.decimalValue().compareTo(live.decimalValue()) == 0;
+        }
+        return desired.equals(live);
+    }
+}
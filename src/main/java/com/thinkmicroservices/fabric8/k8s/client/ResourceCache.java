@@ -0,0 +1,336 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
+import io.fabric8.kubernetes.client.dsl.base.CustomResourceDefinitionContext;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.informers.SharedInformerFactory;
+import io.fabric8.kubernetes.client.informers.cache.Cache;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Local, informer-fed copy of one resource type with namespace and label
+ * indexes. Objects returned from the cache are the informer's own instances
+ * and must not be modified.
+ *
+ * @author cwoodward
+ * @param <T>
+ */
+public class ResourceCache<T extends HasMetadata> implements AutoCloseable {
+
+    public static final String NAMESPACE_INDEX = Cache.NAMESPACE_INDEX;
+    public static final String LABEL_INDEX = "namespace-label";
+
+    private static final long SYNC_POLL_MILLIS = 10;
+
+    private final SharedIndexInformer<T> informer;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private volatile long lastUpdateMillis;
+
+    /**
+     *
+     * @param informer an informer that has not been started yet
+     * @param extraIndexers additional indexers, keyed by index name
+     */
+    ResourceCache(SharedIndexInformer<T> informer, Map<String, Function<T, List<String>>> extraIndexers) {
+        this.informer = informer;
+        Map<String, Function<T, List<String>>> indexers = new HashMap<>(extraIndexers);
+        indexers.put(LABEL_INDEX, ResourceCache::labelIndexKeys);
+        informer.addIndexers(indexers);
+        informer.addEventHandler(new ResourceEventHandler<T>() {
+            @Override
+            public void onAdd(T obj) {
+                lastUpdateMillis = System.currentTimeMillis();
+            }
+
+            @Override
+            public void onUpdate(T oldObj, T newObj) {
+                lastUpdateMillis = System.currentTimeMillis();
+            }
+
+            @Override
+            public void onDelete(T obj, boolean deletedFinalStateUnknown) {
+                lastUpdateMillis = System.currentTimeMillis();
+            }
+        });
+    }
+
+    /**
+     * Creates and starts a cluster-wide cache for the resource type.
+     *
+     * @param <T>
+     * @param client
+     * @param type
+     * @param resyncPeriodMillis
+     * @return
+     */
+    public static <T extends HasMetadata> ResourceCache<T> start(KubernetesClient client, Class<T> type, long resyncPeriodMillis) {
+        return start(client, type, resyncPeriodMillis, Collections.emptyMap());
+    }
+
+    /**
+     * Creates and starts a cluster-wide cache for the resource type with
+     * additional indexers.
+     *
+     * @param <T>
+     * @param client
+     * @param type
+     * @param resyncPeriodMillis
+     * @param extraIndexers
+     * @return
+     */
+    public static <T extends HasMetadata> ResourceCache<T> start(KubernetesClient client, Class<T> type, long resyncPeriodMillis,
+            Map<String, Function<T, List<String>>> extraIndexers) {
+        return start(client, null, type, resyncPeriodMillis, extraIndexers);
+    }
+
+    /**
+     * Creates and starts a cache for the resource type in one namespace,
+     * so only that namespace is listed and watched.
+     *
+     * @param <T>
+     * @param client
+     * @param namespace the namespace to cache, or null for all namespaces
+     * @param type
+     * @param resyncPeriodMillis
+     * @return
+     */
+    public static <T extends HasMetadata> ResourceCache<T> start(KubernetesClient client, String namespace, Class<T> type,
+            long resyncPeriodMillis) {
+        return start(client, namespace, type, resyncPeriodMillis, Collections.emptyMap());
+    }
+
+    /**
+     * Creates and starts a cache for the resource type in one namespace
+     * with additional indexers.
+     *
+     * @param <T>
+     * @param client
+     * @param namespace the namespace to cache, or null for all namespaces
+     * @param type
+     * @param resyncPeriodMillis
+     * @param extraIndexers
+     * @return
+     */
+    public static <T extends HasMetadata> ResourceCache<T> start(KubernetesClient client, String namespace, Class<T> type,
+            long resyncPeriodMillis, Map<String, Function<T, List<String>>> extraIndexers) {
+        SharedInformerFactory informers = namespace == null ? client.informers() : client.informers().inNamespace(namespace);
+        ResourceCache<T> cache = new ResourceCache<>(informers.sharedIndexInformerFor(type, resyncPeriodMillis), extraIndexers);
+        cache.informer.run();
+        return cache;
+    }
+
+    /**
+     * Creates and starts a cluster-wide cache that reads the resource type
+     * from the kind described by context, such as batch/v1 CronJobs into
+     * the v1beta1 model.
+     *
+     * @param <T>
+     * @param <L>
+     * @param client
+     * @param context group, version and plural to list and watch
+     * @param type
+     * @param listType
+     * @param resyncPeriodMillis
+     * @param extraIndexers
+     * @return
+     */
+    static <T extends HasMetadata, L extends KubernetesResourceList<T>> ResourceCache<T> start(KubernetesClient client,
+            CustomResourceDefinitionContext context, Class<T> type, Class<L> listType, long resyncPeriodMillis,
+            Map<String, Function<T, List<String>>> extraIndexers) {
+        // the factory lists the client's own namespace unless the client has none
+        KubernetesClient anyNamespace = client instanceof NamespacedKubernetesClient
+                ? ((NamespacedKubernetesClient) client).inAnyNamespace() : client;
+        // the only factory method that takes the path from a context; its CustomResource bound is not needed to read
+        // the objects
+        @SuppressWarnings({"deprecation", "unchecked", "rawtypes"})
+        SharedIndexInformer<T> informer = anyNamespace.informers().sharedIndexInformerForCustomResource(context,
+                (Class) type, (Class) listType, resyncPeriodMillis);
+        ResourceCache<T> cache = new ResourceCache<>(informer, extraIndexers);
+        cache.informer.run();
+        return cache;
+    }
+
+    /**
+     *
+     * @return true once the initial list has been loaded
+     */
+    public boolean hasSynced() {
+        return informer.hasSynced();
+    }
+
+    /**
+     *
+     * @param timeoutMillis
+     * @return true if the cache synced within the timeout
+     * @throws InterruptedException
+     */
+    public boolean waitForSync(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!informer.hasSynced()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(SYNC_POLL_MILLIS);
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param name
+     * @return the cached object, or null if the cache holds no such object
+     */
+    public T get(String namespace, String name) {
+        hitCount.incrementAndGet();
+        return informer.getIndexer().getByKey(Cache.namespaceKeyFunc(namespace, name));
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<T> list() {
+        hitCount.incrementAndGet();
+        return informer.getIndexer().list();
+    }
+
+    /**
+     *
+     * @param namespace
+     * @return
+     */
+    public List<T> listInNamespace(String namespace) {
+        hitCount.incrementAndGet();
+        return informer.getIndexer().byIndex(NAMESPACE_INDEX, namespace);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param labelMap
+     * @return objects in the namespace carrying every label in the map
+     */
+    public List<T> listWithLabels(String namespace, Map<String, String> labelMap) {
+        if (labelMap.isEmpty()) {
+            return listInNamespace(namespace);
+        }
+        hitCount.incrementAndGet();
+        Map.Entry<String, String> first = labelMap.entrySet().iterator().next();
+        List<T> candidates = informer.getIndexer().byIndex(LABEL_INDEX, labelIndexKey(namespace, first.getKey(), first.getValue()));
+        if (labelMap.size() == 1) {
+            return candidates;
+        }
+        List<T> matches = new ArrayList<>(candidates.size());
+        for (T candidate : candidates) {
+            Map<String, String> labels = candidate.getMetadata().getLabels();
+            if (labels != null && labels.entrySet().containsAll(labelMap.entrySet())) {
+                matches.add(candidate);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     *
+     * @param indexName
+     * @param indexKey
+     * @return
+     */
+    public List<T> byIndex(String indexName, String indexKey) {
+        hitCount.incrementAndGet();
+        return informer.getIndexer().byIndex(indexName, indexKey);
+    }
+
+    /**
+     * Records a read that had to go to the API server because the cache was
+     * not ready.
+     */
+    public void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     *
+     * @return the last resourceVersion the informer has seen, which bounds
+     * how stale the cached objects can be
+     */
+    public String getLastResourceVersion() {
+        return informer.lastSyncResourceVersion();
+    }
+
+    /**
+     *
+     * @return the wall-clock time of the last cache change, or 0 if none
+     */
+    public long getLastUpdateMillis() {
+        return lastUpdateMillis;
+    }
+
+    /**
+     *
+     * @param handler
+     */
+    public void addEventHandler(ResourceEventHandler<T> handler) {
+        informer.addEventHandler(handler);
+    }
+
+    @Override
+    public void close() {
+        informer.stop();
+    }
+
+    static String labelIndexKey(String namespace, String key, String value) {
+        return namespace + "/" + key + "=" + value;
+    }
+
+    private static List<String> labelIndexKeys(HasMetadata obj) {
+        Map<String, String> labels = obj.getMetadata().getLabels();
+        if (labels == null || labels.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> keys = new ArrayList<>(labels.size());
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            keys.add(labelIndexKey(obj.getMetadata().getNamespace(), label.getKey(), label.getValue()));
+        }
+        return keys;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "ResourceCache: synced=" + hasSynced()
+                + ", hits=" + hitCount.get()
+                + ", misses=" + missCount.get()
+                + ", resourceVersion=" + getLastResourceVersion();
+    }
+}
@@ -0,0 +1,210 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.fabric8.kubernetes.client.dsl.base.PatchType;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import java.util.Map;
+
+/**
+ * One targeted change to a resource, sent as a single PATCH: a JSON merge
+ * patch, a strategic merge patch or a JSON patch. Unlike edit() there is no
+ * GET and no resourceVersion, so concurrent writers never conflict.
+ *
+ * @author cwoodward
+ */
+public final class ResourcePatch {
+
+    private final PatchType type;
+    private final String body;
+
+    private ResourcePatch(PatchType type, String body) {
+        this.type = type;
+        this.body = body;
+    }
+
+    /**
+     *
+     * @param patch a Map, JsonNode or model object; null values delete
+     * @return an RFC 7386 JSON merge patch
+     */
+    public static ResourcePatch jsonMerge(Object patch) {
+        return new ResourcePatch(PatchType.JSON_MERGE, Serialization.asJson(patch));
+    }
+
+    /**
+     * Strategic merge patches merge lists such as containers by their key
+     * (e.g. name) instead of replacing them. Built-in kinds only.
+     *
+     * @param patch a Map, JsonNode or model object
+     * @return
+     */
+    public static ResourcePatch strategicMerge(Object patch) {
+        return new ResourcePatch(PatchType.STRATEGIC_MERGE, Serialization.asJson(patch));
+    }
+
+    /**
+     *
+     * @param operations an array of RFC 6902 operations
+     * @return
+     */
+    public static ResourcePatch jsonPatch(JsonNode operations) {
+        if (!operations.isArray()) {
+            throw new IllegalArgumentException("a JSON patch must be an array of operations");
+        }
+        return new ResourcePatch(PatchType.JSON, operations.toString());
+    }
+
+    /**
+     *
+     * @return a builder for an RFC 6902 JSON patch
+     */
+    public static JsonPatchBuilder json() {
+        return new JsonPatchBuilder();
+    }
+
+    /**
+     *
+     * @param labels labels to set; a null value removes the label
+     * @return
+     */
+    public static ResourcePatch labels(Map<String, String> labels) {
+        return metadataMap("labels", labels);
+    }
+
+    /**
+     *
+     * @param annotations annotations to set; a null value removes the
+     * annotation
+     * @return
+     */
+    public static ResourcePatch annotations(Map<String, String> annotations) {
+        return metadataMap("annotations", annotations);
+    }
+
+    private static ResourcePatch metadataMap(String field, Map<String, String> values) {
+        ObjectNode patch = Serialization.jsonMapper().createObjectNode();
+        ObjectNode map = patch.putObject("metadata").putObject(field);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            // putNull keeps the key so the merge patch deletes it
+            if (entry.getValue() == null) {
+                map.putNull(entry.getKey());
+            } else {
+                map.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new ResourcePatch(PatchType.JSON_MERGE, patch.toString());
+    }
+
+    /**
+     * Joins reference tokens into a JSON pointer, escaping '~' and '/' so
+     * keys such as "app.kubernetes.io/name" can be addressed.
+     *
+     * @param tokens
+     * @return
+     */
+    public static String pointer(String... tokens) {
+        StringBuilder pointer = new StringBuilder();
+        for (String token : tokens) {
+            pointer.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+        }
+        return pointer.toString();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public PatchType getType() {
+        return type;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "ResourcePatch: type=" + type.name() + ", body=" + body;
+    }
+
+    /**
+     * Collects RFC 6902 operations in order.
+     */
+    public static final class JsonPatchBuilder {
+
+        private final ArrayNode operations = Serialization.jsonMapper().createArrayNode();
+
+        private JsonPatchBuilder() {
+        }
+
+        /**
+         * Sets a value, creating the member if it is missing. The parent must
+         * exist.
+         *
+         * @param path
+         * @param value
+         * @return
+         */
+        public JsonPatchBuilder add(String path, Object value) {
+            return operation("add", path, value);
+        }
+
+        /**
+         *
+         * @param path must exist
+         * @param value
+         * @return
+         */
+        public JsonPatchBuilder replace(String path, Object value) {
+            return operation("replace", path, value);
+        }
+
+        /**
+         *
+         * @param path must exist
+         * @return
+         */
+        public JsonPatchBuilder remove(String path) {
+            operations.addObject().put("op", "remove").put("path", path);
+            return this;
+        }
+
+        /**
+         * Fails the whole patch unless the value at path matches, e.g. to
+         * guard on a resourceVersion.
+         *
+         * @param path
+         * @param value
+         * @return
+         */
+        public JsonPatchBuilder test(String path, Object value) {
+            return operation("test", path, value);
+        }
+
+        private JsonPatchBuilder operation(String op, String path, Object value) {
+            ObjectNode operation = operations.addObject().put("op", op).put("path", path);
+            operation.set("value", Serialization.jsonMapper().valueToTree(value));
+            return this;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public ResourcePatch build() {
+            if (operations.size() == 0) {
+                throw new IllegalArgumentException("a JSON patch needs at least one operation");
+            }
+            return new ResourcePatch(PatchType.JSON, operations.toString());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.client.HttpClientAware;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.dsl.base.OperationSupport;
+import io.fabric8.kubernetes.client.dsl.base.PatchContext;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import java.io.IOException;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Sends {@link ResourcePatch}es, either to a resource or to one of its
+ * subresources such as scale, which fabric8 does not expose for patching.
+ *
+ * @author cwoodward
+ */
+final class ResourcePatcher {
+
+    private ResourcePatcher() {
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param resource e.g. client.pods().inNamespace(namespace).withName(name)
+     * @param patch
+     * @return the patched object
+     */
+    static <T> T patch(Resource<T> resource, ResourcePatch patch) {
+        return resource.patch(new PatchContext.Builder().withPatchType(patch.getType()).build(), patch.getBody());
+    }
+
+    /**
+     *
+     * @param <S>
+     * @param client
+     * @param resource
+     * @param subresource e.g. "scale"
+     * @param patch
+     * @param type the subresource's kind, e.g. Scale
+     * @return
+     */
+    static <S> S patchSubresource(KubernetesClient client, Resource<?> resource, String subresource,
+            ResourcePatch patch, Class<S> type) {
+        HttpUrl url;
+        try {
+            url = HttpUrl.get(((OperationSupport) resource).getResourceUrl()).newBuilder()
+                    .addPathSegment(subresource)
+                    .build();
+        } catch (IOException e) {
+            throw new KubernetesClientException("unable to build " + subresource + " url", e);
+        }
+        Request request = new Request.Builder()
+                .url(url)
+                .patch(RequestBody.create(patch.getType().getMediaType(), patch.getBody()))
+                .build();
+        try (Response response = ((HttpClientAware) client).getHttpClient().newCall(request).execute()) {
+            ResponseBody body = response.body();
+            String text = body == null ? "" : body.string();
+            if (!response.isSuccessful()) {
+                throw new KubernetesClientException("patch failed: " + request.url(), response.code(),
+                        CollectionDeleter.status(text));
+            }
+            return Serialization.unmarshal(text, type);
+        } catch (IOException e) {
+            throw new KubernetesClientException("patch failed: " + request.url(), e);
+        }
+    }
+}
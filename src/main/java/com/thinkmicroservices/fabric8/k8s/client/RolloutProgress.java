@@ -0,0 +1,211 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentCondition;
+import io.fabric8.kubernetes.api.model.apps.DeploymentStatus;
+
+/**
+ * Replica counts of a deployment rollout at one watch event. The counts
+ * come from the deployment status, which the controller aggregates from the
+ * deployment's ReplicaSets: updated replicas belong to the new ReplicaSet,
+ * old replicas to the ones being scaled down.
+ *
+ * @author cwoodward
+ */
+public final class RolloutProgress {
+
+    static final String CONDITION_PROGRESSING = "Progressing";
+    static final String REASON_PROGRESS_DEADLINE_EXCEEDED = "ProgressDeadlineExceeded";
+    private static final String CONDITION_STATUS_FALSE = "False";
+
+    private final String namespace;
+    private final String name;
+    private final long generation;
+    private final long observedGeneration;
+    private final int desiredReplicas;
+    private final int updatedReplicas;
+    private final int readyReplicas;
+    private final int availableReplicas;
+    private final int oldReplicas;
+    private final boolean complete;
+    private final boolean stalled;
+    private final String message;
+
+    private RolloutProgress(Deployment deployment) {
+        DeploymentStatus status = deployment.getStatus() == null ? new DeploymentStatus() : deployment.getStatus();
+        this.namespace = deployment.getMetadata().getNamespace();
+        this.name = deployment.getMetadata().getName();
+        this.generation = valueOf(deployment.getMetadata().getGeneration());
+        this.observedGeneration = valueOf(status.getObservedGeneration());
+        this.desiredReplicas = deployment.getSpec().getReplicas() == null ? 1 : deployment.getSpec().getReplicas();
+        this.updatedReplicas = valueOf(status.getUpdatedReplicas());
+        this.readyReplicas = valueOf(status.getReadyReplicas());
+        this.availableReplicas = valueOf(status.getAvailableReplicas());
+        this.oldReplicas = Math.max(0, valueOf(status.getReplicas()) - updatedReplicas);
+        this.complete = DeploymentHelper.isRolloutComplete(deployment);
+        DeploymentCondition progressing = progressingCondition(status);
+        // a stale condition may describe the previous spec
+        this.stalled = !complete && observedGeneration >= generation && progressing != null
+                && CONDITION_STATUS_FALSE.equals(progressing.getStatus())
+                && REASON_PROGRESS_DEADLINE_EXCEEDED.equals(progressing.getReason());
+        this.message = progressing == null ? null : progressing.getMessage();
+    }
+
+    /**
+     *
+     * @param deployment
+     * @return
+     */
+    public static RolloutProgress of(Deployment deployment) {
+        return new RolloutProgress(deployment);
+    }
+
+    private static DeploymentCondition progressingCondition(DeploymentStatus status) {
+        if (status.getConditions() == null) {
+            return null;
+        }
+        for (DeploymentCondition condition : status.getConditions()) {
+            if (CONDITION_PROGRESSING.equals(condition.getType())) {
+                return condition;
+            }
+        }
+        return null;
+    }
+
+    private static int valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     *
+     * @param other
+     * @return true if the counts or state differ from other
+     */
+    boolean differsFrom(RolloutProgress other) {
+        return other == null
+                || observedGeneration != other.observedGeneration
+                || desiredReplicas != other.desiredReplicas
+                || updatedReplicas != other.updatedReplicas
+                || readyReplicas != other.readyReplicas
+                || availableReplicas != other.availableReplicas
+                || oldReplicas != other.oldReplicas
+                || complete != other.complete
+                || stalled != other.stalled;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     *
+     * @return the generation the controller has acted on
+     */
+    public long getObservedGeneration() {
+        return observedGeneration;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getDesiredReplicas() {
+        return desiredReplicas;
+    }
+
+    /**
+     *
+     * @return replicas running the current pod template
+     */
+    public int getUpdatedReplicas() {
+        return updatedReplicas;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getReadyReplicas() {
+        return readyReplicas;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getAvailableReplicas() {
+        return availableReplicas;
+    }
+
+    /**
+     *
+     * @return replicas still running an older pod template
+     */
+    public int getOldReplicas() {
+        return oldReplicas;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     *
+     * @return true once the rollout has exceeded progressDeadlineSeconds
+     */
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    /**
+     *
+     * @return the Progressing condition's message, if any
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "RolloutProgress: " + namespace + "/" + name
+                + ", generation=" + observedGeneration + "/" + generation
+                + ", desired=" + desiredReplicas
+                + ", updated=" + updatedReplicas
+                + ", ready=" + readyReplicas
+                + ", available=" + availableReplicas
+                + ", old=" + oldReplicas
+                + ", complete=" + complete
+                + ", stalled=" + stalled;
+    }
+}
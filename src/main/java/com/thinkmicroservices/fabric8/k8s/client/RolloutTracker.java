@@ -0,0 +1,120 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows deployment rollouts without blocking a thread per rollout. Every
+ * tracked rollout in a namespace rides the deployment watch shared through
+ * a {@link WatchDispatcher}. Each event that changes the replica counts is
+ * reported as a {@link RolloutProgress}, and the rollout's future completes
+ * when it finishes, stalls or times out.
+ *
+ * @author cwoodward
+ */
+public class RolloutTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(RolloutTracker.class);
+
+    private final WatchDispatcher<Deployment> deploymentWatches;
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     *
+     * @param deploymentWatches
+     */
+    public RolloutTracker(WatchDispatcher<Deployment> deploymentWatches) {
+        this.deploymentWatches = deploymentWatches;
+    }
+
+    /**
+     * Tracks a rollout. Progress callbacks run on the watch thread and must
+     * return quickly. The future fails with a TimeoutException on timeout
+     * and with a KubernetesClientException if the rollout exceeds its
+     * progressDeadlineSeconds or the deployment is deleted.
+     *
+     * @param namespace
+     * @param deploymentName
+     * @param minGeneration the generation returned by the update that
+     * started the rollout, so an earlier finished rollout is not mistaken for
+     * this one; 0 to accept any
+     * @param progressListener may be null
+     * @param timeoutMillis
+     * @return
+     */
+    public CompletableFuture<Deployment> track(String namespace, String deploymentName, long minGeneration,
+            Consumer<RolloutProgress> progressListener, long timeoutMillis) {
+        AtomicReference<RolloutProgress> last = new AtomicReference<>();
+        activeCount.incrementAndGet();
+        CompletableFuture<Deployment> future = deploymentWatches.waitFor(namespace, deploymentName, deployment -> {
+            RolloutProgress progress = RolloutProgress.of(deployment);
+            RolloutProgress previous = last.getAndSet(progress);
+            if (progressListener != null && progress.differsFrom(previous)) {
+                try {
+                    progressListener.accept(progress);
+                } catch (RuntimeException e) {
+                    logger.warn("rollout listener failed for {}/{}", namespace, deploymentName, e);
+                }
+            }
+            if (progress.getGeneration() < minGeneration) {
+                return false;
+            }
+            if (progress.isStalled()) {
+                throw new KubernetesClientException("rollout of " + namespace + "/" + deploymentName + " stalled: "
+                        + progress.getMessage());
+            }
+            return progress.isComplete();
+        }, timeoutMillis);
+        return future.whenComplete((deployment, error) -> {
+            activeCount.decrementAndGet();
+            if (error == null) {
+                completedCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     *
+     * @return rollouts being tracked
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     *
+     * @return rollouts that completed successfully
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     *
+     * @return rollouts that stalled, timed out or failed
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "RolloutTracker: active=" + activeCount.get()
+                + ", completed=" + completedCount.get()
+                + ", failed=" + failedCount.get();
+    }
+}
@@ -1,6 +1,7 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
 import io.fabric8.kubernetes.api.model.Secret;
 import io.fabric8.kubernetes.api.model.SecretBuilder;
 import io.fabric8.kubernetes.api.model.SecretList;
@@ -8,7 +9,15 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.internal.SerializationUtils;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  *
@@ -34,6 +43,15 @@ public class SecretHelper {
         return client.secrets().inAnyNamespace().list();
     }
 
+    /**
+     *
+     * @param pageSize
+     * @return
+     */
+    public Stream<Secret> streamAllSecrets(int pageSize) {
+        return PagedList.stream(client.secrets().inAnyNamespace(), pageSize);
+    }
+
     /**
      *
      * @param namespace
@@ -43,6 +61,16 @@ public class SecretHelper {
         return client.secrets().inNamespace(namespace).list();
     }
 
+    /**
+     *
+     * @param namespace
+     * @param pageSize
+     * @return
+     */
+    public Stream<Secret> streamAllSecretsInNamespace(String namespace, int pageSize) {
+        return PagedList.stream(client.secrets().inNamespace(namespace), pageSize);
+    }
+
     /**
      *
      * @param namespace
@@ -81,6 +109,60 @@ public class SecretHelper {
         return client.secrets().inNamespace(namespace).createOrReplace(updatedSecret);
     }
 
+    /**
+     * Applies secrets as described on {@link ResourceApplier}. stringData is
+     * folded into data first, since the server only ever returns data.
+     *
+     * @param namespace
+     * @param secrets
+     * @return created, patched and skipped counts for the batch
+     */
+    public ApplyReport<Secret> applySecrets(String namespace, Collection<Secret> secrets) {
+        List<Secret> normalized = new ArrayList<>(secrets.size());
+        for (Secret secret : secrets) {
+            normalized.add(withEncodedStringData(secret));
+        }
+        return ResourceApplier.apply(namespace, client.secrets().inNamespace(namespace), normalized, null);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param secretName
+     * @param patch
+     * @return
+     */
+    public Secret patchSecret(String namespace, String secretName, ResourcePatch patch) {
+        return ResourcePatcher.patch(client.secrets().inNamespace(namespace).withName(secretName), patch);
+    }
+
+    /**
+     * Sets or removes individual data keys with one merge patch, leaving the
+     * other keys untouched.
+     *
+     * @param namespace
+     * @param secretName
+     * @param data base64 encoded values to set; a null value removes the key
+     * @return
+     */
+    public Secret patchSecretData(String namespace, String secretName, Map<String, String> data) {
+        return patchSecret(namespace, secretName, ResourcePatch.jsonMerge(Collections.singletonMap("data", data)));
+    }
+
+    private static Secret withEncodedStringData(Secret secret) {
+        if (secret.getStringData() == null || secret.getStringData().isEmpty()) {
+            return secret;
+        }
+        Map<String, String> data = new HashMap<>();
+        if (secret.getData() != null) {
+            data.putAll(secret.getData());
+        }
+        for (Map.Entry<String, String> entry : secret.getStringData().entrySet()) {
+            data.put(entry.getKey(), Base64.getEncoder().encodeToString(entry.getValue().getBytes(StandardCharsets.UTF_8)));
+        }
+        return new SecretBuilder(secret).withData(data).withStringData(null).build();
+    }
+
     /**
      *
      * @param namespace
@@ -108,6 +190,34 @@ public class SecretHelper {
         return client.secrets().inNamespace(namespace).withName(secretName).delete();
     }
 
+    /**
+     * Deletes every object carrying the labels with a single deletecollection
+     * request.
+     *
+     * @param namespace
+     * @param labelMap
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteSecretsInNamespaceWithLabels(String namespace, Map<String, String> labelMap,
+            DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return CollectionDeleter.deleteCollection(client, client.secrets().inNamespace(namespace), labelMap, propagationPolicy, gracePeriodSeconds);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteAllSecretsInNamespace(String namespace, DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return deleteSecretsInNamespaceWithLabels(namespace, Collections.emptyMap(), propagationPolicy, gracePeriodSeconds);
+    }
+
     /**
      *
      * @param filename
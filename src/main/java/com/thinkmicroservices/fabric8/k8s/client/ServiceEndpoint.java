@@ -0,0 +1,156 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.Objects;
+
+/**
+ * One address/port pair backing a Service, as reported by its Endpoints or
+ * EndpointSlices.
+ *
+ * @author cwoodward
+ */
+public final class ServiceEndpoint {
+
+    private final String ip;
+    private final int port;
+    private final String portName;
+    private final String protocol;
+    private final boolean ready;
+    private final String nodeName;
+    private final String zone;
+    private final String podName;
+    private final String address;
+
+    /**
+     *
+     * @param ip
+     * @param port
+     * @param portName
+     * @param protocol
+     * @param ready
+     * @param nodeName
+     * @param zone null when the source does not report zones
+     * @param podName null when the endpoint is not a pod
+     */
+    public ServiceEndpoint(String ip, int port, String portName, String protocol, boolean ready,
+            String nodeName, String zone, String podName) {
+        this.ip = ip;
+        this.port = port;
+        this.portName = portName;
+        this.protocol = protocol;
+        this.ready = ready;
+        this.nodeName = nodeName;
+        this.zone = zone;
+        this.podName = podName;
+        // built once so callers on the request path do not concatenate
+        this.address = ip.indexOf(':') >= 0 ? "[" + ip + "]:" + port : ip + ":" + port;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getIp() {
+        return ip;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getPortName() {
+        return portName;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getZone() {
+        return zone;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getPodName() {
+        return podName;
+    }
+
+    /**
+     *
+     * @return host:port, with IPv6 addresses in brackets
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ServiceEndpoint)) {
+            return false;
+        }
+        ServiceEndpoint other = (ServiceEndpoint) obj;
+        return port == other.port
+                && ready == other.ready
+                && ip.equals(other.ip)
+                && Objects.equals(portName, other.portName)
+                && Objects.equals(protocol, other.protocol)
+                && Objects.equals(nodeName, other.nodeName)
+                && Objects.equals(zone, other.zone)
+                && Objects.equals(podName, other.podName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ip, port, portName, protocol, ready, nodeName, zone, podName);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "ServiceEndpoint: " + address
+                + ", portName=" + portName
+                + ", ready=" + ready
+                + ", node=" + nodeName
+                + ", zone=" + zone
+                + ", pod=" + podName;
+    }
+}
@@ -0,0 +1,103 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the endpoints of one Service. A new snapshot is
+ * built for every change, so a reader holding one always sees a consistent
+ * set.
+ *
+ * @author cwoodward
+ */
+public final class ServiceEndpoints {
+
+    private final String namespace;
+    private final String serviceName;
+    private final List<ServiceEndpoint> endpoints;
+    private final List<ServiceEndpoint> readyEndpoints;
+    private final long refreshCount;
+    private final long updatedMillis;
+
+    /**
+     *
+     * @param namespace
+     * @param serviceName
+     * @param endpoints
+     * @param refreshCount
+     */
+    ServiceEndpoints(String namespace, String serviceName, List<ServiceEndpoint> endpoints, long refreshCount) {
+        this.namespace = namespace;
+        this.serviceName = serviceName;
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        List<ServiceEndpoint> ready = new ArrayList<>(endpoints.size());
+        for (ServiceEndpoint endpoint : endpoints) {
+            if (endpoint.isReady()) {
+                ready.add(endpoint);
+            }
+        }
+        this.readyEndpoints = Collections.unmodifiableList(ready);
+        this.refreshCount = refreshCount;
+        this.updatedMillis = System.currentTimeMillis();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     *
+     * @return ready and not-ready endpoints
+     */
+    public List<ServiceEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<ServiceEndpoint> getReadyEndpoints() {
+        return readyEndpoints;
+    }
+
+    /**
+     *
+     * @return how many times this service's entry has been rebuilt
+     */
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getUpdatedMillis() {
+        return updatedMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "ServiceEndpoints: " + namespace + "/" + serviceName
+                + ", endpoints=" + endpoints.size()
+                + ", ready=" + readyEndpoints.size()
+                + ", refreshes=" + refreshCount;
+    }
+}
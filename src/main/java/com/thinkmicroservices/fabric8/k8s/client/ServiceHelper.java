@@ -1,6 +1,8 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
+import io.fabric8.kubernetes.api.model.Endpoints;
 import io.fabric8.kubernetes.api.model.IntOrString;
 import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.kubernetes.api.model.ServiceBuilder;
@@ -9,7 +11,11 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.internal.SerializationUtils;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  *
@@ -18,6 +24,7 @@ import java.util.Collections;
 public class ServiceHelper {
 
     private KubernetesClient client;
+    private volatile EndpointResolver endpointResolver;
 
     /**
      *
@@ -27,6 +34,77 @@ public class ServiceHelper {
         this.client = client;
     }
 
+    /**
+     * Starts an in-memory endpoint map for every service, kept current by an
+     * informer, which getReadyEndpoints then answers from.
+     *
+     * @param source
+     * @param resyncPeriodMillis
+     * @return
+     */
+    public synchronized EndpointResolver enableEndpointResolver(EndpointResolver.Source source, long resyncPeriodMillis) {
+        if (endpointResolver == null) {
+            endpointResolver = EndpointResolver.start(client, source, resyncPeriodMillis);
+        }
+        return endpointResolver;
+    }
+
+    /**
+     *
+     */
+    public synchronized void disableEndpointResolver() {
+        if (endpointResolver != null) {
+            endpointResolver.close();
+            endpointResolver = null;
+        }
+    }
+
+    /**
+     *
+     * @return the resolver, or null if it is not enabled
+     */
+    public EndpointResolver getEndpointResolver() {
+        return endpointResolver;
+    }
+
+    /**
+     * Returns the ready endpoints of a service from the resolver when it is
+     * enabled, otherwise from a single Endpoints read.
+     *
+     * @param namespace
+     * @param serviceName
+     * @return
+     */
+    public List<ServiceEndpoint> getReadyEndpoints(String namespace, String serviceName) {
+        EndpointResolver resolver = endpointResolver;
+        if (resolver != null) {
+            return resolver.getReadyEndpoints(namespace, serviceName);
+        }
+        Endpoints endpoints = client.endpoints().inNamespace(namespace).withName(serviceName).get();
+        if (endpoints == null) {
+            return Collections.emptyList();
+        }
+        return new ServiceEndpoints(namespace, serviceName, EndpointResolver.fromEndpoints(endpoints), 0).getReadyEndpoints();
+    }
+
+    /**
+     * Creates a client-side balancer over the ready endpoints of a service.
+     * The endpoint resolver must be enabled; the balancer follows its
+     * updates until closed.
+     *
+     * @param namespace
+     * @param serviceName
+     * @param policy e.g. {@link ServiceLoadBalancer#leastOutstanding()}
+     * @return
+     */
+    public ServiceLoadBalancer newLoadBalancer(String namespace, String serviceName, ServiceLoadBalancer.Policy policy) {
+        EndpointResolver resolver = endpointResolver;
+        if (resolver == null) {
+            throw new IllegalStateException("the endpoint resolver is not enabled");
+        }
+        return new ServiceLoadBalancer(resolver, namespace, serviceName, policy);
+    }
+
     /**
      *
      * @param namespace
@@ -45,6 +123,15 @@ public class ServiceHelper {
         return client.services().inAnyNamespace().list();
     }
 
+    /**
+     *
+     * @param pageSize
+     * @return
+     */
+    public Stream<Service> streamAllServices(int pageSize) {
+        return PagedList.stream(client.services().inAnyNamespace(), pageSize);
+    }
+
     /**
      *
      * @param namespace
@@ -54,6 +141,16 @@ public class ServiceHelper {
         return client.services().inNamespace(namespace).list();
     }
 
+    /**
+     *
+     * @param namespace
+     * @param pageSize
+     * @return
+     */
+    public Stream<Service> streamAllServicesInNamespace(String namespace, int pageSize) {
+        return PagedList.stream(client.services().inNamespace(namespace), pageSize);
+    }
+
    /**
     * 
     * @param serviceNamespace
@@ -99,6 +196,28 @@ public class ServiceHelper {
         return client.services().inNamespace(namespace).createOrReplace(newService);
     }
 
+    /**
+     * Applies services as described on {@link ResourceApplier}.
+     *
+     * @param namespace
+     * @param services
+     * @return created, patched and skipped counts for the batch
+     */
+    public ApplyReport<Service> applyServices(String namespace, Collection<Service> services) {
+        return ResourceApplier.apply(namespace, client.services().inNamespace(namespace), services, null);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param serviceName
+     * @param patch
+     * @return
+     */
+    public Service patchService(String namespace, String serviceName, ResourcePatch patch) {
+        return ResourcePatcher.patch(client.services().inNamespace(namespace).withName(serviceName), patch);
+    }
+
     /**
      *
      * @param namespace
@@ -126,6 +245,34 @@ public class ServiceHelper {
         return client.services().inNamespace(namespace).withName(serviceName).delete();
     }
 
+    /**
+     * Deletes every object carrying the labels with a single deletecollection
+     * request.
+     *
+     * @param namespace
+     * @param labelMap
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteServicesInNamespaceWithLabels(String namespace, Map<String, String> labelMap,
+            DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return CollectionDeleter.deleteCollection(client, client.services().inNamespace(namespace), labelMap, propagationPolicy, gracePeriodSeconds);
+    }
+
+    /**
+     *
+     * @param namespace
+     * @param propagationPolicy null for the server default
+     * @param gracePeriodSeconds null for the default grace period
+     * @return the number of objects deleted, or -1 if the server did not
+     * report them
+     */
+    public int deleteAllServicesInNamespace(String namespace, DeletionPropagation propagationPolicy, Long gracePeriodSeconds) {
+        return deleteServicesInNamespaceWithLabels(namespace, Collections.emptyMap(), propagationPolicy, gracePeriodSeconds);
+    }
+
     /**
      *
      * @param filename
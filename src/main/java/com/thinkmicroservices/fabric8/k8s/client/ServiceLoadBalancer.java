@@ -0,0 +1,360 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Picks a ready backend of one Service on the client, bypassing kube-proxy.
+ * The backends live in an immutable {@link Backends} snapshot that is
+ * swapped by a resolver listener on every endpoint change, so request
+ * threads never lock: a pick is a volatile read plus the policy's choice.
+ *
+ * @author cwoodward
+ */
+public class ServiceLoadBalancer implements AutoCloseable {
+
+    private final EndpointResolver resolver;
+    private final String namespace;
+    private final String serviceName;
+    private final Policy policy;
+    private final Map<String, AtomicInteger> outstanding = new ConcurrentHashMap<>();
+    private final AtomicLong updateCount = new AtomicLong();
+    private final Consumer<ServiceEndpoints> listener = this::onEndpoints;
+    private volatile Backends backends;
+
+    /**
+     *
+     * @param resolver
+     * @param namespace
+     * @param serviceName
+     * @param policy
+     */
+    public ServiceLoadBalancer(EndpointResolver resolver, String namespace, String serviceName, Policy policy) {
+        this.resolver = resolver;
+        this.namespace = namespace;
+        this.serviceName = serviceName;
+        this.policy = policy;
+        resolver.addListener(listener);
+        rebuild();
+    }
+
+    /**
+     * Picks a backend and counts it as outstanding until
+     * {@link #release(ServiceEndpoint)} is called.
+     *
+     * @return the chosen endpoint, or null if the service has no ready
+     * endpoints
+     */
+    public ServiceEndpoint acquire() {
+        Backends current = backends;
+        if (current.size() == 0) {
+            return null;
+        }
+        int index = current.size() == 1 ? 0 : policy.choose(current);
+        current.outstanding[index].incrementAndGet();
+        return current.endpoints[index];
+    }
+
+    /**
+     * Counters never drop below zero, so a release racing an endpoint that
+     * left and came back cannot make a backend look less loaded than idle.
+     *
+     * @param endpoint an endpoint returned by {@link #acquire()}
+     */
+    public void release(ServiceEndpoint endpoint) {
+        AtomicInteger counter = outstanding.get(endpoint.getAddress());
+        if (counter != null) {
+            counter.getAndUpdate(count -> count > 0 ? count - 1 : 0);
+        }
+    }
+
+    /**
+     *
+     * @param endpoint
+     * @return requests acquired but not yet released against the endpoint
+     */
+    public int getOutstanding(ServiceEndpoint endpoint) {
+        AtomicInteger counter = outstanding.get(endpoint.getAddress());
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getBackendCount() {
+        return backends.size();
+    }
+
+    /**
+     *
+     * @return how many endpoint changes have been applied
+     */
+    public long getUpdateCount() {
+        return updateCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public void close() {
+        resolver.removeListener(listener);
+    }
+
+    private void onEndpoints(ServiceEndpoints changed) {
+        if (serviceName.equals(changed.getServiceName()) && namespace.equals(changed.getNamespace())) {
+            rebuild();
+        }
+    }
+
+    // always reads the resolver's latest snapshot, so a late rebuild cannot install stale backends
+    private synchronized void rebuild() {
+        ServiceEndpoints current = resolver.getEndpoints(namespace, serviceName);
+        List<ServiceEndpoint> ready = current == null ? Collections.<ServiceEndpoint>emptyList() : current.getReadyEndpoints();
+        ServiceEndpoint[] endpoints = ready.toArray(new ServiceEndpoint[0]);
+        AtomicInteger[] counters = new AtomicInteger[endpoints.length];
+        int[] cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            // counters follow an address across snapshots so in-flight releases still land
+            counters[i] = outstanding.computeIfAbsent(endpoints[i].getAddress(), address -> new AtomicInteger());
+            total += Math.max(0, policy.weight(endpoints[i]));
+            cumulativeWeights[i] = total;
+        }
+        backends = new Backends(endpoints, counters, cumulativeWeights);
+        // a removed address keeps its counter while requests are in flight, so it resumes where it was if it returns
+        Set<String> live = addressesOf(endpoints);
+        outstanding.entrySet().removeIf(entry -> !live.contains(entry.getKey()) && entry.getValue().get() == 0);
+        updateCount.incrementAndGet();
+    }
+
+    private static Set<String> addressesOf(ServiceEndpoint[] endpoints) {
+        Set<String> addresses = new HashSet<>();
+        for (ServiceEndpoint endpoint : endpoints) {
+            addresses.add(endpoint.getAddress());
+        }
+        return addresses;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "ServiceLoadBalancer: " + namespace + "/" + serviceName
+                + ", policy=" + policy
+                + ", backends=" + backends.size()
+                + ", updates=" + updateCount.get();
+    }
+
+    /**
+     *
+     * @return a policy cycling through the backends in order
+     */
+    public static Policy roundRobin() {
+        return new RoundRobin();
+    }
+
+    /**
+     *
+     * @return a policy sampling two backends and taking the one with fewer
+     * outstanding requests
+     */
+    public static Policy leastOutstanding() {
+        return new LeastOutstanding();
+    }
+
+    /**
+     *
+     * @param zoneWeights relative weight of each zone's endpoints
+     * @param defaultWeight weight of endpoints in unlisted or unknown zones
+     * @return a policy choosing endpoints at random in proportion to their
+     * zone weight
+     */
+    public static Policy zoneWeighted(Map<String, Integer> zoneWeights, int defaultWeight) {
+        return new ZoneWeighted(zoneWeights, defaultWeight);
+    }
+
+    /**
+     * Chooses one of the current backends. Implementations are called
+     * concurrently from request threads and must not block.
+     */
+    public interface Policy {
+
+        /**
+         *
+         * @param backends never empty
+         * @return an index into the backends
+         */
+        int choose(Backends backends);
+
+        /**
+         * Weight of an endpoint, read once per endpoint change and
+         * exposed through {@link Backends#getCumulativeWeight(int)}.
+         *
+         * @param endpoint
+         * @return
+         */
+        default int weight(ServiceEndpoint endpoint) {
+            return 1;
+        }
+    }
+
+    /**
+     * Immutable view of the ready backends at one point in time.
+     */
+    public static final class Backends {
+
+        private final ServiceEndpoint[] endpoints;
+        private final AtomicInteger[] outstanding;
+        private final int[] cumulativeWeights;
+
+        private Backends(ServiceEndpoint[] endpoints, AtomicInteger[] outstanding, int[] cumulativeWeights) {
+            this.endpoints = endpoints;
+            this.outstanding = outstanding;
+            this.cumulativeWeights = cumulativeWeights;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public int size() {
+            return endpoints.length;
+        }
+
+        /**
+         *
+         * @param index
+         * @return
+         */
+        public ServiceEndpoint get(int index) {
+            return endpoints[index];
+        }
+
+        /**
+         *
+         * @param index
+         * @return
+         */
+        public int getOutstanding(int index) {
+            return outstanding[index].get();
+        }
+
+        /**
+         *
+         * @param index
+         * @return the sum of the weights of backends 0 to index
+         */
+        public int getCumulativeWeight(int index) {
+            return cumulativeWeights[index];
+        }
+
+        /**
+         *
+         * @return
+         */
+        public int getTotalWeight() {
+            return cumulativeWeights.length == 0 ? 0 : cumulativeWeights[cumulativeWeights.length - 1];
+        }
+
+        /**
+         *
+         * @param weight a value in [0, total weight)
+         * @return the backend whose weight range holds the value
+         */
+        public int indexOfWeight(int weight) {
+            int low = 0;
+            int high = cumulativeWeights.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeWeights[mid] > weight) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class RoundRobin implements Policy {
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public int choose(Backends backends) {
+            return Math.floorMod(next.getAndIncrement(), backends.size());
+        }
+
+        public String toString() {
+            return "round-robin";
+        }
+    }
+
+    private static final class LeastOutstanding implements Policy {
+
+        @Override
+        public int choose(Backends backends) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(backends.size());
+            int second = random.nextInt(backends.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            return backends.getOutstanding(second) < backends.getOutstanding(first) ? second : first;
+        }
+
+        public String toString() {
+            return "least-outstanding";
+        }
+    }
+
+    private static final class ZoneWeighted implements Policy {
+
+        private final Map<String, Integer> zoneWeights;
+        private final int defaultWeight;
+
+        private ZoneWeighted(Map<String, Integer> zoneWeights, int defaultWeight) {
+            if (defaultWeight < 0) {
+                throw new IllegalArgumentException("defaultWeight must not be negative");
+            }
+            this.zoneWeights = Map.copyOf(zoneWeights);
+            this.defaultWeight = defaultWeight;
+        }
+
+        @Override
+        public int weight(ServiceEndpoint endpoint) {
+            Integer weight = endpoint.getZone() == null ? null : zoneWeights.get(endpoint.getZone());
+            return weight == null ? defaultWeight : weight;
+        }
+
+        @Override
+        public int choose(Backends backends) {
+            int total = backends.getTotalWeight();
+            if (total <= 0) {
+                // every zone weighted out; spread evenly rather than fail
+                return ThreadLocalRandom.current().nextInt(backends.size());
+            }
+            return backends.indexOfWeight(ThreadLocalRandom.current().nextInt(total));
+        }
+
+        public String toString() {
+            return "zone-weighted " + zoneWeights;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits for objects of one kind to reach a condition. All waits in a
+ * namespace share a single watch, which is opened by the first wait and
+ * closed when the last one finishes, so thousands of concurrent waits cost
+ * one connection per namespace instead of one poll loop each.
+ *
+ * Futures are completed on the watch thread; use the *Async variants of
+ * CompletableFuture for slow follow-up work.
+ *
+ * @author cwoodward
+ * @param <T>
+ */
+public class WatchDispatcher<T extends HasMetadata> {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchDispatcher.class);
+
+    // shared by every dispatcher: timeouts and watch restarts are short tasks
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "watch-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Function<String, NonNamespaceOperation<T, ? extends KubernetesResourceList<T>, ? extends Resource<T>>> operations;
+    private final Map<String, NamespaceWatch> namespaceWatches = new HashMap<>();
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong watchStartCount = new AtomicLong();
+
+    /**
+     *
+     * @param operations maps a namespace to the operation for the kind,
+     * e.g. namespace -> client.pods().inNamespace(namespace)
+     */
+    public WatchDispatcher(Function<String, NonNamespaceOperation<T, ? extends KubernetesResourceList<T>, ? extends Resource<T>>> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Completes with the object once the condition holds. The object is read
+     * once; later changes arrive through the namespace watch, which starts
+     * from the resourceVersion of that read so no change can be missed. If
+     * the watch was already opened from an earlier wait's read, which can be
+     * newer than a change to this object, the object is read once more after
+     * the watch is running.
+     * The future fails with a TimeoutException when the timeout expires and
+     * with a KubernetesClientException if the object is deleted.
+     *
+     * @param namespace
+     * @param name
+     * @param condition
+     * @param timeoutMillis
+     * @return
+     */
+    public CompletableFuture<T> waitFor(String namespace, String name, Predicate<T> condition, long timeoutMillis) {
+        Waiter waiter = new Waiter(name, condition);
+        NamespaceWatch namespaceWatch;
+        synchronized (namespaceWatches) {
+            namespaceWatch = namespaceWatches.computeIfAbsent(namespace, NamespaceWatch::new);
+            // registered before the read so a change between the read and the check is still delivered
+            namespaceWatch.add(waiter);
+        }
+        waiter.future.whenComplete((result, error) -> remove(namespaceWatch, waiter));
+        try {
+            long readNanos = System.nanoTime();
+            T current = operations.apply(namespace).withName(name).get();
+            if (current != null) {
+                waiter.offer(current);
+            }
+            if (!waiter.future.isDone() && !namespaceWatch.ensureStarted(current, readNanos)) {
+                T latest = operations.apply(namespace).withName(name).get();
+                if (latest != null) {
+                    waiter.offer(latest);
+                }
+            }
+        } catch (RuntimeException e) {
+            waiter.future.completeExceptionally(e);
+            return waiter.future;
+        }
+        if (!waiter.future.isDone()) {
+            waiter.timeout = SCHEDULER.schedule(() -> waiter.future.completeExceptionally(
+                    new TimeoutException("timed out after " + timeoutMillis + "ms waiting for " + namespace + "/" + name)),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return waiter.future;
+    }
+
+    /**
+     *
+     * @return the number of namespaces with an open watch
+     */
+    public int getActiveWatchCount() {
+        synchronized (namespaceWatches) {
+            int active = 0;
+            for (NamespaceWatch namespaceWatch : namespaceWatches.values()) {
+                if (namespaceWatch.isRunning()) {
+                    active++;
+                }
+            }
+            return active;
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getPendingWaitCount() {
+        synchronized (namespaceWatches) {
+            int pending = 0;
+            for (NamespaceWatch namespaceWatch : namespaceWatches.values()) {
+                pending += namespaceWatch.size();
+            }
+            return pending;
+        }
+    }
+
+    /**
+     *
+     * @return the number of watch events received
+     */
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    /**
+     *
+     * @return the number of watches opened, including restarts
+     */
+    public long getWatchStartCount() {
+        return watchStartCount.get();
+    }
+
+    private void remove(NamespaceWatch namespaceWatch, Waiter waiter) {
+        if (waiter.timeout != null) {
+            waiter.timeout.cancel(false);
+        }
+        synchronized (namespaceWatches) {
+            namespaceWatch.remove(waiter);
+            if (namespaceWatch.size() == 0) {
+                namespaceWatches.remove(namespaceWatch.namespace, namespaceWatch);
+                namespaceWatch.stop();
+            }
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toString() {
+        return "WatchDispatcher: watches=" + getActiveWatchCount()
+                + ", pending=" + getPendingWaitCount()
+                + ", events=" + eventCount.get()
+                + ", watchStarts=" + watchStartCount.get();
+    }
+
+    /**
+     * One pending wait.
+     */
+    private class Waiter {
+
+        private final String name;
+        private final Predicate<T> condition;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeout;
+
+        private Waiter(String name, Predicate<T> condition) {
+            this.name = name;
+            this.condition = condition;
+        }
+
+        private void offer(T obj) {
+            try {
+                if (condition.test(obj)) {
+                    future.complete(obj);
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * The shared watch for one namespace and the waits registered on it.
+     */
+    private class NamespaceWatch implements Watcher<T> {
+
+        private final String namespace;
+        // guarded by the dispatcher's namespaceWatches lock
+        private final Map<String, List<Waiter>> waiters = new HashMap<>();
+        private int size;
+        private Watch watch;
+        private long watchStartNanos;
+        private volatile String lastResourceVersion;
+        private volatile boolean stopped;
+
+        private NamespaceWatch(String namespace) {
+            this.namespace = namespace;
+        }
+
+        private void add(Waiter waiter) {
+            waiters.computeIfAbsent(waiter.name, name -> new ArrayList<>()).add(waiter);
+            size++;
+        }
+
+        private void remove(Waiter waiter) {
+            List<Waiter> named = waiters.get(waiter.name);
+            if (named != null && named.remove(waiter)) {
+                size--;
+                if (named.isEmpty()) {
+                    waiters.remove(waiter.name);
+                }
+            }
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private synchronized boolean isRunning() {
+            return watch != null;
+        }
+
+        /**
+         * Opens the watch from the read if it is not running yet.
+         *
+         * @return false if the read began before the running watch was
+         * opened, so changes between the read and the watch's start version
+         * may not be delivered and the caller has to read again
+         */
+        private synchronized boolean ensureStarted(T current, long readNanos) {
+            if (stopped) {
+                return true;
+            }
+            if (watch != null) {
+                return readNanos - watchStartNanos > 0;
+            }
+            String resourceVersion = current == null ? null : current.getMetadata().getResourceVersion();
+            if (resourceVersion == null) {
+                // nothing to start from yet: take the collection's version so a later create is not missed
+                resourceVersion = operations.apply(namespace).list(new ListOptionsBuilder().withLimit(1L).build())
+                        .getMetadata().getResourceVersion();
+            }
+            start(resourceVersion);
+            return true;
+        }
+
+        private synchronized void start(String resourceVersion) {
+            watchStartNanos = System.nanoTime();
+            watch = operations.apply(namespace).watch(new ListOptionsBuilder()
+                    .withResourceVersion(resourceVersion == null || resourceVersion.isEmpty() ? null : resourceVersion)
+                    .build(), this);
+            watchStartCount.incrementAndGet();
+        }
+
+        private synchronized void stop() {
+            stopped = true;
+            if (watch != null) {
+                watch.close();
+                watch = null;
+            }
+        }
+
+        private List<Waiter> waitersFor(String name) {
+            synchronized (namespaceWatches) {
+                List<Waiter> named = waiters.get(name);
+                return named == null ? new ArrayList<>() : new ArrayList<>(named);
+            }
+        }
+
+        @Override
+        public void eventReceived(Action action, T obj) {
+            eventCount.incrementAndGet();
+            lastResourceVersion = obj.getMetadata().getResourceVersion();
+            if (action == Action.ERROR) {
+                return;
+            }
+            for (Waiter waiter : waitersFor(obj.getMetadata().getName())) {
+                if (action == Action.DELETED) {
+                    waiter.future.completeExceptionally(new KubernetesClientException(
+                            namespace + "/" + waiter.name + " was deleted while waiting"));
+                } else {
+                    waiter.offer(obj);
+                }
+            }
+        }
+
+        @Override
+        public void onClose(WatcherException cause) {
+            synchronized (this) {
+                watch = null;
+                if (stopped || cause == null) {
+                    return;
+                }
+            }
+            boolean gone = cause.isHttpGone();
+            logger.debug("watch for {} closed, restarting (gone={})", namespace, gone, cause);
+            SCHEDULER.execute(() -> restart(gone));
+        }
+
+        private void restart(boolean gone) {
+            try {
+                String resourceVersion = lastResourceVersion;
+                if (gone) {
+                    // our version has been compacted away: relist, re-check every wait, and watch from the list
+                    KubernetesResourceList<T> list = operations.apply(namespace).list();
+                    for (T obj : list.getItems()) {
+                        for (Waiter waiter : waitersFor(obj.getMetadata().getName())) {
+                            waiter.offer(obj);
+                        }
+                    }
+                    resourceVersion = list.getMetadata().getResourceVersion();
+                }
+                synchronized (this) {
+                    if (!stopped && watch == null) {
+                        start(resourceVersion);
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("unable to restart watch for {}", namespace, e);
+                failAll(e);
+            }
+        }
+
+        private void failAll(RuntimeException cause) {
+            List<Waiter> all = new ArrayList<>();
+            synchronized (namespaceWatches) {
+                for (List<Waiter> named : waiters.values()) {
+                    all.addAll(named);
+                }
+            }
+            for (Waiter waiter : all) {
+                waiter.future.completeExceptionally(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.RootPathsBuilder;
+import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJobBuilder;
+import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJobListBuilder;
+import io.fabric8.kubernetes.client.ConfigBuilder;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.Map;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+@EnableKubernetesMockClient
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ApiDiscoveryCacheTest {
+
+    static KubernetesClient client;
+    static KubernetesMockServer server;
+
+    private static final String DISCOVERY_TEST_NAMESPACE = "discovery-test-namespace";
+    private static final String DISCOVERY_TEST_CRONJOB = "discovered";
+    private static final String DISCOVERY_TEST_SCHEDULE = "*/5 * * * *";
+    private static final String[] DISCOVERY_V1_PATHS = {"/api", "/api/v1", "/apis", "/apis/apps/v1", "/apis/batch", "/apis/batch/v1", "/healthz"};
+    private static final String[] DISCOVERY_V1BETA1_PATHS = {"/api", "/api/v1", "/apis", "/apis/batch", "/apis/batch/v1beta1"};
+    private static final long DISCOVERY_SHORT_TTL_MILLIS = 1;
+    private static final long DISCOVERY_SYNC_TIMEOUT_MILLIS = 5000;
+    // the mock answers GET / itself, so each simulated cluster lives under its own path
+    private static final String DISCOVERY_V1_CLUSTER = "v1-cluster";
+    private static final String DISCOVERY_V1BETA1_CLUSTER = "v1beta1-cluster";
+    private static final String DISCOVERY_FLAKY_CLUSTER = "flaky-cluster";
+
+    @TempDir
+    static Path cacheDirectory;
+
+    /**
+     * Test of getGroupVersions method, of class ApiDiscoveryCache.
+     */
+    @Test
+    @DisplayName("served versions are discovered once and read back from disk")
+    @Order(1)
+    public void testDiscoveryPersisted() {
+        expectRootPaths(DISCOVERY_V1_CLUSTER, DISCOVERY_V1_PATHS);
+        Path file = cacheDirectory.resolve("discovery.json");
+        KubernetesClient cluster = clusterClient(DISCOVERY_V1_CLUSTER);
+        ApiDiscoveryCache discovery = new ApiDiscoveryCache(cluster, file, ApiDiscoveryCache.DEFAULT_TTL_MILLIS);
+        assertTrue(discovery.isServed("batch/v1"), "batch/v1 should be served");
+        assertTrue(discovery.isServed("v1"), "the core group should be served as v1");
+        assertFalse(discovery.isServed("batch/v1beta1"), "batch/v1beta1 should not be served");
+        assertEquals("batch/v1", discovery.selectVersion("batch", "v1", "v1beta1"), "batch/v1 should be preferred");
+        assertNull(discovery.selectVersion("batch", "v2"), "an unserved version should not be selected");
+        assertEquals(1, discovery.getDiscoveryCount(), "discovery should run once");
+        assertTrue(Files.exists(file), "the result should be written to disk");
+
+        ApiDiscoveryCache reader = new ApiDiscoveryCache(cluster, file, ApiDiscoveryCache.DEFAULT_TTL_MILLIS);
+        assertTrue(reader.isServed("apps/v1"), "the result should be read back");
+        assertEquals(0, reader.getDiscoveryCount(), "a fresh file should not be rediscovered");
+        assertEquals(discovery.getFetchedMillis(), reader.getFetchedMillis(), "the file should keep the discovery time");
+        cluster.close();
+    }
+
+    /**
+     * Test of the TTL and server check, of class ApiDiscoveryCache.
+     */
+    @Test
+    @DisplayName("stale and foreign cache files are rediscovered")
+    @Order(2)
+    public void testDiscoveryExpired() throws IOException, InterruptedException {
+        Path file = cacheDirectory.resolve("discovery.json");
+        Thread.sleep(DISCOVERY_SHORT_TTL_MILLIS + 10);
+        expectRootPaths(DISCOVERY_V1_CLUSTER, DISCOVERY_V1_PATHS);
+        try (KubernetesClient cluster = clusterClient(DISCOVERY_V1_CLUSTER)) {
+            ApiDiscoveryCache stale = new ApiDiscoveryCache(cluster, file, DISCOVERY_SHORT_TTL_MILLIS);
+            assertTrue(stale.isServed("batch/v1"), "a stale file should be rediscovered");
+            assertEquals(1, stale.getDiscoveryCount(), "a stale file should be rediscovered");
+        }
+
+        // the file now belongs to the v1 cluster
+        expectRootPaths(DISCOVERY_V1BETA1_CLUSTER, DISCOVERY_V1BETA1_PATHS);
+        try (KubernetesClient cluster = clusterClient(DISCOVERY_V1BETA1_CLUSTER)) {
+            ApiDiscoveryCache other = new ApiDiscoveryCache(cluster, file, ApiDiscoveryCache.DEFAULT_TTL_MILLIS);
+            assertEquals("batch/v1beta1", other.selectVersion("batch", "v1", "v1beta1"), "another server's file should be ignored");
+            assertEquals(1, other.getDiscoveryCount(), "another server's file should be rediscovered");
+        }
+
+        Path corrupt = cacheDirectory.resolve("corrupt.json");
+        Files.writeString(corrupt, "{\"server\":");
+        expectRootPaths(DISCOVERY_V1BETA1_CLUSTER, DISCOVERY_V1BETA1_PATHS);
+        try (KubernetesClient cluster = clusterClient(DISCOVERY_V1BETA1_CLUSTER)) {
+            ApiDiscoveryCache rewritten = new ApiDiscoveryCache(cluster, corrupt, ApiDiscoveryCache.DEFAULT_TTL_MILLIS);
+            assertTrue(rewritten.isServed("batch/v1beta1"), "an unreadable file should be rediscovered");
+            assertTrue(Files.readString(corrupt).contains("batch/v1beta1"), "an unreadable file should be rewritten");
+        }
+    }
+
+    /**
+     * Test of version selection, of class CronJobHelper.
+     */
+    @Test
+    @DisplayName("CronJobHelper uses the batch version the cluster serves")
+    @Order(3)
+    public void testCronJobVersionSelection() throws InterruptedException {
+        expectRootPaths(DISCOVERY_V1_CLUSTER, DISCOVERY_V1_PATHS);
+        server.expect().get().withPath(cronJobsPath(DISCOVERY_V1_CLUSTER, "batch/v1"))
+                .andReturn(200, new CronJobListBuilder().addNewItem().withApiVersion("batch/v1")
+                        .withNewMetadata().withName(DISCOVERY_TEST_CRONJOB).withNamespace(DISCOVERY_TEST_NAMESPACE).endMetadata()
+                        .endItem().build())
+                .always();
+        server.expect().post().withPath(cronJobsPath(DISCOVERY_V1_CLUSTER, "batch/v1"))
+                .andReturn(201, new CronJobBuilder().withApiVersion("batch/v1")
+                        .withNewMetadata().withName(DISCOVERY_TEST_CRONJOB).withNamespace(DISCOVERY_TEST_NAMESPACE).endMetadata()
+                        .build())
+                .once();
+        KubernetesClient v1Cluster = clusterClient(DISCOVERY_V1_CLUSTER);
+        CronJobHelper v1Helper = new CronJobHelper(v1Cluster, new ApiDiscoveryCache(v1Cluster, null, ApiDiscoveryCache.DEFAULT_TTL_MILLIS));
+        assertEquals("batch/v1", v1Helper.getCronJobApiVersion(), "batch/v1 should be selected");
+        assertEquals(1, v1Helper.getCronJobsInNamespace(DISCOVERY_TEST_NAMESPACE).getItems().size(), "the list should come from batch/v1");
+        assertEquals(1, v1Helper.getCronJobsInNamespace(DISCOVERY_TEST_NAMESPACE).getItems().size(), "the list should come from batch/v1");
+        v1Helper.createCronJob(DISCOVERY_TEST_NAMESPACE, DISCOVERY_TEST_CRONJOB, Map.of(), DISCOVERY_TEST_SCHEDULE,
+                DISCOVERY_TEST_CRONJOB, "busybox", new String[]{"date"}, RestartPolicy.NEVER);
+        assertTrue(server.getLastRequest().getBody().readUtf8().contains("\"apiVersion\":\"batch/v1\""),
+                "the created object should carry the selected version");
+        assertEquals(1, v1Helper.getDiscovery().getDiscoveryCount(), "the version should be selected once");
+
+        server.expect().get().withPath("/" + DISCOVERY_V1_CLUSTER + "/apis/batch/v1/cronjobs")
+                .andReturn(200, new CronJobListBuilder().withNewMetadata(null, null, "1", null)
+                        .addNewItem().withApiVersion("batch/v1")
+                        .withNewMetadata().withName(DISCOVERY_TEST_CRONJOB).withNamespace(DISCOVERY_TEST_NAMESPACE).endMetadata()
+                        .withNewSpec().withSchedule(DISCOVERY_TEST_SCHEDULE).endSpec()
+                        .endItem().build())
+                .always();
+        CronScheduleIndex index = v1Helper.enableScheduleIndex(ZoneOffset.UTC, 0);
+        try {
+            assertTrue(index.waitForSync(DISCOVERY_SYNC_TIMEOUT_MILLIS), "the schedule index did not sync");
+            // informer events are delivered after the sync
+            long deadline = System.currentTimeMillis() + DISCOVERY_SYNC_TIMEOUT_MILLIS;
+            while (index.getScheduleCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotNull(index.getSchedule(DISCOVERY_TEST_NAMESPACE, DISCOVERY_TEST_CRONJOB),
+                    "the schedule index should read batch/v1");
+        } finally {
+            v1Helper.disableScheduleIndex();
+        }
+        v1Cluster.close();
+
+        expectRootPaths(DISCOVERY_V1BETA1_CLUSTER, DISCOVERY_V1BETA1_PATHS);
+        server.expect().get().withPath(cronJobsPath(DISCOVERY_V1BETA1_CLUSTER, "batch/v1beta1"))
+                .andReturn(200, new CronJobListBuilder().build())
+                .always();
+        try (KubernetesClient v1beta1Cluster = clusterClient(DISCOVERY_V1BETA1_CLUSTER)) {
+            CronJobHelper v1beta1Helper = new CronJobHelper(v1beta1Cluster,
+                    new ApiDiscoveryCache(v1beta1Cluster, null, ApiDiscoveryCache.DEFAULT_TTL_MILLIS));
+            assertEquals("batch/v1beta1", v1beta1Helper.getCronJobApiVersion(), "batch/v1beta1 should be selected");
+            assertTrue(v1beta1Helper.getCronJobsInNamespace(DISCOVERY_TEST_NAMESPACE).getItems().isEmpty(),
+                    "the list should come from batch/v1beta1");
+        }
+    }
+
+    /**
+     * Test of the discovery fallback, of class CronJobHelper.
+     */
+    @Test
+    @DisplayName("a failed discovery falls back once and is retried")
+    @Order(4)
+    public void testCronJobVersionRetried() {
+        server.expect().get().withPath("/" + DISCOVERY_FLAKY_CLUSTER + "/").andReturn(500, "unavailable").once();
+        expectRootPaths(DISCOVERY_FLAKY_CLUSTER, DISCOVERY_V1_PATHS);
+        try (KubernetesClient cluster = clusterClient(DISCOVERY_FLAKY_CLUSTER)) {
+            CronJobHelper helper = new CronJobHelper(cluster, new ApiDiscoveryCache(cluster, null, ApiDiscoveryCache.DEFAULT_TTL_MILLIS));
+            assertEquals(CronJobHelper.CRON_JOB_MODEL_VERSION, helper.getCronJobApiVersion(), "a failed discovery should fall back");
+            assertEquals("batch/v1", helper.getCronJobApiVersion(), "the next call should discover again");
+            assertEquals("batch/v1", helper.getCronJobApiVersion(), "a successful selection should be kept");
+            assertEquals(2, helper.getDiscovery().getDiscoveryCount(), "only the failed discovery should be repeated");
+        }
+    }
+
+    private static KubernetesClient clusterClient(String cluster) {
+        return new DefaultKubernetesClient(new ConfigBuilder(client.getConfiguration())
+                .withMasterUrl(client.getMasterUrl().toString() + cluster + "/")
+                .build());
+    }
+
+    private static void expectRootPaths(String cluster, String... paths) {
+        server.expect().get().withPath("/" + cluster + "/").andReturn(200, new RootPathsBuilder().withPaths(paths).build()).once();
+    }
+
+    private static String cronJobsPath(String cluster, String apiVersion) {
+        return "/" + cluster + "/apis/" + apiVersion + "/namespaces/" + DISCOVERY_TEST_NAMESPACE + "/cronjobs";
+    }
+}
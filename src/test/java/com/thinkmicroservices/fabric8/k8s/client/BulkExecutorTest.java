@@ -0,0 +1,97 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+public class BulkExecutorTest {
+
+    private static final int BULK_TEST_ITEM_COUNT = 20;
+    private static final int BULK_TEST_CONCURRENCY = 4;
+    private static final double BULK_TEST_RATE = 100;
+    private static final long BULK_TEST_MIN_RATE_LIMITED_MILLIS = 150;
+
+    private static List<Integer> items() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < BULK_TEST_ITEM_COUNT; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    /**
+     * Test of execute method, of class BulkExecutor.
+     */
+    @Test
+    @DisplayName("results are reported in submission order and concurrency is bounded")
+    public void testExecute() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        BulkResult<Integer> result = new BulkExecutor(BULK_TEST_CONCURRENCY, 0).execute(items(), item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return item * 2;
+        });
+        System.out.println("bulk result:" + result);
+        assertEquals(BULK_TEST_ITEM_COUNT, result.getSuccessCount(), "every item should succeed");
+        assertTrue(maxInFlight.get() <= BULK_TEST_CONCURRENCY, "concurrency limit exceeded");
+        for (int i = 0; i < BULK_TEST_ITEM_COUNT; i++) {
+            assertEquals(i, result.getItems().get(i).getIndex(), "items should keep submission order");
+            assertEquals(i * 2, result.getResults().get(i), "result does not match");
+        }
+        assertTrue(result.getLatencyPercentileMillis(95) >= result.getLatencyPercentileMillis(50), "p95 should not be below p50");
+    }
+
+    /**
+     * Test of failure handling, of class BulkExecutor.
+     */
+    @Test
+    @DisplayName("a failing item does not stop the others")
+    public void testFailures() throws Exception {
+        BulkResult<Integer> result = new BulkExecutor(BULK_TEST_CONCURRENCY, 0).execute(items(), item -> {
+            if (item % 5 == 0) {
+                throw new IllegalStateException("item " + item);
+            }
+            return item;
+        });
+        assertEquals(BULK_TEST_ITEM_COUNT / 5, result.getFailureCount(), "failure count does not match");
+        assertEquals(BULK_TEST_ITEM_COUNT - BULK_TEST_ITEM_COUNT / 5, result.getSuccessCount(), "success count does not match");
+        for (BulkResult.Item<Integer> failure : result.getFailures()) {
+            assertEquals(0, failure.getIndex() % 5, "unexpected failed item");
+            assertNotNull(failure.getError(), "failure should carry its error");
+        }
+
+        BulkResult<Integer> errors = new BulkExecutor(BULK_TEST_CONCURRENCY, 0).execute(items(), item -> {
+            if (item == 0) {
+                throw new AssertionError("item " + item);
+            }
+            return item;
+        });
+        assertEquals(1, errors.getFailureCount(), "an Error should be recorded as a failure");
+        assertTrue(errors.getFailures().get(0).getError() instanceof AssertionError, "the failure should carry the Error");
+    }
+
+    /**
+     * Test of the rate limit, of class BulkExecutor.
+     */
+    @Test
+    @DisplayName("the rate limit spaces out requests")
+    public void testRateLimit() throws Exception {
+        BulkResult<Integer> result = new BulkExecutor(BULK_TEST_CONCURRENCY, BULK_TEST_RATE).execute(items(), item -> item);
+        assertTrue(result.getElapsedMillis() >= BULK_TEST_MIN_RATE_LIMITED_MILLIS,
+                "20 items at 100/s should take at least 150ms, took " + result.getElapsedMillis());
+        assertThrows(IllegalArgumentException.class, () -> new BulkExecutor(0, 0), "concurrency must be positive");
+    }
+}
@@ -0,0 +1,233 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+@EnableKubernetesMockClient(crud = true)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ClientUtilsTest {
+
+    private static final String CLIENT_TEST_NAMESPACE = "client-test-namespace";
+    private static final int BENCHMARK_ITERATIONS = 20;
+    private static final String CLIENT_TEST_TOKEN = "mock-token";
+    private static final String CLIENT_TEST_ROTATED_TOKEN = "rotated-token";
+    private static final long RELOAD_TIMEOUT_MILLIS = 15000;
+
+    static KubernetesClient client;
+    static KubernetesMockServer server;
+
+    private static Path kubeconfigPath;
+
+    @BeforeAll
+    public static void writeKubeconfig() throws IOException {
+        kubeconfigPath = Files.createTempFile("client-utils-test", ".kubeconfig");
+        Files.writeString(kubeconfigPath, kubeconfigFor(client.getMasterUrl().toString(), CLIENT_TEST_TOKEN));
+    }
+
+    @AfterAll
+    public static void deleteKubeconfig() throws IOException {
+        Files.deleteIfExists(kubeconfigPath);
+    }
+
+    static String kubeconfigFor(String server, String token) {
+        return "apiVersion: v1\n"
+                + "kind: Config\n"
+                + "clusters:\n"
+                + "- cluster:\n"
+                + "    insecure-skip-tls-verify: true\n"
+                + "    server: " + server + "\n"
+                + "  name: mock\n"
+                + "contexts:\n"
+                + "- context:\n"
+                + "    cluster: mock\n"
+                + "    namespace: " + CLIENT_TEST_NAMESPACE + "\n"
+                + "    user: mock-user\n"
+                + "  name: mock\n"
+                + "current-context: mock\n"
+                + "users:\n"
+                + "- name: mock-user\n"
+                + "  user:\n"
+                + "    token: " + token + "\n";
+    }
+
+    @Test
+    @DisplayName("shared instances reuse one connection pool")
+    @Order(1)
+    public void testSharedInstancesShareHttpClient() throws Exception {
+        KubernetesClient first = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults());
+        KubernetesClient second = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults());
+        try {
+            assertNotSame(first, second, "each caller should get its own handle");
+            assertSame(((ClientUtils.SharedKubernetesClient) first).getHttpClient().connectionPool(),
+                    ((ClientUtils.SharedKubernetesClient) second).getHttpClient().connectionPool(),
+                    "handles should share a connection pool");
+            assertEquals(1, ClientUtils.getSharedClientCount(), "only one shared client should be registered");
+            assertEquals(2, ClientUtils.getReferenceCount(first), "reference count should be 2");
+            assertNotNull(first.namespaces().list(), "shared client should reach the server");
+        } finally {
+            first.close();
+            first.close();
+            assertEquals(1, ClientUtils.getReferenceCount(second), "closing twice should release once");
+            second.close();
+        }
+        assertEquals(0, ClientUtils.getSharedClientCount(), "registry should be empty after the last release");
+    }
+
+    @Test
+    @DisplayName("different pool settings get different shared clients")
+    @Order(2)
+    public void testSettingsSelectSharedClient() throws Exception {
+        ClientPoolSettings http1Settings = ClientPoolSettings.defaults().withHttp2Enabled(false).withMaxRequestsPerHost(10);
+        KubernetesClient http2Client = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults());
+        KubernetesClient http1Client = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, http1Settings);
+        try {
+            assertEquals(2, ClientUtils.getSharedClientCount(), "settings should be part of the registry key");
+            assertEquals(10, http1Client.getConfiguration().getMaxConcurrentRequestsPerHost(), "max requests per host not applied");
+            assertTrue(http1Client.getConfiguration().isHttp2Disable(), "http2 should be disabled");
+        } finally {
+            http2Client.close();
+            http1Client.close();
+        }
+    }
+
+    @Test
+    @DisplayName("benchmark per-call client vs shared client first request")
+    @Order(3)
+    public void testBenchmarkFirstRequestLatency() throws Exception {
+        // the path this registry replaced: read and parse the kubeconfig and build a client for every call
+        long baselineNanos = 0;
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            Config config = Config.fromKubeconfig(Files.readString(kubeconfigPath));
+            try (KubernetesClient perCall = new DefaultKubernetesClient(config)) {
+                perCall.namespaces().list();
+            }
+            baselineNanos += System.nanoTime() - start;
+        }
+
+        KubernetesClient holder = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults());
+        long sharedNanos = 0;
+        try {
+            holder.namespaces().list();
+            long parseCount = ClientUtils.getConfigParseCount();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                try (KubernetesClient shared = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults())) {
+                    shared.namespaces().list();
+                }
+                sharedNanos += System.nanoTime() - start;
+            }
+            assertEquals(parseCount, ClientUtils.getConfigParseCount(), "the shared path should not parse the kubeconfig again");
+        } finally {
+            holder.close();
+        }
+        System.out.println("client benchmark: per-call client + first request avg "
+                + (baselineNanos / BENCHMARK_ITERATIONS / 1000) + "us, shared client + first request avg "
+                + (sharedNanos / BENCHMARK_ITERATIONS / 1000) + "us");
+        assertEquals(0, ClientUtils.getSharedClientCount(), "registry should be empty after the benchmark");
+    }
+
+    @Test
+    @DisplayName("settings changed after registration do not affect the shared client")
+    @Order(4)
+    public void testSettingsCopied() throws Exception {
+        ClientPoolSettings settings = ClientPoolSettings.defaults();
+        try (KubernetesClient first = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, settings)) {
+            settings.withMaxRequests(1);
+            try (KubernetesClient second = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults())) {
+                assertEquals(1, ClientUtils.getSharedClientCount(), "default settings should still find the registered client");
+                assertEquals(ClientUtils.getReferenceCount(first), ClientUtils.getReferenceCount(second), "both handles should share one client");
+                assertEquals(2, ClientUtils.getReferenceCount(second), "both handles should be counted");
+            }
+        }
+        assertEquals(0, ClientUtils.getSharedClientCount(), "registry should be empty");
+    }
+
+    @Test
+    @DisplayName("missing kubeconfig fails")
+    @Order(5)
+    public void testMissingKubeconfig() {
+        assertThrows(IOException.class,
+                () -> ClientUtils.getSharedInstance("." + File.separator + "no-such-kubeconfig", null, ClientPoolSettings.defaults()));
+    }
+
+    @Test
+    @DisplayName("kubeconfig is parsed once")
+    @Order(6)
+    public void testConfigParsedOnce() throws Exception {
+        ClientUtils.invalidateConfigCache();
+        long parseCount = ClientUtils.getConfigParseCount();
+        try (KubernetesClient first = ClientUtils.createDedicatedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults());
+                KubernetesClient second = ClientUtils.createDedicatedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults())) {
+            assertEquals(parseCount + 1, ClientUtils.getConfigParseCount(), "kubeconfig should only be parsed once");
+            assertNotSame(first.getConfiguration(), second.getConfiguration(), "clients should not share a Config");
+            assertEquals(CLIENT_TEST_NAMESPACE, second.getNamespace(), "cached config lost the namespace");
+            assertEquals(CLIENT_TEST_TOKEN, second.getConfiguration().getOauthToken(), "cached config lost the token");
+        }
+    }
+
+    @Test
+    @DisplayName("rotated token is swapped into live clients")
+    @Order(7)
+    public void testCredentialHotReload() throws Exception {
+        KubernetesClient shared = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults());
+        try {
+            shared.namespaces().list();
+            Path rotated = Files.createTempFile(kubeconfigPath.getParent(), "client-utils-test", ".rotated");
+            Files.writeString(rotated, kubeconfigFor(client.getMasterUrl().toString(), CLIENT_TEST_ROTATED_TOKEN));
+            Files.move(rotated, kubeconfigPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long deadline = System.currentTimeMillis() + RELOAD_TIMEOUT_MILLIS;
+            while (!CLIENT_TEST_ROTATED_TOKEN.equals(shared.getConfiguration().getOauthToken())
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(CLIENT_TEST_ROTATED_TOKEN, shared.getConfiguration().getOauthToken(), "token was not reloaded");
+            assertEquals(1, ClientUtils.getSharedClientCount(), "the live client should be kept");
+            shared.namespaces().list();
+            assertEquals("Bearer " + CLIENT_TEST_ROTATED_TOKEN, server.getLastRequest().getHeader("Authorization"),
+                    "rotated token was not used");
+        } finally {
+            shared.close();
+        }
+    }
+
+    @Test
+    @DisplayName("closing a derived client keeps the shared pool open")
+    @Order(8)
+    public void testDerivedClientClose() throws Exception {
+        KubernetesClient first = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults());
+        KubernetesClient second = ClientUtils.getSharedInstance(kubeconfigPath.toString(), null, ClientPoolSettings.defaults());
+        try {
+            try (NamespacedKubernetesClient namespaced = ((NamespacedKubernetesClient) first).inNamespace(CLIENT_TEST_NAMESPACE)) {
+                assertEquals(CLIENT_TEST_NAMESPACE, namespaced.getNamespace(), "namespace was not applied");
+                namespaced.configMaps().list();
+            }
+            ((NamespacedKubernetesClient) first).inAnyNamespace().close();
+            first.adapt(NamespacedKubernetesClient.class).close();
+            assertEquals(2, ClientUtils.getReferenceCount(second), "derived clients should not release a reference");
+            assertFalse(((ClientUtils.SharedKubernetesClient) second).getHttpClient().dispatcher().executorService().isShutdown(),
+                    "the shared pool should still be open");
+            assertNotNull(second.configMaps().inNamespace(CLIENT_TEST_NAMESPACE).list(), "the second handle should still work");
+        } finally {
+            first.close();
+            second.close();
+        }
+        assertEquals(0, ClientUtils.getSharedClientCount(), "registry should be empty");
+    }
+}
@@ -1,9 +1,13 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +40,14 @@ public class ConfigMapHelperTest {
     private static final Map<String, String> CONFIGMAP_TEST_DATA_MAP_1 = Map.of(CONFIGMAP_KEY_1, CONFIGMAP_VALUE_1, CONFIGMAP_KEY_2, CONFIGMAP_VALUE_2);
     private static final Map<String, String> CONFIGMAP_TEST_DATA_MAP_2 = Map.of(CONFIGMAP_KEY_3, CONFIGMAP_VALUE_3, CONFIGMAP_KEY_4, CONFIGMAP_VALUE_4);
 
+    private static final String CONFIGMAP_BULK_NAMESPACE = "configmap-bulk-namespace";
+    private static final String CONFIGMAP_BULK_NAME_PREFIX = "configmap-bulk-";
+    private static final String CONFIGMAP_BULK_LABEL_KEY = "teardown";
+    private static final String CONFIGMAP_BULK_LABEL_VALUE = "yes";
+    private static final int CONFIGMAP_BULK_COUNT = 3;
+    private static final String CONFIGMAP_APPLY_NAMESPACE = "configmap-apply-namespace";
+    private static final String CONFIGMAP_APPLY_NAME_PREFIX = "configmap-apply-";
+
     private static final String CONFIGMAP_EXAMPLE_YAML = "./yaml/configmap-example.yaml";
 
     public ConfigMapHelperTest() {
@@ -137,4 +149,70 @@ public class ConfigMapHelperTest {
         assertEquals(CONFIGMAP_TEST_DATA_MAP_2, loadedConfigMap.getData(), "data map does not match");
     }
 
+
+    @Test
+    @DisplayName("delete configmaps by label and by namespace")
+    @Order(10)
+    public void testDeleteConfigMapCollections() {
+        for (int i = 0; i < CONFIGMAP_BULK_COUNT; i++) {
+            ConfigMap labeled = new ConfigMapBuilder()
+                    .withNewMetadata()
+                    .withName(CONFIGMAP_BULK_NAME_PREFIX + i)
+                    .withNamespace(CONFIGMAP_BULK_NAMESPACE)
+                    .addToLabels(CONFIGMAP_BULK_LABEL_KEY, CONFIGMAP_BULK_LABEL_VALUE)
+                    .endMetadata()
+                    .withData(CONFIGMAP_TEST_DATA_MAP_1)
+                    .build();
+            configMapHelper.updateConfigMap(CONFIGMAP_BULK_NAMESPACE, labeled);
+        }
+        configMapHelper.createConfigMap(CONFIGMAP_BULK_NAMESPACE, CONFIGMAP_TEST_NAME, CONFIGMAP_TEST_DATA_MAP_2);
+
+        // the mock server does not echo the deleted objects, so the count is unknown
+        int deleted = configMapHelper.deleteConfigMapsInNamespaceWithLabels(CONFIGMAP_BULK_NAMESPACE,
+                Map.of(CONFIGMAP_BULK_LABEL_KEY, CONFIGMAP_BULK_LABEL_VALUE), DeletionPropagation.BACKGROUND, 0L);
+        assertTrue(deleted == CONFIGMAP_BULK_COUNT || deleted == -1, "unexpected deleted count " + deleted);
+        assertEquals(1, configMapHelper.getAllConfigMapsByNamespace(CONFIGMAP_BULK_NAMESPACE).getItems().size(),
+                "unlabeled configmap should remain");
+
+        configMapHelper.deleteAllConfigMapsInNamespace(CONFIGMAP_BULK_NAMESPACE, null, null);
+        assertTrue(configMapHelper.getAllConfigMapsByNamespace(CONFIGMAP_BULK_NAMESPACE).getItems().isEmpty(),
+                "namespace should be empty");
+    }
+
+    @Test
+    @DisplayName("apply configmaps and skip unchanged ones")
+    @Order(11)
+    public void testApplyConfigMaps() {
+        List<ConfigMap> desired = new ArrayList<>();
+        for (int i = 0; i < CONFIGMAP_BULK_COUNT; i++) {
+            desired.add(new ConfigMapBuilder()
+                    .withNewMetadata()
+                    .withName(CONFIGMAP_APPLY_NAME_PREFIX + i)
+                    .withNamespace(CONFIGMAP_APPLY_NAMESPACE)
+                    .addToLabels(CONFIGMAP_BULK_LABEL_KEY, CONFIGMAP_BULK_LABEL_VALUE)
+                    .endMetadata()
+                    .withData(CONFIGMAP_TEST_DATA_MAP_1)
+                    .build());
+        }
+        ApplyReport<ConfigMap> created = configMapHelper.applyConfigMaps(CONFIGMAP_APPLY_NAMESPACE, desired);
+        assertEquals(CONFIGMAP_BULK_COUNT, created.getCreatedCount(), "every configmap should be created");
+
+        ConfigMap firstCreated = created.getObjects().get(0);
+        ApplyReport<ConfigMap> unchanged = configMapHelper.applyConfigMaps(CONFIGMAP_APPLY_NAMESPACE, desired);
+        assertEquals(CONFIGMAP_BULK_COUNT, unchanged.getSkippedCount(), "unchanged configmaps should be skipped");
+        assertEquals(firstCreated.getMetadata().getResourceVersion(),
+                configMapHelper.getConfigMap(CONFIGMAP_APPLY_NAMESPACE, CONFIGMAP_APPLY_NAME_PREFIX + 0).getMetadata().getResourceVersion(),
+                "a skipped configmap should not be written");
+
+        // a configmap for another namespace fails on its own and the rest still apply
+        desired.add(0, new ConfigMapBuilder(desired.get(0))
+                .editMetadata().withName(CONFIGMAP_APPLY_NAME_PREFIX + CONFIGMAP_BULK_COUNT).withNamespace(CONFIGMAP_TEST_NAMESPACE).endMetadata()
+                .build());
+        ApplyReport<ConfigMap> partial = configMapHelper.applyConfigMaps(CONFIGMAP_APPLY_NAMESPACE, desired);
+        assertEquals(1, partial.getFailedCount(), "the misplaced configmap should fail");
+        assertEquals(ApplyReport.Outcome.FAILED, partial.getOutcomes().get(0), "the failure should keep its position");
+        assertNotNull(partial.getErrors().get(0), "the failure should carry its error");
+        assertEquals(CONFIGMAP_BULK_COUNT, partial.getSkippedCount(), "a failure should not stop the batch");
+        System.out.println("apply report:" + partial);
+    }
 }
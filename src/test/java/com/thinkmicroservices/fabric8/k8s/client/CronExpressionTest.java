@@ -0,0 +1,74 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+public class CronExpressionTest {
+
+    private static final ZoneId CRON_TEST_ZONE = ZoneId.of("UTC");
+    // a Tuesday
+    private static final ZonedDateTime CRON_TEST_START = ZonedDateTime.of(2021, 6, 1, 10, 7, 30, 0, CRON_TEST_ZONE);
+
+    /**
+     * Test of next method, of class CronExpression.
+     */
+    @Test
+    @DisplayName("next run for steps, ranges, lists and names")
+    public void testNext() {
+        assertEquals(at(2021, 6, 1, 10, 8), next("* * * * *"), "every minute should fire in the next minute");
+        assertEquals(at(2021, 6, 1, 10, 15), next("*/15 * * * *"), "step does not match");
+        assertEquals(at(2021, 6, 1, 10, 10), next("10-20/5 * * * *"), "stepped range does not match");
+        assertEquals(at(2021, 6, 1, 11, 5), next("5,50 11 * * *"), "list does not match");
+        assertEquals(at(2021, 6, 7, 9, 0), next("0 9 * * MON"), "day name does not match");
+        assertEquals(at(2021, 12, 25, 0, 0), next("0 0 25 DEC *"), "month name does not match");
+        assertEquals(at(2021, 6, 6, 0, 0), next("0 0 * * 7"), "7 should be Sunday");
+        assertEquals(at(2021, 7, 1, 0, 0), next("@monthly"), "macro does not match");
+        assertEquals(at(2024, 2, 29, 0, 0), next("0 0 29 2 *"), "leap day does not match");
+        assertNull(CronExpression.parse("0 0 30 2 *").next(CRON_TEST_START), "February 30 should never fire");
+    }
+
+    /**
+     * Test of day of month and day of week matching, of class CronExpression.
+     */
+    @Test
+    @DisplayName("restricted day fields match either day")
+    public void testDayFields() {
+        // the 15th, or any Friday: Friday June 4 comes first
+        assertEquals(at(2021, 6, 4, 0, 0), next("0 0 15 * FRI"), "either day field should match");
+        // a stepped star still counts as unrestricted, so only Fridays match
+        assertEquals(at(2021, 6, 4, 0, 0), next("0 0 */1 * FRI"), "a starred day field should require the other");
+        // a larger step restricts the field, so odd days match as well as Fridays
+        assertEquals(at(2021, 6, 3, 0, 0), next("0 0 */2 * FRI"), "a stepped day field should match on its own");
+        assertTrue(CronExpression.parse("0 0 15 * FRI").matches(at(2021, 6, 15, 0, 0)), "the 15th should match");
+    }
+
+    /**
+     * Test of parse method, of class CronExpression.
+     */
+    @Test
+    @DisplayName("invalid expressions are rejected with the reason")
+    public void testParseInvalid() {
+        for (String expression : new String[]{"", "* * * *", "60 * * * *", "* 24 * * *", "* * 0 * *", "* * * 13 *",
+            "* * * * 8", "*/0 * * * *", "5-1 * * * *", "a * * * *", "1,,2 * * * *", "@often", "@Hourly"}) {
+            assertFalse(CronExpression.isValid(expression), "\"" + expression + "\" should be invalid");
+        }
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("61 * * * *"));
+        assertTrue(error.getMessage().contains("minute"), "the message should name the field");
+        assertTrue(CronExpression.isValid(" @hourly "), "macros should be trimmed");
+    }
+
+    private static ZonedDateTime next(String expression) {
+        return CronExpression.parse(expression).next(CRON_TEST_START);
+    }
+
+    private static ZonedDateTime at(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, CRON_TEST_ZONE);
+    }
+}
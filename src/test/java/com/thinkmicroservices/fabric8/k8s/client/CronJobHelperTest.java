@@ -1,10 +1,22 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.api.model.batch.v1.JobBuilder;
 import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJob;
+import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJobBuilder;
 import io.fabric8.kubernetes.api.model.batch.v1beta1.CronJobList;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.DisplayName;
@@ -30,13 +42,24 @@ public class CronJobHelperTest {
     private static final String[] CRONJOB_TEST_CONTAINER_ARGS = {"/bin/sh", "-c", "date; echo Hello from Kubernetes"};
     private static final RestartPolicy CRONJOB_TEST_RESTART_POLICY = RestartPolicy.NEVER;
 
+    private static final String CRONJOB_INVALID_SCHEDULE = "61 * * * *";
+    private static final String CRONJOB_INDEX_PREFIX = "indexed-";
+    private static final long CRONJOB_INDEX_TIMEOUT_MILLIS = 10000;
+    // a Tuesday, so @weekly does not fire in the window
+    private static final long CRONJOB_INDEX_FROM_MILLIS = Instant.parse("2021-06-01T00:00:00Z").toEpochMilli();
+
+    private static final String CRONJOB_OWNER_NAME = "owner";
+    private static final List<String> CRONJOB_OWNER_RUNS = List.of("owner-run-1", "owner-run-2");
+    private static final String CRONJOB_UNOWNED_RUN = "unowned-run";
+
     private static final String CRONJOB_EXAMPLE_YAML = "./yaml/cronjob-example.yaml";
 
     /**
      *
      */
     public CronJobHelperTest() {
-        cronJobHelper = new CronJobHelper(client);
+        // the crud mock serves no root paths, so the helper falls back to the model's version
+        cronJobHelper = new CronJobHelper(client, new ApiDiscoveryCache(client, null, ApiDiscoveryCache.DEFAULT_TTL_MILLIS));
     }
 
     @Test
@@ -134,4 +157,175 @@ public class CronJobHelperTest {
         assertEquals(CRONJOB_TEST_NAME, loadedCronJob.getMetadata().getName(), "Job Name does not match");
         assertEquals(CRONJOB_TEST_SCHEDULE_STRING_2, loadedCronJob.getSpec().getSchedule(), "schedule doesnt match");
     }
+
+    @Test
+    @DisplayName("suspend and resume a cronjob")
+    @Order(10)
+    public void testSetCronJobSuspended() {
+        cronJobHelper.createCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_TEST_NAME,
+                CRONJOB_TEST_LABELS_MAP,
+                CRONJOB_TEST_SCHEDULE_STRING_1, CRONJOB_TEST_CONTAINER_NAME, CRONJOB_TEST_CONTAINER_IMAGE,
+                CRONJOB_TEST_CONTAINER_ARGS, CRONJOB_TEST_RESTART_POLICY);
+        CronJob suspended = cronJobHelper.setCronJobSuspended(CRONJOB_TEST_NAMESPACE, CRONJOB_TEST_NAME, true);
+        assertTrue(suspended.getSpec().getSuspend(), "cronjob should be suspended");
+        assertEquals(CRONJOB_TEST_SCHEDULE_STRING_1, suspended.getSpec().getSchedule(), "patch should leave the schedule alone");
+        CronJob resumed = cronJobHelper.setCronJobSuspended(CRONJOB_TEST_NAMESPACE, CRONJOB_TEST_NAME, false);
+        assertFalse(resumed.getSpec().getSuspend(), "cronjob should be resumed");
+        cronJobHelper.deleteCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_TEST_NAME);
+    }
+
+    @Test
+    @DisplayName("reject an invalid cronjob schedule")
+    @Order(11)
+    public void testCreateCronJobInvalidSchedule() {
+        assertThrows(IllegalArgumentException.class, () -> cronJobHelper.createCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_TEST_NAME,
+                CRONJOB_TEST_LABELS_MAP, CRONJOB_INVALID_SCHEDULE, CRONJOB_TEST_CONTAINER_NAME, CRONJOB_TEST_CONTAINER_IMAGE,
+                CRONJOB_TEST_CONTAINER_ARGS, CRONJOB_TEST_RESTART_POLICY), "an invalid schedule should be rejected");
+        assertNull(cronJobHelper.getCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_TEST_NAME), "nothing should have been created");
+    }
+
+    @Test
+    @DisplayName("index upcoming cronjob runs")
+    @Order(12)
+    public void testScheduleIndex() throws Exception {
+        // two hourly jobs and a daily one collide at the top of the hour
+        createIndexedCronJob("hourly-a", "0 * * * *", false);
+        createIndexedCronJob("hourly-b", "0 * * * *", false);
+        createIndexedCronJob("quarter", "*/15 * * * *", false);
+        createIndexedCronJob("daily", "@daily", false);
+        createIndexedCronJob("weekly", "@weekly", false);
+        createIndexedCronJob("suspended", "* * * * *", true);
+        createIndexedCronJob("broken", CRONJOB_INVALID_SCHEDULE, false);
+
+        CronScheduleIndex index = cronJobHelper.enableScheduleIndex(ZoneOffset.UTC, 0);
+        try {
+            assertTrue(index.waitForSync(CRONJOB_INDEX_TIMEOUT_MILLIS), "index did not sync");
+            // informer events are delivered after the sync
+            long deadline = System.currentTimeMillis() + CRONJOB_INDEX_TIMEOUT_MILLIS;
+            while (index.getScheduleCount() + index.getInvalidSchedules().size() < 6 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(5, index.getScheduleCount(), "suspended and invalid schedules should be left out");
+            assertEquals(Set.of(CRONJOB_TEST_NAMESPACE + "/" + CRONJOB_INDEX_PREFIX + "broken"), index.getInvalidSchedules().keySet(),
+                    "the invalid schedule should be reported");
+
+            List<CronScheduleIndex.ScheduledRun> runs = index.getRunsBetween(CRONJOB_INDEX_FROM_MILLIS - 1,
+                    CRONJOB_INDEX_FROM_MILLIS + TimeUnit.MINUTES.toMillis(60));
+            assertEquals(10, runs.size(), "run count does not match");
+            assertEquals(CRONJOB_INDEX_PREFIX + "daily", runs.get(0).getName(), "runs should be in time then name order");
+            assertEquals(CRONJOB_INDEX_FROM_MILLIS + TimeUnit.MINUTES.toMillis(60), runs.get(runs.size() - 1).getTimeMillis(),
+                    "the window end should be inclusive");
+
+            int[] starts = index.getStartsPerMinute(CRONJOB_INDEX_FROM_MILLIS + 1000, 60);
+            assertEquals(4, starts[0], "every job but the weekly one should start at midnight");
+            assertEquals(1, starts[15], "only the quarter-hourly job should start at 00:15");
+            assertEquals(0, starts[1], "nothing should start at 00:01");
+            assertEquals(7, Arrays.stream(starts).sum(), "start count does not match");
+
+            assertEquals(CRONJOB_INDEX_FROM_MILLIS + TimeUnit.MINUTES.toMillis(15),
+                    index.getNextRunMillis(CRONJOB_TEST_NAMESPACE, CRONJOB_INDEX_PREFIX + "quarter", CRONJOB_INDEX_FROM_MILLIS),
+                    "next run does not match");
+            assertEquals(-1, index.getNextRunMillis(CRONJOB_TEST_NAMESPACE, CRONJOB_INDEX_PREFIX + "suspended", CRONJOB_INDEX_FROM_MILLIS),
+                    "a suspended CronJob should have no next run");
+            System.out.println("cron schedule index:" + index);
+        } finally {
+            // deleted before the informer stops: the mock server can fail a write that races a watch closing
+            for (String name : List.of("hourly-a", "hourly-b", "quarter", "daily", "weekly", "suspended", "broken")) {
+                cronJobHelper.deleteCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_INDEX_PREFIX + name);
+            }
+            cronJobHelper.disableScheduleIndex();
+        }
+        assertNull(cronJobHelper.getScheduleIndex(), "index should be disabled");
+    }
+
+    @Test
+    @DisplayName("read cronjob runs from the owner index")
+    @Order(13)
+    public void testOwnerIndex() throws Exception {
+        assertThrows(IllegalStateException.class, () -> cronJobHelper.getRunsForCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_OWNER_NAME),
+                "reads should fail while the index is disabled");
+        createIndexedCronJob(CRONJOB_OWNER_NAME, "@hourly", false);
+        CronJob owner = cronJobHelper.getCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_INDEX_PREFIX + CRONJOB_OWNER_NAME);
+        // the CronJob controller does not run on the mock server, so create its runs and their pods here
+        for (String run : CRONJOB_OWNER_RUNS) {
+            Job job = createRun(run, owner.getMetadata().getUid());
+            client.pods().inNamespace(CRONJOB_TEST_NAMESPACE).create(new PodBuilder()
+                    .withNewMetadata().withName(run + "-pod").withNamespace(CRONJOB_TEST_NAMESPACE)
+                    .addNewOwnerReference().withApiVersion("batch/v1").withKind("Job").withName(run)
+                    .withUid(job.getMetadata().getUid()).withController(true).endOwnerReference()
+                    .endMetadata()
+                    .build());
+        }
+        createRun(CRONJOB_UNOWNED_RUN, null);
+
+        OwnerReferenceIndex index = cronJobHelper.enableOwnerIndex(0);
+        try {
+            assertTrue(index.waitForSync(CRONJOB_INDEX_TIMEOUT_MILLIS), "index did not sync");
+            List<Job> runs = cronJobHelper.getRunsForCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_INDEX_PREFIX + CRONJOB_OWNER_NAME);
+            assertEquals(CRONJOB_OWNER_RUNS, runs.stream().map(job -> job.getMetadata().getName()).collect(Collectors.toList()),
+                    "only the CronJob's runs should be returned, oldest first");
+            List<Pod> pods = cronJobHelper.getPodsForCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_INDEX_PREFIX + CRONJOB_OWNER_NAME);
+            assertEquals(CRONJOB_OWNER_RUNS.size(), pods.size(), "each run's pod should be returned");
+            assertTrue(cronJobHelper.getRunsForCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_TEST_NAME).isEmpty(),
+                    "an unknown CronJob should have no runs");
+            System.out.println("owner reference index:" + index);
+        } finally {
+            // deleted before the informers stop: the mock server can fail a write that races a watch closing
+            for (String run : CRONJOB_OWNER_RUNS) {
+                client.pods().inNamespace(CRONJOB_TEST_NAMESPACE).withName(run + "-pod").delete();
+                client.batch().v1().jobs().inNamespace(CRONJOB_TEST_NAMESPACE).withName(run).delete();
+            }
+            client.batch().v1().jobs().inNamespace(CRONJOB_TEST_NAMESPACE).withName(CRONJOB_UNOWNED_RUN).delete();
+            cronJobHelper.deleteCronJob(CRONJOB_TEST_NAMESPACE, CRONJOB_INDEX_PREFIX + CRONJOB_OWNER_NAME);
+            cronJobHelper.disableOwnerIndex();
+        }
+        assertNull(cronJobHelper.getOwnerIndex(), "index should be disabled");
+    }
+
+    private Job createRun(String name, String cronJobUid) {
+        JobBuilder builder = new JobBuilder()
+                .withNewMetadata().withName(name).withNamespace(CRONJOB_TEST_NAMESPACE).endMetadata()
+                .withNewSpec().withNewTemplate().withNewSpec()
+                .addNewContainer().withName(CRONJOB_TEST_CONTAINER_NAME).withImage(CRONJOB_TEST_CONTAINER_IMAGE).endContainer()
+                .withRestartPolicy(CRONJOB_TEST_RESTART_POLICY.getPolicy())
+                .endSpec().endTemplate().endSpec();
+        if (cronJobUid != null) {
+            builder.editMetadata().addNewOwnerReference().withApiVersion("batch/v1").withKind("CronJob")
+                    .withName(CRONJOB_INDEX_PREFIX + CRONJOB_OWNER_NAME).withUid(cronJobUid).withController(true)
+                    .endOwnerReference().endMetadata();
+        }
+        return client.batch().v1().jobs().inNamespace(CRONJOB_TEST_NAMESPACE).create(builder.build());
+    }
+
+    private void createIndexedCronJob(String name, String schedule, boolean suspended) {
+        // created directly, since createCronJob would reject the invalid schedule
+        client.batch().cronjobs().inNamespace(CRONJOB_TEST_NAMESPACE).create(indexedCronJob(name, schedule, suspended));
+    }
+
+    private CronJob indexedCronJob(String name, String schedule, boolean suspended) {
+        return new CronJobBuilder()
+                .withNewMetadata()
+                .withName(CRONJOB_INDEX_PREFIX + name)
+                .withNamespace(CRONJOB_TEST_NAMESPACE)
+                .endMetadata()
+                .withNewSpec()
+                .withSchedule(schedule)
+                .withSuspend(suspended)
+                .withNewJobTemplate()
+                .withNewSpec()
+                .withNewTemplate()
+                .withNewSpec()
+                .addNewContainer()
+                .withName(CRONJOB_TEST_CONTAINER_NAME)
+                .withImage(CRONJOB_TEST_CONTAINER_IMAGE)
+                .withArgs(CRONJOB_TEST_CONTAINER_ARGS)
+                .endContainer()
+                .withRestartPolicy(CRONJOB_TEST_RESTART_POLICY.getPolicy())
+                .endSpec()
+                .endTemplate()
+                .endSpec()
+                .endJobTemplate()
+                .endSpec()
+                .build();
+    }
 }
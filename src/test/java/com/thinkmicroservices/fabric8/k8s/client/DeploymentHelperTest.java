@@ -1,10 +1,21 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
 import io.fabric8.kubernetes.api.model.apps.DeploymentList;
+import io.fabric8.kubernetes.api.model.apps.DeploymentStatusBuilder;
+import io.fabric8.kubernetes.api.model.apps.ReplicaSet;
+import io.fabric8.kubernetes.api.model.apps.ReplicaSetBuilder;
+import io.fabric8.kubernetes.api.model.autoscaling.v1.Scale;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.DisplayName;
@@ -31,6 +42,14 @@ public class DeploymentHelperTest {
     private static final int TEST_DEPLOYMENT_REPLICA_COUNT = 1;
     private static final String TEST_DEPLOYMENT_LABEL_VALUE = "deployment";
     private static final String TEST_DEPLOYMENT_LABEL_KEY = "test";
+    private static final String TEST_DEPLOYMENT_SCALE_NAME = "test-deployment-scale";
+    private static final int TEST_DEPLOYMENT_SCALE_REPLICA_COUNT = 5;
+    private static final String TEST_DEPLOYMENT_ROLLOUT_NAME = "test-deployment-rollout";
+    private static final String TEST_DEPLOYMENT_STALLED_NAME = "test-deployment-stalled";
+    private static final long TEST_DEPLOYMENT_ROLLOUT_TIMEOUT_MILLIS = 10000;
+    private static final String TEST_DEPLOYMENT_ROLLBACK_NAME = "test-deployment-rollback";
+    private static final String[] TEST_ROLLBACK_IMAGES = {"busybox:1.32", "busybox:1.33", "busybox:1.34"};
+    private static final long TEST_REVISION_INDEX_TIMEOUT_MILLIS = 5000;
     static KubernetesClient client;
     private DeploymentHelper deploymentHelper;
 
@@ -182,4 +201,189 @@ public class DeploymentHelperTest {
         assertNotNull(deployment, "Deployment should not be null");
 
     }
+
+    /**
+     * Test of isRolloutComplete method, of class DeploymentHelper.
+     */
+    @Test
+    @DisplayName("rollout completion follows the deployment status")
+    @Order(11)
+    public void testIsRolloutComplete() {
+        Deployment deployment = new DeploymentBuilder()
+                .withNewMetadata().withName(TEST_DEPLOYMENT_NAME).withGeneration(2L).endMetadata()
+                .withNewSpec().withReplicas(2).endSpec()
+                .withNewStatus().withObservedGeneration(1L).withReplicas(2).withUpdatedReplicas(2).withAvailableReplicas(2).endStatus()
+                .build();
+        assertFalse(DeploymentHelper.isRolloutComplete(deployment), "new generation not observed yet");
+
+        deployment.getStatus().setObservedGeneration(2L);
+        deployment.getStatus().setReplicas(3);
+        assertFalse(DeploymentHelper.isRolloutComplete(deployment), "old replicas still running");
+
+        deployment.getStatus().setReplicas(2);
+        assertTrue(DeploymentHelper.isRolloutComplete(deployment), "rollout should be complete");
+    }
+
+    /**
+     * Test of setDeploymentScale method, of class DeploymentHelper.
+     */
+    @Test
+    @DisplayName("scale a deployment through the scale subresource")
+    @Order(12)
+    public void testSetDeploymentScale() {
+        deploymentHelper.createDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_SCALE_NAME,
+                Map.of(TEST_DEPLOYMENT_LABEL_KEY, TEST_DEPLOYMENT_LABEL_VALUE), TEST_DEPLOYMENT_REPLICA_COUNT,
+                Map.of(TEST_DEPLOYMENT_SPEC_LABEL_KEY, TEST_DEPLOYMENT_SPEC_LABEL_VALUE), TEST_DEPLOYMENT_CONTAINER_NAME, TEST_DEPLOYMENT_CONTAINER_IMAGE,
+                new String[]{TEST_DEPLOYMENT_CONTAINER_COMMAND_1, TEST_DEPLOYMENT_CONTAINER_COMMAND_2},
+                Map.of(TEST_DEPLOYMENT_SELECTOR_KEY, TEST_DEPLOYMENT_SELECTOR_VALUE));
+
+        Scale scale = deploymentHelper.setDeploymentScale(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_SCALE_NAME, TEST_DEPLOYMENT_SCALE_REPLICA_COUNT);
+        assertNotNull(scale, "scale should not be null");
+        assertEquals(TEST_DEPLOYMENT_SCALE_REPLICA_COUNT,
+                deploymentHelper.getDeploymentInNamespace(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_SCALE_NAME).getSpec().getReplicas(),
+                "replicas were not updated");
+        deploymentHelper.deleteDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_SCALE_NAME);
+    }
+
+    /**
+     * Test of trackRollout method, of class DeploymentHelper.
+     */
+    @Test
+    @DisplayName("track rollout progress until complete")
+    @Order(13)
+    public void testTrackRollout() throws Exception {
+        Deployment deployment = rolloutDeployment(TEST_DEPLOYMENT_ROLLOUT_NAME);
+        List<RolloutProgress> progress = new CopyOnWriteArrayList<>();
+        CompletableFuture<Deployment> rollout = deploymentHelper.trackRollout(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLOUT_NAME,
+                progress::add, TEST_DEPLOYMENT_ROLLOUT_TIMEOUT_MILLIS);
+        assertEquals(1, deploymentHelper.getRolloutTracker().getActiveCount(), "rollout should be tracked");
+
+        // one new replica up, two old ones still running
+        deployment.setStatus(new DeploymentStatusBuilder().withObservedGeneration(1L)
+                .withReplicas(3).withUpdatedReplicas(1).withReadyReplicas(3).withAvailableReplicas(3).build());
+        deployment = client.apps().deployments().inNamespace(TEST_DEPLOYMENT_NAMESPACE).updateStatus(deployment);
+        deployment.setStatus(new DeploymentStatusBuilder().withObservedGeneration(1L)
+                .withReplicas(2).withUpdatedReplicas(2).withReadyReplicas(2).withAvailableReplicas(2).build());
+        client.apps().deployments().inNamespace(TEST_DEPLOYMENT_NAMESPACE).updateStatus(deployment);
+
+        Deployment rolledOut = rollout.get(TEST_DEPLOYMENT_ROLLOUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue(DeploymentHelper.isRolloutComplete(rolledOut), "rollout should be complete");
+        assertTrue(progress.size() >= 2, "progress should have been reported");
+        assertTrue(progress.stream().anyMatch(p -> p.getOldReplicas() == 2), "old replicas should have been reported");
+        assertTrue(progress.get(progress.size() - 1).isComplete(), "last progress should be complete");
+        assertEquals(0, deploymentHelper.getRolloutTracker().getActiveCount(), "rollout should no longer be tracked");
+        System.out.println("rollout tracker:" + deploymentHelper.getRolloutTracker());
+        deploymentHelper.deleteDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLOUT_NAME);
+    }
+
+    /**
+     * Test of trackRollout method, of class DeploymentHelper.
+     */
+    @Test
+    @DisplayName("a rollout past its progress deadline fails")
+    @Order(14)
+    public void testTrackStalledRollout() throws Exception {
+        Deployment deployment = rolloutDeployment(TEST_DEPLOYMENT_STALLED_NAME);
+        CompletableFuture<Deployment> rollout = deploymentHelper.trackRollout(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_STALLED_NAME,
+                null, TEST_DEPLOYMENT_ROLLOUT_TIMEOUT_MILLIS);
+        deployment.setStatus(new DeploymentStatusBuilder().withObservedGeneration(1L)
+                .withReplicas(3).withUpdatedReplicas(1).withAvailableReplicas(2)
+                .addNewCondition().withType("Progressing").withStatus("False").withReason("ProgressDeadlineExceeded")
+                .withMessage("ReplicaSet has timed out progressing.").endCondition()
+                .build());
+        client.apps().deployments().inNamespace(TEST_DEPLOYMENT_NAMESPACE).updateStatus(deployment);
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> rollout.get(TEST_DEPLOYMENT_ROLLOUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(failure.getCause() instanceof KubernetesClientException, "stall should fail the rollout");
+        deploymentHelper.deleteDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_STALLED_NAME);
+    }
+
+    private Deployment rolloutDeployment(String name) {
+        Deployment deployment = new DeploymentBuilder()
+                .withNewMetadata().withName(name).withNamespace(TEST_DEPLOYMENT_NAMESPACE).withGeneration(1L).endMetadata()
+                .withNewSpec().withReplicas(2).endSpec()
+                .build();
+        return client.apps().deployments().inNamespace(TEST_DEPLOYMENT_NAMESPACE).create(deployment);
+    }
+
+    /**
+     * Test of rollbackDeployment method, of class DeploymentHelper.
+     */
+    @Test
+    @DisplayName("roll a deployment back from the revision index")
+    @Order(15)
+    public void testRollbackDeployment() throws Exception {
+        Deployment deployment = deploymentHelper.createDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLBACK_NAME,
+                Map.of(TEST_DEPLOYMENT_LABEL_KEY, TEST_DEPLOYMENT_LABEL_VALUE), TEST_DEPLOYMENT_REPLICA_COUNT,
+                Map.of(TEST_DEPLOYMENT_SPEC_LABEL_KEY, TEST_DEPLOYMENT_SPEC_LABEL_VALUE), TEST_DEPLOYMENT_CONTAINER_NAME, TEST_ROLLBACK_IMAGES[2],
+                new String[]{TEST_DEPLOYMENT_CONTAINER_COMMAND_1, TEST_DEPLOYMENT_CONTAINER_COMMAND_2},
+                Map.of(TEST_DEPLOYMENT_SELECTOR_KEY, TEST_DEPLOYMENT_SELECTOR_VALUE));
+        assertThrows(IllegalStateException.class,
+                () -> deploymentHelper.rollbackDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLBACK_NAME, 0),
+                "rollback needs the revision index");
+
+        DeploymentRevisionIndex index = deploymentHelper.enableRevisionIndex(0);
+        try {
+            assertTrue(index.waitForSync(TEST_REVISION_INDEX_TIMEOUT_MILLIS), "revision index did not sync");
+            // the deployment controller does not run on the mock server, so create the revisions' ReplicaSets here
+            for (int i = 0; i < TEST_ROLLBACK_IMAGES.length; i++) {
+                createRevision(deployment, i + 1, TEST_ROLLBACK_IMAGES[i]);
+            }
+            long deadline = System.currentTimeMillis() + TEST_REVISION_INDEX_TIMEOUT_MILLIS;
+            while (deploymentHelper.getDeploymentRevisions(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLBACK_NAME).size() < TEST_ROLLBACK_IMAGES.length
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            List<DeploymentRevision> revisions = deploymentHelper.getDeploymentRevisions(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLBACK_NAME);
+            assertEquals(TEST_ROLLBACK_IMAGES.length, revisions.size(), "every revision should be indexed");
+            assertEquals(1, revisions.get(0).getRevision(), "revisions should be oldest first");
+            assertEquals(TEST_ROLLBACK_IMAGES[0], revisions.get(0).getImages().get(TEST_DEPLOYMENT_CONTAINER_NAME), "revision image does not match");
+
+            Deployment undone = deploymentHelper.rollbackDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLBACK_NAME, 0);
+            assertEquals(TEST_ROLLBACK_IMAGES[1], undone.getSpec().getTemplate().getSpec().getContainers().get(0).getImage(),
+                    "undo should restore the previous revision");
+            assertFalse(undone.getSpec().getTemplate().getMetadata().getLabels().containsKey(DeploymentRevision.POD_TEMPLATE_HASH_LABEL),
+                    "pod-template-hash should not be restored");
+
+            Deployment rolledBack = deploymentHelper.rollbackDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLBACK_NAME, 1);
+            assertEquals(TEST_ROLLBACK_IMAGES[0], rolledBack.getSpec().getTemplate().getSpec().getContainers().get(0).getImage(),
+                    "rollback should restore revision 1");
+            assertThrows(IllegalArgumentException.class,
+                    () -> deploymentHelper.rollbackDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLBACK_NAME, 9),
+                    "unknown revisions should be rejected");
+            System.out.println("revision index:" + index);
+        } finally {
+            deploymentHelper.disableRevisionIndex();
+            client.apps().replicaSets().inNamespace(TEST_DEPLOYMENT_NAMESPACE).withLabels(Map.of(TEST_DEPLOYMENT_SELECTOR_KEY, TEST_DEPLOYMENT_SELECTOR_VALUE)).delete();
+            deploymentHelper.deleteDeployment(TEST_DEPLOYMENT_NAMESPACE, TEST_DEPLOYMENT_ROLLBACK_NAME);
+        }
+        assertNull(deploymentHelper.getRevisionIndex(), "revision index should be disabled");
+    }
+
+    private ReplicaSet createRevision(Deployment deployment, long revision, String image) {
+        String hash = "hash" + revision;
+        ReplicaSet replicaSet = new ReplicaSetBuilder()
+                .withNewMetadata()
+                .withName(deployment.getMetadata().getName() + "-" + hash)
+                .withNamespace(TEST_DEPLOYMENT_NAMESPACE)
+                .addToLabels(TEST_DEPLOYMENT_SELECTOR_KEY, TEST_DEPLOYMENT_SELECTOR_VALUE)
+                .addToAnnotations(DeploymentRevision.REVISION_ANNOTATION, String.valueOf(revision))
+                .addNewOwnerReference().withApiVersion("apps/v1").withKind("Deployment").withName(deployment.getMetadata().getName())
+                .withUid(deployment.getMetadata().getUid()).withController(true).endOwnerReference()
+                .endMetadata()
+                .withNewSpec()
+                .withReplicas(0)
+                .withNewSelector().addToMatchLabels(TEST_DEPLOYMENT_SELECTOR_KEY, TEST_DEPLOYMENT_SELECTOR_VALUE).endSelector()
+                .withNewTemplate()
+                .withNewMetadata()
+                .addToLabels(TEST_DEPLOYMENT_SPEC_LABEL_KEY, TEST_DEPLOYMENT_SPEC_LABEL_VALUE)
+                .addToLabels(DeploymentRevision.POD_TEMPLATE_HASH_LABEL, hash)
+                .endMetadata()
+                .withNewSpec().addNewContainer().withName(TEST_DEPLOYMENT_CONTAINER_NAME).withImage(image).endContainer().endSpec()
+                .endTemplate()
+                .endSpec()
+                .build();
+        return client.apps().replicaSets().inNamespace(TEST_DEPLOYMENT_NAMESPACE).create(replicaSet);
+    }
 }
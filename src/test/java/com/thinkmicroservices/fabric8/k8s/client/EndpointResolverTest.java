@@ -0,0 +1,83 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.Endpoints;
+import io.fabric8.kubernetes.api.model.EndpointsBuilder;
+import io.fabric8.kubernetes.api.model.EndpointsListBuilder;
+import io.fabric8.kubernetes.api.model.WatchEvent;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import java.util.List;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+@EnableKubernetesMockClient
+public class EndpointResolverTest {
+
+    private static final String ENDPOINT_TEST_NAMESPACE = "endpoint-test-namespace";
+    private static final String ENDPOINT_TEST_SERVICE = "endpoint-test-service";
+    private static final String ENDPOINT_TEST_READY_IP = "10.0.0.1";
+    private static final String ENDPOINT_TEST_NOT_READY_IP = "10.0.0.2";
+    private static final String ENDPOINT_TEST_PORT_NAME = "http";
+    private static final int ENDPOINT_TEST_PORT = 8080;
+    private static final String ENDPOINT_TEST_LIST_VERSION = "3";
+    private static final long ENDPOINT_TEST_TIMEOUT_MILLIS = 10000;
+    static KubernetesClient client;
+    static KubernetesMockServer server;
+
+    /**
+     * Test of start method, of class EndpointResolver.
+     */
+    @Test
+    @DisplayName("a change made before the watch opens is applied")
+    public void testChangeBeforeWatch() throws Exception {
+        Endpoints listed = endpoints("2", false);
+        Endpoints changed = endpoints("4", true);
+        server.expect().get().withPath("/api/v1/endpoints")
+                .andReturn(200, new EndpointsListBuilder().withNewMetadata(null, null, ENDPOINT_TEST_LIST_VERSION, null)
+                        .withItems(listed).build())
+                .always();
+        // the change lands between the list and the watch; the server replays it to a watch from the list's version
+        server.expect().withPath("/api/v1/endpoints?resourceVersion=" + ENDPOINT_TEST_LIST_VERSION + "&watch=true")
+                .andUpgradeToWebSocket().open()
+                .immediately().andEmit(new WatchEvent(changed, "MODIFIED"))
+                .done().once();
+
+        try (EndpointResolver resolver = EndpointResolver.start(client, EndpointResolver.Source.ENDPOINTS, 0)) {
+            assertTrue(resolver.waitForSync(ENDPOINT_TEST_TIMEOUT_MILLIS), "resolver did not sync");
+            long deadline = System.currentTimeMillis() + ENDPOINT_TEST_TIMEOUT_MILLIS;
+            while (resolver.getRefreshCount(ENDPOINT_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE) < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, resolver.getRefreshCount(ENDPOINT_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE), "the replayed change was not applied");
+            List<ServiceEndpoint> ready = resolver.getReadyEndpoints(ENDPOINT_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE);
+            assertEquals(2, ready.size(), "both addresses should be ready");
+            System.out.println("endpoint resolver:" + resolver);
+        }
+    }
+
+    private static Endpoints endpoints(String resourceVersion, boolean allReady) {
+        EndpointsBuilder endpoints = new EndpointsBuilder()
+                .withNewMetadata().withName(ENDPOINT_TEST_SERVICE).withNamespace(ENDPOINT_TEST_NAMESPACE)
+                .withResourceVersion(resourceVersion).endMetadata();
+        if (allReady) {
+            endpoints.addNewSubset()
+                    .addNewAddress().withIp(ENDPOINT_TEST_READY_IP).endAddress()
+                    .addNewAddress().withIp(ENDPOINT_TEST_NOT_READY_IP).endAddress()
+                    .addNewPort().withName(ENDPOINT_TEST_PORT_NAME).withPort(ENDPOINT_TEST_PORT).endPort()
+                    .endSubset();
+        } else {
+            endpoints.addNewSubset()
+                    .addNewAddress().withIp(ENDPOINT_TEST_READY_IP).endAddress()
+                    .addNewNotReadyAddress().withIp(ENDPOINT_TEST_NOT_READY_IP).endNotReadyAddress()
+                    .addNewPort().withName(ENDPOINT_TEST_PORT_NAME).withPort(ENDPOINT_TEST_PORT).endPort()
+                    .endSubset();
+        }
+        return endpoints.build();
+    }
+}
@@ -0,0 +1,156 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
+import io.fabric8.kubernetes.api.model.apps.DeploymentListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+@EnableKubernetesMockClient
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class FleetRolloutTest {
+
+    private static final String[] TEST_FLEET_NAMESPACES = {"test-fleet-a", "test-fleet-b"};
+    private static final String TEST_FLEET_LABEL_KEY = "fleet";
+    private static final String TEST_FLEET_LABEL_VALUE = "sidecar";
+    private static final String TEST_FLEET_CONTAINER_NAME = "sidecar";
+    private static final String TEST_FLEET_OTHER_CONTAINER_NAME = "app";
+    private static final String TEST_FLEET_OTHER_IMAGE = "app:1";
+    private static final String TEST_FLEET_IMAGE_1 = "sidecar:1";
+    private static final String TEST_FLEET_IMAGE_2 = "sidecar:2";
+    private static final String TEST_FLEET_MISSING_CONTAINER_NAME = "metrics";
+    private static final String TEST_FLEET_MISSING_IMAGE = "metrics:2";
+    private static final int TEST_FLEET_REPLICA_COUNT = 1;
+    private static final long TEST_FLEET_ROLLOUT_TIMEOUT_MILLIS = 10000;
+    private static final String STRATEGIC_MERGE_PATCH_MEDIA_TYPE = "application/strategic-merge-patch+json";
+    static KubernetesClient client;
+    static KubernetesMockServer server;
+
+    /**
+     * Test of rolloutFleet method, of class DeploymentHelper.
+     */
+    @Test
+    @DisplayName("roll an image out across namespaces in waves")
+    @Order(1)
+    public void testRolloutFleet() throws Exception {
+        List<Deployment> fleet = expectFleet("fleet-ok-", false);
+        DeploymentHelper deploymentHelper = new DeploymentHelper(client);
+        FleetRolloutResult result = deploymentHelper.rolloutFleet(Map.of(TEST_FLEET_LABEL_KEY, TEST_FLEET_LABEL_VALUE),
+                Map.of(TEST_FLEET_CONTAINER_NAME, TEST_FLEET_IMAGE_2, TEST_FLEET_MISSING_CONTAINER_NAME, TEST_FLEET_MISSING_IMAGE),
+                FleetRolloutSettings.defaults().withWaveSizes(1, 2).withMaxConcurrency(2).withRolloutTimeoutMillis(TEST_FLEET_ROLLOUT_TIMEOUT_MILLIS));
+        assertFalse(result.isHalted(), "rollout should not halt: " + result.getWaves());
+        assertEquals(1, result.getSkipped().size(), "the up to date deployment should be skipped");
+        assertEquals(2, result.getWaves().size(), "a canary wave and one more are expected");
+        assertEquals(1, result.getWaves().get(0).getDeployments().size(), "canary wave size does not match");
+        assertEquals(2, result.getWaves().get(1).getSucceeded().size(), "second wave should roll out both deployments");
+
+        List<RecordedRequest> patches = patchRequests();
+        assertEquals(fleet.size() - 1, patches.size(), "every outdated deployment should be patched once");
+        for (RecordedRequest patch : patches) {
+            assertTrue(patch.getHeader("Content-Type").startsWith(STRATEGIC_MERGE_PATCH_MEDIA_TYPE),
+                    "images should be set with a strategic merge patch");
+            JsonNode containers = Serialization.jsonMapper().readTree(patch.getBody().readUtf8())
+                    .path("spec").path("template").path("spec").path("containers");
+            assertEquals(1, containers.size(), "only the deployment's own containers should be named");
+            assertEquals(TEST_FLEET_CONTAINER_NAME, containers.get(0).path("name").asText(), "containers should be matched by name");
+            assertEquals(TEST_FLEET_IMAGE_2, containers.get(0).path("image").asText(), "image was not rolled out");
+        }
+        System.out.println("fleet rollout:" + result + " " + result.getWaves());
+    }
+
+    /**
+     * Test of rolloutFleet method, of class DeploymentHelper.
+     */
+    @Test
+    @DisplayName("a failed wave halts the fleet rollout")
+    @Order(2)
+    public void testRolloutFleetHalts() throws Exception {
+        expectFleet("fleet-stall-", true);
+        DeploymentHelper deploymentHelper = new DeploymentHelper(client);
+        FleetRolloutResult result = deploymentHelper.rolloutFleet(Map.of(TEST_FLEET_LABEL_KEY, TEST_FLEET_LABEL_VALUE),
+                Map.of(TEST_FLEET_CONTAINER_NAME, TEST_FLEET_IMAGE_2),
+                FleetRolloutSettings.defaults().withWaveSizes(1).withRolloutTimeoutMillis(TEST_FLEET_ROLLOUT_TIMEOUT_MILLIS));
+        assertTrue(result.isHalted(), "stalled canary should halt the rollout");
+        assertEquals(1, result.getWaves().size(), "no wave should run after the failure");
+        assertEquals(2, result.getNotStarted().size(), "remaining deployments should not be started");
+        assertEquals(1, patchRequests().size(), "only the canary should be patched");
+    }
+
+    /**
+     * Lists three outdated deployments and one current one. The deployment
+     * controller does not run on the mock server, so every outdated
+     * deployment is served as already rolled out, or stalled, once patched.
+     */
+    private static List<Deployment> expectFleet(String prefix, boolean stall) {
+        List<Deployment> fleet = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            fleet.add(deployment(TEST_FLEET_NAMESPACES[i % 2], prefix + i, TEST_FLEET_IMAGE_1));
+        }
+        fleet.add(deployment(TEST_FLEET_NAMESPACES[1], prefix + "current", TEST_FLEET_IMAGE_2));
+        server.expect().get().withPath("/apis/apps/v1/deployments?labelSelector=" + TEST_FLEET_LABEL_KEY + "%3D" + TEST_FLEET_LABEL_VALUE)
+                .andReturn(200, new DeploymentListBuilder().withItems(fleet).build())
+                .once();
+        for (Deployment deployment : fleet.subList(0, fleet.size() - 1)) {
+            Deployment rolledOut = rolledOut(deployment, stall);
+            String path = "/apis/apps/v1/namespaces/" + deployment.getMetadata().getNamespace() + "/deployments/" + deployment.getMetadata().getName();
+            server.expect().get().withPath(path).andReturn(200, rolledOut).always();
+            server.expect().patch().withPath(path).andReturn(200, rolledOut).once();
+        }
+        return fleet;
+    }
+
+    private static Deployment deployment(String namespace, String name, String image) {
+        return new DeploymentBuilder()
+                .withNewMetadata().withName(name).withNamespace(namespace).withGeneration(1L)
+                .addToLabels(TEST_FLEET_LABEL_KEY, TEST_FLEET_LABEL_VALUE).endMetadata()
+                .withNewSpec().withReplicas(TEST_FLEET_REPLICA_COUNT)
+                .withNewTemplate().withNewSpec()
+                .addNewContainer().withName(TEST_FLEET_OTHER_CONTAINER_NAME).withImage(TEST_FLEET_OTHER_IMAGE).endContainer()
+                .addNewContainer().withName(TEST_FLEET_CONTAINER_NAME).withImage(image).endContainer()
+                .endSpec().endTemplate()
+                .endSpec()
+                .build();
+    }
+
+    private static Deployment rolledOut(Deployment deployment, boolean stall) {
+        DeploymentBuilder builder = new DeploymentBuilder(deployment)
+                .editMetadata().withGeneration(2L).endMetadata()
+                .editSpec().editTemplate().editSpec().editLastContainer().withImage(TEST_FLEET_IMAGE_2).endContainer().endSpec().endTemplate().endSpec();
+        if (stall) {
+            builder.withNewStatus().withObservedGeneration(2L).withReplicas(TEST_FLEET_REPLICA_COUNT).withUpdatedReplicas(TEST_FLEET_REPLICA_COUNT)
+                    .addNewCondition().withType("Progressing").withStatus("False").withReason("ProgressDeadlineExceeded").endCondition()
+                    .endStatus();
+        } else {
+            builder.withNewStatus().withObservedGeneration(2L).withReplicas(TEST_FLEET_REPLICA_COUNT).withUpdatedReplicas(TEST_FLEET_REPLICA_COUNT)
+                    .withReadyReplicas(TEST_FLEET_REPLICA_COUNT).withAvailableReplicas(TEST_FLEET_REPLICA_COUNT)
+                    .endStatus();
+        }
+        return builder.build();
+    }
+
+    private static List<RecordedRequest> patchRequests() throws InterruptedException {
+        List<RecordedRequest> patches = new ArrayList<>();
+        for (RecordedRequest request = server.takeRequest(100, TimeUnit.MILLISECONDS); request != null;
+                request = server.takeRequest(100, TimeUnit.MILLISECONDS)) {
+            if ("PATCH".equals(request.getMethod())) {
+                patches.add(request);
+            }
+        }
+        return patches;
+    }
+}
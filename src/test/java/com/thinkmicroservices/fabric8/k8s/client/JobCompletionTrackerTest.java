@@ -0,0 +1,69 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.WatchEvent;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.api.model.batch.v1.JobBuilder;
+import io.fabric8.kubernetes.api.model.batch.v1.JobListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+@EnableKubernetesMockClient
+public class JobCompletionTrackerTest {
+
+    private static final String TRACKER_TEST_NAMESPACE = "tracker-test-namespace";
+    private static final String TRACKER_FINISHED_NAME = "tracker-finished";
+    private static final String TRACKER_RUNNING_NAME = "tracker-running";
+    private static final String TRACKER_LIST_VERSION = "5";
+    private static final long TRACKER_TIMEOUT_MILLIS = 10000;
+    static KubernetesClient client;
+    static KubernetesMockServer server;
+
+    /**
+     * Test of trackAll method, of class JobCompletionTracker.
+     */
+    @Test
+    @DisplayName("completions before and after the list are both reported")
+    public void testCompletionBeforeWatch() throws Exception {
+        server.expect().get().withPath("/apis/batch/v1/namespaces/" + TRACKER_TEST_NAMESPACE + "/jobs")
+                .andReturn(200, new JobListBuilder().withNewMetadata(null, null, TRACKER_LIST_VERSION, null)
+                        .withItems(job(TRACKER_FINISHED_NAME, "2", true), job(TRACKER_RUNNING_NAME, "3", false)).build())
+                .once();
+        // the running job finishes between the list and the watch; the server replays it to a watch from the list's version
+        server.expect().withPath("/apis/batch/v1/namespaces/" + TRACKER_TEST_NAMESPACE + "/jobs?resourceVersion="
+                + TRACKER_LIST_VERSION + "&watch=true")
+                .andUpgradeToWebSocket().open()
+                .immediately().andEmit(new WatchEvent(job(TRACKER_RUNNING_NAME, "6", true), "MODIFIED"))
+                .done().once();
+
+        JobCompletionTracker tracker = new JobCompletionTracker(client);
+        Map<String, CompletableFuture<Job>> futures = tracker.trackAll(TRACKER_TEST_NAMESPACE,
+                List.of(TRACKER_FINISHED_NAME, TRACKER_RUNNING_NAME), TRACKER_TIMEOUT_MILLIS);
+        assertTrue(futures.get(TRACKER_FINISHED_NAME).isDone(), "a job finished before the list should be reported by the list");
+        Job replayed = futures.get(TRACKER_RUNNING_NAME).get(TRACKER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals("6", replayed.getMetadata().getResourceVersion(), "the replayed completion should be reported");
+        assertEquals(1, tracker.getWatchStartCount(), "one watch should serve both jobs");
+        System.out.println("job completion tracker:" + tracker);
+    }
+
+    private static Job job(String name, String resourceVersion, boolean finished) {
+        JobBuilder job = new JobBuilder()
+                .withNewMetadata().withName(name).withNamespace(TRACKER_TEST_NAMESPACE).withResourceVersion(resourceVersion).endMetadata()
+                .withNewSpec().endSpec();
+        if (finished) {
+            job.withNewStatus().withSucceeded(1).addNewCondition().withType("Complete").withStatus("True").endCondition().endStatus();
+        }
+        return job.build();
+    }
+}
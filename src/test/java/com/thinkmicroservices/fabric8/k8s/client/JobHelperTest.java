@@ -1,13 +1,35 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
+import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.api.model.batch.v1.JobBuilder;
 import io.fabric8.kubernetes.api.model.batch.v1.JobList;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import io.fabric8.kubernetes.api.model.batch.v1.JobStatusBuilder;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  *
@@ -29,6 +51,29 @@ public class JobHelperTest {
     private static final RestartPolicy JOB_TEST_RESTART_POLICY_1 = RestartPolicy.NEVER;
     private static final RestartPolicy JOB_TEST_RESTART_POLICY_2 = RestartPolicy.ON_FAILURE;
     
+    private static final String JOB_WAIT_NAME = "pi-wait";
+    private static final String JOB_WAIT_DELETED_NAME = "pi-wait-deleted";
+    private static final long JOB_WAIT_TIMEOUT_MILLIS = 10000;
+    private static final String JOB_FAN_OUT_INDEXED_NAME = "pi-indexed";
+    private static final String JOB_FAN_OUT_PREFIX = "pi-shard";
+    private static final String JOB_COMPLETION_INDEX_ENV = "JOB_COMPLETION_INDEX";
+    private static final String JOB_COMPLETION_INDEX_FIELD_PATH = "metadata.annotations['batch.kubernetes.io/job-completion-index']";
+    private static final int JOB_FAN_OUT_SHARDS = 5;
+    private static final int JOB_FAN_OUT_PARALLELISM = 2;
+    private static final String JOB_TRACKED_PREFIX = "pi-tracked-";
+    private static final int JOB_TRACKED_COUNT = 20;
+    private static final Map<String, String> JOB_TRACKED_LABELS_MAP = Map.of("batch", "tracked");
+    private static final String JOB_GC_PREFIX = "pi-gc-";
+    private static final String JOB_GC_LABEL = "app";
+    private static final long JOB_GC_TTL_MILLIS = 60 * 60 * 1000L;
+    private static final String JOB_QUEUED_PREFIX = "pi-queued-";
+    private static final int JOB_QUEUE_MAX_ACTIVE = 2;
+    private static final String JOB_ARCHIVE_NAME = "pi-archive";
+    private static final int JOB_ARCHIVE_PODS = 2;
+    private static final String JOB_ARCHIVE_INIT_CONTAINER_NAME = "pi-setup";
+    private static final String JOB_OWNER_NAME = "pi-owner";
+    private static final int JOB_OWNER_PODS = 3;
+
     private static final String JOB_EXAMPLE_YAML = "./yaml/job-example.yaml";
 
     
@@ -135,4 +180,461 @@ public class JobHelperTest {
         assertEquals(JOB_TEST_RESTART_POLICY_1.getPolicy(),loadedJob.getSpec().getTemplate().getSpec().getRestartPolicy(),"restart policy doesnt match");
     }
     
+
+    @Test
+    @DisplayName("wait for job completion")
+    @Order(10)
+    public void testWaitForJobCompletion() throws Exception {
+        jobHelper.createJob(JOB_TEST_NAMESPACE, JOB_WAIT_NAME, JOB_TEST_LABELS_MAP,
+                JOB_TEST_ANNOTATIONS_MAP, JOB_TEST_CONTAINER_NAME, JOB_TEST_CONTAINER_IMAGE, JOB_TEST_CONTAINER_ARGUMENTS,
+                JOB_TEST_RESTART_POLICY_1);
+        CompletableFuture<Job> finished = jobHelper.waitForJobCompletion(JOB_TEST_NAMESPACE, JOB_WAIT_NAME, JOB_WAIT_TIMEOUT_MILLIS);
+        assertFalse(finished.isDone(), "job has not finished yet");
+
+        Job failedJob = new JobBuilder(jobHelper.getJob(JOB_TEST_NAMESPACE, JOB_WAIT_NAME))
+                .withNewStatus()
+                .addNewCondition()
+                .withType("Failed")
+                .withStatus("True")
+                .endCondition()
+                .endStatus()
+                .build();
+        client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).updateStatus(failedJob);
+
+        Job job = finished.get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue(JobHelper.isJobFinished(job), "job should be finished");
+        assertFalse(JobHelper.isJobSucceeded(job), "failed job should not count as succeeded");
+        jobHelper.deleteJob(JOB_TEST_NAMESPACE, JOB_WAIT_NAME);
+
+        jobHelper.createJob(JOB_TEST_NAMESPACE, JOB_WAIT_DELETED_NAME, JOB_TEST_LABELS_MAP,
+                JOB_TEST_ANNOTATIONS_MAP, JOB_TEST_CONTAINER_NAME, JOB_TEST_CONTAINER_IMAGE, JOB_TEST_CONTAINER_ARGUMENTS,
+                JOB_TEST_RESTART_POLICY_1);
+        CompletableFuture<Job> deleted = jobHelper.waitForJobCompletion(JOB_TEST_NAMESPACE, JOB_WAIT_DELETED_NAME, JOB_WAIT_TIMEOUT_MILLIS);
+        jobHelper.deleteJob(JOB_TEST_NAMESPACE, JOB_WAIT_DELETED_NAME);
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> deleted.get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "wait should fail when the job is deleted");
+        assertTrue(error.getCause() instanceof KubernetesClientException, "deletion should be reported");
+    }
+
+    @Test
+    @DisplayName("fan work out as one indexed job")
+    @Order(11)
+    public void testFanOutIndexedJob() throws Exception {
+        JobFanOut fanOut = jobHelper.fanOutIndexedJob(JOB_TEST_NAMESPACE, JOB_FAN_OUT_INDEXED_NAME, fanOutTemplate(),
+                JOB_FAN_OUT_SHARDS, JOB_FAN_OUT_PARALLELISM);
+        try {
+            assertEquals(JobFanOut.Mode.INDEXED, fanOut.getMode(), "mode does not match");
+            Job job = jobHelper.getJob(JOB_TEST_NAMESPACE, JOB_FAN_OUT_INDEXED_NAME);
+            assertEquals("Indexed", job.getSpec().getCompletionMode(), "completion mode should be Indexed");
+            assertEquals(JOB_FAN_OUT_SHARDS, job.getSpec().getCompletions(), "completions do not match");
+            assertEquals(JOB_FAN_OUT_PARALLELISM, job.getSpec().getParallelism(), "parallelism does not match");
+            assertEquals(JOB_FAN_OUT_INDEXED_NAME, job.getMetadata().getLabels().get(JobFanOut.FAN_OUT_LABEL), "fan-out label missing");
+
+            job.setStatus(new JobStatusBuilder().withActive(JOB_FAN_OUT_PARALLELISM).withSucceeded(3).build());
+            job = client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).updateStatus(job);
+            long deadline = System.currentTimeMillis() + JOB_WAIT_TIMEOUT_MILLIS;
+            while (fanOut.getSucceeded() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, fanOut.getSucceeded(), "succeeded indexes should be reported");
+            assertEquals(JOB_FAN_OUT_PARALLELISM, fanOut.getActive(), "active pods should be reported");
+            assertFalse(fanOut.isDone(), "fan-out has not finished yet");
+
+            job.setStatus(new JobStatusBuilder().withSucceeded(JOB_FAN_OUT_SHARDS)
+                    .addNewCondition().withType("Complete").withStatus("True").endCondition().build());
+            client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).updateStatus(job);
+            fanOut.getCompletion().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertEquals(JOB_FAN_OUT_SHARDS, fanOut.getSucceeded(), "every index should have succeeded");
+            assertEquals(0, fanOut.getActive(), "no pods should be active");
+            assertEquals(0, fanOut.getFailedJobCount(), "no job should have failed");
+            System.out.println("indexed fan-out:" + fanOut);
+        } finally {
+            fanOut.close();
+            jobHelper.deleteJob(JOB_TEST_NAMESPACE, JOB_FAN_OUT_INDEXED_NAME);
+        }
+    }
+
+    @Test
+    @DisplayName("fan work out as one job per shard")
+    @Order(12)
+    public void testFanOutJobs() throws Exception {
+        // a template written for Indexed Jobs already reads the index from the pod annotation
+        Job template = new JobBuilder(fanOutTemplate())
+                .editSpec().editTemplate().editSpec().editFirstContainer()
+                .addNewEnv().withName(JOB_COMPLETION_INDEX_ENV).withNewValueFrom().withNewFieldRef()
+                .withFieldPath(JOB_COMPLETION_INDEX_FIELD_PATH).endFieldRef().endValueFrom().endEnv()
+                .endContainer().endSpec().endTemplate().endSpec()
+                .build();
+        JobFanOut fanOut = jobHelper.fanOutJobs(JOB_TEST_NAMESPACE, JOB_FAN_OUT_PREFIX, template, JOB_FAN_OUT_SHARDS,
+                JOB_FAN_OUT_PARALLELISM, 0);
+        try {
+            assertEquals(JOB_FAN_OUT_SHARDS, fanOut.getCreateResult().getSuccessCount(), "every shard should be created");
+            assertEquals(JOB_FAN_OUT_SHARDS, fanOut.getJobNames().size(), "job names do not match");
+            Job first = jobHelper.getJob(JOB_TEST_NAMESPACE, JOB_FAN_OUT_PREFIX + "-0");
+            List<EnvVar> env = first.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv();
+            assertEquals(1, env.stream().filter(var -> JOB_COMPLETION_INDEX_ENV.equals(var.getName())).count(),
+                    "the template's index entry should be replaced, not duplicated");
+            assertEquals("0", env.get(0).getValue(), "shard index should be passed to the container");
+            assertNull(env.get(0).getValueFrom(), "the template's index source should be dropped");
+
+            for (int index = 0; index < JOB_FAN_OUT_SHARDS; index++) {
+                Job job = jobHelper.getJob(JOB_TEST_NAMESPACE, JOB_FAN_OUT_PREFIX + "-" + index);
+                boolean fail = index == 0;
+                job.setStatus(new JobStatusBuilder().withSucceeded(fail ? 0 : 1).withFailed(fail ? 1 : 0)
+                        .addNewCondition().withType(fail ? "Failed" : "Complete").withStatus("True").endCondition().build());
+                client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).updateStatus(job);
+            }
+            fanOut.getCompletion().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertEquals(JOB_FAN_OUT_SHARDS, fanOut.getFinishedJobCount(), "every job should have finished");
+            assertEquals(1, fanOut.getFailedJobCount(), "one job should have failed");
+            assertEquals(JOB_FAN_OUT_SHARDS - 1, fanOut.getSucceeded(), "succeeded pods do not match");
+            assertEquals(1, fanOut.getFailed(), "failed pods do not match");
+            System.out.println("template fan-out:" + fanOut);
+        } finally {
+            fanOut.close();
+            for (String jobName : fanOut.getJobNames()) {
+                jobHelper.deleteJob(JOB_TEST_NAMESPACE, jobName);
+            }
+        }
+
+        // a shard deleted before it finished fails the batch instead of leaving it pending
+        JobFanOut deleted = jobHelper.fanOutJobs(JOB_TEST_NAMESPACE, JOB_FAN_OUT_PREFIX + "-deleted", fanOutTemplate(), 2,
+                JOB_FAN_OUT_PARALLELISM, 0);
+        try {
+            // once the watch has reported both creates it will report the delete too
+            long deadline = System.currentTimeMillis() + JOB_WAIT_TIMEOUT_MILLIS;
+            while (deleted.getEventCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, deleted.getEventCount(), "the watch did not report the created shards");
+            jobHelper.deleteJob(JOB_TEST_NAMESPACE, deleted.getJobNames().get(0));
+            deleted.getCompletion().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            fail("deleting an unfinished shard should fail the fan-out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof KubernetesClientException, "deletion should be reported as a client error");
+        } finally {
+            deleted.close();
+            for (String jobName : deleted.getJobNames()) {
+                jobHelper.deleteJob(JOB_TEST_NAMESPACE, jobName);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("track many jobs over one watch")
+    @Order(13)
+    public void testWaitForJobsCompletion() throws Exception {
+        List<String> jobNames = new ArrayList<>();
+        for (int i = 0; i < JOB_TRACKED_COUNT; i++) {
+            jobNames.add(JOB_TRACKED_PREFIX + i);
+            jobHelper.createJob(JOB_TEST_NAMESPACE, JOB_TRACKED_PREFIX + i, JOB_TRACKED_LABELS_MAP,
+                    JOB_TEST_ANNOTATIONS_MAP, JOB_TEST_CONTAINER_NAME, JOB_TEST_CONTAINER_IMAGE, JOB_TEST_CONTAINER_ARGUMENTS,
+                    JOB_TEST_RESTART_POLICY_1);
+        }
+        // finished before tracking starts, so it has to be picked up from the initial list
+        finishJob(jobNames.get(0), "Complete");
+
+        JobCompletionTracker tracker = jobHelper.getCompletionTracker();
+        List<Job> selected = new CopyOnWriteArrayList<>();
+        // the jobs are deleted while the watch is still open: the mock server can fail a write that races a watch closing
+        AutoCloseable selection = tracker.trackSelector(JOB_TEST_NAMESPACE, JOB_TRACKED_LABELS_MAP, selected::add);
+        try {
+            try {
+                Map<String, CompletableFuture<Job>> futures = jobHelper.waitForJobsCompletion(JOB_TEST_NAMESPACE, jobNames, JOB_WAIT_TIMEOUT_MILLIS);
+                assertEquals(JOB_TRACKED_COUNT, futures.size(), "every job should get a future");
+                assertTrue(futures.get(jobNames.get(0)).isDone(), "an already finished job should complete at once");
+                assertEquals(1, tracker.getActiveWatchCount(), "one watch should serve the namespace");
+
+                for (int i = 1; i < JOB_TRACKED_COUNT - 1; i++) {
+                    finishJob(jobNames.get(i), i % 2 == 0 ? "Complete" : "Failed");
+                }
+                jobHelper.deleteJob(JOB_TEST_NAMESPACE, jobNames.get(JOB_TRACKED_COUNT - 1));
+
+                for (int i = 0; i < JOB_TRACKED_COUNT - 1; i++) {
+                    Job job = futures.get(jobNames.get(i)).get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    assertEquals(i == 0 || i % 2 == 0, JobHelper.isJobSucceeded(job), "outcome does not match for " + jobNames.get(i));
+                }
+                ExecutionException error = assertThrows(ExecutionException.class,
+                        () -> futures.get(jobNames.get(JOB_TRACKED_COUNT - 1)).get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS),
+                        "a deleted job should fail its future");
+                assertTrue(error.getCause() instanceof KubernetesClientException, "deletion should be reported");
+                assertEquals(0, tracker.getPendingCount(), "no job should be pending");
+                assertEquals(JOB_TRACKED_COUNT - 1, selected.size(), "the selector should see every finished job once");
+                assertEquals(1, tracker.getWatchStartCount(), "one watch should have been opened");
+                System.out.println("job completion tracker:" + tracker);
+            } finally {
+                for (String jobName : jobNames) {
+                    jobHelper.deleteJob(JOB_TEST_NAMESPACE, jobName);
+                }
+            }
+        } finally {
+            selection.close();
+        }
+        assertEquals(0, tracker.getActiveWatchCount(), "the watch should close once nothing is registered");
+    }
+
+    @Test
+    @DisplayName("collect finished jobs past their TTL or retention count")
+    @Order(14)
+    public void testGarbageCollector() throws Exception {
+        long now = System.currentTimeMillis();
+        // two jobs finished before the TTL, three recent runs of which two are retained, and one still running
+        createGcJob(JOB_GC_PREFIX + "old-0", "nightly", now - 3 * JOB_GC_TTL_MILLIS);
+        createGcJob(JOB_GC_PREFIX + "old-1", null, now - 2 * JOB_GC_TTL_MILLIS);
+        createGcJob(JOB_GC_PREFIX + "run-0", "hourly", now - 3 * 60 * 1000L);
+        createGcJob(JOB_GC_PREFIX + "run-1", "hourly", now - 2 * 60 * 1000L);
+        createGcJob(JOB_GC_PREFIX + "run-2", "hourly", now - 60 * 1000L);
+        createGcJob(JOB_GC_PREFIX + "running", "hourly", -1);
+
+        JobGarbageCollector collector = jobHelper.enableGarbageCollector(JobGcSettings.defaults()
+                .withNamespace(JOB_TEST_NAMESPACE).withTtlMillis(JOB_GC_TTL_MILLIS).withRetention(JOB_GC_LABEL, 2)
+                .withBatchSize(2).withRequestsPerSecond(0).withSweepIntervalMillis(JOB_GC_TTL_MILLIS));
+        try {
+            assertTrue(collector.waitForSync(JOB_WAIT_TIMEOUT_MILLIS), "collector did not sync");
+            // informer events are delivered after the sync
+            long deadline = System.currentTimeMillis() + JOB_WAIT_TIMEOUT_MILLIS;
+            while (collector.getFinishedJobCount() < 5 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(5, collector.getFinishedJobCount(), "every finished job should be tracked");
+
+            assertEquals(2, collector.sweep(), "a sweep should delete one batch");
+            assertEquals(1, collector.sweep(), "the next sweep should delete the rest");
+            assertEquals(0, collector.sweep(), "nothing should be left to delete");
+            assertEquals(3, collector.getDeletedCount(), "deleted count does not match");
+            assertEquals(3, collector.getDeletedPodCount(), "deleted pod count does not match");
+
+            for (String kept : List.of("run-1", "run-2", "running")) {
+                assertNotNull(jobHelper.getJob(JOB_TEST_NAMESPACE, JOB_GC_PREFIX + kept), kept + " should be kept");
+            }
+            for (String deleted : List.of("old-0", "old-1", "run-0")) {
+                assertNull(jobHelper.getJob(JOB_TEST_NAMESPACE, JOB_GC_PREFIX + deleted), deleted + " should be deleted");
+            }
+            System.out.println("job garbage collector:" + collector);
+        } finally {
+            // the mock server can stall a delete whose watch event races the informer shutting down
+            for (String jobName : List.of("run-1", "run-2", "running")) {
+                jobHelper.deleteJob(JOB_TEST_NAMESPACE, JOB_GC_PREFIX + jobName);
+            }
+            jobHelper.disableGarbageCollector();
+        }
+        assertNull(jobHelper.getGarbageCollector(), "collector should be disabled");
+    }
+
+    @Test
+    @DisplayName("admit queued jobs by priority as slots free")
+    @Order(15)
+    public void testJobQueue() throws Exception {
+        // a and b take both slots; d outranks c and e, and c was queued before e
+        String[] names = {"a", "b", "c", "d", "e"};
+        int[] priorities = {0, 0, 1, 5, 1};
+        Map<String, JobQueue.Ticket> tickets = new HashMap<>();
+        try (JobQueue queue = jobHelper.newJobQueue(JobQueueSettings.defaults().withMaxActive(JOB_QUEUE_MAX_ACTIVE)
+                .withJobTimeoutMillis(JOB_WAIT_TIMEOUT_MILLIS))) {
+            for (int i = 0; i < names.length; i++) {
+                Job job = new JobBuilder(fanOutTemplate())
+                        .editMetadata().withName(JOB_QUEUED_PREFIX + names[i]).withNamespace(JOB_TEST_NAMESPACE).endMetadata()
+                        .build();
+                tickets.put(names[i], queue.submit(JOB_TEST_NAMESPACE, job, priorities[i]));
+            }
+            assertEquals(JOB_QUEUE_MAX_ACTIVE, queue.getActive(), "only maxActive jobs should be admitted");
+            assertEquals(3, queue.getDepth(), "the rest should be queued");
+            assertEquals(3, queue.getDepth(JOB_TEST_NAMESPACE, null), "the namespace class should hold the queued jobs");
+            tickets.get("a").getAdmitted().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            tickets.get("b").getAdmitted().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNull(jobHelper.getJob(JOB_TEST_NAMESPACE, JOB_QUEUED_PREFIX + "d"), "a queued job should not be created");
+
+            // admission waits for the tracker's watch, so one write is enough
+            finishJob(JOB_QUEUED_PREFIX + "a", "Complete");
+            tickets.get("a").getFinished().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            tickets.get("d").getAdmitted().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertFalse(tickets.get("c").getAdmitted().isDone(), "the highest priority job should be admitted first");
+
+            finishJob(JOB_QUEUED_PREFIX + "b", "Failed");
+            tickets.get("b").getFinished().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            tickets.get("c").getAdmitted().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertEquals(1, queue.getDepth(), "only e should be queued");
+
+            assertTrue(tickets.get("e").cancel(), "a queued job should be cancellable");
+            assertEquals(0, queue.getDepth(), "a cancelled job should leave the queue");
+            assertFalse(tickets.get("c").cancel(), "an admitted job should not be cancellable");
+
+            finishJob(JOB_QUEUED_PREFIX + "c", "Complete");
+            finishJob(JOB_QUEUED_PREFIX + "d", "Complete");
+            tickets.get("c").getFinished().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            tickets.get("d").getFinished().get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            long deadline = System.currentTimeMillis() + JOB_WAIT_TIMEOUT_MILLIS;
+            while (queue.getActive() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, queue.getActive(), "every slot should be free");
+            assertEquals(4, queue.getAdmittedCount(), "admitted count does not match");
+            assertTrue(tickets.get("d").getWaitMillis() >= 0, "an admitted job should record its wait");
+            assertTrue(queue.getMaxWaitMillis() >= tickets.get("d").getWaitMillis(), "max wait does not match");
+            assertNull(jobHelper.getJob(JOB_TEST_NAMESPACE, JOB_QUEUED_PREFIX + "e"), "a cancelled job should not be created");
+            System.out.println("job queue:" + queue);
+        } finally {
+            for (String name : names) {
+                jobHelper.deleteJob(JOB_TEST_NAMESPACE, JOB_QUEUED_PREFIX + name);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("archive job output to compressed files")
+    @Order(16)
+    public void testArchiveJobOutput(@TempDir Path directory) throws Exception {
+        client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).create(new JobBuilder(fanOutTemplate())
+                .editMetadata().withName(JOB_ARCHIVE_NAME).withNamespace(JOB_TEST_NAMESPACE).endMetadata().build());
+        List<String> podNames = new ArrayList<>();
+        for (int i = 0; i < JOB_ARCHIVE_PODS; i++) {
+            podNames.add(JOB_ARCHIVE_NAME + "-" + i);
+            PodBuilder pod = new PodBuilder()
+                    .withNewMetadata().withName(JOB_ARCHIVE_NAME + "-" + i).withNamespace(JOB_TEST_NAMESPACE)
+                    .addToLabels("job-name", JOB_ARCHIVE_NAME).endMetadata()
+                    .withNewSpec().addNewContainer().withName(JOB_TEST_CONTAINER_NAME).withImage(JOB_TEST_CONTAINER_IMAGE)
+                    .endContainer().endSpec();
+            if (i == 0) {
+                // init container logs are archived too
+                pod.editSpec().addNewInitContainer().withName(JOB_ARCHIVE_INIT_CONTAINER_NAME).withImage(JOB_TEST_CONTAINER_IMAGE)
+                        .endInitContainer().endSpec();
+            }
+            client.pods().inNamespace(JOB_TEST_NAMESPACE).create(pod.build());
+        }
+        // a selector keeps the namespace watch open until the cleanup is done: the mock server can fail a write that
+        // races a watch closing
+        AutoCloseable selection = jobHelper.getCompletionTracker().trackSelector(JOB_TEST_NAMESPACE, JOB_TEST_LABELS_MAP, job -> {
+        });
+        try {
+            try {
+                CompletableFuture<JobOutputArchive> onCompletion = jobHelper.archiveJobOutputOnCompletion(JOB_TEST_NAMESPACE,
+                        JOB_ARCHIVE_NAME, directory.resolve("gzip"), JobOutputArchive.Format.GZIP, 2, JOB_WAIT_TIMEOUT_MILLIS);
+                assertFalse(onCompletion.isDone(), "nothing should be archived before the job finishes");
+                // the selector opened the tracker's watch before the job was registered, so one write is enough
+                finishJob(JOB_ARCHIVE_NAME, "Complete");
+                JobOutputArchive gzip = onCompletion.get(JOB_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                assertEquals(JOB_ARCHIVE_PODS + 1, gzip.getContainersArchived(), "every container should be archived");
+                assertEquals(0, gzip.getContainerFailures(), "no container should fail");
+                assertEquals(JOB_ARCHIVE_PODS + 1, gzip.getFiles().size(), "each container log should get a file");
+                assertTrue(Files.exists(directory.resolve("gzip").resolve(JOB_ARCHIVE_NAME + "-0_" + JOB_ARCHIVE_INIT_CONTAINER_NAME + ".log.gz")),
+                        "the init container log should be archived");
+                assertTrue(gzip.getBytesRead() > 0, "log bytes should be counted");
+                for (Path file : gzip.getFiles()) {
+                    try (InputStream input = new GZIPInputStream(Files.newInputStream(file))) {
+                        assertTrue(input.readAllBytes().length > 0, file + " should hold the log");
+                    }
+                }
+                System.out.println("job output archive:" + gzip);
+
+                JobOutputArchive tar = jobHelper.archiveJobOutput(JOB_TEST_NAMESPACE, JOB_ARCHIVE_NAME, directory.resolve("tar"),
+                        JobOutputArchive.Format.TAR_GZ, 2);
+                assertEquals(1, tar.getFiles().size(), "a single archive should be written");
+                assertEquals(gzip.getBytesRead(), tar.getBytesRead(), "both formats should read the same logs");
+                try (InputStream input = new GZIPInputStream(Files.newInputStream(tar.getFiles().get(0)))) {
+                    byte[] contents = input.readAllBytes();
+                    assertEquals(0, contents.length % 512, "the archive should be whole tar blocks");
+                    assertEquals("ustar", new String(contents, 257, 5, StandardCharsets.US_ASCII), "entries should be ustar");
+                    assertTrue(new String(contents, 345, 155, StandardCharsets.US_ASCII).startsWith(JOB_ARCHIVE_NAME + "-"),
+                            "entries should be grouped by pod");
+                }
+                try (Stream<Path> files = Files.list(directory.resolve("tar"))) {
+                    assertEquals(1, files.count(), "spooled logs should be removed");
+                }
+                System.out.println("job output archive:" + tar);
+            } finally {
+                for (String podName : podNames) {
+                    client.pods().inNamespace(JOB_TEST_NAMESPACE).withName(podName).delete();
+                }
+                jobHelper.deleteJob(JOB_TEST_NAMESPACE, JOB_ARCHIVE_NAME);
+            }
+        } finally {
+            selection.close();
+        }
+    }
+
+    @Test
+    @DisplayName("read job pods from the owner index")
+    @Order(17)
+    public void testPodsForJob() throws Exception {
+        assertThrows(IllegalStateException.class, () -> jobHelper.getPodsForJob(JOB_TEST_NAMESPACE, JOB_OWNER_NAME),
+                "reads should fail while the index is disabled");
+        Job owner = client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).create(new JobBuilder(fanOutTemplate())
+                .editMetadata().withName(JOB_OWNER_NAME).withNamespace(JOB_TEST_NAMESPACE).endMetadata().build());
+        List<String> podNames = new ArrayList<>();
+        // the job controller does not run on the mock server, so create its pods here, plus one it does not own
+        for (int i = 0; i <= JOB_OWNER_PODS; i++) {
+            PodBuilder pod = new PodBuilder()
+                    .withNewMetadata().withName(JOB_OWNER_NAME + "-" + i).withNamespace(JOB_TEST_NAMESPACE).endMetadata()
+                    .withNewSpec().addNewContainer().withName(JOB_TEST_CONTAINER_NAME).withImage(JOB_TEST_CONTAINER_IMAGE)
+                    .endContainer().endSpec();
+            if (i < JOB_OWNER_PODS) {
+                pod.editMetadata().addNewOwnerReference().withApiVersion("batch/v1").withKind("Job").withName(JOB_OWNER_NAME)
+                        .withUid(owner.getMetadata().getUid()).withController(true).endOwnerReference().endMetadata();
+            }
+            podNames.add(JOB_OWNER_NAME + "-" + i);
+            client.pods().inNamespace(JOB_TEST_NAMESPACE).create(pod.build());
+        }
+
+        OwnerReferenceIndex index = jobHelper.enableOwnerIndex(0);
+        try {
+            assertTrue(index.waitForSync(JOB_WAIT_TIMEOUT_MILLIS), "index did not sync");
+            List<Pod> pods = jobHelper.getPodsForJob(JOB_TEST_NAMESPACE, JOB_OWNER_NAME);
+            assertEquals(podNames.subList(0, JOB_OWNER_PODS), pods.stream().map(pod -> pod.getMetadata().getName()).collect(Collectors.toList()),
+                    "only the job's pods should be returned, oldest first");
+            assertTrue(jobHelper.getPodsForJob(JOB_TEST_NAMESPACE, JOB_TEST_NAME).isEmpty(), "an unknown job should have no pods");
+            System.out.println("owner reference index:" + index);
+        } finally {
+            // deleted before the informers stop: the mock server can fail a write that races a watch closing
+            for (String podName : podNames) {
+                client.pods().inNamespace(JOB_TEST_NAMESPACE).withName(podName).delete();
+            }
+            jobHelper.deleteJob(JOB_TEST_NAMESPACE, JOB_OWNER_NAME);
+            jobHelper.disableOwnerIndex();
+        }
+        assertNull(jobHelper.getOwnerIndex(), "index should be disabled");
+    }
+
+    private void createGcJob(String jobName, String app, long finishedMillis) {
+        JobBuilder builder = new JobBuilder(fanOutTemplate())
+                .editMetadata().withName(jobName).withNamespace(JOB_TEST_NAMESPACE).endMetadata();
+        if (app != null) {
+            builder.editMetadata().addToLabels(JOB_GC_LABEL, app).endMetadata();
+        }
+        Job job = client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).create(builder.build());
+        if (finishedMillis >= 0) {
+            job.setStatus(new JobStatusBuilder().withSucceeded(1).withCompletionTime(Instant.ofEpochMilli(finishedMillis).toString())
+                    .addNewCondition().withType("Complete").withStatus("True").endCondition().build());
+            client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).updateStatus(job);
+        }
+    }
+
+    private void finishJob(String jobName, String condition) {
+        Job job = new JobBuilder(jobHelper.getJob(JOB_TEST_NAMESPACE, jobName))
+                .withNewStatus()
+                .addNewCondition()
+                .withType(condition)
+                .withStatus("True")
+                .endCondition()
+                .endStatus()
+                .build();
+        client.batch().jobs().inNamespace(JOB_TEST_NAMESPACE).updateStatus(job);
+    }
+
+    private Job fanOutTemplate() {
+        return new JobBuilder()
+                .withNewMetadata().addToLabels(JOB_TEST_LABELS_MAP).endMetadata()
+                .withNewSpec()
+                .withNewTemplate()
+                .withNewSpec()
+                .addNewContainer()
+                .withName(JOB_TEST_CONTAINER_NAME)
+                .withImage(JOB_TEST_CONTAINER_IMAGE)
+                .withArgs(JOB_TEST_CONTAINER_ARGUMENTS)
+                .endContainer()
+                .withRestartPolicy(JOB_TEST_RESTART_POLICY_1.getPolicy())
+                .endSpec()
+                .endTemplate()
+                .endSpec()
+                .build();
+    }
 }
@@ -0,0 +1,104 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import io.fabric8.kubernetes.api.model.ListOptions;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.api.model.PodListBuilder;
+import io.fabric8.kubernetes.client.dsl.Listable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+public class PagedListTest {
+
+    private static final int PAGED_TEST_PAGE_SIZE = 2;
+    private static final int PAGED_TEST_ITEM_COUNT = 5;
+
+    /**
+     * Serves PAGED_TEST_ITEM_COUNT pods in pages, using the offset as the
+     * continue token, and records the options of every request.
+     */
+    private static class PagingListable implements Listable<PodList> {
+
+        private final List<ListOptions> requests = new ArrayList<>();
+
+        @Override
+        public PodList list() {
+            return list(new ListOptions());
+        }
+
+        @Override
+        public PodList list(Integer limitVal, String continueVal) {
+            ListOptions options = new ListOptions();
+            options.setLimit(limitVal.longValue());
+            options.setContinue(continueVal);
+            return list(options);
+        }
+
+        @Override
+        public PodList list(ListOptions listOptions) {
+            requests.add(listOptions);
+            int offset = listOptions.getContinue() == null ? 0 : Integer.parseInt(listOptions.getContinue());
+            int end = Math.min(PAGED_TEST_ITEM_COUNT, offset + listOptions.getLimit().intValue());
+            List<Pod> pods = new ArrayList<>();
+            for (int i = offset; i < end; i++) {
+                pods.add(new PodBuilder().withNewMetadata().withName("pod-" + i).endMetadata().build());
+            }
+            return new PodListBuilder()
+                    .withNewMetadata()
+                    .withContinue(end < PAGED_TEST_ITEM_COUNT ? String.valueOf(end) : null)
+                    .endMetadata()
+                    .withItems(pods)
+                    .build();
+        }
+    }
+
+    @Test
+    @DisplayName("pages are fetched lazily")
+    public void testPagesFetchedLazily() {
+        PagingListable listable = new PagingListable();
+        PagedList<Pod> pods = PagedList.iterator(listable, PAGED_TEST_PAGE_SIZE);
+        assertEquals(0, pods.getPageCount(), "nothing should be fetched before iterating");
+        assertEquals("pod-0", pods.next().getMetadata().getName(), "first pod does not match");
+        assertEquals(1, pods.getPageCount(), "only the first page should be fetched");
+        assertEquals(Long.valueOf(PAGED_TEST_PAGE_SIZE), listable.requests.get(0).getLimit(), "page size not sent as limit");
+    }
+
+    @Test
+    @DisplayName("stream follows continue tokens")
+    public void testStreamFollowsContinueTokens() {
+        PagingListable listable = new PagingListable();
+        List<String> names = PagedList.stream(listable, PAGED_TEST_PAGE_SIZE)
+                .map(pod -> pod.getMetadata().getName())
+                .collect(Collectors.toList());
+        assertEquals(List.of("pod-0", "pod-1", "pod-2", "pod-3", "pod-4"), names, "pods do not match");
+        assertEquals(3, listable.requests.size(), "five pods in pages of two should take three requests");
+        assertEquals("2", listable.requests.get(1).getContinue(), "continue token not forwarded");
+    }
+
+    @Test
+    @DisplayName("exhausted iterator throws")
+    public void testExhaustedIterator() {
+        PagedList<Pod> pods = PagedList.iterator(new PagingListable(), PAGED_TEST_ITEM_COUNT);
+        for (int i = 0; i < PAGED_TEST_ITEM_COUNT; i++) {
+            pods.next();
+        }
+        assertFalse(pods.hasNext(), "iterator should be exhausted");
+        assertThrows(NoSuchElementException.class, pods::next);
+    }
+
+    @Test
+    @DisplayName("page size must be positive")
+    public void testInvalidPageSize() {
+        assertThrows(IllegalArgumentException.class, () -> PagedList.iterator(new PagingListable(), 0));
+    }
+}
@@ -1,9 +1,22 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +40,20 @@ public class PodHelperTest {
     private static final String POD_LABEL_VALUE_1 = "beta";
     private static final String POD_LABEL_KEY_2 = "delta";
     private static final String POD_LABEL_VALUE_2 = "gamma";
+    private static final String POD_CACHED_NAME = "pod-cached";
+    private static final long POD_CACHE_TIMEOUT_MILLIS = 10000;
+    private static final int POD_LOG_LIMIT_BYTES = 4096;
+    private static final int POD_LOG_SINCE_SECONDS = 60;
+    private static final int POD_LOG_TAIL_LINES = 100;
+    private static final String POD_BULK_NAME_PREFIX = "pod-bulk-";
+    private static final int POD_BULK_COUNT = 10;
+    private static final int POD_BULK_CONCURRENCY = 4;
+    private static final long POD_WAIT_TIMEOUT_MILLIS = 10000;
+    private static final long POD_WAIT_SHORT_TIMEOUT_MILLIS = 200;
+    private static final Pattern POD_LOG_SEARCH_PATTERN = Pattern.compile("\"kind\"\\s*:\\s*\"Pod\"");
+    private static final int POD_LOG_SEARCH_CONCURRENCY = 2;
+    private static final String POD_LATE_NAME = "pod-late";
+    private static final int POD_LOG_BUFFER_CAPACITY = 16;
     static KubernetesClient client;
 
     private PodHelper podHelper;
@@ -84,6 +111,32 @@ public class PodHelperTest {
         assertTrue(logOutput.length() > 0, "pod log output shloud not be empty");
     }
 
+    /**
+     * Test of getPodLogReader and copyPodLog methods, of class PodHelper.
+     */
+    @Test
+    @DisplayName("stream pod log")
+    @Order(4)
+    public void testStreamPodLog() throws Exception {
+        PodLogRequest request = PodLogRequest.all()
+                .withContainer(POD_TEST_CONTAINER_NAME)
+                .withLimitBytes(POD_LOG_LIMIT_BYTES)
+                .withSinceSeconds(POD_LOG_SINCE_SECONDS)
+                .withTailLines(POD_LOG_TAIL_LINES);
+        try (BufferedReader reader = new BufferedReader(podHelper.getPodLogReader(POD_TEST_NAMESPACE, POD_TEST_NAME, request))) {
+            assertNotNull(reader.readLine(), "pod log stream should not be empty");
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long copied = podHelper.copyPodLog(POD_TEST_NAMESPACE, POD_TEST_NAME, request, Channels.newChannel(output));
+        assertTrue(copied > 0, "pod log copy should not be empty");
+        assertEquals(copied, output.size(), "copied byte count does not match");
+
+        assertThrows(IllegalArgumentException.class, () -> PodLogRequest.all()
+                .withSinceSeconds(POD_LOG_SINCE_SECONDS)
+                .withSinceTime(Instant.now()), "sinceSeconds and sinceTime should be exclusive");
+    }
+
     /**
      * Test of deletePod method, of class PodHelper.
      */
@@ -137,6 +190,17 @@ public class PodHelperTest {
 
     }
 
+    /**
+     * Test of streamAllPods method, of class PodHelper.
+     */
+    @Test
+    @DisplayName("stream all pods")
+    @Order(8)
+    public void testStreamAllPods() {
+        long streamedCount = podHelper.streamAllPods(1).count();
+        assertEquals(podHelper.getAllPods().getItems().size(), streamedCount, "streamed pod count does not match");
+    }
+
      /**
      * Test of getPodYAML with state method, of class PodHelper.
      */
@@ -172,7 +236,191 @@ public class PodHelperTest {
         assertNotNull(loadedPod, "Loaded pod should not be null");
         assertEquals("pod-test", loadedPod.getMetadata().getName(), "Pod name doesn't match");
     }
-    
-    
 
+    /**
+     * Test of the cached read path of class PodHelper.
+     */
+    @Test
+    @DisplayName("read pods from the informer cache")
+    @Order(12)
+    public void testCachedReads() throws Exception {
+        Pod labeledPod = new PodBuilder()
+                .withNewMetadata()
+                .withName(POD_CACHED_NAME)
+                .withNamespace(POD_TEST_NAMESPACE)
+                .addToLabels(POD_LABEL_KEY_1, POD_LABEL_VALUE_1)
+                .addToLabels(POD_LABEL_KEY_2, POD_LABEL_VALUE_2)
+                .endMetadata()
+                .withNewSpec()
+                .addNewContainer()
+                .withName(POD_TEST_CONTAINER_NAME)
+                .withImage(POD_TEST_IMAGE_NAME)
+                .endContainer()
+                .endSpec()
+                .build();
+        podHelper.updatePod(POD_TEST_NAMESPACE, labeledPod);
+
+        ResourceCache<Pod> cache = podHelper.enableCache(0);
+        try {
+            assertTrue(cache.waitForSync(POD_CACHE_TIMEOUT_MILLIS), "pod cache did not sync");
+            long hits = cache.getHitCount();
+
+            Pod cachedPod = podHelper.getPod(POD_TEST_NAMESPACE, POD_CACHED_NAME);
+            assertNotNull(cachedPod, "cached pod should not be null");
+            assertEquals(POD_CACHED_NAME, cachedPod.getMetadata().getName(), "Pod name does not match");
+
+            PodList labeled = podHelper.getPodsWithLabelInNamespace(POD_TEST_NAMESPACE, POD_LABEL_KEY_1, POD_LABEL_VALUE_1);
+            assertEquals(1, labeled.getItems().size(), "one pod should carry the label");
+
+            PodList bothLabels = podHelper.getPodsWithLabelsInNamespace(POD_TEST_NAMESPACE,
+                    Map.of(POD_LABEL_KEY_1, POD_LABEL_VALUE_1, POD_LABEL_KEY_2, POD_LABEL_VALUE_2));
+            assertEquals(1, bothLabels.getItems().size(), "one pod should carry both labels");
+
+            PodList noMatch = podHelper.getPodsWithLabelsInNamespace(POD_TEST_NAMESPACE,
+                    Map.of(POD_LABEL_KEY_1, POD_LABEL_VALUE_2));
+            assertTrue(noMatch.getItems().isEmpty(), "no pod should match");
+
+            assertFalse(podHelper.getAllPodsInNamespace(POD_TEST_NAMESPACE).getItems().isEmpty(), "namespace should not be empty");
+            assertEquals(hits + 5, cache.getHitCount(), "every read should be a cache hit");
+            assertNotNull(cache.getLastResourceVersion(), "cache should report a resource version");
+            System.out.println("pod cache:" + cache);
+        } finally {
+            podHelper.disableCache();
+        }
+        assertNull(podHelper.getPodCache(), "cache should be disabled");
+    }
+
+
+    /**
+     * Test of aggregatePodLogs method, of class PodHelper.
+     */
+    @Test
+    @DisplayName("aggregate logs from existing and new pods")
+    @Order(13)
+    public void testAggregatePodLogs() throws Exception {
+        try (PodLogAggregator aggregator = podHelper.aggregatePodLogs(POD_TEST_NAMESPACE,
+                Map.of(POD_LABEL_KEY_1, POD_LABEL_VALUE_1), 10, POD_LOG_BUFFER_CAPACITY)) {
+            PodLogAggregator.LogLine line = aggregator.poll(POD_CACHE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(line, "existing pod should produce log lines");
+            assertEquals(POD_CACHED_NAME, line.getPodName(), "Pod name does not match");
+            assertEquals(POD_TEST_CONTAINER_NAME, line.getContainerName(), "Container name does not match");
+            assertNotNull(line.getTimestamp(), "line should carry a timestamp");
+
+            Pod latePod = new PodBuilder()
+                    .withNewMetadata()
+                    .withName(POD_LATE_NAME)
+                    .withNamespace(POD_TEST_NAMESPACE)
+                    .addToLabels(POD_LABEL_KEY_1, POD_LABEL_VALUE_1)
+                    .endMetadata()
+                    .withNewSpec()
+                    .addNewContainer()
+                    .withName(POD_TEST_CONTAINER_NAME)
+                    .withImage(POD_TEST_IMAGE_NAME)
+                    .endContainer()
+                    .endSpec()
+                    .build();
+            podHelper.updatePod(POD_TEST_NAMESPACE, latePod);
+
+            boolean lateLineSeen = false;
+            while (!lateLineSeen && (line = aggregator.poll(POD_CACHE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                lateLineSeen = POD_LATE_NAME.equals(line.getPodName());
+            }
+            assertTrue(lateLineSeen, "pod created after the aggregator should be followed");
+            assertTrue(aggregator.getBufferedLineCount() <= POD_LOG_BUFFER_CAPACITY, "buffer should stay bounded");
+        }
+    }
+
+    /**
+     * Test of createPods method, of class PodHelper.
+     */
+    @Test
+    @DisplayName("create pods in bulk")
+    @Order(14)
+    public void testCreatePods() throws Exception {
+        List<Pod> pods = new ArrayList<>();
+        for (int i = 0; i < POD_BULK_COUNT; i++) {
+            pods.add(new PodBuilder()
+                    .withNewMetadata()
+                    .withName(POD_BULK_NAME_PREFIX + i)
+                    .withNamespace(POD_TEST_NAMESPACE)
+                    .endMetadata()
+                    .withNewSpec()
+                    .addNewContainer()
+                    .withName(POD_TEST_CONTAINER_NAME)
+                    .withImage(POD_TEST_IMAGE_NAME)
+                    .endContainer()
+                    .endSpec()
+                    .build());
+        }
+        BulkResult<Pod> result = podHelper.createPods(POD_TEST_NAMESPACE, pods, true, POD_BULK_CONCURRENCY, 0);
+        System.out.println("bulk pod create:" + result);
+        assertEquals(POD_BULK_COUNT, result.getSuccessCount(), "every pod should be created");
+        assertEquals(POD_BULK_NAME_PREFIX + 0, result.getResults().get(0).getMetadata().getName(), "Pod name does not match");
+        assertNotNull(podHelper.getPod(POD_TEST_NAMESPACE, POD_BULK_NAME_PREFIX + (POD_BULK_COUNT - 1)), "last pod should exist");
+
+        BulkResult<Pod> duplicate = podHelper.createPods(POD_TEST_NAMESPACE, pods.subList(0, 1), true, POD_BULK_CONCURRENCY, 0);
+        assertEquals(1, duplicate.getFailureCount(), "creating an existing pod should fail");
+    }
+
+    /**
+     * Test of waitForPodReady method, of class PodHelper.
+     */
+    @Test
+    @DisplayName("wait for pods to become ready")
+    @Order(15)
+    public void testWaitForPodReady() throws Exception {
+        CompletableFuture<Pod> ready = podHelper.waitForPodReady(POD_TEST_NAMESPACE, POD_CACHED_NAME, POD_WAIT_TIMEOUT_MILLIS);
+        CompletableFuture<Pod> neverReady = podHelper.waitForPodReady(POD_TEST_NAMESPACE, POD_LATE_NAME, POD_WAIT_SHORT_TIMEOUT_MILLIS);
+        assertFalse(ready.isDone(), "pod is not ready yet");
+        assertEquals(1, podHelper.getPodWatches().getActiveWatchCount(), "waits in a namespace should share one watch");
+
+        Pod readyPod = new PodBuilder(podHelper.getPod(POD_TEST_NAMESPACE, POD_CACHED_NAME))
+                .withNewStatus()
+                .withPhase("Running")
+                .addNewCondition()
+                .withType("Ready")
+                .withStatus("True")
+                .endCondition()
+                .endStatus()
+                .build();
+        client.pods().inNamespace(POD_TEST_NAMESPACE).updateStatus(readyPod);
+
+        Pod pod = ready.get(POD_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(POD_CACHED_NAME, pod.getMetadata().getName(), "Pod name does not match");
+        ExecutionException timeout = assertThrows(ExecutionException.class,
+                () -> neverReady.get(POD_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "wait should time out");
+        assertTrue(timeout.getCause() instanceof TimeoutException, "wait should fail with a timeout");
+        assertEquals(0, podHelper.getPodWatches().getPendingWaitCount(), "no waits should remain");
+        assertEquals(0, podHelper.getPodWatches().getActiveWatchCount(), "watch should close with the last wait");
+        System.out.println("pod waits:" + podHelper.getPodWatches());
+
+        Pod alreadyReady = podHelper.waitForPodReady(POD_TEST_NAMESPACE, POD_CACHED_NAME, POD_WAIT_TIMEOUT_MILLIS)
+                .get(POD_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(alreadyReady, "a ready pod should complete immediately");
+    }
+
+    /**
+     * Test of searchPodLogs method, of class PodHelper.
+     */
+    @Test
+    @DisplayName("search the logs of labeled pods")
+    @Order(16)
+    public void testSearchPodLogs() throws Exception {
+        Map<String, String> labels = Map.of(POD_LABEL_KEY_1, POD_LABEL_VALUE_1);
+        LogSearchResult all = podHelper.searchPodLogs(POD_TEST_NAMESPACE, labels, POD_LOG_SEARCH_PATTERN, 100, POD_LOG_SEARCH_CONCURRENCY);
+        System.out.println("log search:" + all);
+        assertEquals(2, all.getContainersSearched(), "both labeled pods should be searched");
+        assertEquals(0, all.getContainerFailures(), "no log should fail");
+        assertFalse(all.isTruncated(), "search should not hit the limit");
+        assertFalse(all.getMatches().isEmpty(), "pattern should match");
+        assertTrue(all.getBytesScanned() > 0, "bytes should be counted");
+        LogSearchResult.LogMatch first = all.getMatches().get(0);
+        assertEquals(POD_CACHED_NAME, first.getPodName(), "matches should be ordered by pod");
+        assertEquals(POD_TEST_CONTAINER_NAME, first.getContainerName(), "Container name does not match");
+        assertTrue(first.getLineNumber() > 0, "line numbers start at 1");
+
+        LogSearchResult limited = podHelper.searchPodLogs(POD_TEST_NAMESPACE, labels, POD_LOG_SEARCH_PATTERN, 1, POD_LOG_SEARCH_CONCURRENCY);
+        assertEquals(1, limited.getMatches().size(), "search should stop at the limit");
+        assertTrue(limited.isTruncated(), "limited search should report truncation");
+    }
 }
@@ -0,0 +1,135 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.StatusBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+@EnableKubernetesMockClient
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ResourceApplierTest {
+
+    static KubernetesClient client;
+    static KubernetesMockServer server;
+
+    private static final String APPLY_TEST_NAMESPACE = "apply-test-namespace";
+    private static final String APPLY_UNCHANGED_NAME = "apply-unchanged";
+    private static final String APPLY_MISSING_NAME = "apply-missing";
+    private static final String APPLY_CHANGED_NAME = "apply-changed";
+    private static final String APPLY_CACHED_NAME = "apply-cached";
+    private static final String APPLY_LABEL_KEY = "app";
+    private static final String APPLY_LABEL_VALUE = "web";
+    private static final String APPLY_LIVE_LABEL_KEY = "owner";
+    private static final String APPLY_LIVE_LABEL_VALUE = "controller";
+    private static final Map<String, String> APPLY_OLD_DATA = Map.of("One", "1");
+    private static final Map<String, String> APPLY_NEW_DATA = Map.of("Two", "2");
+    private static final String MERGE_PATCH_MEDIA_TYPE = "application/merge-patch+json";
+
+    /**
+     * Test of apply method, of class ResourceApplier.
+     */
+    @Test
+    @DisplayName("changed objects get a merge patch of the fields they set")
+    @Order(1)
+    public void testMergePatch() throws Exception {
+        server.expect().get().withPath(configMapPath(APPLY_UNCHANGED_NAME))
+                .andReturn(200, live(APPLY_UNCHANGED_NAME, APPLY_OLD_DATA))
+                .once();
+        server.expect().get().withPath(configMapPath(APPLY_MISSING_NAME))
+                .andReturn(404, new StatusBuilder().withCode(404).build())
+                .once();
+        server.expect().post().withPath("/api/v1/namespaces/" + APPLY_TEST_NAMESPACE + "/configmaps")
+                .andReturn(201, live(APPLY_MISSING_NAME, APPLY_NEW_DATA))
+                .once();
+        server.expect().get().withPath(configMapPath(APPLY_CHANGED_NAME))
+                .andReturn(200, live(APPLY_CHANGED_NAME, APPLY_OLD_DATA))
+                .always();
+        server.expect().patch().withPath(configMapPath(APPLY_CHANGED_NAME))
+                .andReturn(200, live(APPLY_CHANGED_NAME, APPLY_NEW_DATA))
+                .once();
+
+        List<ConfigMap> desired = List.of(desired(APPLY_UNCHANGED_NAME, APPLY_OLD_DATA), desired(APPLY_MISSING_NAME, APPLY_NEW_DATA),
+                desired(APPLY_CHANGED_NAME, APPLY_NEW_DATA));
+        ApplyReport<ConfigMap> report = ResourceApplier.apply(APPLY_TEST_NAMESPACE,
+                client.configMaps().inNamespace(APPLY_TEST_NAMESPACE), desired, null);
+        assertEquals(List.of(ApplyReport.Outcome.SKIPPED, ApplyReport.Outcome.CREATED, ApplyReport.Outcome.PATCHED),
+                report.getOutcomes(), "outcomes do not match");
+        assertMergePatch(lastRequest(), APPLY_CHANGED_NAME);
+    }
+
+    /**
+     * Test of apply method with a cached lookup, of class ResourceApplier.
+     */
+    @Test
+    @DisplayName("a stale cached copy still sends only the desired fields")
+    @Order(2)
+    public void testCachedMergePatch() throws Exception {
+        server.expect().get().withPath(configMapPath(APPLY_CACHED_NAME))
+                .andReturn(200, live(APPLY_CACHED_NAME, APPLY_NEW_DATA))
+                .always();
+        server.expect().patch().withPath(configMapPath(APPLY_CACHED_NAME))
+                .andReturn(200, live(APPLY_CACHED_NAME, APPLY_NEW_DATA))
+                .once();
+
+        ConfigMap stale = live(APPLY_CACHED_NAME, APPLY_OLD_DATA);
+        ApplyReport<ConfigMap> report = ResourceApplier.apply(APPLY_TEST_NAMESPACE,
+                client.configMaps().inNamespace(APPLY_TEST_NAMESPACE), List.of(desired(APPLY_CACHED_NAME, APPLY_NEW_DATA)),
+                (namespace, name) -> stale);
+        assertEquals(1, report.getPatchedCount(), "the stale copy should be patched");
+        assertMergePatch(lastRequest(), APPLY_CACHED_NAME);
+    }
+
+    private static void assertMergePatch(RecordedRequest request, String name) throws Exception {
+        assertEquals("PATCH", request.getMethod(), "the change should be sent as a patch");
+        assertEquals(configMapPath(name), request.getPath(), "the patch went to the wrong object");
+        assertTrue(request.getHeader("Content-Type").startsWith(MERGE_PATCH_MEDIA_TYPE), "a merge patch should be sent");
+        JsonNode patch = Serialization.jsonMapper().readTree(request.getBody().readUtf8());
+        assertTrue(patch.isObject(), "a merge patch is an object");
+        assertEquals(Serialization.jsonMapper().valueToTree(APPLY_NEW_DATA), patch.get("data"), "the desired data should be sent");
+        assertEquals(APPLY_LABEL_VALUE, patch.path("metadata").path("labels").path(APPLY_LABEL_KEY).asText(),
+                "the desired labels should be sent");
+        assertFalse(patch.path("metadata").path("labels").has(APPLY_LIVE_LABEL_KEY), "labels the caller did not set should be left alone");
+        assertFalse(patch.path("metadata").has("resourceVersion"), "server-populated metadata should not be sent");
+    }
+
+    private static RecordedRequest lastRequest() throws InterruptedException {
+        RecordedRequest last = null;
+        for (RecordedRequest request = server.takeRequest(100, TimeUnit.MILLISECONDS); request != null;
+                request = server.takeRequest(100, TimeUnit.MILLISECONDS)) {
+            last = request;
+        }
+        return last;
+    }
+
+    private static ConfigMap desired(String name, Map<String, String> data) {
+        return new ConfigMapBuilder()
+                .withNewMetadata().withName(name).withNamespace(APPLY_TEST_NAMESPACE).addToLabels(APPLY_LABEL_KEY, APPLY_LABEL_VALUE).endMetadata()
+                .withData(data)
+                .build();
+    }
+
+    private static ConfigMap live(String name, Map<String, String> data) {
+        return new ConfigMapBuilder(desired(name, data))
+                .editMetadata().withResourceVersion("7").addToLabels(APPLY_LIVE_LABEL_KEY, APPLY_LIVE_LABEL_VALUE).endMetadata()
+                .build();
+    }
+
+    private static String configMapPath(String name) {
+        return "/api/v1/namespaces/" + APPLY_TEST_NAMESPACE + "/configmaps/" + name;
+    }
+}
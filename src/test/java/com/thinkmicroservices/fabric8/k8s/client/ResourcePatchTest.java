@@ -0,0 +1,60 @@
+package com.thinkmicroservices.fabric8.k8s.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.fabric8.kubernetes.client.dsl.base.PatchType;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author cwoodward
+ */
+public class ResourcePatchTest {
+
+    private static final String PATCH_TEST_LABEL_KEY = "app.kubernetes.io/name";
+    private static final String PATCH_TEST_LABEL_VALUE = "web";
+    private static final String PATCH_TEST_REMOVED_LABEL_KEY = "stale";
+
+    /**
+     * Test of json method, of class ResourcePatch.
+     */
+    @Test
+    @DisplayName("JSON patch operations are emitted in order with escaped pointers")
+    public void testJsonPatch() throws Exception {
+        ResourcePatch patch = ResourcePatch.json()
+                .test("/metadata/resourceVersion", "7")
+                .add(ResourcePatch.pointer("metadata", "labels", PATCH_TEST_LABEL_KEY), PATCH_TEST_LABEL_VALUE)
+                .remove("/spec/suspend")
+                .build();
+        assertEquals(PatchType.JSON, patch.getType(), "patch type does not match");
+        JsonNode operations = Serialization.jsonMapper().readTree(patch.getBody());
+        assertEquals(3, operations.size(), "operation count does not match");
+        assertEquals("test", operations.get(0).get("op").asText(), "operations should keep their order");
+        assertEquals("/metadata/labels/app.kubernetes.io~1name", operations.get(1).get("path").asText(), "pointer was not escaped");
+        assertFalse(operations.get(2).has("value"), "remove has no value");
+
+        assertThrows(IllegalArgumentException.class, () -> ResourcePatch.json().build());
+        assertThrows(IllegalArgumentException.class,
+                () -> ResourcePatch.jsonPatch(Serialization.jsonMapper().createObjectNode()));
+    }
+
+    /**
+     * Test of labels method, of class ResourcePatch.
+     */
+    @Test
+    @DisplayName("label patches set values and delete null ones")
+    public void testLabels() throws Exception {
+        Map<String, String> labels = new HashMap<>();
+        labels.put(PATCH_TEST_LABEL_KEY, PATCH_TEST_LABEL_VALUE);
+        labels.put(PATCH_TEST_REMOVED_LABEL_KEY, null);
+        ResourcePatch patch = ResourcePatch.labels(labels);
+        assertEquals(PatchType.JSON_MERGE, patch.getType(), "patch type does not match");
+        JsonNode body = Serialization.jsonMapper().readTree(patch.getBody()).path("metadata").path("labels");
+        assertEquals(PATCH_TEST_LABEL_VALUE, body.get(PATCH_TEST_LABEL_KEY).asText(), "label value does not match");
+        assertTrue(body.get(PATCH_TEST_REMOVED_LABEL_KEY).isNull(), "removed label should be sent as null");
+    }
+}
@@ -1,9 +1,11 @@
 package com.thinkmicroservices.fabric8.k8s.client;
 
 import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
 import io.fabric8.kubernetes.api.model.SecretList;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,6 +35,8 @@ public class SecretHelperTest {
     private static final Map<String, String> SECRET_TEST_DATA_MAP_1 = Map.of(SECRET_USERNAME_KEY, SECRET_USERNAME_VALUE_1, SECRET_PASSWORD_KEY, SECRET_PASSWORD_VALUE_1);
     private static final Map<String, String> SECRET_TEST_DATA_MAP_2 = Map.of(SECRET_USERNAME_KEY, SECRET_USERNAME_VALUE_2, SECRET_PASSWORD_KEY, SECRET_PASSWORD_VALUE_2);
 
+    private static final String SECRET_APPLY_NAME = "secret-apply-name";
+
     private static final String SECRET_EXAMPLE_YAML = "./yaml/secret-example.yaml";
 
     /**
@@ -136,6 +140,19 @@ public class SecretHelperTest {
         assertEquals(SECRET_TEST_NAME, loadedSecret.getMetadata().getName(), "secret Name does not match");
         assertEquals(SECRET_TEST_DATA_MAP_2, loadedSecret.getData(), "data map does not match");
     }
-    
-    
+
+    @Test
+    @DisplayName("apply secret with string data and skip it when unchanged")
+    @Order(10)
+    public void testApplySecrets() {
+        Secret secret = new SecretBuilder()
+                .withNewMetadata().withName(SECRET_APPLY_NAME).withNamespace(SECRET_TEST_NAMESPACE).endMetadata()
+                .withStringData(SECRET_TEST_DATA_MAP_1)
+                .build();
+        ApplyReport<Secret> created = secretHelper.applySecrets(SECRET_TEST_NAMESPACE, List.of(secret));
+        assertEquals(1, created.getCreatedCount(), "secret should be created");
+        ApplyReport<Secret> unchanged = secretHelper.applySecrets(SECRET_TEST_NAMESPACE, List.of(secret));
+        assertEquals(1, unchanged.getSkippedCount(), "string data matching the stored data should be skipped");
+        assertNotNull(secret.getStringData(), "the caller's secret should not be modified");
+    }
 }
@@ -5,11 +5,21 @@ import static com.thinkmicroservices.fabric8.k8s.client.ServiceHelper.ServicePro
 import com.thinkmicroservices.fabric8.k8s.client.ServiceHelper.ServiceType;
 import static com.thinkmicroservices.fabric8.k8s.client.ServiceHelper.ServiceType.NODE_PORT;
 import static com.thinkmicroservices.fabric8.k8s.client.ServiceHelper.ServiceType.CLUSTER_IP;
+import io.fabric8.kubernetes.api.model.Endpoints;
+import io.fabric8.kubernetes.api.model.EndpointAddress;
+import io.fabric8.kubernetes.api.model.EndpointSubsetBuilder;
+import io.fabric8.kubernetes.api.model.EndpointsBuilder;
 import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.kubernetes.api.model.ServiceList;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSlice;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSliceBuilder;
 
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.DisplayName;
@@ -34,6 +44,15 @@ public class ServiceHelperTest {
     private static final ServiceType SERVICE_TEST_TYPE_EXAMPLE_1 = NODE_PORT;
     private static final ServiceType SERVICE_TEST_TYPE_EXAMPLE_2 = CLUSTER_IP;
 
+    private static final String ENDPOINT_TEST_SERVICE = "endpoint-test-service";
+    private static final String ENDPOINT_TEST_READY_IP = "10.0.0.1";
+    private static final String ENDPOINT_TEST_NOT_READY_IP = "10.0.0.2";
+    private static final String ENDPOINT_TEST_ZONE = "zone-a";
+    private static final long ENDPOINT_TEST_TIMEOUT_MILLIS = 10000;
+    private static final String BALANCER_TEST_SERVICE = "balancer-test-service";
+    private static final String[] BALANCER_TEST_IPS = {"10.0.1.1", "10.0.1.2", "10.0.1.3"};
+    private static final String BALANCER_TEST_REMOTE_ZONE = "zone-b";
+
     static KubernetesClient client;
     private ServiceHelper serviceHelper;
 
@@ -189,4 +208,212 @@ public class ServiceHelperTest {
 
     }
 
+
+    /**
+     * Test of the Endpoints backed resolver, of class ServiceHelper.
+     */
+    @Test
+    @DisplayName("resolve ready endpoints from Endpoints")
+    @Order(11)
+    public void testResolveEndpoints() throws Exception {
+        Endpoints endpoints = new EndpointsBuilder()
+                .withNewMetadata().withName(ENDPOINT_TEST_SERVICE).withNamespace(SERVICE_TEST_NAMESPACE).endMetadata()
+                .addNewSubset()
+                .addNewAddress().withIp(ENDPOINT_TEST_READY_IP).endAddress()
+                .addNewNotReadyAddress().withIp(ENDPOINT_TEST_NOT_READY_IP).endNotReadyAddress()
+                .addNewPort().withName(SERVICE_TEST_PORT_NAME).withPort(SERVICE_TEST_TARGET_PORT).endPort()
+                .endSubset()
+                .build();
+        client.endpoints().inNamespace(SERVICE_TEST_NAMESPACE).create(endpoints);
+
+        List<ServiceEndpoint> direct = serviceHelper.getReadyEndpoints(SERVICE_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE);
+        assertEquals(1, direct.size(), "only the ready address should be returned");
+
+        EndpointResolver resolver = serviceHelper.enableEndpointResolver(EndpointResolver.Source.ENDPOINTS, 0);
+        try {
+            assertTrue(resolver.waitForSync(ENDPOINT_TEST_TIMEOUT_MILLIS), "resolver did not sync");
+            awaitRefreshCount(resolver, 1);
+            List<ServiceEndpoint> ready = serviceHelper.getReadyEndpoints(SERVICE_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE);
+            assertEquals(1, ready.size(), "only the ready address should be resolved");
+            assertEquals(ENDPOINT_TEST_READY_IP + ":" + SERVICE_TEST_TARGET_PORT, ready.get(0).getAddress(), "address does not match");
+            assertSame(ready, serviceHelper.getReadyEndpoints(SERVICE_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE), "lookups should reuse the snapshot");
+            System.out.println("endpoint resolver:" + resolver);
+        } finally {
+            serviceHelper.disableEndpointResolver();
+        }
+    }
+
+    /**
+     * Test of the EndpointSlice backed resolver, of class ServiceHelper.
+     */
+    @Test
+    @DisplayName("resolve ready endpoints from EndpointSlices")
+    @Order(12)
+    public void testResolveEndpointSlices() throws Exception {
+        EndpointSlice slice = new EndpointSliceBuilder()
+                .withNewMetadata()
+                .withName(ENDPOINT_TEST_SERVICE + "-abc")
+                .withNamespace(SERVICE_TEST_NAMESPACE)
+                .addToLabels(EndpointResolver.SERVICE_NAME_LABEL, ENDPOINT_TEST_SERVICE)
+                .endMetadata()
+                .withAddressType("IPv4")
+                .addNewEndpoint().withAddresses(ENDPOINT_TEST_READY_IP).withZone(ENDPOINT_TEST_ZONE)
+                .withNewConditions().withReady(true).endConditions().endEndpoint()
+                .addNewEndpoint().withAddresses(ENDPOINT_TEST_NOT_READY_IP)
+                .withNewConditions().withReady(false).endConditions().endEndpoint()
+                .addNewPort().withName(SERVICE_TEST_PORT_NAME).withPort(SERVICE_TEST_TARGET_PORT).endPort()
+                .build();
+        client.discovery().v1().endpointSlices().inNamespace(SERVICE_TEST_NAMESPACE).create(slice);
+
+        EndpointResolver resolver = serviceHelper.enableEndpointResolver(EndpointResolver.Source.ENDPOINT_SLICES, 0);
+        try {
+            assertTrue(resolver.waitForSync(ENDPOINT_TEST_TIMEOUT_MILLIS), "resolver did not sync");
+            awaitRefreshCount(resolver, 1);
+            List<ServiceEndpoint> ready = serviceHelper.getReadyEndpoints(SERVICE_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE);
+            assertEquals(1, ready.size(), "only the ready endpoint should be resolved");
+            assertEquals(ENDPOINT_TEST_ZONE, ready.get(0).getZone(), "zone does not match");
+        } finally {
+            serviceHelper.disableEndpointResolver();
+        }
+    }
+
+    /**
+     * Test of newLoadBalancer method, of class ServiceHelper.
+     */
+    @Test
+    @DisplayName("balance across endpoints and follow endpoint churn")
+    @Order(13)
+    public void testLoadBalancer() throws Exception {
+        EndpointsBuilder builder = new EndpointsBuilder()
+                .withNewMetadata().withName(BALANCER_TEST_SERVICE).withNamespace(SERVICE_TEST_NAMESPACE).endMetadata();
+        EndpointSubsetBuilder subset = new EndpointSubsetBuilder()
+                .addNewPort().withName(SERVICE_TEST_PORT_NAME).withPort(SERVICE_TEST_TARGET_PORT).endPort();
+        for (String ip : BALANCER_TEST_IPS) {
+            subset.addNewAddress().withIp(ip).endAddress();
+        }
+        Endpoints endpoints = builder.addToSubsets(subset.build()).build();
+        client.endpoints().inNamespace(SERVICE_TEST_NAMESPACE).create(endpoints);
+
+        assertThrows(IllegalStateException.class,
+                () -> serviceHelper.newLoadBalancer(SERVICE_TEST_NAMESPACE, BALANCER_TEST_SERVICE, ServiceLoadBalancer.roundRobin()));
+        EndpointResolver resolver = serviceHelper.enableEndpointResolver(EndpointResolver.Source.ENDPOINTS, 0);
+        try (ServiceLoadBalancer roundRobin = serviceHelper.newLoadBalancer(SERVICE_TEST_NAMESPACE, BALANCER_TEST_SERVICE, ServiceLoadBalancer.roundRobin());
+                ServiceLoadBalancer leastOutstanding = serviceHelper.newLoadBalancer(SERVICE_TEST_NAMESPACE, BALANCER_TEST_SERVICE, ServiceLoadBalancer.leastOutstanding())) {
+            assertTrue(resolver.waitForSync(ENDPOINT_TEST_TIMEOUT_MILLIS), "resolver did not sync");
+            awaitBackendCount(roundRobin, BALANCER_TEST_IPS.length);
+
+            Set<String> picked = new HashSet<>();
+            for (int i = 0; i < BALANCER_TEST_IPS.length; i++) {
+                ServiceEndpoint endpoint = roundRobin.acquire();
+                picked.add(endpoint.getIp());
+                roundRobin.release(endpoint);
+            }
+            assertEquals(BALANCER_TEST_IPS.length, picked.size(), "round robin should visit every backend once per cycle");
+
+            // keep two backends busy; two random choices can never prefer the
+            // busier one, so the idle backend wins whenever it is sampled
+            ServiceEndpoint busyA = null;
+            ServiceEndpoint busyB = null;
+            for (int i = 0; i < 5; i++) {
+                ServiceEndpoint endpoint = leastOutstanding.acquire();
+                if (busyA == null || busyA.equals(endpoint)) {
+                    busyA = endpoint;
+                } else if (busyB == null) {
+                    busyB = endpoint;
+                } else {
+                    leastOutstanding.release(endpoint);
+                }
+            }
+            assertTrue(leastOutstanding.getOutstanding(busyA) > 0, "acquire should count outstanding requests");
+            int idlePicks = 0;
+            for (int i = 0; i < 100; i++) {
+                ServiceEndpoint endpoint = leastOutstanding.acquire();
+                if (!endpoint.equals(busyA) && !endpoint.equals(busyB)) {
+                    idlePicks++;
+                }
+                leastOutstanding.release(endpoint);
+            }
+            assertTrue(idlePicks > 50, "least outstanding should favour the idle backend");
+
+            ServiceEndpoint held = roundRobin.acquire();
+            while (!BALANCER_TEST_IPS[0].equals(held.getIp())) {
+                roundRobin.release(held);
+                held = roundRobin.acquire();
+            }
+            long updates = roundRobin.getUpdateCount();
+            EndpointAddress removed = endpoints.getSubsets().get(0).getAddresses().remove(0);
+            client.endpoints().inNamespace(SERVICE_TEST_NAMESPACE).createOrReplace(endpoints);
+            awaitBackendCount(roundRobin, BALANCER_TEST_IPS.length - 1);
+            assertTrue(roundRobin.getUpdateCount() > updates, "balancer should have been rebuilt");
+            for (int i = 0; i < 10; i++) {
+                ServiceEndpoint endpoint = roundRobin.acquire();
+                assertNotEquals(BALANCER_TEST_IPS[0], endpoint.getIp(), "removed backend was picked");
+                roundRobin.release(endpoint);
+            }
+
+            // the in-flight request outlives the removal and lands on the returning backend's counter
+            endpoints.getSubsets().get(0).getAddresses().add(removed);
+            client.endpoints().inNamespace(SERVICE_TEST_NAMESPACE).createOrReplace(endpoints);
+            awaitBackendCount(roundRobin, BALANCER_TEST_IPS.length);
+            assertEquals(1, roundRobin.getOutstanding(held), "in-flight request was forgotten");
+            roundRobin.release(held);
+            roundRobin.release(held);
+            assertEquals(0, roundRobin.getOutstanding(held), "outstanding count went below zero");
+            System.out.println("balancer:" + roundRobin);
+        } finally {
+            serviceHelper.disableEndpointResolver();
+        }
+    }
+
+    /**
+     * Test of the zone weighted policy, of class ServiceLoadBalancer.
+     */
+    @Test
+    @DisplayName("zone weighted balancing skips zero weight zones")
+    @Order(14)
+    public void testZoneWeightedLoadBalancer() throws Exception {
+        EndpointSlice slice = new EndpointSliceBuilder()
+                .withNewMetadata()
+                .withName(BALANCER_TEST_SERVICE + "-abc")
+                .withNamespace(SERVICE_TEST_NAMESPACE)
+                .addToLabels(EndpointResolver.SERVICE_NAME_LABEL, BALANCER_TEST_SERVICE)
+                .endMetadata()
+                .withAddressType("IPv4")
+                .addNewEndpoint().withAddresses(BALANCER_TEST_IPS[0]).withZone(ENDPOINT_TEST_ZONE).endEndpoint()
+                .addNewEndpoint().withAddresses(BALANCER_TEST_IPS[1]).withZone(BALANCER_TEST_REMOTE_ZONE).endEndpoint()
+                .addNewPort().withName(SERVICE_TEST_PORT_NAME).withPort(SERVICE_TEST_TARGET_PORT).endPort()
+                .build();
+        client.discovery().v1().endpointSlices().inNamespace(SERVICE_TEST_NAMESPACE).create(slice);
+
+        EndpointResolver resolver = serviceHelper.enableEndpointResolver(EndpointResolver.Source.ENDPOINT_SLICES, 0);
+        ServiceLoadBalancer.Policy policy = ServiceLoadBalancer.zoneWeighted(
+                Collections.singletonMap(BALANCER_TEST_REMOTE_ZONE, 0), 1);
+        try (ServiceLoadBalancer balancer = serviceHelper.newLoadBalancer(SERVICE_TEST_NAMESPACE, BALANCER_TEST_SERVICE, policy)) {
+            assertTrue(resolver.waitForSync(ENDPOINT_TEST_TIMEOUT_MILLIS), "resolver did not sync");
+            awaitBackendCount(balancer, 2);
+            for (int i = 0; i < 50; i++) {
+                assertEquals(ENDPOINT_TEST_ZONE, balancer.acquire().getZone(), "zero weight zone was picked");
+            }
+        } finally {
+            serviceHelper.disableEndpointResolver();
+        }
+    }
+
+    private static void awaitBackendCount(ServiceLoadBalancer balancer, int backendCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + ENDPOINT_TEST_TIMEOUT_MILLIS;
+        while (balancer.getBackendCount() != backendCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(backendCount, balancer.getBackendCount(), "backends were not updated");
+    }
+
+    private static void awaitRefreshCount(EndpointResolver resolver, long refreshCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + ENDPOINT_TEST_TIMEOUT_MILLIS;
+        while (resolver.getRefreshCount(SERVICE_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE) < refreshCount
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(resolver.getRefreshCount(SERVICE_TEST_NAMESPACE, ENDPOINT_TEST_SERVICE) >= refreshCount,
+                "endpoints were not refreshed");
+    }
 }